@@ -0,0 +1,67 @@
+package com.walmart.ticketservice.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.walmart.ticketservice.model.SeatHold;
+
+/**
+ * Multi threaded throughput and latency of the ticket service.  Run with -t to change the number
+ * of threads.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class ConcurrentTicketServiceBenchmark {
+
+    /**
+     * Spreads the benchmark threads over the levels of the venue.
+     */
+    @State(Scope.Thread)
+    public static class ThreadLevel {
+        private static final AtomicInteger threads = new AtomicInteger();
+
+        int level;
+
+        @Setup
+        public void setUp(VenueState venue) {
+            level = threads.getAndIncrement() % venue.levels + 1;
+        }
+    }
+
+    @Benchmark
+    public SeatHold findAndHoldSeatsOnOwnLevel(VenueState venue, ThreadLevel threadLevel) {
+        SeatHold seatHold = venue.ticketService.findAndHoldSeats(venue.holdSize, Optional.of(threadLevel.level),
+                Optional.empty(), VenueState.EMAIL);
+        venue.release(seatHold);
+        return seatHold;
+    }
+
+    @Benchmark
+    public SeatHold findAndHoldSeatsAcrossLevels(VenueState venue) {
+        SeatHold seatHold = venue.ticketService.findAndHoldSeats(venue.holdSize, Optional.of(1), venue.maxLevel(), VenueState.EMAIL);
+        venue.release(seatHold);
+        return seatHold;
+    }
+
+    @Benchmark
+    public int numSeatsAvailable(VenueState venue) {
+        return venue.ticketService.numSeatsAvailable(Optional.empty());
+    }
+}
@@ -0,0 +1,105 @@
+package com.walmart.ticketservice.benchmark;
+
+import com.google.common.collect.Lists;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import com.walmart.ticketservice.model.HoldRequest;
+import com.walmart.ticketservice.model.HoldResult;
+import com.walmart.ticketservice.model.SeatHold;
+
+/**
+ * Single threaded throughput and latency of the ticket service hot paths.
+ *
+ * The hold benchmarks release their seats again after each call, so their numbers include the
+ * cost of releasing the seats through the repositories.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TicketServiceBenchmark {
+
+    //Small enough to fit in the free half of the smallest venue
+    private static final int BATCH_SIZE = 100;
+
+    @Benchmark
+    public int numSeatsAvailable(VenueState venue) {
+        return venue.ticketService.numSeatsAvailable(Optional.empty());
+    }
+
+    @Benchmark
+    public int numSeatsAvailableInLevel(VenueState venue) {
+        return venue.ticketService.numSeatsAvailable(Optional.of(1));
+    }
+
+    @Benchmark
+    public SeatHold findAndHoldSeats(VenueState venue) {
+        SeatHold seatHold = venue.ticketService.findAndHoldSeats(venue.holdSize, Optional.of(1), venue.maxLevel(), VenueState.EMAIL);
+        venue.release(seatHold);
+        return seatHold;
+    }
+
+    @Benchmark
+    public String findAndHoldAndReserveSeats(VenueState venue) {
+        SeatHold seatHold = venue.ticketService.findAndHoldSeats(venue.holdSize, Optional.of(1), venue.maxLevel(), VenueState.EMAIL);
+        String confirmationCode = venue.ticketService.reserveSeats(seatHold.getId(), VenueState.EMAIL);
+        venue.release(seatHold);
+        return confirmationCode;
+    }
+
+    /**
+     * Holds a batch of seats one request at a time, for comparison with {@link #findAndHoldSeatsBatch}.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void findAndHoldSeatsOneByOne(VenueState venue, Blackhole blackhole) {
+        List<SeatHold> seatHolds = Lists.newArrayListWithCapacity(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            seatHolds.add(venue.ticketService.findAndHoldSeats(venue.holdSize, Optional.of(1), venue.maxLevel(), VenueState.EMAIL));
+        }
+        seatHolds.forEach(venue::release);
+        blackhole.consume(seatHolds);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void findAndHoldSeatsBatch(VenueState venue, Blackhole blackhole) {
+        List<HoldRequest> holdRequests = Lists.newArrayListWithCapacity(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            holdRequests.add(new HoldRequest(venue.holdSize, Optional.of(1), venue.maxLevel(), VenueState.EMAIL));
+        }
+        List<HoldResult> results = venue.ticketService.findAndHoldSeats(holdRequests);
+        results.forEach(r -> r.getSeatHold().ifPresent(venue::release));
+        blackhole.consume(results);
+    }
+
+    @Benchmark
+    public void findBest(VenueState venue, Blackhole blackhole) {
+        venue.seatRepository.findBest(venue.levels)
+                .limit(venue.holdSize)
+                .forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public void findBestAcrossLevels(VenueState venue, Blackhole blackhole) {
+        if (venue.levels > 1) {
+            venue.seatRepository.findBest(1, venue.levels)
+                    .limit(venue.holdSize)
+                    .forEach(blackhole::consume);
+        }
+    }
+}
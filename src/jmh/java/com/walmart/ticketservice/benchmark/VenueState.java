@@ -0,0 +1,96 @@
+package com.walmart.ticketservice.benchmark;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.Sets;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import com.walmart.ticketservice.model.Level;
+import com.walmart.ticketservice.model.SeatHold;
+import com.walmart.ticketservice.model.Status;
+import com.walmart.ticketservice.model.VenueConfiguration;
+import com.walmart.ticketservice.repository.ArraySeatRepository;
+import com.walmart.ticketservice.repository.InMemorySeatHoldRepository;
+import com.walmart.ticketservice.repository.InMemorySeatRepository;
+import com.walmart.ticketservice.repository.SeatHoldRepository;
+import com.walmart.ticketservice.repository.SeatRepository;
+import com.walmart.ticketservice.service.ConcurrentTicketService;
+import com.walmart.ticketservice.service.TicketService;
+
+/**
+ * A venue shared by all benchmark threads.
+ *
+ * The venue shape is given as levels x rows x seatsPerRow.  Before measuring, the venue is filled
+ * with up to liveHolds seat holds of holdSize seats, but never more than half of its seats, so the
+ * benchmarks always find seats.  Holds never expire during a run.
+ */
+@State(Scope.Benchmark)
+public class VenueState {
+
+    private static final int HOLD_LIMIT = 3600;
+    static final String EMAIL = "bench@test.com";
+
+    @Param({"1x20x50", "4x50x250"})
+    public String venueShape;
+
+    @Param({"inMemory", "array"})
+    public String repository;
+
+    @Param({"4"})
+    public int holdSize;
+
+    @Param({"0", "10000"})
+    public int liveHolds;
+
+    VenueConfiguration venueConfiguration;
+    SeatRepository seatRepository;
+    SeatHoldRepository seatHoldRepository;
+    TicketService ticketService;
+    int levels;
+
+    @Setup
+    public void setUp() {
+        List<String> shape = Splitter.on('x').splitToList(venueShape);
+        levels = Integer.parseInt(shape.get(0));
+        int rows = Integer.parseInt(shape.get(1));
+        int seatsPerRow = Integer.parseInt(shape.get(2));
+
+        Set<Level> venueLevels = Sets.newHashSet();
+        for (int i = 1; i <= levels; i++) {
+            venueLevels.add(new Level(i, "level" + i, rows, seatsPerRow, BigDecimal.ONE));
+        }
+        venueConfiguration = new VenueConfiguration(HOLD_LIMIT, venueLevels);
+        seatRepository = "array".equals(repository)
+                ? new ArraySeatRepository(venueConfiguration)
+                : new InMemorySeatRepository(venueConfiguration);
+        seatHoldRepository = new InMemorySeatHoldRepository();
+        ticketService = new ConcurrentTicketService(venueConfiguration, seatRepository, seatHoldRepository);
+
+        int holds = Math.min(liveHolds, levels * rows * seatsPerRow / 2 / holdSize);
+        for (int i = 0; i < holds; i++) {
+            ticketService.findAndHoldSeats(holdSize, Optional.of(1), maxLevel(), EMAIL);
+        }
+    }
+
+    Optional<Integer> maxLevel() {
+        return levels > 1 ? Optional.of(levels) : Optional.empty();
+    }
+
+    /**
+     * Gives the seats of a seat hold back to the venue without going through the ticket service,
+     * so the hold benchmarks run against a venue in a steady state.
+     */
+    void release(SeatHold seatHold) {
+        seatHoldRepository.delete(seatHold);
+        seatHold.getHeldSeats().forEach(s -> s.setStatus(Status.AVAILABLE));
+        seatRepository.save(seatHold.getHeldSeats());
+    }
+}
@@ -0,0 +1,30 @@
+package com.walmart.ticketservice.exception;
+
+/**
+ * Thrown when a hold gives up because the seats it found kept being taken by concurrent holds.
+ * Seats may still be available, so the request can be retried.
+ */
+public class HoldContentionException extends TicketServiceException {
+    private int numSeats;
+    private String customerEmail;
+    private int attempts;
+
+    public HoldContentionException(String message, int numSeats, String customerEmail, int attempts) {
+        super(message);
+        this.numSeats = numSeats;
+        this.customerEmail = customerEmail;
+        this.attempts = attempts;
+    }
+
+    public int getNumSeats() {
+        return numSeats;
+    }
+
+    public String getCustomerEmail() {
+        return customerEmail;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+}
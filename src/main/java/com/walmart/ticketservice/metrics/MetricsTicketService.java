@@ -0,0 +1,82 @@
+package com.walmart.ticketservice.metrics;
+
+import com.google.common.base.Preconditions;
+
+import java.util.List;
+import java.util.Optional;
+
+import com.walmart.ticketservice.exception.TicketServiceException;
+import com.walmart.ticketservice.metrics.TicketMetrics.Operation;
+import com.walmart.ticketservice.model.HoldRequest;
+import com.walmart.ticketservice.model.HoldResult;
+import com.walmart.ticketservice.model.SeatHold;
+import com.walmart.ticketservice.service.AbstractTicketService;
+import com.walmart.ticketservice.service.TicketService;
+
+/**
+ * Records the latency of every operation of a {@link TicketService} in {@link TicketMetrics}.
+ *
+ * Failed operations are recorded too.  If the wrapped service is an {@link AbstractTicketService}
+ * the metrics are also added to it as a listener so its seat holds are counted.  Other services,
+ * e.g. an {@link com.walmart.ticketservice.service.EventLoopTicketService}, only get their
+ * latencies recorded; add the metrics as a listener to the service they wrap to count their seat
+ * holds.
+ */
+public class MetricsTicketService implements TicketService {
+
+    private TicketService ticketService;
+    private TicketMetrics metrics;
+
+    public MetricsTicketService(TicketService ticketService, TicketMetrics metrics) {
+        this.ticketService = Preconditions.checkNotNull(ticketService, "ticketService cannot be null");
+        this.metrics = Preconditions.checkNotNull(metrics, "metrics cannot be null");
+        if (ticketService instanceof AbstractTicketService) {
+            ((AbstractTicketService) ticketService).addListener(metrics);
+        }
+    }
+
+    public TicketMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public int numSeatsAvailable(Optional<Integer> venueLevel) {
+        long start = System.nanoTime();
+        try {
+            return ticketService.numSeatsAvailable(venueLevel);
+        } finally {
+            metrics.getLatency(Operation.NUM_SEATS_AVAILABLE).record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public SeatHold findAndHoldSeats(int numSeats, Optional<Integer> minLevel, Optional<Integer> maxLevel,
+                                     String customerEmail) throws TicketServiceException {
+        long start = System.nanoTime();
+        try {
+            return ticketService.findAndHoldSeats(numSeats, minLevel, maxLevel, customerEmail);
+        } finally {
+            metrics.getLatency(Operation.FIND_AND_HOLD_SEATS).record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<HoldResult> findAndHoldSeats(List<HoldRequest> holdRequests) {
+        long start = System.nanoTime();
+        try {
+            return ticketService.findAndHoldSeats(holdRequests);
+        } finally {
+            metrics.getLatency(Operation.FIND_AND_HOLD_SEATS_BATCH).record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public String reserveSeats(int seatHoldId, String customerEmail) throws TicketServiceException {
+        long start = System.nanoTime();
+        try {
+            return ticketService.reserveSeats(seatHoldId, customerEmail);
+        } finally {
+            metrics.getLatency(Operation.RESERVE_SEATS).record(System.nanoTime() - start);
+        }
+    }
+}
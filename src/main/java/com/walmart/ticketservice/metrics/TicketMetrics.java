@@ -0,0 +1,224 @@
+package com.walmart.ticketservice.metrics;
+
+import com.google.common.base.Preconditions;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import com.walmart.ticketservice.exception.NoAvailableSeatsException;
+import com.walmart.ticketservice.model.Level;
+import com.walmart.ticketservice.model.SeatHold;
+import com.walmart.ticketservice.model.Status;
+import com.walmart.ticketservice.model.VenueConfiguration;
+import com.walmart.ticketservice.repository.SeatHoldRepository;
+import com.walmart.ticketservice.repository.SeatRepository;
+import com.walmart.ticketservice.service.AbstractTicketService;
+import com.walmart.ticketservice.service.TicketServiceListener;
+
+/**
+ * The metrics of a ticket service: a latency histogram per operation, counters of the seat holds
+ * created, rejected, reserved and expired, and gauges.
+ *
+ * The latencies are recorded by a {@link MetricsTicketService} and the counters are fed by adding
+ * the metrics as a listener to an {@link AbstractTicketService}.  Recording never allocates, so the
+ * metrics can stay on in production.  Gauges are only read when the metrics are exported.
+ *
+ * The metrics are exported in the Prometheus text format, with latencies in seconds, so they can be
+ * served by any HTTP endpoint, written to a log or scraped from a file.
+ */
+public class TicketMetrics implements TicketServiceListener {
+
+    public enum Operation {
+        NUM_SEATS_AVAILABLE("num_seats_available"),
+        FIND_AND_HOLD_SEATS("find_and_hold_seats"),
+        FIND_AND_HOLD_SEATS_BATCH("find_and_hold_seats_batch"),
+        RESERVE_SEATS("reserve_seats");
+
+        private String label;
+
+        Operation(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    public static final String DEFAULT_PREFIX = "ticketservice";
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private String prefix;
+    private LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+    private LongAdder holdsCreated = new LongAdder();
+    private LongAdder seatsHeld = new LongAdder();
+    private LongAdder holdsRejected = new LongAdder();
+    private LongAdder holdsReserved = new LongAdder();
+    private LongAdder holdsExpired = new LongAdder();
+    //Sorted so the series of a gauge are exported together
+    private Map<String, LongSupplier> gauges = new ConcurrentSkipListMap<>();
+
+    public TicketMetrics() {
+        this(DEFAULT_PREFIX);
+    }
+
+    /**
+     * @param prefix the prefix of every exported metric name
+     */
+    public TicketMetrics(String prefix) {
+        Preconditions.checkArgument(prefix != null && prefix.matches("[a-zA-Z_:][a-zA-Z0-9_:]*"),
+                "prefix \"" + prefix + "\" is not a valid metric name");
+        this.prefix = prefix;
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    public LatencyHistogram getLatency(Operation operation) {
+        return latencies[operation.ordinal()];
+    }
+
+    public long getHoldsCreated() {
+        return holdsCreated.sum();
+    }
+
+    public long getSeatsHeld() {
+        return seatsHeld.sum();
+    }
+
+    public long getHoldsRejected() {
+        return holdsRejected.sum();
+    }
+
+    public long getHoldsReserved() {
+        return holdsReserved.sum();
+    }
+
+    public long getHoldsExpired() {
+        return holdsExpired.sum();
+    }
+
+    @Override
+    public void onHold(SeatHold seatHold) {
+        holdsCreated.increment();
+        seatsHeld.add(seatHold.getHeldSeats().size());
+    }
+
+    @Override
+    public void onHoldRejected(NoAvailableSeatsException e) {
+        holdsRejected.increment();
+    }
+
+    @Override
+    public void onReserve(int seatHoldId, String confirmationCode) {
+        holdsReserved.increment();
+    }
+
+    @Override
+    public void onExpire(SeatHold seatHold) {
+        holdsExpired.increment();
+    }
+
+    /**
+     * Adds a gauge, replacing any gauge with the same name and labels.
+     *
+     * @param name   the name of the gauge, without the prefix
+     * @param labels the labels of the series, e.g. {@code level="1"}, or an empty string
+     * @param value  read every time the metrics are exported
+     */
+    public void gauge(String name, String labels, LongSupplier value) {
+        Preconditions.checkArgument(name != null && name.matches("[a-zA-Z_:][a-zA-Z0-9_:]*"),
+                "name \"" + name + "\" is not a valid metric name");
+        Preconditions.checkNotNull(labels, "labels cannot be null");
+        Preconditions.checkNotNull(value, "value cannot be null");
+        gauges.put(prefix + "_" + name + (labels.isEmpty() ? "" : "{" + labels + "}"), value);
+    }
+
+    /**
+     * Adds an available_seats gauge for every level of the venue.
+     */
+    public void gaugeAvailableSeats(VenueConfiguration venueConfiguration, SeatRepository seatRepository) {
+        for (Level level : venueConfiguration.getLevels()) {
+            gauge("available_seats", "level=\"" + level.getId() + "\"",
+                    () -> seatRepository.countAll(level.getId(), Status.AVAILABLE));
+        }
+    }
+
+    /**
+     * Adds a live_holds gauge with the number of seat holds that are not reserved.  Holds that have
+     * expired but were not cleaned up yet are included.
+     */
+    public void gaugeLiveHolds(SeatHoldRepository seatHoldRepository) {
+        gauge("live_holds", "", () -> seatHoldRepository.findAll()
+                .filter(s -> !s.getConfirmationCode().isPresent())
+                .count());
+    }
+
+    /**
+     * Writes all metrics in the Prometheus text format.
+     */
+    public void writeTo(Appendable out) throws IOException {
+        writeCounter(out, "holds_created_total", "Seat holds created", holdsCreated.sum());
+        writeCounter(out, "seats_held_total", "Seats held by the seat holds created", seatsHeld.sum());
+        writeCounter(out, "holds_rejected_total", "Hold requests rejected for lack of available seats", holdsRejected.sum());
+        writeCounter(out, "holds_reserved_total", "Seat holds reserved", holdsReserved.sum());
+        writeCounter(out, "holds_expired_total", "Seat holds expired", holdsExpired.sum());
+
+        String latency = prefix + "_request_latency_seconds";
+        out.append("# HELP ").append(latency).append(" Latency of the ticket service operations\n");
+        out.append("# TYPE ").append(latency).append(" summary\n");
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram histogram = getLatency(operation);
+            String labels = "{operation=\"" + operation.getLabel() + "\"";
+            for (double quantile : QUANTILES) {
+                out.append(latency).append(labels).append(",quantile=\"").append(String.valueOf(quantile)).append("\"} ")
+                        .append(seconds(histogram.getValueAtPercentile(quantile * 100))).append('\n');
+            }
+            out.append(latency).append("_sum").append(labels).append("} ").append(seconds(histogram.getSum())).append('\n');
+            out.append(latency).append("_count").append(labels).append("} ").append(String.valueOf(histogram.getCount())).append('\n');
+        }
+
+        String previousName = null;
+        for (Map.Entry<String, LongSupplier> gauge : gauges.entrySet()) {
+            String series = gauge.getKey();
+            int labels = series.indexOf('{');
+            String name = labels < 0 ? series : series.substring(0, labels);
+            if (!name.equals(previousName)) {
+                out.append("# TYPE ").append(name).append(" gauge\n");
+                previousName = name;
+            }
+            out.append(series).append(' ').append(String.valueOf(gauge.getValue().getAsLong())).append('\n');
+        }
+    }
+
+    /**
+     * @return all metrics in the Prometheus text format
+     */
+    public String export() {
+        StringBuilder out = new StringBuilder();
+        try {
+            writeTo(out);
+        } catch (IOException e) {
+            //A StringBuilder does not throw
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    private void writeCounter(Appendable out, String name, String help, long value) throws IOException {
+        String metric = prefix + "_" + name;
+        out.append("# HELP ").append(metric).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(metric).append(" counter\n");
+        out.append(metric).append(' ').append(String.valueOf(value)).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return String.valueOf(nanos / NANOS_PER_SECOND);
+    }
+}
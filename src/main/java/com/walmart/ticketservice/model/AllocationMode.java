@@ -0,0 +1,16 @@
+package com.walmart.ticketservice.model;
+
+/**
+ * How the seats of a seat hold are chosen.
+ */
+public enum AllocationMode {
+    /**
+     * The best available seats, wherever they are.
+     */
+    BEST_AVAILABLE,
+    /**
+     * The best block of adjacent seats in a single row, falling back to the best available seats
+     * when no row has enough adjacent available seats.
+     */
+    CONTIGUOUS
+}
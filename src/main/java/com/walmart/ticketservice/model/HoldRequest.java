@@ -0,0 +1,54 @@
+package com.walmart.ticketservice.model;
+
+import com.google.common.base.MoreObjects;
+
+import java.util.Optional;
+
+/**
+ * The parameters of one customer's request to find and hold seats, for use in a batch.
+ *
+ * @see com.walmart.ticketservice.service.TicketService#findAndHoldSeats(java.util.List)
+ */
+public class HoldRequest {
+    private int numSeats;
+    private Optional<Integer> minLevel;
+    private Optional<Integer> maxLevel;
+    private String customerEmail;
+
+    public HoldRequest(int numSeats, String customerEmail) {
+        this(numSeats, Optional.empty(), Optional.empty(), customerEmail);
+    }
+
+    public HoldRequest(int numSeats, Optional<Integer> minLevel, Optional<Integer> maxLevel, String customerEmail) {
+        this.numSeats = numSeats;
+        this.minLevel = minLevel;
+        this.maxLevel = maxLevel;
+        this.customerEmail = customerEmail;
+    }
+
+    public int getNumSeats() {
+        return numSeats;
+    }
+
+    public Optional<Integer> getMinLevel() {
+        return minLevel;
+    }
+
+    public Optional<Integer> getMaxLevel() {
+        return maxLevel;
+    }
+
+    public String getCustomerEmail() {
+        return customerEmail;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("numSeats", numSeats)
+                .add("minLevel", minLevel)
+                .add("maxLevel", maxLevel)
+                .add("customerEmail", customerEmail)
+                .toString();
+    }
+}
@@ -0,0 +1,55 @@
+package com.walmart.ticketservice.model;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+
+import java.util.Optional;
+
+/**
+ * The outcome of one {@link HoldRequest} in a batch: either the {@link SeatHold} that was created
+ * or the exception that a single request would have thrown.
+ */
+public class HoldResult {
+    private HoldRequest holdRequest;
+    private SeatHold seatHold;
+    private RuntimeException failure;
+
+    private HoldResult(HoldRequest holdRequest, SeatHold seatHold, RuntimeException failure) {
+        this.holdRequest = holdRequest;
+        this.seatHold = seatHold;
+        this.failure = failure;
+    }
+
+    public static HoldResult success(HoldRequest holdRequest, SeatHold seatHold) {
+        return new HoldResult(holdRequest, Preconditions.checkNotNull(seatHold, "seatHold cannot be null"), null);
+    }
+
+    public static HoldResult failure(HoldRequest holdRequest, RuntimeException failure) {
+        return new HoldResult(holdRequest, null, Preconditions.checkNotNull(failure, "failure cannot be null"));
+    }
+
+    public HoldRequest getHoldRequest() {
+        return holdRequest;
+    }
+
+    public boolean isSuccess() {
+        return seatHold != null;
+    }
+
+    public Optional<SeatHold> getSeatHold() {
+        return Optional.ofNullable(seatHold);
+    }
+
+    public Optional<RuntimeException> getFailure() {
+        return Optional.ofNullable(failure);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("holdRequest", holdRequest)
+                .add("seatHold", seatHold)
+                .add("failure", failure)
+                .toString();
+    }
+}
@@ -0,0 +1,760 @@
+package com.walmart.ticketservice.repository;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.walmart.ticketservice.exception.SeatRepositoryException;
+import com.walmart.ticketservice.model.Level;
+import com.walmart.ticketservice.model.Seat;
+import com.walmart.ticketservice.model.SeatHold;
+import com.walmart.ticketservice.model.Status;
+import com.walmart.ticketservice.model.VenueConfiguration;
+import com.walmart.ticketservice.utils.BasicSeatScorer;
+import com.walmart.ticketservice.utils.BulkSeatScorer;
+import com.walmart.ticketservice.utils.SeatScorer;
+import com.walmart.ticketservice.utils.TicketServiceUtils;
+
+/**
+ * A memory efficient repository that keeps the venue in primitive arrays instead of one object per
+ * seat.
+ *
+ * Every seat is addressed by a dense ordinal.  Levels are laid out in ascending id order and the
+ * seats of a level in row major order, so the level, row and number of a seat are computed from
+ * its ordinal and only the score, the status and the id of the seat hold a held or reserved seat
+ * belongs to are stored.  {@link Seat} objects are only created for the seats that are returned.
+ *
+ * Best seats are ordered by score, the same order as {@link com.walmart.ticketservice.utils.SeatComparator}.
+ * The seats of every level are kept sorted by score, which takes another 4 bytes per seat, so the
+ * best seats are found by walking the levels in that order and merging them lazily.  A search only
+ * visits the seats it returns and the ones skipped because they are no longer available.
+ * The runs of adjacent available seats are kept in a {@link RowRunIndex} per level, guarded by the
+ * level's lock.
+ *
+ * Every level also keeps a bitmap with a bit set for each available seat, one bit per seat next
+ * to the status byte.  Searches test the bitmap instead of the statuses so they touch an eighth of
+ * the memory, and seats are found by status a word at a time, skipping 64 seats whose bits are
+ * all clear with a single comparison.
+ */
+public class ArraySeatRepository implements OrderedSeatRepository {
+
+    private static final Status[] STATUSES = Status.values();
+
+    private int[] levelIds;
+    private int[] levelStarts;
+    private int[] seatsPerRow;
+    private int[] rows;
+    private int[] scores;
+    private byte[] statuses;
+    //0 while the seat does not belong to any seat hold
+    private int[] seatHoldIds;
+    //Bit n of a level is set while the seat at offset n of the level is available
+    private long[][] availableSeats;
+    private Object[] levelLocks;
+    private RowRunIndex[] rowRuns;
+    //Null while the level must be sorted again because a score changed
+    private AtomicReferenceArray<BestOrder> bestOrders;
+    private AtomicIntegerArray levelStatusCounts;
+    private AtomicIntegerArray venueStatusCounts;
+
+    public ArraySeatRepository(VenueConfiguration venueConfiguration) {
+        this(venueConfiguration, new BasicSeatScorer(venueConfiguration));
+    }
+
+    public ArraySeatRepository(VenueConfiguration venueConfiguration, SeatScorer seatScorer) {
+        layout(venueConfiguration);
+        init(seatScorer);
+    }
+
+    /**
+     * Creates a repository from scores and statuses that were already computed, indexed by the
+     * ordinal of each seat.  The held and reserved seats of the seat holds belong to them.
+     */
+    ArraySeatRepository(VenueConfiguration venueConfiguration, int[] scores, byte[] statuses, Collection<SeatHold> seatHolds) {
+        layout(venueConfiguration);
+        Preconditions.checkArgument(scores.length == this.scores.length && statuses.length == this.statuses.length,
+                "the venue has " + this.scores.length + " seats");
+        this.scores = scores;
+        this.statuses = statuses;
+        seatHolds.forEach(h -> h.getHeldSeats().forEach(s -> {
+            int ordinal = ordinal(s);
+            if (ordinal >= 0 && statuses[ordinal] != Status.AVAILABLE.ordinal()) {
+                seatHoldIds[ordinal] = h.getId();
+            }
+        }));
+        index();
+    }
+
+    @Override
+    public Stream<Seat> findAll() {
+        return seats(0, levelCount());
+    }
+
+    @Override
+    public Stream<Seat> findAll(Status status) {
+        return seats(0, levelCount(), status);
+    }
+
+    @Override
+    public Stream<Seat> findAll(int level) {
+        int levelIndex = levelIndex(level);
+        return levelIndex < 0 ? Stream.empty() : seats(levelIndex, levelIndex + 1);
+    }
+
+    @Override
+    public Stream<Seat> findAll(int level, Status status) {
+        int levelIndex = levelIndex(level);
+        return levelIndex < 0 ? Stream.empty() : seats(levelIndex, levelIndex + 1, status);
+    }
+
+    @Override
+    public Stream<Seat> findAll(int minLevel, int maxLevel) {
+        TicketServiceUtils.checkRequestedLevels(minLevel, maxLevel);
+        return seats(firstLevelIndex(minLevel), firstLevelIndex(maxLevel + 1));
+    }
+
+    @Override
+    public Stream<Seat> findAll(int minLevel, int maxLevel, Status status) {
+        TicketServiceUtils.checkRequestedLevels(minLevel, maxLevel);
+        return seats(firstLevelIndex(minLevel), firstLevelIndex(maxLevel + 1), status);
+    }
+
+    @Override
+    public Stream<Seat> findBest(int level) {
+        int levelIndex = levelIndex(level);
+        return levelIndex < 0 ? Stream.empty() : best(levelIndex, levelIndex + 1);
+    }
+
+    @Override
+    public Stream<Seat> findBest(int minLevel, int maxLevel) {
+        TicketServiceUtils.checkRequestedLevels(minLevel, maxLevel);
+        return best(firstLevelIndex(minLevel), firstLevelIndex(maxLevel + 1));
+    }
+
+    @Override
+    public Stream<Seat> findTop(int level, int limit) {
+        Preconditions.checkArgument(limit >= 0, "limit cannot be negative");
+        int levelIndex = levelIndex(level);
+        return levelIndex < 0 ? Stream.empty() : best(levelIndex, levelIndex + 1).limit(limit);
+    }
+
+    @Override
+    public Stream<Seat> findTop(int minLevel, int maxLevel, int limit) {
+        TicketServiceUtils.checkRequestedLevels(minLevel, maxLevel);
+        Preconditions.checkArgument(limit >= 0, "limit cannot be negative");
+        return best(firstLevelIndex(minLevel), firstLevelIndex(maxLevel + 1)).limit(limit);
+    }
+
+    @Override
+    public Stream<Seat> findBestContiguous(int level, int numSeats) {
+        Preconditions.checkArgument(numSeats > 0, "numSeats must be greater than 0");
+        int levelIndex = levelIndex(level);
+        return levelIndex < 0 ? Stream.empty() : contiguous(levelIndex, numSeats).stream();
+    }
+
+    @Override
+    public Stream<Seat> findBestContiguous(int minLevel, int maxLevel, int numSeats) {
+        TicketServiceUtils.checkRequestedLevels(minLevel, maxLevel);
+        Preconditions.checkArgument(numSeats > 0, "numSeats must be greater than 0");
+        List<Seat> best = Collections.emptyList();
+        int bestScore = Integer.MAX_VALUE;
+        int toLevelIndex = firstLevelIndex(maxLevel + 1);
+        for (int i = firstLevelIndex(minLevel); i < toLevelIndex; i++) {
+            List<Seat> block = contiguous(i, numSeats);
+            int score = block.stream().mapToInt(Seat::getScore).min().orElse(Integer.MAX_VALUE);
+            if (score < bestScore) {
+                best = block;
+                bestScore = score;
+            }
+        }
+        return best.stream();
+    }
+
+    @Override
+    public int countAll(Status status) {
+        return venueStatusCounts.get(status.ordinal());
+    }
+
+    @Override
+    public int countAll(int level, Status status) {
+        int levelIndex = levelIndex(level);
+        return levelIndex < 0 ? 0 : levelStatusCounts.get(levelIndex * STATUSES.length + status.ordinal());
+    }
+
+    @Override
+    public void save(Seat seat) throws SeatRepositoryException {
+        Preconditions.checkNotNull(seat, "seat cannot be null");
+        save(Lists.newArrayList(seat));
+    }
+
+    /**
+     * Saves the seats of each level while holding the level's lock once, so holding, reserving or
+     * freeing a block of seats takes a single lock per level.
+     */
+    @Override
+    public void save(Iterable<Seat> seats) throws SeatRepositoryException {
+        Preconditions.checkNotNull(seats, "seats cannot be null");
+        List<Seat> toSave = Lists.newArrayList(seats);
+        int[] ordinals = ordinals(toSave);
+        BitSet levels = levelsOf(ordinals);
+        for (int levelIndex = levels.nextSetBit(0); levelIndex >= 0; levelIndex = levels.nextSetBit(levelIndex + 1)) {
+            synchronized (levelLocks[levelIndex]) {
+                for (int i = 0; i < ordinals.length; i++) {
+                    if (ordinals[i] >= levelStarts[levelIndex] && ordinals[i] < levelStarts[levelIndex + 1]) {
+                        save(levelIndex, ordinals[i], toSave.get(i));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Locks the levels of the seats in ascending order, like a transition, runs the action and
+     * saves the seats.
+     */
+    @Override
+    public void save(Iterable<Seat> seats, Runnable whileSaving) throws SeatRepositoryException {
+        Preconditions.checkNotNull(seats, "seats cannot be null");
+        Preconditions.checkNotNull(whileSaving, "whileSaving cannot be null");
+        List<Seat> toSave = Lists.newArrayList(seats);
+        int[] ordinals = ordinals(toSave);
+        BitSet levels = levelsOf(ordinals);
+        whileLocked(levels, levels.nextSetBit(0), () -> {
+            whileSaving.run();
+            for (int i = 0; i < ordinals.length; i++) {
+                save(levelIndexOf(ordinals[i]), ordinals[i], toSave.get(i));
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Locks the levels of the seats, always in ascending order so concurrent changes cannot
+     * deadlock, and moves the seats only if all of them are still in the expected status and
+     * belong to the seat hold.  Other operations never hold more than one level lock.
+     */
+    @Override
+    public boolean transition(Collection<Seat> seats, int seatHoldId, Status expected, Status target) throws SeatRepositoryException {
+        return transition(seats, seatHoldId, expected, target, () -> { });
+    }
+
+    @Override
+    public boolean transition(Collection<Seat> seats, int seatHoldId, Status expected, Status target, Runnable whileMoving)
+            throws SeatRepositoryException {
+        Preconditions.checkNotNull(seats, "seats cannot be null");
+        Preconditions.checkNotNull(expected, "expected cannot be null");
+        Preconditions.checkNotNull(target, "target cannot be null");
+        Preconditions.checkNotNull(whileMoving, "whileMoving cannot be null");
+        int[] ordinals = ordinals(seats);
+        BitSet levels = levelsOf(ordinals);
+        return whileLocked(levels, levels.nextSetBit(0), () -> {
+            for (int ordinal : ordinals) {
+                if (statuses[ordinal] != expected.ordinal()
+                        || expected != Status.AVAILABLE && seatHoldIds[ordinal] != seatHoldId) {
+                    return false;
+                }
+            }
+            whileMoving.run();
+            for (int ordinal : ordinals) {
+                setStatus(levelIndexOf(ordinal), ordinal, target.ordinal());
+                seatHoldIds[ordinal] = target == Status.AVAILABLE ? 0 : seatHoldId;
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Locks the level and then the levels after it, and runs the change once all of them are locked.
+     */
+    private <T> T whileLocked(BitSet levels, int levelIndex, Supplier<T> change) {
+        if (levelIndex >= 0) {
+            synchronized (levelLocks[levelIndex]) {
+                return whileLocked(levels, levels.nextSetBit(levelIndex + 1), change);
+            }
+        }
+        return change.get();
+    }
+
+    /**
+     * @return the ordinals of the seats
+     * @throws SeatRepositoryException if any of the seats is not part of the venue
+     */
+    private int[] ordinals(Collection<Seat> seats) {
+        int[] ordinals = new int[seats.size()];
+        final List<Seat> badSeats = Lists.newArrayList();
+        int i = 0;
+        for (Seat seat : seats) {
+            ordinals[i] = ordinal(seat);
+            if (ordinals[i++] < 0) {
+                badSeats.add(seat);
+            }
+        }
+
+        if (!badSeats.isEmpty()) {
+            throw new SeatRepositoryException("1 or more seats did not belong in the original set.", badSeats);
+        }
+        return ordinals;
+    }
+
+    private BitSet levelsOf(int[] ordinals) {
+        BitSet levels = new BitSet(levelCount());
+        for (int ordinal : ordinals) {
+            levels.set(levelIndexOf(ordinal));
+        }
+        return levels;
+    }
+
+    /**
+     * Must be called while holding the lock of the level.
+     */
+    private void save(int levelIndex, int ordinal, Seat seat) {
+        if (scores[ordinal] != seat.getScore()) {
+            scores[ordinal] = seat.getScore();
+            bestOrders.set(levelIndex, null);
+        }
+        setStatus(levelIndex, ordinal, seat.getStatus().ordinal());
+        seatHoldIds[ordinal] = 0;
+    }
+
+    /**
+     * Must be called while holding the lock of the level.
+     */
+    private void setStatus(int levelIndex, int ordinal, int current) {
+        int previous = statuses[ordinal];
+        if (previous != current) {
+            int offset = ordinal - levelStarts[levelIndex];
+            boolean available = current == Status.AVAILABLE.ordinal();
+            setAvailable(levelIndex, offset, available);
+            statuses[ordinal] = (byte) current;
+            rowRuns[levelIndex].set(offset / seatsPerRow[levelIndex] + 1, offset % seatsPerRow[levelIndex] + 1, available);
+            BestOrder bestOrder = bestOrders.get(levelIndex);
+            if (available && bestOrder != null) {
+                bestOrder.seatFreed();
+            }
+            levelStatusCounts.decrementAndGet(levelIndex * STATUSES.length + previous);
+            levelStatusCounts.incrementAndGet(levelIndex * STATUSES.length + current);
+            venueStatusCounts.decrementAndGet(previous);
+            venueStatusCounts.incrementAndGet(current);
+        }
+    }
+
+    private Stream<Seat> seats(int fromLevelIndex, int toLevelIndex) {
+        return IntStream.range(levelStarts[fromLevelIndex], levelStarts[toLevelIndex])
+                .mapToObj(this::seat);
+    }
+
+    /**
+     * Scans the availability bitmaps of the levels for the seats with the status.  Held and
+     * reserved seats are the clear bits, told apart by their status.
+     */
+    private Stream<Seat> seats(int fromLevelIndex, int toLevelIndex, Status status) {
+        boolean available = status == Status.AVAILABLE;
+        IntStream ordinals = StreamSupport.intStream(Spliterators.spliteratorUnknownSize(
+                new StatusBitIterator(fromLevelIndex, toLevelIndex, available), Spliterator.ORDERED | Spliterator.DISTINCT), false);
+        return (available ? ordinals : ordinals.filter(o -> statuses[o] == status.ordinal()))
+                .mapToObj(this::seat);
+    }
+
+    private boolean isAvailable(int levelIndex, int ordinal) {
+        int offset = ordinal - levelStarts[levelIndex];
+        return (availableSeats[levelIndex][offset >>> 6] & 1L << offset) != 0;
+    }
+
+    private void setAvailable(int levelIndex, int offset, boolean available) {
+        if (available) {
+            availableSeats[levelIndex][offset >>> 6] |= 1L << offset;
+        } else {
+            availableSeats[levelIndex][offset >>> 6] &= ~(1L << offset);
+        }
+    }
+
+    /**
+     * Lazily merges the available seats of the levels in score order, so only the seats that are
+     * consumed from the stream are visited.
+     */
+    private Stream<Seat> best(int fromLevelIndex, int toLevelIndex) {
+        return StreamSupport.intStream(Spliterators.spliteratorUnknownSize(new BestSeatIterator(fromLevelIndex, toLevelIndex),
+                Spliterator.ORDERED | Spliterator.DISTINCT), false)
+                .mapToObj(this::seat);
+    }
+
+    /**
+     * @return the seats of the level ordered by score, sorted again if a score changed
+     */
+    private BestOrder bestOrder(int levelIndex) {
+        BestOrder bestOrder = bestOrders.get(levelIndex);
+        if (bestOrder == null) {
+            synchronized (levelLocks[levelIndex]) {
+                bestOrder = bestOrders.get(levelIndex);
+                if (bestOrder == null) {
+                    bestOrder = new BestOrder(sortByScore(levelIndex));
+                    bestOrders.set(levelIndex, bestOrder);
+                }
+            }
+        }
+        return bestOrder;
+    }
+
+    /**
+     * @return the ordinals of the seats of the level ordered by score and then ordinal
+     */
+    private int[] sortByScore(int levelIndex) {
+        int from = levelStarts[levelIndex];
+        long[] seats = new long[levelStarts[levelIndex + 1] - from];
+        for (int i = 0; i < seats.length; i++) {
+            seats[i] = (long) scores[from + i] << 32 | (from + i);
+        }
+        Arrays.sort(seats);
+        int[] ordinals = new int[seats.length];
+        for (int i = 0; i < seats.length; i++) {
+            ordinals[i] = (int) seats[i];
+        }
+        return ordinals;
+    }
+
+    /**
+     * @return the best block of adjacent available seats on the level or an empty list if there is
+     * none
+     */
+    private List<Seat> contiguous(int levelIndex, int numSeats) {
+        List<Seat> block = Lists.newArrayListWithCapacity(numSeats);
+        synchronized (levelLocks[levelIndex]) {
+            long found = rowRuns[levelIndex].findBest(numSeats);
+            if (found < 0) {
+                return Collections.emptyList();
+            }
+            int first = levelStarts[levelIndex] + ((int) (found >>> 32) - 1) * seatsPerRow[levelIndex] + (int) found - 1;
+            for (int o = first; o < first + numSeats; o++) {
+                block.add(seat(o));
+            }
+        }
+        return block;
+    }
+
+    private Seat seat(int ordinal) {
+        int levelIndex = levelIndexOf(ordinal);
+        int offset = ordinal - levelStarts[levelIndex];
+        return new Seat(levelIds[levelIndex], offset / seatsPerRow[levelIndex] + 1, offset % seatsPerRow[levelIndex] + 1,
+                scores[ordinal], STATUSES[statuses[ordinal]]);
+    }
+
+    /**
+     * @return the ordinal of the seat or -1 if it is not part of the venue
+     */
+    private int ordinal(Seat seat) {
+        int levelIndex = levelIndex(seat.getLevel());
+        if (levelIndex < 0
+                || seat.getRow() < 1 || seat.getRow() > rows[levelIndex]
+                || seat.getNumber() < 1 || seat.getNumber() > seatsPerRow[levelIndex]) {
+            return -1;
+        }
+        return levelStarts[levelIndex] + (seat.getRow() - 1) * seatsPerRow[levelIndex] + seat.getNumber() - 1;
+    }
+
+    /**
+     * @return the index of the level or a negative value if it is not part of the venue
+     */
+    private int levelIndex(int level) {
+        return Arrays.binarySearch(levelIds, level);
+    }
+
+    /**
+     * @return the index of the first level with an id greater than or equal to the provided id
+     */
+    private int firstLevelIndex(int level) {
+        int levelIndex = levelIndex(level);
+        return levelIndex < 0 ? -levelIndex - 1 : levelIndex;
+    }
+
+    private int levelIndexOf(int ordinal) {
+        int levelIndex = Arrays.binarySearch(levelStarts, ordinal);
+        //Empty levels share their start with the next level so skip forward to the level holding the seat
+        if (levelIndex >= 0) {
+            while (levelStarts[levelIndex + 1] == ordinal) {
+                levelIndex++;
+            }
+            return levelIndex;
+        }
+        return -levelIndex - 2;
+    }
+
+    private int levelCount() {
+        return levelIds.length;
+    }
+
+    /**
+     * Copies the scores and statuses of all seats, indexed by ordinal.  Each level is copied while
+     * it is locked so the copy of a level is consistent.
+     */
+    void copyTo(int[] scores, byte[] statuses) {
+        for (int i = 0; i < levelCount(); i++) {
+            synchronized (levelLocks[i]) {
+                int length = levelStarts[i + 1] - levelStarts[i];
+                System.arraycopy(this.scores, levelStarts[i], scores, levelStarts[i], length);
+                System.arraycopy(this.statuses, levelStarts[i], statuses, levelStarts[i], length);
+            }
+        }
+    }
+
+    private void layout(VenueConfiguration venueConfiguration) {
+        List<Level> levels = Lists.newArrayList(venueConfiguration.getLevels());
+        levels.sort(Comparator.comparingInt(Level::getId));
+
+        int levelCount = levels.size();
+        levelIds = new int[levelCount];
+        levelStarts = new int[levelCount + 1];
+        seatsPerRow = new int[levelCount];
+        rows = new int[levelCount];
+        levelLocks = new Object[levelCount];
+        availableSeats = new long[levelCount][];
+        rowRuns = new RowRunIndex[levelCount];
+        bestOrders = new AtomicReferenceArray<>(levelCount);
+        for (int i = 0; i < levelCount; i++) {
+            Level level = levels.get(i);
+            levelIds[i] = level.getId();
+            rows[i] = level.getRows();
+            seatsPerRow[i] = level.getSeatsPerRow();
+            levelStarts[i + 1] = levelStarts[i] + level.getTotalSeats();
+            levelLocks[i] = new Object();
+            availableSeats[i] = new long[(level.getTotalSeats() + 63) >>> 6];
+        }
+
+        scores = new int[levelStarts[levelCount]];
+        statuses = new byte[levelStarts[levelCount]];
+        seatHoldIds = new int[levelStarts[levelCount]];
+        levelStatusCounts = new AtomicIntegerArray(levelCount * STATUSES.length);
+        venueStatusCounts = new AtomicIntegerArray(STATUSES.length);
+    }
+
+    /**
+     * Scores and indexes the levels independently.  Levels are initialized in parallel when the
+     * scorer is a {@link BulkSeatScorer}; other scorers are called from a single thread, in seat
+     * order.
+     */
+    private void init(SeatScorer seatScorer) {
+        if (seatScorer instanceof BulkSeatScorer) {
+            BulkSeatScorer bulkSeatScorer = (BulkSeatScorer) seatScorer;
+            IntStream.range(0, levelCount()).parallel().forEach(i -> {
+                bulkSeatScorer.scoreAll(levelIds[i], scores, levelStarts[i]);
+                Arrays.fill(statuses, levelStarts[i], levelStarts[i + 1], (byte) Status.AVAILABLE.ordinal());
+                index(i);
+            });
+        } else {
+            for (int i = 0; i < levelCount(); i++) {
+                for (int o = levelStarts[i]; o < levelStarts[i + 1]; o++) {
+                    int offset = o - levelStarts[i];
+                    scores[o] = seatScorer.computeScore(new Seat(levelIds[i], offset / seatsPerRow[i] + 1, offset % seatsPerRow[i] + 1));
+                }
+                Arrays.fill(statuses, levelStarts[i], levelStarts[i + 1], (byte) Status.AVAILABLE.ordinal());
+                index(i);
+            }
+        }
+    }
+
+    /**
+     * Builds the row run indexes, availability bitmaps and status counts from the scores and
+     * statuses.
+     */
+    private void index() {
+        IntStream.range(0, levelCount()).parallel().forEach(this::index);
+    }
+
+    /**
+     * Builds the row run index, availability bitmap and status counts of a level from its scores and
+     * statuses.
+     */
+    private void index(int i) {
+        int[] rowBestScores = new int[rows[i]];
+        Arrays.fill(rowBestScores, Integer.MAX_VALUE);
+        for (int o = levelStarts[i]; o < levelStarts[i + 1]; o++) {
+            int row = (o - levelStarts[i]) / seatsPerRow[i];
+            rowBestScores[row] = Math.min(rowBestScores[row], scores[o]);
+        }
+        rowRuns[i] = new RowRunIndex(rowBestScores, seatsPerRow[i]);
+        bestOrders.set(i, new BestOrder(sortByScore(i)));
+        int[] counts = new int[STATUSES.length];
+        for (int o = levelStarts[i]; o < levelStarts[i + 1]; o++) {
+            int offset = o - levelStarts[i];
+            if (statuses[o] != Status.AVAILABLE.ordinal()) {
+                rowRuns[i].set(offset / seatsPerRow[i] + 1, offset % seatsPerRow[i] + 1, false);
+            } else {
+                setAvailable(i, offset, true);
+            }
+            counts[statuses[o]]++;
+        }
+        for (int status = 0; status < STATUSES.length; status++) {
+            levelStatusCounts.set(i * STATUSES.length + status, counts[status]);
+            venueStatusCounts.addAndGet(status, counts[status]);
+        }
+    }
+
+    /**
+     * The seats of a level ordered by score, with a hint of where its available seats start.
+     */
+    private static class BestOrder {
+
+        private final int[] ordinals;
+        //The position before which no seat is available in the low bits, and in the high bits an
+        //epoch that changes whenever a seat is freed so a stale hint cannot be stored
+        private final AtomicLong firstAvailable = new AtomicLong();
+
+        private BestOrder(int[] ordinals) {
+            this.ordinals = ordinals;
+        }
+
+        /**
+         * Called after a seat of the level became available, which may be before the hint.
+         */
+        private void seatFreed() {
+            long hint;
+            do {
+                hint = firstAvailable.get();
+            } while (!firstAvailable.compareAndSet(hint, ((hint >>> 32) + 1) << 32));
+        }
+    }
+
+    /**
+     * Iterates the ordinals of the available seats of a range of levels in score order, taking the
+     * best of the next available seat of every level each time.
+     */
+    private class BestSeatIterator implements PrimitiveIterator.OfInt {
+
+        private int fromLevelIndex;
+        private int[][] orders;
+        private int[] positions;
+        private int next = -1;
+
+        private BestSeatIterator(int fromLevelIndex, int toLevelIndex) {
+            this.fromLevelIndex = fromLevelIndex;
+            orders = new int[toLevelIndex - fromLevelIndex][];
+            positions = new int[orders.length];
+            for (int i = 0; i < orders.length; i++) {
+                BestOrder bestOrder = bestOrder(fromLevelIndex + i);
+                orders[i] = bestOrder.ordinals;
+                positions[i] = firstAvailable(fromLevelIndex + i, bestOrder);
+            }
+        }
+
+        /**
+         * Skips the seats that are no longer available from the hint of the level and moves the hint
+         * past them, unless a seat was freed meanwhile.
+         */
+        private int firstAvailable(int levelIndex, BestOrder bestOrder) {
+            long hint = bestOrder.firstAvailable.get();
+            int position = nextAvailable(levelIndex, bestOrder.ordinals, (int) hint);
+            if (position != (int) hint) {
+                bestOrder.firstAvailable.compareAndSet(hint, (hint & 0xffffffff00000000L) | position);
+            }
+            return position;
+        }
+
+        private int nextAvailable(int levelIndex, int[] order, int from) {
+            int position = from;
+            while (position < order.length && !isAvailable(levelIndex, order[position])) {
+                position++;
+            }
+            return position;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next >= 0) {
+                return true;
+            }
+            int bestLevel = -1;
+            long bestSeat = Long.MAX_VALUE;
+            for (int i = 0; i < orders.length; i++) {
+                positions[i] = nextAvailable(fromLevelIndex + i, orders[i], positions[i]);
+                if (positions[i] < orders[i].length) {
+                    int ordinal = orders[i][positions[i]];
+                    long seat = (long) scores[ordinal] << 32 | ordinal;
+                    if (seat < bestSeat) {
+                        bestSeat = seat;
+                        bestLevel = i;
+                    }
+                }
+            }
+            if (bestLevel < 0) {
+                return false;
+            }
+            next = orders[bestLevel][positions[bestLevel]++];
+            return true;
+        }
+
+        @Override
+        public int nextInt() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int ordinal = next;
+            next = -1;
+            return ordinal;
+        }
+    }
+
+    /**
+     * Iterates the ordinals of the seats of a range of levels whose availability bit is set, or
+     * clear, a word of the bitmaps at a time.
+     */
+    private class StatusBitIterator implements PrimitiveIterator.OfInt {
+
+        private int toLevelIndex;
+        private boolean available;
+        private int levelIndex;
+        private int word = -1;
+        private long bits;
+
+        private StatusBitIterator(int fromLevelIndex, int toLevelIndex, boolean available) {
+            this.levelIndex = fromLevelIndex;
+            this.toLevelIndex = toLevelIndex;
+            this.available = available;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (bits == 0) {
+                if (levelIndex >= toLevelIndex) {
+                    return false;
+                }
+                if (++word >= availableSeats[levelIndex].length) {
+                    levelIndex++;
+                    word = -1;
+                    continue;
+                }
+                bits = available ? availableSeats[levelIndex][word] : ~availableSeats[levelIndex][word];
+                int remaining = levelStarts[levelIndex + 1] - levelStarts[levelIndex] - (word << 6);
+                if (remaining < 64) {
+                    bits &= (1L << remaining) - 1;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int nextInt() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int ordinal = levelStarts[levelIndex] + (word << 6) + Long.numberOfTrailingZeros(bits);
+            bits &= bits - 1;
+            return ordinal;
+        }
+    }
+}
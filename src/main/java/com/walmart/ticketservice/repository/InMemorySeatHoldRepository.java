@@ -1,58 +1,132 @@
 package com.walmart.ticketservice.repository;
 
-import com.google.common.collect.Sets;
-
 import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+
+import com.walmart.ticketservice.model.Seat;
 import com.walmart.ticketservice.model.SeatHold;
 
+/**
+ * Keeps seat holds in memory, keyed by id and indexed by customer email.  Seat holds that have not
+ * been confirmed are also kept ordered by hold time, so finding the expired ones only visits the
+ * seat holds that actually expired.
+ *
+ * A seat hold is stored as a copy holding an immutable set of copies of its seats, so changing the
+ * seats of the seat hold that was saved does not change the stored one.  Seats can be changed, so
+ * every seat hold that is read or saved is handed out as a new copy of the stored one and the
+ * stored copies never leave the repository.
+ */
 public class InMemorySeatHoldRepository implements SeatHoldRepository {
 
-    private Set<SeatHold> seatHolds = Sets.newHashSet();
-    private int seatHoldId = 0;
+    private static final Comparator<SeatHold> HOLD_TIME_ORDER = Comparator.comparing(SeatHold::getHoldTime)
+            .thenComparingInt(SeatHold::getId);
+
+    private Map<Integer, SeatHold> seatHolds = new ConcurrentHashMap<>();
+    private Map<String, Set<Integer>> customerSeatHolds = new ConcurrentHashMap<>();
+    private NavigableSet<SeatHold> pendingSeatHolds = new ConcurrentSkipListSet<>(HOLD_TIME_ORDER);
+    private AtomicInteger seatHoldId = new AtomicInteger();
 
     @Override
     public Optional<SeatHold> find(int seatHoldId) {
-        return stream().filter(s -> s.getId() == seatHoldId).findFirst();
+        return Optional.ofNullable(seatHolds.get(seatHoldId)).map(InMemorySeatHoldRepository::copy);
+    }
+
+    @Override
+    public Stream<SeatHold> findAll() {
+        return seatHolds.values().stream().map(InMemorySeatHoldRepository::copy);
+    }
+
+    @Override
+    public Stream<SeatHold> findAll(String customerEmail) {
+        Set<Integer> seatHoldIds = customerSeatHolds.get(customerEmail);
+        if (seatHoldIds == null) {
+            return Stream.empty();
+        }
+        return seatHoldIds.stream()
+                .map(seatHolds::get)
+                .filter(s -> s != null)
+                .map(InMemorySeatHoldRepository::copy);
     }
 
     @Override
     public Stream<SeatHold> findAllExpired(int holdLimit) {
-        return stream().filter(s ->
-                s.getHoldTime().plusSeconds(holdLimit).isBefore(LocalDateTime.now())
-        );
+        //Any hold time before the cutoff has exceeded the hold limit
+        SeatHold cutoff = new SeatHold(Integer.MIN_VALUE, null, null, LocalDateTime.now().minusSeconds(holdLimit));
+        return pendingSeatHolds.headSet(cutoff).stream().map(InMemorySeatHoldRepository::copy);
+    }
+
+    @Override
+    public int nextId() {
+        return seatHoldId.incrementAndGet();
     }
 
     @Override
     public SeatHold save(SeatHold seatHold) {
-        SeatHold toReturn;
+        SeatHold stored;
         if (seatHold.getId() == 0) {
-            toReturn = copy(seatHold, ++seatHoldId);
+            stored = copy(seatHold, seatHoldId.incrementAndGet());
         } else {
-            toReturn = copy(seatHold);
-            seatHolds.remove(toReturn);
+            stored = copy(seatHold, seatHold.getId());
+            //Never hand out an id that was saved explicitly
+            seatHoldId.accumulateAndGet(seatHold.getId(), Math::max);
         }
-        seatHolds.add(copy(toReturn));
-        return toReturn;
+        seatHolds.compute(stored.getId(), (id, previous) -> {
+            if (previous != null) {
+                pendingSeatHolds.remove(previous);
+                unindex(previous);
+            }
+            if (!stored.getConfirmationCode().isPresent()) {
+                pendingSeatHolds.add(stored);
+            }
+            index(stored);
+            return stored;
+        });
+        return copy(stored);
     }
 
     @Override
     public void delete(SeatHold seatHold) {
-        seatHolds.remove(seatHold);
+        seatHolds.computeIfPresent(seatHold.getId(), (id, previous) -> {
+            pendingSeatHolds.remove(previous);
+            unindex(previous);
+            return null;
+        });
+    }
+
+    private void index(SeatHold seatHold) {
+        //compute rather than computeIfAbsent so an id cannot be added to a set that is being removed
+        customerSeatHolds.compute(seatHold.getCustomerEmail(), (e, ids) -> {
+            Set<Integer> toReturn = ids == null ? Sets.newConcurrentHashSet() : ids;
+            toReturn.add(seatHold.getId());
+            return toReturn;
+        });
     }
 
-    private Stream<SeatHold> stream() {
-        return seatHolds.stream().map(this::copy);
+    private void unindex(SeatHold seatHold) {
+        customerSeatHolds.computeIfPresent(seatHold.getCustomerEmail(), (e, ids) -> {
+            ids.remove(seatHold.getId());
+            return ids.isEmpty() ? null : ids;
+        });
     }
 
-    private SeatHold copy(SeatHold s) {
-        return new SeatHold(s.getId(), s.getCustomerEmail(), s.getHeldSeats(), s.getConfirmationCode().orElse(null), s.getHoldTime());
+    private static SeatHold copy(SeatHold s) {
+        return copy(s, s.getId());
     }
 
-    private SeatHold copy(SeatHold s, int id) {
-        return new SeatHold(id, s.getCustomerEmail(), s.getHeldSeats(), s.getConfirmationCode().orElse(null), s.getHoldTime());
+    private static SeatHold copy(SeatHold s, int id) {
+        ImmutableSet.Builder<Seat> seats = ImmutableSet.builder();
+        s.getHeldSeats().forEach(seat -> seats.add(new Seat(seat.getLevel(), seat.getRow(), seat.getNumber(), seat.getScore(), seat.getStatus())));
+        return new SeatHold(id, s.getCustomerEmail(), seats.build(), s.getConfirmationCode().orElse(null), s.getHoldTime());
     }
 }
@@ -1,38 +1,85 @@
 package com.walmart.ticketservice.repository;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Range;
-import com.google.common.collect.Sets;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import com.walmart.ticketservice.exception.SeatRepositoryException;
+import com.walmart.ticketservice.model.Level;
 import com.walmart.ticketservice.model.Seat;
 import com.walmart.ticketservice.model.Status;
 import com.walmart.ticketservice.model.VenueConfiguration;
 import com.walmart.ticketservice.utils.BasicSeatScorer;
+import com.walmart.ticketservice.utils.BulkSeatScorer;
 import com.walmart.ticketservice.utils.SeatComparator;
 import com.walmart.ticketservice.utils.SeatScorer;
 import com.walmart.ticketservice.utils.TicketServiceUtils;
 
 /**
  * This implementation initializes the set of seats by reading the venue configuration.
+ *
+ * Available seats are additionally indexed per level in seat score order.  The index is kept up
+ * to date on every save so that the best seats can be streamed without scanning or sorting the
+ * whole venue.  The number of seats in each status is counted per level and for the whole venue
+ * in the same way, and the runs of adjacent available seats are kept in a {@link RowRunIndex} per
+ * level.
+ *
+ * The repository is safe for concurrent use without locks.  Every seat has a state word holding
+ * its status, the id of the seat hold it belongs to, a pending flag and a version that changes on
+ * every change, and a change claims the word of each seat it changes with a compare and set before
+ * it touches the seat.  {@link #transition(Collection, int, Status, Status)} claims all of its
+ * seats, in seat order, while checking them and only then moves them, or gives the claims back
+ * untouched if a seat is no longer as expected, so it changes several seats all or nothing and
+ * never moves a seat back.  A save claims all of its seats in the same order, waiting for the
+ * changes that claimed them first.  Readers may see the seats of a change move one after another.
  */
-public class InMemorySeatRepository implements SeatRepository {
+public class InMemorySeatRepository implements OrderedSeatRepository {
 
     private static final Logger logger = LoggerFactory.getLogger(InMemorySeatRepository.class);
 
+    private static final Status[] STATUSES = Status.values();
+    private static final long SEAT_HOLD_ID_MASK = 0xffffffffL;
+    private static final int STATUS_SHIFT = 32;
+    private static final long PENDING = 1L << 34;
+    private static final int VERSION_SHIFT = 35;
+
     private VenueConfiguration venueConfiguration;
-    private Set<Seat> seats = null;
+    private Map<Seat, Seat> seats = null;
+    private NavigableMap<Integer, NavigableSet<Seat>> availableSeats = null;
+    private Map<Integer, AtomicIntegerArray> levelStatusCounts = null;
+    private AtomicIntegerArray venueStatusCounts = null;
+    private Map<Integer, RowRunIndex> rowRuns = null;
+    //The state word of every seat, by seat ordinal
+    private AtomicLongArray seatStates = null;
+    private Map<Integer, Integer> levelOffsets = null;
+    private Map<Integer, Integer> levelSeatsPerRow = null;
     private Comparator<Seat> seatComparator = null;
+    private Comparator<Seat> indexComparator = null;
     private SeatScorer seatScorer;
 
     public InMemorySeatRepository(VenueConfiguration venueConfiguration) {
@@ -51,7 +98,25 @@ public class InMemorySeatRepository implements SeatRepository {
         this.venueConfiguration = venueConfiguration;
         this.seatComparator = seatComparator;
         this.seatScorer = seatScorer;
-        seats = Sets.newLinkedHashSet();
+        //Break ties on the seat position so seats with an equal score are not collapsed by the index
+        this.indexComparator = seatComparator
+                .thenComparingInt(Seat::getLevel)
+                .thenComparingInt(Seat::getRow)
+                .thenComparingInt(Seat::getNumber);
+        seats = new ConcurrentHashMap<>(venueConfiguration.getLevels().stream().mapToInt(Level::getTotalSeats).sum());
+        availableSeats = new ConcurrentSkipListMap<>();
+        levelStatusCounts = new ConcurrentHashMap<>();
+        venueStatusCounts = new AtomicIntegerArray(Status.values().length);
+        rowRuns = new ConcurrentHashMap<>();
+        levelOffsets = new ConcurrentHashMap<>();
+        levelSeatsPerRow = new ConcurrentHashMap<>();
+        int offset = 0;
+        for (Level level : venueConfiguration.getLevels()) {
+            levelOffsets.put(level.getId(), offset);
+            levelSeatsPerRow.put(level.getId(), level.getSeatsPerRow());
+            offset += level.getTotalSeats();
+        }
+        seatStates = new AtomicLongArray(offset);
         init();
     }
 
@@ -92,14 +157,88 @@ public class InMemorySeatRepository implements SeatRepository {
 
     @Override
     public Stream<Seat> findBest(int level) {
-        return findAll(level, Status.AVAILABLE)
-                .sorted(seatComparator);
+        NavigableSet<Seat> available = availableSeats.get(level);
+        if (available == null) {
+            return Stream.empty();
+        }
+        return available.stream()
+                .map(this::copy);
     }
 
     @Override
     public Stream<Seat> findBest(int minLevel, int maxLevel) {
-        return findAll(minLevel, maxLevel, Status.AVAILABLE)
-                .sorted(seatComparator);
+        TicketServiceUtils.checkRequestedLevels(minLevel, maxLevel);
+        List<Iterator<Seat>> levelIterators = Lists.newArrayList();
+        availableSeats.subMap(minLevel, true, maxLevel, true)
+                .values()
+                .forEach(s -> levelIterators.add(s.iterator()));
+
+        //Each level is already in score order so a lazy merge only visits the seats that are consumed
+        Iterator<Seat> merged = Iterators.mergeSorted(levelIterators, indexComparator);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged, Spliterator.ORDERED), false)
+                .map(this::copy);
+    }
+
+    /**
+     * The available seats of a level are kept in score order, so only the seats returned are
+     * visited.
+     */
+    @Override
+    public Stream<Seat> findTop(int level, int limit) {
+        Preconditions.checkArgument(limit >= 0, "limit cannot be negative");
+        return findBest(level).limit(limit);
+    }
+
+    /**
+     * Only the seats returned are visited by the lazy merge of the levels.
+     */
+    @Override
+    public Stream<Seat> findTop(int minLevel, int maxLevel, int limit) {
+        Preconditions.checkArgument(limit >= 0, "limit cannot be negative");
+        return findBest(minLevel, maxLevel).limit(limit);
+    }
+
+    @Override
+    public Stream<Seat> findBestContiguous(int level, int numSeats) {
+        Preconditions.checkArgument(numSeats > 0, "numSeats must be greater than 0");
+        RowRunIndex runs = rowRuns.get(level);
+        if (runs == null) {
+            return Stream.empty();
+        }
+        long block;
+        synchronized (runs) {
+            block = runs.findBest(numSeats);
+        }
+        if (block < 0) {
+            return Stream.empty();
+        }
+        int row = (int) (block >>> 32);
+        int first = (int) block;
+        return IntStream.range(first, first + numSeats)
+                .mapToObj(n -> copy(seats.get(new Seat(level, row, n))));
+    }
+
+    @Override
+    public Stream<Seat> findBestContiguous(int minLevel, int maxLevel, int numSeats) {
+        TicketServiceUtils.checkRequestedLevels(minLevel, maxLevel);
+        Preconditions.checkArgument(numSeats > 0, "numSeats must be greater than 0");
+        return availableSeats.subMap(minLevel, true, maxLevel, true).keySet().stream()
+                .map(l -> findBestContiguous(l, numSeats).collect(Collectors.toList()))
+                .filter(b -> !b.isEmpty())
+                .min(Comparator.comparing(b -> Collections.min(b, seatComparator), seatComparator))
+                .map(List::stream)
+                .orElseGet(Stream::empty);
+    }
+
+    @Override
+    public int countAll(Status status) {
+        return venueStatusCounts.get(status.ordinal());
+    }
+
+    @Override
+    public int countAll(int level, Status status) {
+        AtomicIntegerArray statusCounts = levelStatusCounts.get(level);
+        return statusCounts == null ? 0 : statusCounts.get(status.ordinal());
     }
 
     @Override
@@ -110,26 +249,171 @@ public class InMemorySeatRepository implements SeatRepository {
 
     @Override
     public void save(Iterable<Seat> seats) throws SeatRepositoryException {
+        save(seats, () -> { });
+    }
+
+    /**
+     * Claims every seat in ordinal order, waiting for changes that claimed them first, then runs
+     * the action and saves the seats.
+     */
+    @Override
+    public void save(Iterable<Seat> seats, Runnable whileSaving) throws SeatRepositoryException {
         Preconditions.checkNotNull(seats, "seats cannot be null");
+        Preconditions.checkNotNull(whileSaving, "whileSaving cannot be null");
         final List<Seat> badSeats = Lists.newArrayList();
         seats.forEach(s -> {
-            boolean inBackingSet = this.seats.contains(s);
+            boolean inBackingSet = this.seats.containsKey(s);
             if (!inBackingSet) {
                 badSeats.add(s);
             }
         });
+        if (!badSeats.isEmpty()) {
+            throw new SeatRepositoryException("1 or more seats did not belong in the original set.", badSeats);
+        }
 
-        if (badSeats.isEmpty()) {
-            seats.forEach(s -> {
-                //Since the mutable properties of seat can change force a remove and then add.
-                this.seats.remove(s);
-                this.seats.add(s);
-            });
-        } else {
+        //Store a copy since the index relies on the score and status not changing underneath it.
+        //The last copy of a seat saved twice wins.
+        NavigableMap<Integer, Seat> toSave = new TreeMap<>();
+        seats.forEach(s -> {
+            Seat stored = copy(s);
+            toSave.put(ordinal(stored), stored);
+        });
+        int[] ordinals = toSave.keySet().stream()
+                .mapToInt(Integer::intValue)
+                .toArray();
+        long[] claimed = new long[ordinals.length];
+        for (int i = 0; i < ordinals.length; i++) {
+            claimed[i] = claim(ordinals[i]);
+        }
+        run(whileSaving, ordinals, claimed);
+
+        for (int i = 0; i < ordinals.length; i++) {
+            Seat stored = toSave.get(ordinals[i]);
+            update(this.seats.put(stored, stored), stored);
+            seatStates.set(ordinals[i], nextState(claimed[i], stored.getStatus(), 0));
+        }
+    }
+
+    /**
+     * Checks every seat first so a transition that cannot move its seats never claims any.  Then
+     * claims the seats in ordinal order, checking each again as it is claimed, and moves them once
+     * all of them are claimed.  A seat that is claimed by another change counts as not in the
+     * expected status.
+     */
+    @Override
+    public boolean transition(Collection<Seat> seats, int seatHoldId, Status expected, Status target) throws SeatRepositoryException {
+        return transition(seats, seatHoldId, expected, target, () -> { });
+    }
+
+    @Override
+    public boolean transition(Collection<Seat> seats, int seatHoldId, Status expected, Status target, Runnable whileMoving)
+            throws SeatRepositoryException {
+        Preconditions.checkNotNull(seats, "seats cannot be null");
+        Preconditions.checkNotNull(expected, "expected cannot be null");
+        Preconditions.checkNotNull(target, "target cannot be null");
+        Preconditions.checkNotNull(whileMoving, "whileMoving cannot be null");
+        List<Seat> toMove = seats.stream()
+                .distinct()
+                .collect(Collectors.toList());
+        List<Seat> badSeats = toMove.stream()
+                .filter(s -> !this.seats.containsKey(s))
+                .collect(Collectors.toList());
+        if (!badSeats.isEmpty()) {
             throw new SeatRepositoryException("1 or more seats did not belong in the original set.", badSeats);
         }
+
+        toMove.sort(Comparator.comparingInt(this::ordinal));
+        int[] ordinals = toMove.stream()
+                .mapToInt(this::ordinal)
+                .toArray();
+        for (int ordinal : ordinals) {
+            if (!canMove(seatStates.get(ordinal), seatHoldId, expected)) {
+                return false;
+            }
+        }
+        long[] claimed = new long[ordinals.length];
+        for (int i = 0; i < ordinals.length; i++) {
+            long state;
+            do {
+                state = seatStates.get(ordinals[i]);
+                if (!canMove(state, seatHoldId, expected)) {
+                    giveBack(ordinals, claimed, i);
+                    return false;
+                }
+            } while (!seatStates.compareAndSet(ordinals[i], state, state | PENDING));
+            claimed[i] = state;
+        }
+        run(whileMoving, ordinals, claimed);
+
+        int newSeatHoldId = target == Status.AVAILABLE ? 0 : seatHoldId;
+        for (int i = 0; i < ordinals.length; i++) {
+            Seat previous = this.seats.get(toMove.get(i));
+            Seat stored = new Seat(previous.getLevel(), previous.getRow(), previous.getNumber(), previous.getScore(), target);
+            this.seats.put(stored, stored);
+            update(previous, stored);
+            seatStates.set(ordinals[i], nextState(claimed[i], target, newSeatHoldId));
+        }
+        return true;
+    }
+
+    /**
+     * Claims a seat for a save, which changes it whatever its state, waiting for a change that
+     * claimed it first.
+     *
+     * @return the state of the seat before it was claimed
+     */
+    private long claim(int ordinal) {
+        while (true) {
+            long state = seatStates.get(ordinal);
+            if ((state & PENDING) == 0) {
+                if (seatStates.compareAndSet(ordinal, state, state | PENDING)) {
+                    return state;
+                }
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     * Runs the action of a change that claimed the seats, giving the claims back if it throws.
+     */
+    private void run(Runnable action, int[] ordinals, long[] claimed) {
+        try {
+            action.run();
+        } catch (RuntimeException | Error e) {
+            giveBack(ordinals, claimed, ordinals.length);
+            throw e;
+        }
+    }
+
+    /**
+     * Gives back the first count claims as they were, so nothing can tell they were taken.
+     */
+    private void giveBack(int[] ordinals, long[] claimed, int count) {
+        for (int i = 0; i < count; i++) {
+            seatStates.set(ordinals[i], claimed[i]);
+        }
+    }
+
+    private static boolean canMove(long state, int seatHoldId, Status expected) {
+        return (state & PENDING) == 0
+                && STATUSES[(int) (state >>> STATUS_SHIFT) & 3] == expected
+                && (expected == Status.AVAILABLE || (int) (state & SEAT_HOLD_ID_MASK) == seatHoldId);
+    }
+
+    /**
+     * @return the next version of the state with the status and seat hold id, no longer pending
+     */
+    private static long nextState(long state, Status status, int seatHoldId) {
+        return ((state >>> VERSION_SHIFT) + 1) << VERSION_SHIFT
+                | (long) status.ordinal() << STATUS_SHIFT
+                | seatHoldId & SEAT_HOLD_ID_MASK;
     }
 
+    private int ordinal(Seat seat) {
+        return levelOffsets.get(seat.getLevel()) + (seat.getRow() - 1) * levelSeatsPerRow.get(seat.getLevel()) + seat.getNumber() - 1;
+    }
 
     private Predicate<Seat> inLevel(int level) {
         return s -> s.getLevel() == level;
@@ -140,12 +424,49 @@ public class InMemorySeatRepository implements SeatRepository {
     }
 
     private Predicate<Seat> inRange(int minLevel, int maxLevel) {
-        return s -> Range.closed(minLevel, maxLevel).contains(s.getLevel());
+        return s -> s.getLevel() >= minLevel && s.getLevel() <= maxLevel;
     }
 
     private Stream<Seat> streamAll() {
-        return seats.stream()
-                .map(s -> new Seat(s.getLevel(), s.getRow(), s.getNumber(), s.getScore(), s.getStatus()));
+        return seats.values().stream()
+                .map(this::copy);
+    }
+
+    private Seat copy(Seat s) {
+        return new Seat(s.getLevel(), s.getRow(), s.getNumber(), s.getScore(), s.getStatus());
+    }
+
+    /**
+     * Moves a seat in or out of the available index and adjusts the status counts after its
+     * stored state changed.  Callers must hold the claim on the seat's state word.
+     *
+     * @param previous the seat as it was stored before the change, or null if it is new
+     * @param current  the seat as it is stored now
+     */
+    private void update(Seat previous, Seat current) {
+        NavigableSet<Seat> available = availableSeats.computeIfAbsent(current.getLevel(),
+                l -> new ConcurrentSkipListSet<>(indexComparator));
+        AtomicIntegerArray statusCounts = levelStatusCounts.computeIfAbsent(current.getLevel(),
+                l -> new AtomicIntegerArray(Status.values().length));
+
+        if (previous != null) {
+            if (previous.getStatus() == Status.AVAILABLE) {
+                available.remove(previous);
+            }
+            statusCounts.decrementAndGet(previous.getStatus().ordinal());
+            venueStatusCounts.decrementAndGet(previous.getStatus().ordinal());
+        }
+        if (current.getStatus() == Status.AVAILABLE) {
+            available.add(current);
+        }
+        RowRunIndex runs = rowRuns.get(current.getLevel());
+        if (runs != null) {
+            synchronized (runs) {
+                runs.set(current.getRow(), current.getNumber(), current.getStatus() == Status.AVAILABLE);
+            }
+        }
+        statusCounts.incrementAndGet(current.getStatus().ordinal());
+        venueStatusCounts.incrementAndGet(current.getStatus().ordinal());
     }
 
     private Stream<Seat> filter(Predicate<Seat> filter) {
@@ -153,17 +474,48 @@ public class InMemorySeatRepository implements SeatRepository {
                 .filter(filter);
     }
 
+    /**
+     * Creates and indexes the seats of each level independently.  Levels are initialized in
+     * parallel when the scorer is a {@link BulkSeatScorer}; other scorers are called from a single
+     * thread, in seat order.
+     */
     private void init() {
-        //Create the seats by iterating through all levels and rows and applying the seat score after
-        venueConfiguration.getLevels().forEach(l -> {
-            for (int i = 1; i <= l.getRows(); i++) {
-                for (int j = 1; j <= l.getSeatsPerRow(); j++) {
-                    Seat seat = new Seat(l.getId(), i, j);
-                    int score = seatScorer.computeScore(seat);
-                    seat.setScore(score);
-                    seats.add(seat);
-                }
+        Stream<Level> levels = venueConfiguration.getLevels().stream();
+        if (seatScorer instanceof BulkSeatScorer) {
+            levels = levels.parallel();
+        }
+        levels.forEach(this::initLevel);
+    }
+
+    private void initLevel(Level l) {
+        int[] scores = new int[l.getTotalSeats()];
+        if (seatScorer instanceof BulkSeatScorer) {
+            ((BulkSeatScorer) seatScorer).scoreAll(l.getId(), scores, 0);
+        } else {
+            for (int o = 0; o < scores.length; o++) {
+                scores[o] = seatScorer.computeScore(new Seat(l.getId(), o / l.getSeatsPerRow() + 1, o % l.getSeatsPerRow() + 1));
             }
-        });
+        }
+
+        //Every seat starts out available
+        NavigableSet<Seat> available = new ConcurrentSkipListSet<>(indexComparator);
+        int[] rowBestScores = new int[l.getRows()];
+        for (int i = 1; i <= l.getRows(); i++) {
+            rowBestScores[i - 1] = Integer.MAX_VALUE;
+            for (int j = 1; j <= l.getSeatsPerRow(); j++) {
+                int score = scores[(i - 1) * l.getSeatsPerRow() + j - 1];
+                Seat seat = new Seat(l.getId(), i, j, score);
+                seats.put(seat, seat);
+                available.add(seat);
+                rowBestScores[i - 1] = Math.min(rowBestScores[i - 1], score);
+            }
+        }
+        AtomicIntegerArray statusCounts = new AtomicIntegerArray(Status.values().length);
+        statusCounts.set(Status.AVAILABLE.ordinal(), l.getTotalSeats());
+
+        availableSeats.put(l.getId(), available);
+        levelStatusCounts.put(l.getId(), statusCounts);
+        venueStatusCounts.addAndGet(Status.AVAILABLE.ordinal(), l.getTotalSeats());
+        rowRuns.put(l.getId(), new RowRunIndex(rowBestScores, l.getSeatsPerRow()));
     }
 }
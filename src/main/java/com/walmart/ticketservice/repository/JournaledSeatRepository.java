@@ -0,0 +1,760 @@
+package com.walmart.ticketservice.repository;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import com.walmart.ticketservice.exception.SeatRepositoryException;
+import com.walmart.ticketservice.model.Seat;
+import com.walmart.ticketservice.model.Status;
+import com.walmart.ticketservice.model.VenueConfiguration;
+
+/**
+ * A durable {@link SeatRepository} that logs every change it applies to another repository.
+ *
+ * Each save is one record, however many seats it changes: the length of the payload, a CRC32 of
+ * the payload and the payload itself, which is the number of seats followed by each seat in the
+ * {@link SeatHoldCodec} format.  A transition is logged the same way with a negative number of
+ * seats, followed by the expected status and the id of the seat hold, and replayed as a
+ * transition so it only changes the statuses and the seat hold the seats belong to.
+ *
+ * A change is checked by the wrapped repository first and only logged once it is going to be
+ * applied, so a save the wrapped repository rejects or a transition that does not move its seats
+ * never reaches the log.  Records are written
+ * by a single writer thread, which writes every record queued since its last write at once and
+ * forces the log once syncEvery records were written since it was last forced.  A change returns
+ * once its record is written, so a process crash loses none of the changes that returned, while a
+ * machine crash loses the records written since the log was last forced.
+ *
+ * Every checkpointEvery records the log is moved aside as a numbered segment and a new one is
+ * started.  A background thread then folds the previous checkpoint and the segments into a new
+ * checkpoint, which holds one record per seat hold and status plus one save of the seats that
+ * were ever saved, replaces the previous one atomically and deletes the segments it covers.
+ * Replay time is therefore bounded by the number of seats changed rather than the number of
+ * changes.
+ *
+ * On startup the repository it wraps must hold the venue as built from its {@link VenueConfiguration};
+ * the checkpoint, the segments it does not cover and the log are replayed into it in that order,
+ * each ending at the first record that is incomplete or fails its checksum.
+ *
+ * Reads go straight to the wrapped repository.  If it is an {@link OrderedSeatRepository} a change
+ * queues its record while it holds its seats, so the records of every seat are in the order of its
+ * changes while changes of other seats go on, and only queueing the record is serialized.  Changes
+ * to any other repository are serialized so the log has the same order as the changes.
+ */
+public class JournaledSeatRepository implements SeatRepository, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(JournaledSeatRepository.class);
+
+    public static final int DEFAULT_SYNC_EVERY = 64;
+    public static final int DEFAULT_CHECKPOINT_EVERY = 100_000;
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int CHECKPOINT_MAGIC = 0x5345534c;
+    private static final int CHECKPOINT_HEADER_SIZE = 2 * Integer.BYTES;
+
+    private SeatRepository seatRepository;
+    private Path logFile;
+    private int syncEvery;
+    private int checkpointEvery;
+    private Queue<PendingRecord> pending = new ConcurrentLinkedQueue<>();
+    private Thread writer;
+    private volatile boolean parked = false;
+    private volatile boolean closed = false;
+    private volatile boolean stopped = false;
+    private ExecutorService checkpointWriter = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+            .setNameFormat("seat-log-checkpoint-%d")
+            .setDaemon(true)
+            .build());
+
+    //Only used by the writer thread once it is started
+    private FileChannel channel;
+    private int segment;
+    private int unsynced;
+    private int sinceCheckpoint;
+    private Future<?> pendingCheckpoint;
+
+    public JournaledSeatRepository(VenueConfiguration venueConfiguration, Path logFile) {
+        this(new InMemorySeatRepository(venueConfiguration), logFile, DEFAULT_SYNC_EVERY, DEFAULT_CHECKPOINT_EVERY);
+    }
+
+    public JournaledSeatRepository(SeatRepository seatRepository, Path logFile, int syncEvery) {
+        this(seatRepository, logFile, syncEvery, DEFAULT_CHECKPOINT_EVERY);
+    }
+
+    /**
+     * Opens the log and replays it into the repository.
+     *
+     * @param seatRepository  a repository holding the venue as built from its configuration
+     * @param logFile         the log file, created if missing.  Segments and the checkpoint are
+     *                        kept next to it, named after it
+     * @param syncEvery       the number of records written between forcing the log to disk
+     * @param checkpointEvery the number of records written between checkpoints
+     * @throws UncheckedIOException if the log cannot be read
+     */
+    public JournaledSeatRepository(SeatRepository seatRepository, Path logFile, int syncEvery, int checkpointEvery) {
+        Preconditions.checkArgument(syncEvery > 0, "syncEvery must be greater than 0");
+        Preconditions.checkArgument(checkpointEvery > 0, "checkpointEvery must be greater than 0");
+        this.seatRepository = seatRepository;
+        this.logFile = logFile;
+        this.syncEvery = syncEvery;
+        this.checkpointEvery = checkpointEvery;
+        try {
+            long start = System.nanoTime();
+            int records = replay();
+            logger.info("Replayed {} seat log records in {} ms", records, (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open the seat log " + logFile, e);
+        }
+        writer = new Thread(this::writeRecords, "seat-log-writer-" + THREAD_COUNT.getAndIncrement());
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public Stream<Seat> findAll() {
+        return seatRepository.findAll();
+    }
+
+    @Override
+    public Stream<Seat> findAll(Status status) {
+        return seatRepository.findAll(status);
+    }
+
+    @Override
+    public Stream<Seat> findAll(int level) {
+        return seatRepository.findAll(level);
+    }
+
+    @Override
+    public Stream<Seat> findAll(int level, Status status) {
+        return seatRepository.findAll(level, status);
+    }
+
+    @Override
+    public Stream<Seat> findAll(int minLevel, int maxLevel) {
+        return seatRepository.findAll(minLevel, maxLevel);
+    }
+
+    @Override
+    public Stream<Seat> findAll(int minLevel, int maxLevel, Status status) {
+        return seatRepository.findAll(minLevel, maxLevel, status);
+    }
+
+    @Override
+    public Stream<Seat> findBest(int level) {
+        return seatRepository.findBest(level);
+    }
+
+    @Override
+    public Stream<Seat> findBest(int minLevel, int maxLevel) {
+        return seatRepository.findBest(minLevel, maxLevel);
+    }
+
+    @Override
+    public Stream<Seat> findTop(int level, int limit) {
+        return seatRepository.findTop(level, limit);
+    }
+
+    @Override
+    public Stream<Seat> findTop(int minLevel, int maxLevel, int limit) {
+        return seatRepository.findTop(minLevel, maxLevel, limit);
+    }
+
+    @Override
+    public Stream<Seat> findBestContiguous(int level, int numSeats) {
+        return seatRepository.findBestContiguous(level, numSeats);
+    }
+
+    @Override
+    public Stream<Seat> findBestContiguous(int minLevel, int maxLevel, int numSeats) {
+        return seatRepository.findBestContiguous(minLevel, maxLevel, numSeats);
+    }
+
+    @Override
+    public int countAll(Status status) {
+        return seatRepository.countAll(status);
+    }
+
+    @Override
+    public int countAll(int level, Status status) {
+        return seatRepository.countAll(level, status);
+    }
+
+    @Override
+    public void save(Seat seat) throws SeatRepositoryException {
+        Preconditions.checkNotNull(seat, "seat cannot be null");
+        save(Lists.newArrayList(seat));
+    }
+
+    /**
+     * @throws UncheckedIOException if the seats were saved but the save could not be logged
+     */
+    @Override
+    public void save(Iterable<Seat> seats) throws SeatRepositoryException {
+        Preconditions.checkNotNull(seats, "seats cannot be null");
+        Preconditions.checkState(!closed, "seat log is closed");
+        List<Seat> toSave = Lists.newArrayList(seats);
+        if (toSave.isEmpty()) {
+            return;
+        }
+        PendingRecord record = new PendingRecord(encode(toSave, null, 0));
+        if (seatRepository instanceof OrderedSeatRepository) {
+            ((OrderedSeatRepository) seatRepository).save(toSave, () -> append(record));
+        } else {
+            synchronized (this) {
+                seatRepository.save(toSave);
+                append(record);
+            }
+        }
+        record.await();
+    }
+
+    /**
+     * @throws UncheckedIOException if the seats were moved but the transition could not be logged
+     */
+    @Override
+    public boolean transition(Collection<Seat> seats, int seatHoldId, Status expected, Status target)
+            throws SeatRepositoryException {
+        Preconditions.checkNotNull(seats, "seats cannot be null");
+        Preconditions.checkNotNull(expected, "expected cannot be null");
+        Preconditions.checkNotNull(target, "target cannot be null");
+        Preconditions.checkState(!closed, "seat log is closed");
+        if (seats.isEmpty()) {
+            return true;
+        }
+        List<Seat> moved = seats.stream()
+                .map(s -> new Seat(s.getLevel(), s.getRow(), s.getNumber(), s.getScore(), target))
+                .collect(Collectors.toList());
+        PendingRecord record = new PendingRecord(encode(moved, expected, seatHoldId));
+        if (seatRepository instanceof OrderedSeatRepository) {
+            if (!((OrderedSeatRepository) seatRepository).transition(seats, seatHoldId, expected, target, () -> append(record))) {
+                return false;
+            }
+        } else {
+            synchronized (this) {
+                if (!seatRepository.transition(seats, seatHoldId, expected, target)) {
+                    return false;
+                }
+                append(record);
+            }
+        }
+        record.await();
+        return true;
+    }
+
+    /**
+     * Forces the records that were written so far to disk.
+     */
+    public void sync() {
+        Preconditions.checkState(!closed, "seat log is closed");
+        PendingRecord sync = new PendingRecord(null);
+        append(sync);
+        sync.await();
+    }
+
+    /**
+     * Writes the records that were queued, forces the log and closes it.  A checkpoint being
+     * written is finished first.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+            checkpointWriter.shutdown();
+            if (pendingCheckpoint != null) {
+                pendingCheckpoint.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while closing the seat log");
+        } catch (ExecutionException e) {
+            //Already logged, the segments it did not cover are kept
+        } finally {
+            if (!writer.isAlive() && channel.isOpen()) {
+                channel.force(false);
+                channel.close();
+            }
+        }
+    }
+
+    Path segmentFile(int segment) {
+        return logFile.resolveSibling(logFile.getFileName() + "." + segment);
+    }
+
+    Path checkpointFile() {
+        return logFile.resolveSibling(logFile.getFileName() + ".checkpoint");
+    }
+
+    private void append(PendingRecord record) {
+        pending.offer(record);
+        if (parked) {
+            LockSupport.unpark(writer);
+        }
+        if (stopped) {
+            //The writer stopped after it took its last record, so nothing else will take this one
+            failPending();
+        }
+    }
+
+    /**
+     * Runs on the writer thread until the log is closed and every record queued before is written.
+     */
+    private void writeRecords() {
+        List<PendingRecord> batch = Lists.newArrayList();
+        while (true) {
+            PendingRecord next;
+            while ((next = pending.poll()) != null) {
+                batch.add(next);
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            } else if (closed) {
+                break;
+            } else {
+                parked = true;
+                //Check again so a record queued before parked was set is not missed
+                if (pending.isEmpty() && !closed) {
+                    LockSupport.park(this);
+                }
+                parked = false;
+            }
+        }
+        stopped = true;
+        failPending();
+    }
+
+    private void failPending() {
+        PendingRecord next;
+        while ((next = pending.poll()) != null) {
+            next.written.completeExceptionally(new IllegalStateException("seat log is closed"));
+        }
+    }
+
+    /**
+     * Writes the records of the batch with one write and completes them, then forces the log if
+     * enough records were written since it was last forced or the batch asks for it.
+     */
+    private void write(List<PendingRecord> batch) {
+        List<ByteBuffer> records = batch.stream()
+                .filter(r -> r.record != null)
+                .map(r -> r.record)
+                .collect(Collectors.toList());
+        try {
+            if (!records.isEmpty()) {
+                long position = channel.position();
+                try {
+                    ByteBuffer[] toWrite = records.toArray(new ByteBuffer[records.size()]);
+                    while (toWrite[toWrite.length - 1].hasRemaining()) {
+                        channel.write(toWrite);
+                    }
+                } catch (IOException e) {
+                    //Cut off what was written so later records do not follow a torn one
+                    try {
+                        channel.truncate(position);
+                        channel.position(position);
+                    } catch (IOException t) {
+                        e.addSuppressed(t);
+                    }
+                    throw e;
+                }
+                unsynced += records.size();
+                sinceCheckpoint += records.size();
+                batch.stream()
+                        .filter(r -> r.record != null)
+                        .forEach(r -> r.written.complete(null));
+            }
+            if (unsynced >= syncEvery || records.size() < batch.size()) {
+                channel.force(false);
+                unsynced = 0;
+            }
+            batch.forEach(r -> r.written.complete(null));
+        } catch (IOException e) {
+            batch.forEach(r -> r.written.completeExceptionally(new UncheckedIOException("Could not write to the seat log", e)));
+        }
+        if (sinceCheckpoint >= checkpointEvery && (pendingCheckpoint == null || pendingCheckpoint.isDone())) {
+            startCheckpoint();
+        }
+    }
+
+    /**
+     * Moves the log aside as the next segment, starts a new log and leaves the checkpoint of the
+     * segments to the checkpoint writer.
+     */
+    private void startCheckpoint() {
+        int covered = segment;
+        try {
+            channel.force(false);
+            channel.close();
+            Files.move(logFile, segmentFile(covered), StandardCopyOption.ATOMIC_MOVE);
+            segment++;
+            unsynced = 0;
+            sinceCheckpoint = 0;
+            pendingCheckpoint = checkpointWriter.submit(() -> {
+                try {
+                    writeCheckpoint(covered);
+                } catch (IOException | RuntimeException e) {
+                    logger.error("Failed to write a checkpoint of seat log segment {}", covered, e);
+                    throw e;
+                }
+                return null;
+            });
+        } catch (IOException e) {
+            logger.error("Failed to start seat log segment {}", covered + 1, e);
+        } finally {
+            if (!channel.isOpen()) {
+                try {
+                    channel = openLog();
+                } catch (IOException e) {
+                    logger.error("Failed to reopen the seat log {}", logFile, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Folds the previous checkpoint and the segments up to covered into a new checkpoint and
+     * deletes the segments.
+     */
+    private void writeCheckpoint(int covered) throws IOException {
+        CheckpointState state = new CheckpointState();
+        if (Files.exists(checkpointFile())) {
+            readCheckpoint(state::apply);
+        }
+        for (int s : segments()) {
+            if (s <= covered) {
+                readSegment(segmentFile(s), state::apply);
+            }
+        }
+        List<ByteBuffer> records = state.records();
+
+        Path tmp = checkpointFile().resolveSibling(checkpointFile().getFileName() + ".tmp");
+        ByteBuffer header = ByteBuffer.allocate(CHECKPOINT_HEADER_SIZE).putInt(CHECKPOINT_MAGIC).putInt(covered);
+        header.flip();
+        records.add(0, header);
+        try (FileChannel checkpoint = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer[] toWrite = records.toArray(new ByteBuffer[records.size()]);
+            while (toWrite[toWrite.length - 1].hasRemaining()) {
+                checkpoint.write(toWrite);
+            }
+            checkpoint.force(true);
+        }
+        Files.move(tmp, checkpointFile(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        for (int s : segments()) {
+            if (s <= covered) {
+                Files.delete(segmentFile(s));
+            }
+        }
+        logger.info("Wrote a seat log checkpoint of {} records covering segment {}", records.size() - 1, covered);
+    }
+
+    /**
+     * Replays the checkpoint, the segments it does not cover and the log, and truncates the log
+     * after its last complete record.
+     *
+     * @return the number of records replayed after the checkpoint
+     */
+    private int replay() throws IOException {
+        int[] records = new int[1];
+        Consumer<LogRecord> replay = r -> {
+            apply(r, records[0]);
+            records[0]++;
+        };
+        segment = 0;
+        if (Files.exists(checkpointFile())) {
+            segment = readCheckpoint(r -> apply(r, -1)) + 1;
+        }
+        for (int s : segments().stream().sorted().collect(Collectors.toList())) {
+            if (s < segment) {
+                //Left behind by a crash after the checkpoint covering it was written
+                Files.delete(segmentFile(s));
+            } else {
+                readSegment(segmentFile(s), replay);
+                segment = s + 1;
+            }
+        }
+
+        channel = openLog();
+        long size = channel.size();
+        long position = read(channel, 0, replay);
+        if (position < size) {
+            logger.warn("Discarding {} bytes of incomplete seat log records", size - position);
+            channel.truncate(position);
+        }
+        channel.position(position);
+        sinceCheckpoint = records[0];
+        return records[0];
+    }
+
+    private void apply(LogRecord record, int index) {
+        if (record.expected == null) {
+            seatRepository.save(record.seats);
+        } else if (!seatRepository.transition(record.seats, record.seatHoldId, record.expected, record.seats.get(0).getStatus())) {
+            logger.warn("Seat log record {} moved seats that were not {} when it was replayed", index, record.expected);
+        }
+    }
+
+    private FileChannel openLog() throws IOException {
+        FileChannel log = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        log.position(log.size());
+        return log;
+    }
+
+    /**
+     * @return the last segment the checkpoint covers
+     */
+    private int readCheckpoint(Consumer<LogRecord> consumer) throws IOException {
+        try (FileChannel checkpoint = FileChannel.open(checkpointFile(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(CHECKPOINT_HEADER_SIZE);
+            if (checkpoint.size() < CHECKPOINT_HEADER_SIZE) {
+                throw new IOException("Not a seat log checkpoint");
+            }
+            readFully(checkpoint, header, 0);
+            header.flip();
+            if (header.getInt() != CHECKPOINT_MAGIC) {
+                throw new IOException("Not a seat log checkpoint");
+            }
+            int covered = header.getInt();
+            //The checkpoint was forced before it replaced the previous one, so it is never torn
+            if (read(checkpoint, CHECKPOINT_HEADER_SIZE, consumer) != checkpoint.size()) {
+                throw new IOException("Corrupt seat log checkpoint");
+            }
+            return covered;
+        }
+    }
+
+    private void readSegment(Path segmentFile, Consumer<LogRecord> consumer) throws IOException {
+        try (FileChannel segmentChannel = FileChannel.open(segmentFile, StandardOpenOption.READ)) {
+            long position = read(segmentChannel, 0, consumer);
+            if (position < segmentChannel.size()) {
+                logger.warn("Ignoring {} bytes of incomplete records at the end of seat log segment {}",
+                        segmentChannel.size() - position, segmentFile);
+            }
+        }
+    }
+
+    private List<Integer> segments() throws IOException {
+        String prefix = logFile.getFileName() + ".";
+        try (Stream<Path> files = Files.list(logFile.toAbsolutePath().getParent())) {
+            return files.map(f -> f.getFileName().toString())
+                    .filter(f -> f.startsWith(prefix) && f.length() > prefix.length()
+                            && f.substring(prefix.length()).chars().allMatch(Character::isDigit))
+                    .map(f -> Integer.parseInt(f.substring(prefix.length())))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Reads every complete record from the position on, ending at the first record that is
+     * incomplete or fails its checksum.
+     *
+     * @return the position after the last complete record
+     */
+    private static long read(FileChannel channel, long position, Consumer<LogRecord> consumer) throws IOException {
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (position + HEADER_SIZE <= size) {
+            header.clear();
+            readFully(channel, header, position);
+            header.flip();
+            int length = header.getInt();
+            int checksum = header.getInt();
+            if (length < Integer.BYTES || position + HEADER_SIZE + length > size) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(channel, payload, position + HEADER_SIZE);
+            payload.flip();
+            if (checksum != checksum(payload)) {
+                break;
+            }
+            consumer.accept(decode(payload));
+            position += HEADER_SIZE + length;
+        }
+        return position;
+    }
+
+    private static ByteBuffer encode(List<Seat> seats, Status expected, int seatHoldId) {
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + 3 * Integer.BYTES + seats.size() * SeatHoldCodec.SEAT_SIZE);
+        record.position(HEADER_SIZE);
+        if (expected == null) {
+            record.putInt(seats.size());
+        } else {
+            record.putInt(-seats.size())
+                    .putInt(expected.ordinal())
+                    .putInt(seatHoldId);
+        }
+        seats.forEach(s -> SeatHoldCodec.putSeat(record, s));
+        record.flip();
+
+        ByteBuffer payload = record.duplicate();
+        payload.position(HEADER_SIZE);
+        record.putInt(0, payload.remaining())
+                .putInt(Integer.BYTES, checksum(payload));
+        return record;
+    }
+
+    private static LogRecord decode(ByteBuffer payload) {
+        int count = payload.getInt();
+        Status expected = count < 0 ? Status.values()[payload.getInt()] : null;
+        int seatHoldId = count < 0 ? payload.getInt() : 0;
+        List<Seat> seats = Lists.newArrayListWithCapacity(Math.abs(count));
+        for (int i = 0; i < Math.abs(count); i++) {
+            seats.add(SeatHoldCodec.getSeat(payload));
+        }
+        return new LogRecord(seats, expected, seatHoldId);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    private static int checksum(ByteBuffer payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        return (int) crc.getValue();
+    }
+
+    /**
+     * A record waiting for the writer, or a request to force the log if it has no record.
+     */
+    private static class PendingRecord {
+        private final ByteBuffer record;
+        private final CompletableFuture<Void> written = new CompletableFuture<>();
+
+        PendingRecord(ByteBuffer record) {
+            this.record = record;
+        }
+
+        void await() {
+            try {
+                written.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+    }
+
+    private static class LogRecord {
+        private final List<Seat> seats;
+        private final Status expected;
+        private final int seatHoldId;
+
+        LogRecord(List<Seat> seats, Status expected, int seatHoldId) {
+            this.seats = seats;
+            this.expected = expected;
+            this.seatHoldId = seatHoldId;
+        }
+    }
+
+    /**
+     * The state of every seat a sequence of records changed, replayed the way the wrapped
+     * repository replays them.  Scores are only known for seats that were saved.
+     */
+    private static class CheckpointState {
+        private final Map<Seat, Seat> seats = new LinkedHashMap<>();
+        private final Map<Seat, Integer> seatHoldIds = new LinkedHashMap<>();
+        private final Set<Seat> saved = Sets.newHashSet();
+
+        void apply(LogRecord record) {
+            if (record.expected == null) {
+                record.seats.forEach(s -> {
+                    seats.put(s, s);
+                    seatHoldIds.remove(s);
+                    saved.add(s);
+                });
+                return;
+            }
+            for (Seat s : record.seats) {
+                Seat current = seats.get(s);
+                Status status = current == null ? Status.AVAILABLE : current.getStatus();
+                if (status != record.expected
+                        || record.expected != Status.AVAILABLE && seatHoldIds.getOrDefault(s, 0) != record.seatHoldId) {
+                    return;
+                }
+            }
+            Status target = record.seats.get(0).getStatus();
+            record.seats.forEach(s -> {
+                Seat current = seats.get(s);
+                seats.put(s, new Seat(s.getLevel(), s.getRow(), s.getNumber(), current == null ? 0 : current.getScore(), target));
+                if (target == Status.AVAILABLE || record.seatHoldId == 0) {
+                    seatHoldIds.remove(s);
+                } else {
+                    seatHoldIds.put(s, record.seatHoldId);
+                }
+            });
+        }
+
+        /**
+         * One save of the seats that were saved, available if a seat hold holds them now, followed
+         * by a transition from available per seat hold and status.
+         */
+        List<ByteBuffer> records() {
+            List<ByteBuffer> records = Lists.newArrayList();
+            List<Seat> toSave = seats.values().stream()
+                    .filter(saved::contains)
+                    .map(s -> seatHoldIds.containsKey(s)
+                            ? new Seat(s.getLevel(), s.getRow(), s.getNumber(), s.getScore(), Status.AVAILABLE) : s)
+                    .collect(Collectors.toList());
+            if (!toSave.isEmpty()) {
+                records.add(encode(toSave, null, 0));
+            }
+            Map<Integer, Map<Status, List<Seat>>> toMove = new LinkedHashMap<>();
+            seats.values().stream()
+                    .filter(s -> s.getStatus() != Status.AVAILABLE && (seatHoldIds.containsKey(s) || !saved.contains(s)))
+                    .forEach(s -> toMove.computeIfAbsent(seatHoldIds.getOrDefault(s, 0), h -> new LinkedHashMap<>())
+                            .computeIfAbsent(s.getStatus(), t -> Lists.newArrayList())
+                            .add(s));
+            toMove.forEach((seatHoldId, byStatus) -> byStatus.forEach((status, moved) ->
+                    records.add(encode(moved, Status.AVAILABLE, seatHoldId))));
+            return records;
+        }
+    }
+}
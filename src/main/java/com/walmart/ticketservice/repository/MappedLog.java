@@ -0,0 +1,137 @@
+package com.walmart.ticketservice.repository;
+
+import com.google.common.base.Preconditions;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only log of records in a memory-mapped file.
+ *
+ * Every record is framed by the length of its payload, a CRC32 of its type and payload and its
+ * type.  The file is mapped in chunks that double when the log runs out of room, and the unused
+ * end of the file is all zeros, so the log ends at the first record with a length of 0.  A record
+ * that was torn by a crash fails its checksum and ends the log as well.
+ *
+ * An appended record is in the page cache as soon as {@link #append} returns and survives the
+ * process crashing, but only survives the machine crashing once it is forced.
+ *
+ * This class is not thread safe.
+ */
+class MappedLog implements Closeable {
+
+    private static final int HEADER_SIZE = Integer.BYTES + Integer.BYTES + 1;
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private CRC32 crc = new CRC32();
+
+    MappedLog(Path path, int initialCapacity) throws IOException {
+        Preconditions.checkArgument(initialCapacity > HEADER_SIZE, "initialCapacity must be greater than " + HEADER_SIZE);
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(channel.size(), initialCapacity));
+    }
+
+    /**
+     * Passes the type and payload of every record to the consumer in the order they were appended
+     * and positions the log after the last valid record.  The payload buffer is only valid during
+     * the call.
+     *
+     * @return the number of records replayed
+     */
+    int replay(BiConsumer<Byte, ByteBuffer> consumer) {
+        buffer.position(0);
+        int records = 0;
+        while (buffer.remaining() >= HEADER_SIZE) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            byte type = buffer.get();
+            if (length == 0) {
+                buffer.position(start);
+                break;
+            }
+            ByteBuffer payload = buffer.slice();
+            payload.limit(Math.max(0, Math.min(length, payload.capacity())));
+            if (length < 0 || length > payload.capacity() || checksum != checksum(type, payload)) {
+                //Zero what the torn record left behind so it cannot be mistaken for a record later
+                buffer.position(start);
+                zero(start, length < 0 ? buffer.capacity() : (int) Math.min(buffer.capacity(), (long) start + HEADER_SIZE + length));
+                break;
+            }
+            consumer.accept(type, payload);
+            buffer.position(start + HEADER_SIZE + length);
+            records++;
+        }
+        return records;
+    }
+
+    void append(byte type, byte[] payload) throws IOException {
+        Preconditions.checkArgument(payload.length > 0, "payload cannot be empty");
+        ensureCapacity(HEADER_SIZE + payload.length);
+        buffer.putInt(payload.length)
+                .putInt(checksum(type, ByteBuffer.wrap(payload)))
+                .put(type)
+                .put(payload);
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    /**
+     * Discards every record.
+     */
+    void reset() {
+        zero(0, buffer.position());
+        buffer.position(0);
+        buffer.force();
+    }
+
+    int size() {
+        return buffer.position();
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private void ensureCapacity(int recordSize) throws IOException {
+        if (buffer.remaining() >= recordSize) {
+            return;
+        }
+        long capacity = buffer.capacity();
+        while (capacity - buffer.position() < recordSize) {
+            capacity *= 2;
+        }
+        Preconditions.checkState(capacity <= Integer.MAX_VALUE, "log cannot grow past 2GB");
+        int position = buffer.position();
+        buffer.force();
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        buffer.position(position);
+    }
+
+    private int checksum(byte type, ByteBuffer payload) {
+        crc.reset();
+        crc.update(type);
+        crc.update(payload.duplicate());
+        return (int) crc.getValue();
+    }
+
+    private void zero(int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) != 0) {
+                buffer.put(i, (byte) 0);
+            }
+        }
+    }
+}
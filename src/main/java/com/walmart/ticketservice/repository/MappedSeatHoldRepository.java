@@ -0,0 +1,395 @@
+package com.walmart.ticketservice.repository;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import com.walmart.ticketservice.model.SeatHold;
+
+/**
+ * A durable {@link SeatHoldRepository} that keeps its seat holds in an {@link InMemorySeatHoldRepository}
+ * and records every change in an append-only, memory-mapped log.
+ *
+ * Saving a seat hold appends a hold record, or a reserve record once it is confirmed, holding the
+ * complete seat hold in the {@link SeatHoldCodec} format.  Deleting a seat hold appends a delete
+ * record with its id.  A change is only applied in memory once its record is appended, so readers
+ * never see a change that was not logged.  Records are forced to disk in groups of syncEvery
+ * records, so a machine crash loses at most the last syncEvery - 1 changes while a process crash
+ * loses none.
+ *
+ * The log is split into numbered segments.  Every snapshotEvery records the live seat holds are
+ * copied and appending moves on to a new segment, and a background thread writes the copy to a
+ * snapshot file, which replaces the previous one atomically, and deletes the segments before the
+ * new one.  On startup the seat holds are restored from the snapshot and the records of the
+ * segments it does not cover are replayed on top of it.  A snapshot that failed or was cut short
+ * by a crash leaves the previous snapshot and every segment after it in place.
+ *
+ * Reads are served from memory and are safe for concurrent use.  Changes are serialized, but
+ * never wait for a snapshot to be written.
+ */
+public class MappedSeatHoldRepository implements SeatHoldRepository, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MappedSeatHoldRepository.class);
+
+    static final String SNAPSHOT_FILE = "seatholds.snapshot";
+    private static final Pattern LOG_FILE = Pattern.compile("seatholds\\.(\\d+)\\.log");
+
+    public static final int DEFAULT_SYNC_EVERY = 64;
+    public static final int DEFAULT_SNAPSHOT_EVERY = 100_000;
+
+    private static final int INITIAL_LOG_CAPACITY = 1 << 20;
+    private static final int SNAPSHOT_MAGIC = 0x53484c44;
+    private static final int SNAPSHOT_HEADER_SIZE = 4 * Integer.BYTES;
+    private static final byte HOLD = 1;
+    private static final byte RESERVE = 2;
+    private static final byte DELETE = 3;
+
+    private InMemorySeatHoldRepository seatHolds = new InMemorySeatHoldRepository();
+    private Path directory;
+    private MappedLog log;
+    private int segment;
+    private int syncEvery;
+    private int snapshotEvery;
+    private int unsynced;
+    private int sinceSnapshot;
+    private ExecutorService snapshotWriter = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+            .setNameFormat("seat-hold-snapshot-%d")
+            .setDaemon(true)
+            .build());
+    private Future<?> pendingSnapshot;
+
+    public MappedSeatHoldRepository(Path directory) {
+        this(directory, DEFAULT_SYNC_EVERY, DEFAULT_SNAPSHOT_EVERY);
+    }
+
+    /**
+     * Opens the repository in the directory, restoring the seat holds saved there before.
+     *
+     * @param directory     the directory of the log and snapshot files, created if missing
+     * @param syncEvery     the number of records appended between forcing the log to disk
+     * @param snapshotEvery the number of records appended between snapshots
+     * @throws UncheckedIOException if the files cannot be read
+     */
+    public MappedSeatHoldRepository(Path directory, int syncEvery, int snapshotEvery) {
+        Preconditions.checkArgument(syncEvery > 0, "syncEvery must be greater than 0");
+        Preconditions.checkArgument(snapshotEvery > 0, "snapshotEvery must be greater than 0");
+        this.directory = directory;
+        this.syncEvery = syncEvery;
+        this.snapshotEvery = snapshotEvery;
+        try {
+            Files.createDirectories(directory);
+            long start = System.nanoTime();
+            int restored = restoreSnapshot();
+            sinceSnapshot = replaySegments();
+            logger.info("Recovered {} seat holds from a snapshot of {} and {} log records in {} ms", seatHolds.findAll().count(),
+                    restored, sinceSnapshot, (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open the seat hold repository in " + directory, e);
+        }
+    }
+
+    @Override
+    public Optional<SeatHold> find(int seatHoldId) {
+        return seatHolds.find(seatHoldId);
+    }
+
+    @Override
+    public Stream<SeatHold> findAll() {
+        return seatHolds.findAll();
+    }
+
+    @Override
+    public Stream<SeatHold> findAll(String customerEmail) {
+        return seatHolds.findAll(customerEmail);
+    }
+
+    @Override
+    public Stream<SeatHold> findAllExpired(int holdLimit) {
+        return seatHolds.findAllExpired(holdLimit);
+    }
+
+    /**
+     * Ids are not logged until a seat hold is saved with them, so after a restart the ids that no
+     * saved seat hold has may be handed out again.
+     */
+    @Override
+    public int nextId() {
+        return seatHolds.nextId();
+    }
+
+    @Override
+    public synchronized SeatHold save(SeatHold seatHold) {
+        SeatHold toSave = seatHold;
+        if (seatHold.getId() == 0) {
+            toSave = new SeatHold(seatHolds.nextId(), seatHold.getCustomerEmail(), seatHold.getHeldSeats(),
+                    seatHold.getConfirmationCode().orElse(null), seatHold.getHoldTime());
+        }
+        append(toSave.getConfirmationCode().isPresent() ? RESERVE : HOLD, SeatHoldCodec.encode(toSave));
+        SeatHold stored = seatHolds.save(toSave);
+        appended();
+        return stored;
+    }
+
+    @Override
+    public synchronized void delete(SeatHold seatHold) {
+        if (seatHolds.find(seatHold.getId()).isPresent()) {
+            append(DELETE, ByteBuffer.allocate(Integer.BYTES).putInt(seatHold.getId()).array());
+            seatHolds.delete(seatHold);
+            appended();
+        }
+    }
+
+    /**
+     * Forces the records that were not yet forced to disk.
+     */
+    public synchronized void sync() {
+        log.force();
+        unsynced = 0;
+    }
+
+    /**
+     * Writes the live seat holds to a new snapshot and waits until it replaces the previous one.
+     *
+     * @throws UncheckedIOException if the snapshot cannot be written
+     */
+    public void snapshot() {
+        Future<?> written;
+        synchronized (this) {
+            written = startSnapshot();
+        }
+        await(written);
+    }
+
+    /**
+     * Waits for the snapshot being written, if any, and closes the log.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        snapshotWriter.shutdown();
+        try {
+            if (pendingSnapshot != null) {
+                pendingSnapshot.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the seat hold snapshot");
+        } catch (ExecutionException e) {
+            //Already logged, the segments it did not cover are kept
+        } finally {
+            log.close();
+        }
+    }
+
+    private void append(byte type, byte[] payload) {
+        try {
+            log.append(type, payload);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to the seat hold log", e);
+        }
+    }
+
+    /**
+     * Starts a snapshot or forces the log once a change that was appended is also applied, so the
+     * snapshot holds the change.
+     */
+    private void appended() {
+        if (++sinceSnapshot >= snapshotEvery && (pendingSnapshot == null || pendingSnapshot.isDone())) {
+            startSnapshot();
+        } else if (++unsynced >= syncEvery) {
+            sync();
+        }
+    }
+
+    /**
+     * Copies the live seat holds, moves on to a new log segment and leaves the snapshot to the
+     * snapshot writer.  The copy holds every change in the segments before the new one.
+     */
+    private Future<?> startSnapshot() {
+        List<SeatHold> live = seatHolds.findAll().collect(Collectors.toList());
+        MappedLog previous = log;
+        int covered = segment + 1;
+        try {
+            log = new MappedLog(segmentFile(covered), INITIAL_LOG_CAPACITY);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not start the seat hold log segment " + covered, e);
+        }
+        segment = covered;
+        unsynced = 0;
+        sinceSnapshot = 0;
+        pendingSnapshot = snapshotWriter.submit(() -> {
+            try {
+                previous.close();
+                writeSnapshot(live, covered);
+                deleteSegmentsBefore(covered);
+            } catch (IOException | RuntimeException e) {
+                logger.error("Failed to write a snapshot of {} seat holds", live.size(), e);
+                throw e;
+            }
+            return null;
+        });
+        return pendingSnapshot;
+    }
+
+    private void writeSnapshot(List<SeatHold> live, int covered) throws IOException {
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        Path tmp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        List<byte[]> encoded = live.stream()
+                .map(SeatHoldCodec::encode)
+                .collect(Collectors.toList());
+        ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER_SIZE);
+        List<ByteBuffer> buffers = Lists.newArrayListWithCapacity(encoded.size() + 1);
+        buffers.add(header);
+        CRC32 crc = new CRC32();
+        encoded.forEach(e -> {
+            ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + e.length).putInt(e.length).put(e);
+            record.flip();
+            crc.update(record.duplicate());
+            buffers.add(record);
+        });
+        header.putInt(SNAPSHOT_MAGIC).putInt(covered).putInt(encoded.size()).putInt((int) crc.getValue()).flip();
+
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer[] toWrite = buffers.toArray(new ByteBuffer[buffers.size()]);
+            while (toWrite[toWrite.length - 1].hasRemaining()) {
+                channel.write(toWrite);
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, snapshot, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        logger.info("Wrote a snapshot of {} seat holds", encoded.size());
+    }
+
+    private static void await(Future<?> written) {
+        try {
+            written.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException("Interrupted while waiting for the seat hold snapshot"));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw new UncheckedIOException("Could not write the seat hold snapshot", (IOException) e.getCause());
+            }
+            throw new IllegalStateException("Could not write the seat hold snapshot", e.getCause());
+        }
+    }
+
+    private void apply(byte type, ByteBuffer payload) {
+        switch (type) {
+            case HOLD:
+            case RESERVE:
+                seatHolds.save(SeatHoldCodec.decode(payload));
+                break;
+            case DELETE:
+                seatHolds.find(payload.getInt()).ifPresent(seatHolds::delete);
+                break;
+            default:
+                throw new IllegalStateException("Unknown seat hold log record type " + type);
+        }
+    }
+
+    /**
+     * Restores the seat holds of the snapshot and remembers the first log segment it does not cover.
+     *
+     * @return the number of seat holds restored
+     */
+    private int restoreSnapshot() throws IOException {
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(snapshot)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < SNAPSHOT_HEADER_SIZE || buffer.getInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a seat hold snapshot");
+            }
+            segment = buffer.getInt();
+            int count = buffer.getInt();
+            int checksum = buffer.getInt();
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                throw new IOException("Corrupt seat hold snapshot");
+            }
+            for (int i = 0; i < count; i++) {
+                int length = buffer.getInt();
+                ByteBuffer record = buffer.slice();
+                record.limit(length);
+                seatHolds.save(SeatHoldCodec.decode(record));
+                buffer.position(buffer.position() + length);
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Replays the log segments the snapshot does not cover, in order, and keeps appending to the
+     * last one.  Segments the snapshot covers were left behind by a crash and are deleted.
+     *
+     * @return the number of records replayed
+     */
+    private int replaySegments() throws IOException {
+        deleteSegmentsBefore(segment);
+        List<Integer> segments = segments().stream()
+                .sorted()
+                .collect(Collectors.toList());
+        int records = 0;
+        for (int i = 0; i < segments.size() - 1; i++) {
+            try (MappedLog previous = new MappedLog(segmentFile(segments.get(i)), INITIAL_LOG_CAPACITY)) {
+                records += previous.replay(this::apply);
+            }
+        }
+        if (!segments.isEmpty()) {
+            segment = segments.get(segments.size() - 1);
+        }
+        log = new MappedLog(segmentFile(segment), INITIAL_LOG_CAPACITY);
+        return records + log.replay(this::apply);
+    }
+
+    private List<Integer> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(f -> LOG_FILE.matcher(f.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .map(m -> Integer.parseInt(m.group(1)))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private void deleteSegmentsBefore(int covered) throws IOException {
+        for (int s : segments()) {
+            if (s < covered) {
+                Files.delete(segmentFile(s));
+            }
+        }
+    }
+
+    Path segmentFile(int segment) {
+        return directory.resolve("seatholds." + segment + ".log");
+    }
+}
@@ -0,0 +1,30 @@
+package com.walmart.ticketservice.repository;
+
+import java.util.Collection;
+
+import com.walmart.ticketservice.exception.SeatRepositoryException;
+import com.walmart.ticketservice.model.Seat;
+import com.walmart.ticketservice.model.Status;
+
+/**
+ * A {@link SeatRepository} that runs an action while a change still holds the seats it changes,
+ * so whatever the action records about the change is in the same order as the changes of every
+ * seat, without a lock around the whole change.
+ */
+interface OrderedSeatRepository extends SeatRepository {
+
+    /**
+     * Saves the seats like {@link #save(Iterable)}, running the action once no other change can
+     * touch the seats and before they are saved.  If the action throws the seats are not saved.
+     */
+    void save(Iterable<Seat> seats, Runnable whileSaving) throws SeatRepositoryException;
+
+    /**
+     * Moves the seats like {@link #transition(Collection, int, Status, Status)}, running the action
+     * once the seats were found in the expected status and no other change can touch them, and
+     * before they are moved.  The action is not run if the seats are not moved, and if it throws
+     * the seats are not moved.
+     */
+    boolean transition(Collection<Seat> seats, int seatHoldId, Status expected, Status target, Runnable whileMoving)
+            throws SeatRepositoryException;
+}
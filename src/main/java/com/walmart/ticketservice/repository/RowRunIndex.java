@@ -0,0 +1,152 @@
+package com.walmart.ticketservice.repository;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * Indexes the runs of adjacent available seats in the rows of a level.
+ *
+ * Each row is a segment tree over its seat numbers that keeps, for every segment, the length of
+ * the free run at its start, at its end and the longest free run within it.  A second tree over
+ * the rows keeps the longest run of each row, ordered from the best row to the worst.  Marking a
+ * seat and finding the best block of adjacent seats are both logarithmic.
+ *
+ * The best block is the leftmost block in the best row that can fit it, where rows are ranked by
+ * the score of their best seat.
+ *
+ * This class is not thread safe.
+ */
+class RowRunIndex {
+
+    private int rowCapacity;
+    private int[] rowsByRank;
+    private int[] ranksByRow;
+    //Per row segment trees, indexed [row - 1][node]
+    private int[][] prefix;
+    private int[][] suffix;
+    private int[][] longest;
+    //Max tree over the longest run of every row, indexed by row rank
+    private int rankCapacity;
+    private int[] rowLongest;
+
+    /**
+     * Creates an index where every seat is available.
+     *
+     * @param rowBestScores the score of the best seat in each row, indexed by row - 1
+     * @param seatsPerRow   the number of seats in each row
+     */
+    RowRunIndex(int[] rowBestScores, int seatsPerRow) {
+        int rows = rowBestScores.length;
+        this.rowCapacity = capacity(seatsPerRow);
+        this.rankCapacity = capacity(rows);
+
+        rowsByRank = IntStream.range(0, rows).boxed()
+                .sorted(Comparator.<Integer>comparingInt(r -> rowBestScores[r]).thenComparingInt(r -> r))
+                .mapToInt(r -> r)
+                .toArray();
+        ranksByRow = new int[rows];
+        for (int rank = 0; rank < rows; rank++) {
+            ranksByRow[rowsByRank[rank]] = rank;
+        }
+
+        prefix = new int[rows][2 * rowCapacity];
+        suffix = new int[rows][2 * rowCapacity];
+        longest = new int[rows][2 * rowCapacity];
+        rowLongest = new int[2 * rankCapacity];
+        for (int r = 0; r < rows; r++) {
+            for (int n = 0; n < seatsPerRow; n++) {
+                int leaf = rowCapacity + n;
+                prefix[r][leaf] = suffix[r][leaf] = longest[r][leaf] = 1;
+            }
+            for (int node = rowCapacity - 1; node > 0; node--) {
+                combine(r, node);
+            }
+            rowLongest[rankCapacity + ranksByRow[r]] = longest[r][1];
+        }
+        for (int node = rankCapacity - 1; node > 0; node--) {
+            rowLongest[node] = Math.max(rowLongest[2 * node], rowLongest[2 * node + 1]);
+        }
+    }
+
+    /**
+     * Marks a seat as available or not.
+     */
+    void set(int row, int number, boolean available) {
+        int r = row - 1;
+        int node = rowCapacity + number - 1;
+        int value = available ? 1 : 0;
+        if (prefix[r][node] == value) {
+            return;
+        }
+        prefix[r][node] = suffix[r][node] = longest[r][node] = value;
+        for (node /= 2; node > 0; node /= 2) {
+            combine(r, node);
+        }
+
+        node = rankCapacity + ranksByRow[r];
+        rowLongest[node] = longest[r][1];
+        for (node /= 2; node > 0; node /= 2) {
+            rowLongest[node] = Math.max(rowLongest[2 * node], rowLongest[2 * node + 1]);
+        }
+    }
+
+    /**
+     * Finds the best block of adjacent available seats.
+     *
+     * @return the row in the upper and the first seat number in the lower 32 bits, or -1 if no row
+     * has enough adjacent available seats
+     */
+    long findBest(int numSeats) {
+        Preconditions.checkArgument(numSeats > 0, "numSeats must be greater than 0");
+        if (rowLongest[1] < numSeats) {
+            return -1;
+        }
+        //Descend to the best ranked row that fits
+        int node = 1;
+        while (node < rankCapacity) {
+            node = rowLongest[2 * node] >= numSeats ? 2 * node : 2 * node + 1;
+        }
+        int r = rowsByRank[node - rankCapacity];
+        int start = findFirst(r, 1, 0, rowCapacity, numSeats);
+        return (long) (r + 1) << 32 | (start + 1);
+    }
+
+    /**
+     * @return the leftmost position in the segment [from, from + length) where a run of numSeats
+     * starts
+     */
+    private int findFirst(int r, int node, int from, int length, int numSeats) {
+        if (length == 1) {
+            return from;
+        }
+        int left = 2 * node;
+        int right = left + 1;
+        int half = length / 2;
+        if (longest[r][left] >= numSeats) {
+            return findFirst(r, left, from, half, numSeats);
+        }
+        if (suffix[r][left] + prefix[r][right] >= numSeats) {
+            return from + half - suffix[r][left];
+        }
+        return findFirst(r, right, from + half, half, numSeats);
+    }
+
+    private void combine(int r, int node) {
+        int left = 2 * node;
+        int right = left + 1;
+        int half = length(node) / 2;
+        prefix[r][node] = prefix[r][left] == half ? half + prefix[r][right] : prefix[r][left];
+        suffix[r][node] = suffix[r][right] == half ? half + suffix[r][left] : suffix[r][right];
+        longest[r][node] = Math.max(Math.max(longest[r][left], longest[r][right]), suffix[r][left] + prefix[r][right]);
+    }
+
+    private int length(int node) {
+        return rowCapacity / Integer.highestOneBit(node);
+    }
+
+    private static int capacity(int size) {
+        return Math.max(1, Integer.highestOneBit(Math.max(1, size) - 1) << 1);
+    }
+}
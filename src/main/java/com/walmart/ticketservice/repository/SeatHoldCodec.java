@@ -0,0 +1,102 @@
+package com.walmart.ticketservice.repository;
+
+import com.google.common.collect.Sets;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Set;
+
+import com.walmart.ticketservice.model.Seat;
+import com.walmart.ticketservice.model.SeatHold;
+import com.walmart.ticketservice.model.Status;
+
+/**
+ * The binary format of a {@link SeatHold} and its seats in the files of the durable repositories.
+ *
+ * A seat hold is its id, its hold time as UTC epoch seconds and nanos, its customer email, its
+ * confirmation code and its seats.  Strings are their UTF-8 length followed by their bytes, with a
+ * length of -1 for null.  Each seat is its level, row, number, score and status ordinal, 17 bytes
+ * in total.
+ */
+final class SeatHoldCodec {
+
+    private static final Status[] STATUSES = Status.values();
+    static final int SEAT_SIZE = 4 * Integer.BYTES + 1;
+
+    private SeatHoldCodec() {
+    }
+
+    static byte[] encode(SeatHold seatHold) {
+        byte[] email = bytes(seatHold.getCustomerEmail());
+        byte[] confirmationCode = bytes(seatHold.getConfirmationCode().orElse(null));
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + Long.BYTES + Integer.BYTES
+                + Integer.BYTES + length(email) + Integer.BYTES + length(confirmationCode)
+                + Integer.BYTES + seatHold.getHeldSeats().size() * SEAT_SIZE);
+
+        LocalDateTime holdTime = seatHold.getHoldTime();
+        buffer.putInt(seatHold.getId())
+                .putLong(holdTime.toEpochSecond(ZoneOffset.UTC))
+                .putInt(holdTime.getNano());
+        put(buffer, email);
+        put(buffer, confirmationCode);
+        buffer.putInt(seatHold.getHeldSeats().size());
+        seatHold.getHeldSeats().forEach(s -> putSeat(buffer, s));
+        return buffer.array();
+    }
+
+    /**
+     * Reads a seat hold from the current position of the buffer and advances the position past it.
+     */
+    static SeatHold decode(ByteBuffer buffer) {
+        int id = buffer.getInt();
+        LocalDateTime holdTime = LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+        String email = string(buffer);
+        String confirmationCode = string(buffer);
+        int seatCount = buffer.getInt();
+        Set<Seat> seats = Sets.newHashSetWithExpectedSize(seatCount);
+        for (int i = 0; i < seatCount; i++) {
+            seats.add(getSeat(buffer));
+        }
+        return new SeatHold(id, email, seats, confirmationCode, holdTime);
+    }
+
+    static void putSeat(ByteBuffer buffer, Seat seat) {
+        buffer.putInt(seat.getLevel())
+                .putInt(seat.getRow())
+                .putInt(seat.getNumber())
+                .putInt(seat.getScore())
+                .put((byte) seat.getStatus().ordinal());
+    }
+
+    static Seat getSeat(ByteBuffer buffer) {
+        return new Seat(buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt(), STATUSES[buffer.get()]);
+    }
+
+    private static byte[] bytes(String s) {
+        return s == null ? null : s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    private static void put(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(bytes.length).put(bytes);
+        }
+    }
+
+    private static String string(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -9,8 +9,38 @@ public interface SeatHoldRepository {
 
     Optional<SeatHold> find(int seatHoldId);
 
+    /**
+     * Find all seat holds and reservations.
+     *
+     * @return
+     */
+    Stream<SeatHold> findAll();
+
+    /**
+     * Find all seat holds and reservations of a customer.
+     *
+     * @param customerEmail
+     * @return
+     */
+    Stream<SeatHold> findAll(String customerEmail);
+
+    /**
+     * Find all seat holds that have not been confirmed and whose hold time is more than holdLimit
+     * seconds ago.  Confirmed reservations never expire.
+     *
+     * @param holdLimit the number of seconds a seat hold is kept
+     * @return
+     */
     Stream<SeatHold> findAllExpired(int holdLimit);
 
+    /**
+     * Hands out the id of a seat hold that is not saved yet, so its seats can be held for it
+     * before it is saved with that id.
+     *
+     * @return an id greater than 0 that no saved seat hold has and that was not handed out before
+     */
+    int nextId();
+
     SeatHold save(SeatHold seatHold);
 
     void delete(SeatHold seatHold);
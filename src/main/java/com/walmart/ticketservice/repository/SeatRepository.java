@@ -1,5 +1,6 @@
 package com.walmart.ticketservice.repository;
 
+import java.util.Collection;
 import java.util.stream.Stream;
 
 import com.walmart.ticketservice.exception.SeatRepositoryException;
@@ -54,8 +55,98 @@ public interface SeatRepository {
      */
     Stream<Seat> findBest(int minLevel, int maxLevel);
 
+    /**
+     * Returns the best seats within the provided level, at most limit of them, sorted by the best
+     * seat score.  Implementations only select the seats that are returned instead of sorting the
+     * whole level.
+     *
+     * @param level
+     * @param limit the largest number of seats to return
+     * @return the same seats as {@code findBest(level).limit(limit)}
+     * @throws IllegalArgumentException if limit is negative
+     */
+    Stream<Seat> findTop(int level, int limit);
+
+    /**
+     * Returns the best seats within the provided range of levels, at most limit of them, sorted by
+     * the best seat score.
+     *
+     * @param minLevel
+     * @param maxLevel
+     * @param limit the largest number of seats to return
+     * @return the same seats as {@code findBest(minLevel, maxLevel).limit(limit)}
+     * @throws IllegalArgumentException if minLevel is greater than maxLevel or equal to maxLevel,
+     * or limit is negative
+     */
+    Stream<Seat> findTop(int minLevel, int maxLevel, int limit);
+
+    /**
+     * Returns the best block of adjacent available seats in a single row of the provided level.
+     * The best block is the leftmost block in the row with the best seats that can fit it.
+     *
+     * @param level
+     * @param numSeats the number of adjacent seats
+     * @return the seats of the block ordered by seat number or an empty Stream if no row has
+     * enough adjacent available seats
+     */
+    Stream<Seat> findBestContiguous(int level, int numSeats);
+
+    /**
+     * Returns the best block of adjacent available seats in a single row within the provided range
+     * of levels.  The blocks found in each level are compared by their best seat score.
+     *
+     * @param minLevel
+     * @param maxLevel
+     * @param numSeats the number of adjacent seats
+     * @return the seats of the block ordered by seat number or an empty Stream if no row has
+     * enough adjacent available seats
+     * @throws IllegalArgumentException if minLevel is greater than maxLevel or equal to maxLevel
+     */
+    Stream<Seat> findBestContiguous(int minLevel, int maxLevel, int numSeats);
+
+    /**
+     * Returns the number of seats in the venue that are in the requested status.
+     *
+     * @param status
+     * @return
+     */
+    int countAll(Status status);
+
+    /**
+     * Returns the number of seats within the provided level that are in the requested status.
+     *
+     * @param level
+     * @param status
+     * @return 0 if the level is not part of the venue
+     */
+    int countAll(int level, Status status);
+
     void save(Seat seat) throws SeatRepositoryException;
 
     void save(Iterable<Seat> seats) throws SeatRepositoryException;
 
+    /**
+     * Moves the seats from the expected status to the target status for a seat hold, all or
+     * nothing.  Unlike {@link #save(Iterable)} the change is conditional: if any of the seats is no
+     * longer in the expected status, for example because a concurrent hold took it, none of them is
+     * changed.  Only the status is changed, the scores and the seat objects passed in are left
+     * untouched.
+     *
+     * A seat that is moved to a held or reserved status belongs to the seat hold until it is made
+     * available again, while saved seats do not belong to any seat hold.  Unless the seats are
+     * expected to be available they must also still belong to the seat hold, so a seat hold that
+     * expired cannot reserve or free seats that were freed and held again by another seat hold
+     * meanwhile.
+     *
+     * @param seats      the seats to move
+     * @param seatHoldId the id of the seat hold the seats are moved for, or 0 for seats that do
+     *                   not belong to any seat hold
+     * @param expected   the status every seat must be in
+     * @param target     the status the seats are moved to
+     * @return true if the seats were moved, false if any of them was not in the expected status or
+     * did not belong to the seat hold
+     * @throws SeatRepositoryException if any of the seats is not part of the venue
+     */
+    boolean transition(Collection<Seat> seats, int seatHoldId, Status expected, Status target) throws SeatRepositoryException;
+
 }
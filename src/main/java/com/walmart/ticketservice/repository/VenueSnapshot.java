@@ -0,0 +1,328 @@
+package com.walmart.ticketservice.repository;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+import com.walmart.ticketservice.model.Level;
+import com.walmart.ticketservice.model.Seat;
+import com.walmart.ticketservice.model.SeatHold;
+import com.walmart.ticketservice.model.Status;
+import com.walmart.ticketservice.model.VenueConfiguration;
+
+/**
+ * A copy of the full state of a venue, its seat scores and statuses and its live seat holds, that
+ * can be saved to a file and restored without scoring the seats or replaying any logs.
+ *
+ * Seats are addressed by ordinal the same way as in {@link ArraySeatRepository}.  The file has a
+ * header with the level layout, the number of seats and seat holds and a CRC32 of the body.  The
+ * body holds the scores, then the statuses as two bitsets, one for held and one for reserved
+ * seats, and then the seat holds in the {@link SeatHoldCodec} format.  A 100,000 seat venue takes
+ * about 425KB plus its seat holds.
+ *
+ * The file is written with a single gathering write and read through a read-only memory map with
+ * bulk copies into the arrays.  A snapshot is not isolated from changes made while it is taken,
+ * so take it while the venue is quiet for an exact copy.  The seats and the seat holds are read one
+ * after the other, so a snapshot drops the seat holds that are not confirmed but whose seats are not
+ * all held, and frees the held seats that none of its seat holds owns.
+ */
+public final class VenueSnapshot {
+
+    private static final int MAGIC = 0x56534e50;
+    private static final int VERSION = 1;
+
+    private VenueConfiguration venueConfiguration;
+    private int[] scores;
+    private byte[] statuses;
+    private List<SeatHold> seatHolds;
+
+    private VenueSnapshot(VenueConfiguration venueConfiguration, int[] scores, byte[] statuses, List<SeatHold> seatHolds) {
+        this.venueConfiguration = venueConfiguration;
+        this.scores = scores;
+        this.statuses = statuses;
+        this.seatHolds = seatHolds;
+    }
+
+    /**
+     * Takes a snapshot of the seats and seat holds of a venue.
+     */
+    public static VenueSnapshot of(VenueConfiguration venueConfiguration, SeatRepository seatRepository,
+                                   SeatHoldRepository seatHoldRepository) {
+        List<Level> levels = sortedLevels(venueConfiguration);
+        int[] levelStarts = levelStarts(levels);
+        int seatCount = levelStarts[levels.size()];
+        int[] scores = new int[seatCount];
+        byte[] statuses = new byte[seatCount];
+
+        if (seatRepository instanceof ArraySeatRepository) {
+            ((ArraySeatRepository) seatRepository).copyTo(scores, statuses);
+        } else {
+            seatRepository.findAll().forEach(s -> {
+                int ordinal = ordinal(levels, levelStarts, s);
+                scores[ordinal] = s.getScore();
+                statuses[ordinal] = (byte) s.getStatus().ordinal();
+            });
+        }
+        List<SeatHold> seatHolds = seatHoldRepository.findAll().collect(Collectors.toList());
+        return new VenueSnapshot(venueConfiguration, scores, statuses, reconcile(levels, levelStarts, statuses, seatHolds));
+    }
+
+    /**
+     * Reads a snapshot that was taken of a venue with the same configuration.
+     *
+     * @throws IllegalArgumentException if the snapshot was taken of a venue with different levels
+     * @throws UncheckedIOException     if the file cannot be read or is corrupt
+     */
+    public static VenueSnapshot read(Path file, VenueConfiguration venueConfiguration) {
+        List<Level> levels = sortedLevels(venueConfiguration);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 3 * Integer.BYTES || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Not a venue snapshot");
+            }
+            //The header is not covered by the checksum so its counts are checked against the file size
+            int levelCount = buffer.getInt();
+            if (levelCount < 0 || buffer.remaining() < (3L * levelCount + 3) * Integer.BYTES) {
+                throw corrupt();
+            }
+            boolean sameLevels = levelCount == levels.size();
+            for (int i = 0; i < levelCount; i++) {
+                int id = buffer.getInt();
+                int rows = buffer.getInt();
+                int seatsPerRow = buffer.getInt();
+                sameLevels = sameLevels && levels.get(i).getId() == id && levels.get(i).getRows() == rows
+                        && levels.get(i).getSeatsPerRow() == seatsPerRow;
+            }
+            Preconditions.checkArgument(sameLevels, "The snapshot " + file + " was taken of a venue with different levels");
+            int seatCount = buffer.getInt();
+            int holdCount = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (seatCount != levelStarts(levels)[levels.size()] || holdCount < 0
+                    || buffer.remaining() < (long) seatCount * Integer.BYTES + 2L * words(seatCount) * Long.BYTES) {
+                throw corrupt();
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                throw corrupt();
+            }
+
+            int[] scores = new int[seatCount];
+            buffer.asIntBuffer().get(scores);
+            buffer.position(buffer.position() + seatCount * Integer.BYTES);
+
+            long[] held = readBits(buffer, seatCount);
+            long[] reserved = readBits(buffer, seatCount);
+            byte[] statuses = new byte[seatCount];
+            for (int o = 0; o < seatCount; o++) {
+                if ((held[o >>> 6] & 1L << o) != 0) {
+                    statuses[o] = (byte) Status.HELD.ordinal();
+                } else if ((reserved[o >>> 6] & 1L << o) != 0) {
+                    statuses[o] = (byte) Status.RESERVED.ordinal();
+                }
+            }
+
+            List<SeatHold> seatHolds = Lists.newArrayListWithCapacity(holdCount);
+            for (int i = 0; i < holdCount; i++) {
+                if (buffer.remaining() < Integer.BYTES) {
+                    throw corrupt();
+                }
+                int length = buffer.getInt();
+                if (length < 0 || length > buffer.remaining()) {
+                    throw corrupt();
+                }
+                ByteBuffer record = buffer.slice();
+                record.limit(length);
+                seatHolds.add(SeatHoldCodec.decode(record));
+                buffer.position(buffer.position() + length);
+            }
+            if (buffer.hasRemaining()) {
+                throw corrupt();
+            }
+            return new VenueSnapshot(venueConfiguration, scores, statuses,
+                    reconcile(levels, levelStarts(levels), statuses, seatHolds));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the venue snapshot " + file, e);
+        }
+    }
+
+    /**
+     * Writes the snapshot to a file, replacing it atomically if it exists.
+     *
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    public void write(Path file) {
+        List<Level> levels = sortedLevels(venueConfiguration);
+        int seatCount = scores.length;
+
+        ByteBuffer scoreBuffer = ByteBuffer.allocate(seatCount * Integer.BYTES);
+        scoreBuffer.asIntBuffer().put(scores);
+        long[] held = new long[words(seatCount)];
+        long[] reserved = new long[words(seatCount)];
+        for (int o = 0; o < seatCount; o++) {
+            if (statuses[o] == Status.HELD.ordinal()) {
+                held[o >>> 6] |= 1L << o;
+            } else if (statuses[o] == Status.RESERVED.ordinal()) {
+                reserved[o >>> 6] |= 1L << o;
+            }
+        }
+        List<ByteBuffer> body = Lists.newArrayList(scoreBuffer, bits(held), bits(reserved));
+        seatHolds.forEach(h -> {
+            byte[] encoded = SeatHoldCodec.encode(h);
+            ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + encoded.length).putInt(encoded.length).put(encoded);
+            record.flip();
+            body.add(record);
+        });
+        CRC32 crc = new CRC32();
+        body.forEach(b -> crc.update(b.duplicate()));
+
+        ByteBuffer header = ByteBuffer.allocate((6 + 3 * levels.size()) * Integer.BYTES)
+                .putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(levels.size());
+        levels.forEach(l -> header.putInt(l.getId()).putInt(l.getRows()).putInt(l.getSeatsPerRow()));
+        header.putInt(seatCount)
+                .putInt(seatHolds.size())
+                .putInt((int) crc.getValue())
+                .flip();
+        body.add(0, header);
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer[] toWrite = body.toArray(new ByteBuffer[body.size()]);
+                while (toWrite[toWrite.length - 1].hasRemaining()) {
+                    channel.write(toWrite);
+                }
+                channel.force(true);
+            }
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write the venue snapshot " + file, e);
+        }
+    }
+
+    /**
+     * @return a new seat repository holding the seats of the snapshot, where the seats of each
+     * seat hold belong to it
+     */
+    public ArraySeatRepository toSeatRepository() {
+        return new ArraySeatRepository(venueConfiguration, scores.clone(), statuses.clone(), seatHolds);
+    }
+
+    /**
+     * @return a new seat hold repository holding the seat holds of the snapshot
+     */
+    public InMemorySeatHoldRepository toSeatHoldRepository() {
+        InMemorySeatHoldRepository seatHoldRepository = new InMemorySeatHoldRepository();
+        seatHolds.forEach(seatHoldRepository::save);
+        return seatHoldRepository;
+    }
+
+    public int getSeatCount() {
+        return scores.length;
+    }
+
+    public List<SeatHold> getSeatHolds() {
+        return Collections.unmodifiableList(seatHolds);
+    }
+
+    /**
+     * Drops the seat holds that are not confirmed and do not hold all of their seats, and frees the
+     * held seats that none of the remaining seat holds owns.
+     *
+     * @return the remaining seat holds
+     */
+    private static List<SeatHold> reconcile(List<Level> levels, int[] levelStarts, byte[] statuses, List<SeatHold> seatHolds) {
+        List<SeatHold> live = seatHolds.stream()
+                .filter(h -> h.getConfirmationCode().isPresent() || h.getHeldSeats().stream().allMatch(s -> {
+                    int ordinal = ordinal(levels, levelStarts, s);
+                    return ordinal >= 0 && statuses[ordinal] == Status.HELD.ordinal();
+                }))
+                .collect(Collectors.toList());
+        BitSet owned = new BitSet(statuses.length);
+        live.forEach(h -> h.getHeldSeats().forEach(s -> {
+            int ordinal = ordinal(levels, levelStarts, s);
+            if (ordinal >= 0) {
+                owned.set(ordinal);
+            }
+        }));
+        for (int o = 0; o < statuses.length; o++) {
+            if (statuses[o] == Status.HELD.ordinal() && !owned.get(o)) {
+                statuses[o] = (byte) Status.AVAILABLE.ordinal();
+            }
+        }
+        return live;
+    }
+
+    /**
+     * @return the ordinal of the seat or -1 if it is not part of the venue
+     */
+    private static int ordinal(List<Level> levels, int[] levelStarts, Seat seat) {
+        for (int i = 0; i < levels.size(); i++) {
+            Level level = levels.get(i);
+            if (level.getId() == seat.getLevel()) {
+                if (seat.getRow() < 1 || seat.getRow() > level.getRows()
+                        || seat.getNumber() < 1 || seat.getNumber() > level.getSeatsPerRow()) {
+                    return -1;
+                }
+                return levelStarts[i] + (seat.getRow() - 1) * level.getSeatsPerRow() + seat.getNumber() - 1;
+            }
+        }
+        return -1;
+    }
+
+    private static IOException corrupt() {
+        return new IOException("Corrupt venue snapshot");
+    }
+
+    private static List<Level> sortedLevels(VenueConfiguration venueConfiguration) {
+        List<Level> levels = Lists.newArrayList(venueConfiguration.getLevels());
+        levels.sort(Comparator.comparingInt(Level::getId));
+        return levels;
+    }
+
+    private static int[] levelStarts(List<Level> levels) {
+        int[] levelStarts = new int[levels.size() + 1];
+        for (int i = 0; i < levels.size(); i++) {
+            levelStarts[i + 1] = levelStarts[i] + levels.get(i).getTotalSeats();
+        }
+        return levelStarts;
+    }
+
+    private static int words(int bits) {
+        return (bits + Long.SIZE - 1) / Long.SIZE;
+    }
+
+    private static ByteBuffer bits(long[] words) {
+        ByteBuffer buffer = ByteBuffer.allocate(words.length * Long.BYTES);
+        buffer.asLongBuffer().put(words);
+        return buffer;
+    }
+
+    private static long[] readBits(ByteBuffer buffer, int bits) {
+        long[] words = new long[words(bits)];
+        LongBuffer view = buffer.asLongBuffer();
+        view.get(words);
+        buffer.position(buffer.position() + words.length * Long.BYTES);
+        return words;
+    }
+}
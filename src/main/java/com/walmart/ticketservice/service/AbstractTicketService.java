@@ -1,13 +1,21 @@
 package com.walmart.ticketservice.service;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
 import org.apache.commons.validator.routines.EmailValidator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import com.walmart.ticketservice.exception.NoAvailableSeatsException;
+import com.walmart.ticketservice.exception.TicketServiceException;
+import com.walmart.ticketservice.model.HoldRequest;
+import com.walmart.ticketservice.model.HoldResult;
 import com.walmart.ticketservice.model.SeatHold;
 import com.walmart.ticketservice.model.VenueConfiguration;
 import com.walmart.ticketservice.utils.TicketServiceUtils;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 /**
@@ -21,12 +29,21 @@ import java.util.Optional;
  *     <li>Free up seats.</li>
  *     <li>Perform requested operation</li>
  * </ol>
+ *
+ * The cleanup steps are skipped while a {@link HoldExpiryReaper} expires the seat holds in the
+ * background instead.
+ *
+ * Every {@link TicketServiceListener} added to the service is told about the seat holds created,
+ * rejected, reserved and expired by the template.
  */
 public abstract class AbstractTicketService implements TicketService {
 
     private static final Logger logger = LoggerFactory.getLogger(AbstractTicketService.class);
 
     protected VenueConfiguration venueConfiguration;
+    private volatile boolean backgroundExpiry = false;
+    //Copied on write so requests can call the listeners without locking or allocating
+    private volatile TicketServiceListener[] listeners = new TicketServiceListener[0];
 
     public AbstractTicketService(VenueConfiguration venueConfiguration) {
         this.venueConfiguration = venueConfiguration;
@@ -42,22 +59,53 @@ public abstract class AbstractTicketService implements TicketService {
 
     @Override
     public final SeatHold findAndHoldSeats(int numSeats, Optional<Integer> minLevel, Optional<Integer> maxLevel, String customerEmail) {
-        Preconditions.checkArgument(numSeats > 0, "numSeats must be greater than 0");
-
-        Optional<Integer> actualMinLevel = TicketServiceUtils.maybeNull(minLevel);
-        Optional<Integer> actualMaxLevel = TicketServiceUtils.maybeNull(maxLevel);
-        actualMinLevel.ifPresent(this::validateVenueLevel);
-        actualMaxLevel.ifPresent(this::validateVenueLevel);
+        HoldRequest holdRequest = validateHoldRequest(new HoldRequest(numSeats, minLevel, maxLevel, customerEmail));
+        deleteExpiredSeatHoldsAndFree();
+        SeatHold seatHold;
+        try {
+            seatHold = doFindAndHoldSeats(numSeats, holdRequest.getMinLevel(), holdRequest.getMaxLevel(), customerEmail);
+        } catch (NoAvailableSeatsException e) {
+            for (TicketServiceListener listener : listeners) {
+                listener.onHoldRejected(e);
+            }
+            throw e;
+        }
+        for (TicketServiceListener listener : listeners) {
+            listener.onHold(seatHold);
+        }
+        return seatHold;
+    }
 
-        if (actualMinLevel.isPresent() && actualMaxLevel.isPresent()) {
-            int min = actualMinLevel.get();
-            int max = actualMaxLevel.get();
-            TicketServiceUtils.checkRequestedLevels(venueConfiguration, min, max);
+    /**
+     * Validates every request on its own, then cleans up expired seat holds once for the whole
+     * batch before serving the valid requests.
+     */
+    @Override
+    public final List<HoldResult> findAndHoldSeats(List<HoldRequest> holdRequests) {
+        Preconditions.checkNotNull(holdRequests, "holdRequests cannot be null");
+        HoldResult[] results = new HoldResult[holdRequests.size()];
+        List<HoldRequest> validRequests = Lists.newArrayListWithCapacity(holdRequests.size());
+        List<Integer> validIndexes = Lists.newArrayListWithCapacity(holdRequests.size());
+
+        for (int i = 0; i < holdRequests.size(); i++) {
+            HoldRequest holdRequest = holdRequests.get(i);
+            try {
+                validRequests.add(validateHoldRequest(Preconditions.checkNotNull(holdRequest, "holdRequest cannot be null")));
+                validIndexes.add(i);
+            } catch (RuntimeException e) {
+                results[i] = HoldResult.failure(holdRequest, e);
+            }
         }
 
-        validateCustomerEmail(customerEmail);
-        deleteExpiredSeatHoldsAndFree();
-        return doFindAndHoldSeats(numSeats, actualMinLevel, actualMaxLevel, customerEmail);
+        if (!validRequests.isEmpty()) {
+            deleteExpiredSeatHoldsAndFree();
+            List<HoldResult> served = doFindAndHoldSeats(validRequests);
+            for (int i = 0; i < served.size(); i++) {
+                results[validIndexes.get(i)] = served.get(i);
+                fireHoldResult(served.get(i));
+            }
+        }
+        return Arrays.asList(results);
     }
 
     @Override
@@ -65,7 +113,67 @@ public abstract class AbstractTicketService implements TicketService {
         Preconditions.checkArgument(seatHoldId > 0, "seatHoldId must be greater than 0.");
         validateCustomerEmail(customerEmail);
         deleteExpiredSeatHoldsAndFree();
-        return doReserveSeats(seatHoldId, customerEmail);
+        String confirmationCode = doReserveSeats(seatHoldId, customerEmail);
+        for (TicketServiceListener listener : listeners) {
+            listener.onReserve(seatHoldId, confirmationCode);
+        }
+        return confirmationCode;
+    }
+
+    /**
+     * Adds a listener, unless it was already added.
+     */
+    public synchronized void addListener(TicketServiceListener listener) {
+        Preconditions.checkNotNull(listener, "listener cannot be null");
+        if (!Arrays.asList(listeners).contains(listener)) {
+            TicketServiceListener[] added = Arrays.copyOf(listeners, listeners.length + 1);
+            added[listeners.length] = listener;
+            listeners = added;
+        }
+    }
+
+    /**
+     * @return true if the listener had been added
+     */
+    public synchronized boolean removeListener(TicketServiceListener listener) {
+        TicketServiceListener[] remaining = Arrays.stream(listeners)
+                .filter(l -> !Objects.equals(l, listener))
+                .toArray(TicketServiceListener[]::new);
+        boolean removed = remaining.length < listeners.length;
+        listeners = remaining;
+        return removed;
+    }
+
+    private void fireHoldResult(HoldResult holdResult) {
+        for (TicketServiceListener listener : listeners) {
+            if (holdResult.isSuccess()) {
+                listener.onHold(holdResult.getSeatHold().get());
+            } else if (holdResult.getFailure().get() instanceof NoAvailableSeatsException) {
+                listener.onHoldRejected((NoAvailableSeatsException) holdResult.getFailure().get());
+            }
+        }
+    }
+
+    /**
+     * @return the request with null levels replaced by Optional.empty()
+     * @throws IllegalArgumentException if the request is not valid
+     */
+    private HoldRequest validateHoldRequest(HoldRequest holdRequest) {
+        Preconditions.checkArgument(holdRequest.getNumSeats() > 0, "numSeats must be greater than 0");
+
+        Optional<Integer> actualMinLevel = TicketServiceUtils.maybeNull(holdRequest.getMinLevel());
+        Optional<Integer> actualMaxLevel = TicketServiceUtils.maybeNull(holdRequest.getMaxLevel());
+        actualMinLevel.ifPresent(this::validateVenueLevel);
+        actualMaxLevel.ifPresent(this::validateVenueLevel);
+
+        if (actualMinLevel.isPresent() && actualMaxLevel.isPresent()) {
+            int min = actualMinLevel.get();
+            int max = actualMaxLevel.get();
+            TicketServiceUtils.checkRequestedLevels(venueConfiguration, min, max);
+        }
+
+        validateCustomerEmail(holdRequest.getCustomerEmail());
+        return new HoldRequest(holdRequest.getNumSeats(), actualMinLevel, actualMaxLevel, holdRequest.getCustomerEmail());
     }
 
     protected void validateVenueLevel(int venueLevel) {
@@ -88,14 +196,50 @@ public abstract class AbstractTicketService implements TicketService {
     protected abstract void freeUpSeats(Iterable<SeatHold> seatHolds);
 
     private void deleteExpiredSeatHoldsAndFree() {
+        if (!backgroundExpiry) {
+            expireSeatHolds();
+        }
+    }
+
+    void expireSeatHolds() {
         Iterable<SeatHold> expiredSeatHolds = cleanUpExpiredSeatHolds();
         freeUpSeats(expiredSeatHolds);
+        TicketServiceListener[] current = listeners;
+        if (current.length > 0 && expiredSeatHolds != null) {
+            for (SeatHold seatHold : expiredSeatHolds) {
+                for (TicketServiceListener listener : current) {
+                    listener.onExpire(seatHold);
+                }
+            }
+        }
+    }
+
+    void setBackgroundExpiry(boolean backgroundExpiry) {
+        this.backgroundExpiry = backgroundExpiry;
     }
 
     protected abstract int doNumSeatsAvailable(Optional<Integer> venueLevel);
 
     protected abstract SeatHold doFindAndHoldSeats(int numSeats, Optional<Integer> minLevel, Optional<Integer> maxLevel, String customerEmail);
 
+    /**
+     * Serves a batch of validated hold requests in order.  By default each request is served on
+     * its own; implementations can override this to share work across the batch.
+     *
+     * @return one result per request, in the same order
+     */
+    protected List<HoldResult> doFindAndHoldSeats(List<HoldRequest> holdRequests) {
+        List<HoldResult> results = Lists.newArrayListWithCapacity(holdRequests.size());
+        holdRequests.forEach(r -> {
+            try {
+                results.add(HoldResult.success(r, doFindAndHoldSeats(r.getNumSeats(), r.getMinLevel(), r.getMaxLevel(), r.getCustomerEmail())));
+            } catch (TicketServiceException e) {
+                results.add(HoldResult.failure(r, e));
+            }
+        });
+        return results;
+    }
+
     protected abstract String doReserveSeats(int seatHoldId, String customerEmail);
 
     protected void validateCustomerEmail(String customerEmail) {
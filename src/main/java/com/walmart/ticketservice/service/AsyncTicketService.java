@@ -0,0 +1,41 @@
+package com.walmart.ticketservice.service;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletionStage;
+
+import com.walmart.ticketservice.model.HoldRequest;
+import com.walmart.ticketservice.model.HoldResult;
+import com.walmart.ticketservice.model.SeatHold;
+
+/**
+ * The non-blocking counterpart of {@link TicketService}.  Every method returns at once and its
+ * stage completes with the result, or with the exception, that the {@link TicketService} method of
+ * the same name would have returned or thrown.
+ *
+ * A stage completes exceptionally with a {@link java.util.concurrent.RejectedExecutionException}
+ * if the service is too busy to take the request.
+ */
+public interface AsyncTicketService {
+
+    /**
+     * @see TicketService#numSeatsAvailable(Optional)
+     */
+    CompletionStage<Integer> numSeatsAvailable(Optional<Integer> venueLevel);
+
+    /**
+     * @see TicketService#findAndHoldSeats(int, Optional, Optional, String)
+     */
+    CompletionStage<SeatHold> findAndHoldSeats(int numSeats, Optional<Integer> minLevel,
+                                               Optional<Integer> maxLevel, String customerEmail);
+
+    /**
+     * @see TicketService#findAndHoldSeats(List)
+     */
+    CompletionStage<List<HoldResult>> findAndHoldSeats(List<HoldRequest> holdRequests);
+
+    /**
+     * @see TicketService#reserveSeats(int, String)
+     */
+    CompletionStage<String> reserveSeats(int seatHoldId, String customerEmail);
+}
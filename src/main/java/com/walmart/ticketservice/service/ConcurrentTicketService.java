@@ -0,0 +1,159 @@
+package com.walmart.ticketservice.service;
+
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.SortedSet;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import com.walmart.ticketservice.model.HoldRequest;
+import com.walmart.ticketservice.model.HoldResult;
+import com.walmart.ticketservice.model.Level;
+import com.walmart.ticketservice.model.Seat;
+import com.walmart.ticketservice.model.SeatHold;
+import com.walmart.ticketservice.model.VenueConfiguration;
+import com.walmart.ticketservice.repository.SeatHoldRepository;
+import com.walmart.ticketservice.repository.SeatRepository;
+import com.walmart.ticketservice.utils.ConfirmationCodeGenerator;
+import com.walmart.ticketservice.utils.TicketServiceUtils;
+
+/**
+ * A thread safe {@link SimpleTicketService} that stripes its locking by venue level.
+ *
+ * Every operation that changes the status of a seat first locks the levels it touches, always in
+ * ascending level order so that operations spanning several levels cannot deadlock.  Holds on
+ * different levels therefore run in parallel while two holds on the same level can never be given
+ * the same seats.  Seat counts are read without locking.
+ *
+ * The repositories must be safe for concurrent use.
+ */
+public class ConcurrentTicketService extends SimpleTicketService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConcurrentTicketService.class);
+
+    private NavigableMap<Integer, Lock> levelLocks;
+
+    public ConcurrentTicketService(VenueConfiguration venueConfiguration, SeatRepository seatRepository,
+                                   SeatHoldRepository seatHoldRepository) {
+        super(venueConfiguration, seatRepository, seatHoldRepository);
+        this.levelLocks = createLevelLocks(venueConfiguration);
+    }
+
+    public ConcurrentTicketService(VenueConfiguration venueConfiguration, SeatRepository seatRepository,
+                                   SeatHoldRepository seatHoldRepository, ConfirmationCodeGenerator confirmationCodeGenerator) {
+        super(venueConfiguration, seatRepository, seatHoldRepository, confirmationCodeGenerator);
+        this.levelLocks = createLevelLocks(venueConfiguration);
+    }
+
+    /**
+     * Deletes the expired seat holds and frees their seats while their levels are locked, so no
+     * other thread can observe a deleted seat hold whose seats are still held.
+     */
+    @Override
+    protected Iterable<SeatHold> cleanUpExpiredSeatHolds() {
+        List<SeatHold> candidates = seatHoldRepository.findAllExpired(venueConfiguration.getHoldLimit())
+                .collect(Collectors.toList());
+        List<SeatHold> expired = Lists.newArrayList();
+
+        //Another thread may have expired or reserved the same seat hold since it was read, so only
+        //delete it if it is still stored unchanged once its levels are locked.
+        candidates.forEach(candidate -> withLevelLocks(levelsOf(candidate.getHeldSeats()), () -> {
+            boolean unchanged = seatHoldRepository.find(candidate.getId())
+                    .filter(s -> s.getHoldTime().equals(candidate.getHoldTime()))
+                    .filter(s -> s.getConfirmationCode().equals(candidate.getConfirmationCode()))
+                    .isPresent();
+            if (unchanged) {
+                logger.debug("Deleting seat hold {}", candidate.getId());
+                seatHoldRepository.delete(candidate);
+                super.freeUpSeats(Collections.singleton(candidate));
+                expired.add(candidate);
+            }
+            return null;
+        }));
+        return expired;
+    }
+
+    /**
+     * The seats of expired seat holds are already freed by {@link #cleanUpExpiredSeatHolds()}.
+     * Freeing them again here could release seats that were held by another thread in between.
+     */
+    @Override
+    protected void freeUpSeats(Iterable<SeatHold> seatHolds) {
+    }
+
+    @Override
+    protected SeatHold doFindAndHoldSeats(int numSeats, Optional<Integer> minLevel, Optional<Integer> maxLevel, String customerEmail) {
+        return withLevelLocks(levelsBetween(minLevel, maxLevel), () -> super.doFindAndHoldSeats(numSeats, minLevel, maxLevel, customerEmail));
+    }
+
+    /**
+     * Locks the levels of every request in the batch for the whole batch.
+     */
+    @Override
+    protected List<HoldResult> doFindAndHoldSeats(List<HoldRequest> holdRequests) {
+        SortedSet<Integer> levels = Sets.newTreeSet();
+        holdRequests.forEach(r -> levels.addAll(levelsBetween(r.getMinLevel(), r.getMaxLevel())));
+        return withLevelLocks(levels, () -> super.doFindAndHoldSeats(holdRequests));
+    }
+
+    @Override
+    protected String doReserveSeats(int seatHoldId, String customerEmail) {
+        //An unknown seat hold is reported by the superclass.  If the hold disappears before its
+        //levels are locked the superclass will not find it again.
+        Collection<Integer> levels = seatHoldRepository.find(seatHoldId)
+                .map(s -> levelsOf(s.getHeldSeats()))
+                .orElse(Sets.newTreeSet());
+        return withLevelLocks(levels, () -> super.doReserveSeats(seatHoldId, customerEmail));
+    }
+
+    private <T> T withLevelLocks(Collection<Integer> levels, Supplier<T> operation) {
+        List<Lock> acquired = Lists.newArrayListWithCapacity(levels.size());
+        try {
+            //levels are iterated in ascending order which gives a global lock order
+            levels.forEach(l -> {
+                Lock lock = levelLocks.get(l);
+                lock.lock();
+                acquired.add(lock);
+            });
+            return operation.get();
+        } finally {
+            Lists.reverse(acquired).forEach(Lock::unlock);
+        }
+    }
+
+    private Collection<Integer> levelsBetween(Optional<Integer> minLevel, Optional<Integer> maxLevel) {
+        int minLevelToUse = minLevel.orElseGet(() -> TicketServiceUtils.getMinVenueLevel(venueConfiguration));
+        int maxLevelToUse = maxLevel.orElse(minLevelToUse);
+        return levelLocks.subMap(minLevelToUse, true, maxLevelToUse, true).keySet();
+    }
+
+    private SortedSet<Integer> levelsOf(Collection<Seat> seats) {
+        SortedSet<Integer> levels = Sets.newTreeSet();
+        seats.forEach(s -> {
+            if (levelLocks.containsKey(s.getLevel())) {
+                levels.add(s.getLevel());
+            }
+        });
+        return levels;
+    }
+
+    private static NavigableMap<Integer, Lock> createLevelLocks(VenueConfiguration venueConfiguration) {
+        ImmutableSortedMap.Builder<Integer, Lock> locks = ImmutableSortedMap.naturalOrder();
+        venueConfiguration.getLevels().stream()
+                .map(Level::getId)
+                .forEach(id -> locks.put(id, new ReentrantLock()));
+        return locks.build();
+    }
+}
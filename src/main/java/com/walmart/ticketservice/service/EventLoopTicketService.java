@@ -0,0 +1,270 @@
+package com.walmart.ticketservice.service;
+
+import com.google.common.base.Preconditions;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+import com.walmart.ticketservice.exception.TicketServiceException;
+import com.walmart.ticketservice.model.HoldRequest;
+import com.walmart.ticketservice.model.HoldResult;
+import com.walmart.ticketservice.model.SeatHold;
+import com.walmart.ticketservice.utils.MpscRingBuffer;
+
+/**
+ * Serves every request of a venue on a single owner thread.
+ *
+ * Callers put their requests on a lock-free {@link MpscRingBuffer} and get a
+ * {@link CompletableFuture} back.  The owner thread takes the requests off the ring in order and
+ * serves them with the wrapped ticket service, which therefore never sees concurrent calls and
+ * does not need any locks, e.g. a {@link SimpleTicketService}.  The blocking {@link TicketService}
+ * methods wait for their future.
+ *
+ * The owner thread also expires seat holds every expiry period, so requests do not pay for it.  A
+ * seat hold can therefore outlive its hold limit by up to one period.  While the ring is empty the
+ * owner thread spins, then yields and finally parks until the next request arrives.
+ *
+ * Futures are completed on the owner thread, so work that depends on them should be attached with
+ * the async variants of the {@link CompletableFuture} methods to keep the owner thread free.
+ */
+public class EventLoopTicketService implements TicketService, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventLoopTicketService.class);
+
+    public static final int DEFAULT_CAPACITY = 1024;
+    public static final long DEFAULT_EXPIRY_PERIOD_MILLIS = 1000;
+
+    private static final int SPINS = 1000;
+    private static final int YIELDS = 100;
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private AbstractTicketService ticketService;
+    private MpscRingBuffer<Runnable> requests;
+    private long expiryPeriodNanos;
+    private Thread owner;
+    private volatile boolean running = true;
+    private volatile boolean parked = false;
+    //Callers between their check of running and putting their request on the ring
+    private AtomicInteger submitting = new AtomicInteger();
+
+    public EventLoopTicketService(AbstractTicketService ticketService) {
+        this(ticketService, DEFAULT_CAPACITY, DEFAULT_EXPIRY_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates the service and starts its owner thread.
+     *
+     * @param ticketService the ticket service to serve the requests with, only ever called from
+     *                      the owner thread
+     * @param capacity      the number of requests that can wait on the ring
+     * @param expiryPeriod  the time between two expiries of seat holds
+     */
+    public EventLoopTicketService(AbstractTicketService ticketService, int capacity, long expiryPeriod, TimeUnit unit) {
+        Preconditions.checkArgument(expiryPeriod > 0, "expiryPeriod must be greater than 0");
+        this.ticketService = Preconditions.checkNotNull(ticketService, "ticketService cannot be null");
+        this.requests = new MpscRingBuffer<>(capacity);
+        this.expiryPeriodNanos = unit.toNanos(expiryPeriod);
+        ticketService.setBackgroundExpiry(true);
+        this.owner = new Thread(this::run, "ticket-event-loop-" + THREAD_COUNT.getAndIncrement());
+        this.owner.setDaemon(true);
+        this.owner.start();
+    }
+
+    public CompletableFuture<Integer> numSeatsAvailableAsync(Optional<Integer> venueLevel) {
+        return submit(() -> ticketService.numSeatsAvailable(venueLevel), false);
+    }
+
+    public CompletableFuture<SeatHold> findAndHoldSeatsAsync(int numSeats, Optional<Integer> minLevel,
+                                                            Optional<Integer> maxLevel, String customerEmail) {
+        return submit(() -> ticketService.findAndHoldSeats(numSeats, minLevel, maxLevel, customerEmail), false);
+    }
+
+    public CompletableFuture<List<HoldResult>> findAndHoldSeatsAsync(List<HoldRequest> holdRequests) {
+        return submit(() -> ticketService.findAndHoldSeats(holdRequests), false);
+    }
+
+    public CompletableFuture<String> reserveSeatsAsync(int seatHoldId, String customerEmail) {
+        return submit(() -> ticketService.reserveSeats(seatHoldId, customerEmail), false);
+    }
+
+    /**
+     * @return a view of this service as an {@link AsyncTicketService}
+     */
+    public AsyncTicketService async() {
+        return new AsyncTicketService() {
+            @Override
+            public CompletionStage<Integer> numSeatsAvailable(Optional<Integer> venueLevel) {
+                return numSeatsAvailableAsync(venueLevel);
+            }
+
+            @Override
+            public CompletionStage<SeatHold> findAndHoldSeats(int numSeats, Optional<Integer> minLevel,
+                                                              Optional<Integer> maxLevel, String customerEmail) {
+                return findAndHoldSeatsAsync(numSeats, minLevel, maxLevel, customerEmail);
+            }
+
+            @Override
+            public CompletionStage<List<HoldResult>> findAndHoldSeats(List<HoldRequest> holdRequests) {
+                return findAndHoldSeatsAsync(holdRequests);
+            }
+
+            @Override
+            public CompletionStage<String> reserveSeats(int seatHoldId, String customerEmail) {
+                return reserveSeatsAsync(seatHoldId, customerEmail);
+            }
+        };
+    }
+
+    @Override
+    public int numSeatsAvailable(Optional<Integer> venueLevel) {
+        return await(submit(() -> ticketService.numSeatsAvailable(venueLevel), true));
+    }
+
+    @Override
+    public SeatHold findAndHoldSeats(int numSeats, Optional<Integer> minLevel, Optional<Integer> maxLevel,
+                                     String customerEmail) throws TicketServiceException {
+        return await(submit(() -> ticketService.findAndHoldSeats(numSeats, minLevel, maxLevel, customerEmail), true));
+    }
+
+    @Override
+    public List<HoldResult> findAndHoldSeats(List<HoldRequest> holdRequests) {
+        return await(submit(() -> ticketService.findAndHoldSeats(holdRequests), true));
+    }
+
+    @Override
+    public String reserveSeats(int seatHoldId, String customerEmail) throws TicketServiceException {
+        return await(submit(() -> ticketService.reserveSeats(seatHoldId, customerEmail), true));
+    }
+
+    /**
+     * @return an estimate of the number of requests waiting on the ring
+     */
+    public int getPendingRequests() {
+        return requests.size();
+    }
+
+    /**
+     * Stops taking requests.  The owner thread serves the requests already on the ring, hands seat
+     * hold expiry back to the wrapped ticket service and stops, without close waiting for it.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(owner);
+    }
+
+    /**
+     * Waits for the owner thread to stop after {@link #close()}.
+     *
+     * @return true if the owner thread stopped, false if the timeout elapsed first
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        unit.timedJoin(owner, timeout);
+        return !owner.isAlive();
+    }
+
+    /**
+     * @param waitForSpace wait for room on the ring if it is full, instead of failing the request
+     *                     with a {@link RejectedExecutionException}
+     */
+    private <T> CompletableFuture<T> submit(Supplier<T> request, boolean waitForSpace) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable task = () -> {
+            try {
+                result.complete(request.get());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        };
+
+        submitting.incrementAndGet();
+        try {
+            while (true) {
+                if (!running) {
+                    result.completeExceptionally(new IllegalStateException("the ticket service is closed"));
+                    return result;
+                }
+                if (requests.offer(task)) {
+                    break;
+                }
+                if (!waitForSpace) {
+                    result.completeExceptionally(new RejectedExecutionException("the request ring is full"));
+                    return result;
+                }
+                Thread.yield();
+            }
+        } finally {
+            submitting.decrementAndGet();
+        }
+        if (parked) {
+            LockSupport.unpark(owner);
+        }
+        return result;
+    }
+
+    private static <T> T await(CompletableFuture<T> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            //Rethrow what the ticket service threw as is, so callers see the same exceptions
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    private void run() {
+        long nextExpiry = System.nanoTime() + expiryPeriodNanos;
+        int idle = 0;
+        while (running || submitting.get() > 0 || !requests.isEmpty()) {
+            Runnable task = requests.poll();
+            if (task != null) {
+                task.run();
+                idle = 0;
+            } else if (++idle > SPINS + YIELDS) {
+                parked = true;
+                //Check again so a request put on the ring before parked was set is not missed
+                if (requests.isEmpty() && running) {
+                    LockSupport.parkNanos(this, Math.min(MAX_PARK_NANOS, Math.max(0, nextExpiry - System.nanoTime())));
+                }
+                parked = false;
+            } else if (idle > SPINS) {
+                Thread.yield();
+            }
+
+            long now = System.nanoTime();
+            if (now - nextExpiry >= 0) {
+                expire();
+                nextExpiry = now + expiryPeriodNanos;
+            }
+        }
+        ticketService.setBackgroundExpiry(false);
+    }
+
+    private void expire() {
+        try {
+            ticketService.expireSeatHolds();
+        } catch (RuntimeException e) {
+            //The owner thread must keep serving requests
+            logger.error("Failed to expire seat holds", e);
+        }
+    }
+}
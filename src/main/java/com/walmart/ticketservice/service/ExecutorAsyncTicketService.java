@@ -0,0 +1,149 @@
+package com.walmart.ticketservice.service;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.walmart.ticketservice.model.HoldRequest;
+import com.walmart.ticketservice.model.HoldResult;
+import com.walmart.ticketservice.model.SeatHold;
+
+/**
+ * Adapts a blocking {@link TicketService} to an {@link AsyncTicketService} by running every
+ * request on an executor.
+ *
+ * At most maxPending requests are queued or running at any time.  Further requests are not
+ * queued and their stage completes with a {@link RejectedExecutionException} at once, so a flood
+ * of requests can neither exhaust threads nor grow the queue without bound.
+ *
+ * By default the requests run on a fixed pool of threads owned by this service.  Any other
+ * executor can be provided instead, e.g. one that starts a virtual thread per task on a JDK that
+ * has them.  The ticket service is called from several threads, so it must be safe for concurrent
+ * use, e.g. {@link ConcurrentTicketService}.
+ */
+public class ExecutorAsyncTicketService implements AsyncTicketService, AutoCloseable {
+
+    private TicketService ticketService;
+    private Executor executor;
+    private ExecutorService ownedExecutor;
+    private int maxPending;
+    private Semaphore pending;
+
+    /**
+     * Runs the requests on a fixed pool of daemon threads, which is shut down when the service is
+     * closed.
+     *
+     * @param threads    the number of threads serving requests
+     * @param maxPending the number of requests that can be queued or running at once
+     */
+    public ExecutorAsyncTicketService(TicketService ticketService, int threads, int maxPending) {
+        this(ticketService, Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+                .setNameFormat("async-ticket-service-%d")
+                .setDaemon(true)
+                .build()), maxPending);
+        this.ownedExecutor = (ExecutorService) executor;
+    }
+
+    /**
+     * Runs the requests on the provided executor, which is not shut down when the service is
+     * closed.
+     *
+     * @param maxPending the number of requests that can be queued or running at once
+     */
+    public ExecutorAsyncTicketService(TicketService ticketService, Executor executor, int maxPending) {
+        Preconditions.checkArgument(maxPending > 0, "maxPending must be greater than 0");
+        this.ticketService = Preconditions.checkNotNull(ticketService, "ticketService cannot be null");
+        this.executor = Preconditions.checkNotNull(executor, "executor cannot be null");
+        this.maxPending = maxPending;
+        this.pending = new Semaphore(maxPending);
+    }
+
+    @Override
+    public CompletionStage<Integer> numSeatsAvailable(Optional<Integer> venueLevel) {
+        return submit(() -> ticketService.numSeatsAvailable(venueLevel));
+    }
+
+    @Override
+    public CompletionStage<SeatHold> findAndHoldSeats(int numSeats, Optional<Integer> minLevel,
+                                                      Optional<Integer> maxLevel, String customerEmail) {
+        return submit(() -> ticketService.findAndHoldSeats(numSeats, minLevel, maxLevel, customerEmail));
+    }
+
+    @Override
+    public CompletionStage<List<HoldResult>> findAndHoldSeats(List<HoldRequest> holdRequests) {
+        return submit(() -> ticketService.findAndHoldSeats(holdRequests));
+    }
+
+    @Override
+    public CompletionStage<String> reserveSeats(int seatHoldId, String customerEmail) {
+        return submit(() -> ticketService.reserveSeats(seatHoldId, customerEmail));
+    }
+
+    /**
+     * @return the number of requests that are queued or running
+     */
+    public int getPendingRequests() {
+        return maxPending - pending.availablePermits();
+    }
+
+    /**
+     * Shuts down the owned thread pool once the requests already taken have been served, without
+     * waiting for them.
+     */
+    @Override
+    public void close() {
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Waits for the owned thread pool to stop after {@link #close()}.  A provided executor is
+     * never stopped, so there is nothing to wait for.
+     *
+     * @return true if the owned thread pool stopped or there is none, false if the timeout elapsed
+     * first
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return ownedExecutor == null || ownedExecutor.awaitTermination(timeout, unit);
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> request) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        if (!pending.tryAcquire()) {
+            result.completeExceptionally(new RejectedExecutionException("more than " + maxPending + " requests are pending"));
+            return result;
+        }
+        try {
+            executor.execute(() -> {
+                //Release before completing so stages that depend on the result can submit again
+                T value;
+                try {
+                    value = request.get();
+                } catch (Throwable t) {
+                    pending.release();
+                    result.completeExceptionally(t);
+                    return;
+                }
+                pending.release();
+                result.complete(value);
+            });
+        } catch (RejectedExecutionException e) {
+            pending.release();
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+}
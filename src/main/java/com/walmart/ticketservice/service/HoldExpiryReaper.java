@@ -0,0 +1,103 @@
+package com.walmart.ticketservice.service;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Expires seat holds in the background so requests no longer pay for it.
+ *
+ * While the reaper is running the ticket service skips its own cleanup of expired seat holds and
+ * the reaper calls the same cleanup and free up hooks on every period instead.  A seat hold can
+ * therefore outlive its hold limit by up to one period.
+ *
+ * The reaper calls the ticket service from another thread, so the ticket service must be safe
+ * for concurrent use, e.g. {@link ConcurrentTicketService}.
+ */
+public class HoldExpiryReaper implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(HoldExpiryReaper.class);
+
+    private AbstractTicketService ticketService;
+    private ScheduledExecutorService scheduler;
+    private boolean ownsScheduler;
+    private long period;
+    private TimeUnit unit;
+    private ScheduledFuture<?> scheduledReap;
+    private boolean closed;
+
+    /**
+     * Creates a reaper running on its own daemon thread, which is shut down when the reaper is
+     * closed.
+     */
+    public HoldExpiryReaper(AbstractTicketService ticketService, long period, TimeUnit unit) {
+        this(ticketService, Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("hold-expiry-reaper-%d")
+                .setDaemon(true)
+                .build()), period, unit);
+        this.ownsScheduler = true;
+    }
+
+    /**
+     * Creates a reaper running on the provided scheduler.  The scheduler is not shut down when the
+     * reaper is closed.
+     */
+    public HoldExpiryReaper(AbstractTicketService ticketService, ScheduledExecutorService scheduler, long period, TimeUnit unit) {
+        Preconditions.checkArgument(period > 0, "period must be greater than 0");
+        this.ticketService = ticketService;
+        this.scheduler = scheduler;
+        this.period = period;
+        this.unit = unit;
+    }
+
+    /**
+     * Starts the reaper.  The ticket service only stops expiring seat holds itself once the reaper
+     * is scheduled, so a scheduler that rejects the reaper leaves the ticket service as it was.
+     *
+     * @throws IllegalStateException if the reaper is already started or was closed
+     * @throws java.util.concurrent.RejectedExecutionException if the scheduler was shut down
+     */
+    public synchronized HoldExpiryReaper start() {
+        Preconditions.checkState(!closed, "reaper is closed");
+        Preconditions.checkState(scheduledReap == null, "reaper is already started");
+        scheduledReap = scheduler.scheduleWithFixedDelay(this::reap, period, period, unit);
+        ticketService.setBackgroundExpiry(true);
+        return this;
+    }
+
+    public synchronized boolean isRunning() {
+        return scheduledReap != null;
+    }
+
+    /**
+     * Stops the reaper and hands the cleanup of expired seat holds back to the ticket service.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (scheduledReap != null) {
+            scheduledReap.cancel(false);
+            scheduledReap = null;
+            ticketService.setBackgroundExpiry(false);
+        }
+        if (ownsScheduler) {
+            scheduler.shutdown();
+        }
+    }
+
+    private void reap() {
+        try {
+            ticketService.expireSeatHolds();
+        } catch (RuntimeException e) {
+            //A scheduled task that throws is never run again so keep going
+            logger.error("Failed to expire seat holds", e);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.walmart.ticketservice.service;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import com.walmart.ticketservice.exception.TicketServiceException;
+import com.walmart.ticketservice.model.HoldRequest;
+import com.walmart.ticketservice.model.HoldResult;
+import com.walmart.ticketservice.model.SeatHold;
+import com.walmart.ticketservice.model.VenueConfiguration;
+import com.walmart.ticketservice.repository.ArraySeatRepository;
+import com.walmart.ticketservice.repository.InMemorySeatHoldRepository;
+
+/**
+ * Routes the requests of many events, each with its own venue, onto a fixed number of shards.
+ *
+ * Every event is placed on one shard by its id and every shard runs on a single thread, so all
+ * requests for an event are served one at a time by the same thread.  The ticket service of an
+ * event therefore does not need to be safe for concurrent use, e.g. {@link SimpleTicketService},
+ * while requests for events on different shards are served in parallel without sharing any locks.
+ *
+ * The ticket service of an event, with its seats and seat holds, is created on its shard the first
+ * time the event is used, so an event that was added but never used only costs its venue
+ * configuration.  Removing an event drops its ticket service.
+ *
+ * The ticket services are only ever called from their shard, so a {@link HoldExpiryReaper} must
+ * not be used with them.  Expired seat holds are cleaned up by the requests as usual.
+ */
+public class ShardedTicketService implements AutoCloseable {
+
+    private Function<VenueConfiguration, TicketService> ticketServiceFactory;
+    private Map<String, VenueConfiguration> events = new ConcurrentHashMap<>();
+    private Shard[] shards;
+
+    /**
+     * Creates a router with one shard per available processor, where every event gets a
+     * {@link SimpleTicketService} over an {@link ArraySeatRepository} and an
+     * {@link InMemorySeatHoldRepository}.
+     */
+    public ShardedTicketService() {
+        this(Runtime.getRuntime().availableProcessors(),
+                c -> new SimpleTicketService(c, new ArraySeatRepository(c), new InMemorySeatHoldRepository()));
+    }
+
+    /**
+     * @param shards               the number of shards, and so of threads
+     * @param ticketServiceFactory creates the ticket service of an event from its venue
+     *                             configuration, on the event's shard
+     */
+    public ShardedTicketService(int shards, Function<VenueConfiguration, TicketService> ticketServiceFactory) {
+        Preconditions.checkArgument(shards > 0, "shards must be greater than 0");
+        this.ticketServiceFactory = Preconditions.checkNotNull(ticketServiceFactory, "ticketServiceFactory cannot be null");
+        this.shards = new Shard[shards];
+        for (int i = 0; i < shards; i++) {
+            this.shards[i] = new Shard(i);
+        }
+    }
+
+    /**
+     * Adds an event.  Its ticket service is created when the event is first used.
+     *
+     * @throws IllegalArgumentException if an event with the same id was already added
+     */
+    public void addEvent(String eventId, VenueConfiguration venueConfiguration) {
+        Preconditions.checkNotNull(eventId, "eventId cannot be null");
+        Preconditions.checkNotNull(venueConfiguration, "venueConfiguration cannot be null");
+        Preconditions.checkArgument(events.putIfAbsent(eventId, venueConfiguration) == null,
+                "event " + eventId + " already exists");
+    }
+
+    /**
+     * Removes an event and drops its ticket service, seats and seat holds.  Requests for the event
+     * that are already queued on its shard, but not yet served, fail with an
+     * {@link IllegalArgumentException} like requests made after it was removed.
+     *
+     * @return true if the event existed
+     */
+    public boolean removeEvent(String eventId) {
+        if (events.remove(eventId) == null) {
+            return false;
+        }
+        Shard shard = shardOf(eventId);
+        shard.executor.execute(() -> shard.ticketServices.remove(eventId));
+        return true;
+    }
+
+    public boolean hasEvent(String eventId) {
+        return events.containsKey(eventId);
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * @return a ticket service that serves the requests of an event on its shard.  The calling
+     * thread waits for each request to be served.
+     * @throws IllegalArgumentException if the event does not exist
+     */
+    public TicketService forEvent(String eventId) {
+        Preconditions.checkArgument(hasEvent(eventId), "event " + eventId + " does not exist");
+        return new EventTicketService(eventId, shardOf(eventId));
+    }
+
+    /**
+     * Stops the shards once the requests already queued have been served, without waiting for
+     * them.  Requests made afterwards fail with an {@link IllegalStateException}.
+     */
+    @Override
+    public void close() {
+        for (Shard shard : shards) {
+            shard.executor.shutdown();
+        }
+    }
+
+    /**
+     * Waits for the shards to stop after {@link #close()}.
+     *
+     * @return true if every shard stopped, false if the timeout elapsed first
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Shard shard : shards) {
+            if (!shard.executor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Shard shardOf(String eventId) {
+        //Spread the hash code so ids that only differ in their last characters land on different shards
+        int hash = eventId.hashCode();
+        hash ^= hash >>> 16;
+        return shards[Math.floorMod(hash * 0x9e3779b9, shards.length)];
+    }
+
+    private class Shard {
+
+        private ExecutorService executor;
+        //Only accessed from the shard thread
+        private Map<String, TicketService> ticketServices = Maps.newHashMap();
+
+        private Shard(int index) {
+            this.executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                    .setNameFormat("ticket-shard-" + index)
+                    .setDaemon(true)
+                    .build());
+        }
+
+        private <T> T call(String eventId, Function<TicketService, T> request) {
+            Future<T> result;
+            try {
+                result = executor.submit(() -> request.apply(ticketService(eventId)));
+            } catch (RejectedExecutionException e) {
+                throw new IllegalStateException("the ticket service is closed", e);
+            }
+            try {
+                return result.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result.cancel(false);
+                throw new IllegalStateException("interrupted while waiting for event " + eventId, e);
+            } catch (ExecutionException e) {
+                //Rethrow what the ticket service threw as is, so callers see the same exceptions
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IllegalStateException(cause);
+            }
+        }
+
+        private TicketService ticketService(String eventId) {
+            VenueConfiguration venueConfiguration = events.get(eventId);
+            Preconditions.checkArgument(venueConfiguration != null, "event " + eventId + " does not exist");
+            return ticketServices.computeIfAbsent(eventId, id -> ticketServiceFactory.apply(venueConfiguration));
+        }
+    }
+
+    private static class EventTicketService implements TicketService {
+
+        private String eventId;
+        private Shard shard;
+
+        private EventTicketService(String eventId, Shard shard) {
+            this.eventId = eventId;
+            this.shard = shard;
+        }
+
+        @Override
+        public int numSeatsAvailable(Optional<Integer> venueLevel) {
+            return shard.call(eventId, t -> t.numSeatsAvailable(venueLevel));
+        }
+
+        @Override
+        public SeatHold findAndHoldSeats(int numSeats, Optional<Integer> minLevel, Optional<Integer> maxLevel,
+                                         String customerEmail) throws TicketServiceException {
+            return shard.call(eventId, t -> t.findAndHoldSeats(numSeats, minLevel, maxLevel, customerEmail));
+        }
+
+        @Override
+        public List<HoldResult> findAndHoldSeats(List<HoldRequest> holdRequests) {
+            return shard.call(eventId, t -> t.findAndHoldSeats(holdRequests));
+        }
+
+        @Override
+        public String reserveSeats(int seatHoldId, String customerEmail) throws TicketServiceException {
+            return shard.call(eventId, t -> t.reserveSeats(seatHoldId, customerEmail));
+        }
+    }
+}
@@ -1,18 +1,36 @@
 package com.walmart.ticketservice.service;
 
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-import io.gmi.junction.StreamUtils;
-
+import com.walmart.ticketservice.exception.HoldContentionException;
 import com.walmart.ticketservice.exception.NoAvailableSeatsException;
 import com.walmart.ticketservice.exception.SeatHoldException;
+import com.walmart.ticketservice.model.AllocationMode;
+import com.walmart.ticketservice.model.HoldRequest;
+import com.walmart.ticketservice.model.HoldResult;
+import com.walmart.ticketservice.model.Level;
 import com.walmart.ticketservice.model.Seat;
 import com.walmart.ticketservice.model.SeatHold;
 import com.walmart.ticketservice.model.Status;
@@ -21,18 +39,26 @@ import com.walmart.ticketservice.repository.SeatHoldRepository;
 import com.walmart.ticketservice.repository.SeatRepository;
 import com.walmart.ticketservice.utils.ConfirmationCodeGenerator;
 import com.walmart.ticketservice.utils.DefaultConfirmationCodeGenerator;
+import com.walmart.ticketservice.utils.SeatComparator;
 import com.walmart.ticketservice.utils.TicketServiceUtils;
 
 /**
  * A simple implementation of the {@link TicketService}.
+ *
+ * Seats are held according to the {@link AllocationMode}, which defaults to the best available
+ * seats.
  */
 public class SimpleTicketService extends AbstractTicketService {
 
     private static final Logger logger = LoggerFactory.getLogger(SimpleTicketService.class);
+    private static final Comparator<Seat> SEAT_COMPARATOR = new SeatComparator();
+    //Holds give up after the seats they found were taken by other holds this many times in a row
+    static final int MAX_HOLD_ATTEMPTS = 8;
 
-    private SeatRepository seatRepository;
-    private SeatHoldRepository seatHoldRepository;
+    protected SeatRepository seatRepository;
+    protected SeatHoldRepository seatHoldRepository;
     private ConfirmationCodeGenerator confirmationCodeGenerator = new DefaultConfirmationCodeGenerator();
+    private volatile AllocationMode allocationMode = AllocationMode.BEST_AVAILABLE;
 
     public SimpleTicketService(VenueConfiguration venueConfiguration, SeatRepository seatRepository,
                                SeatHoldRepository seatHoldRepository) {
@@ -54,19 +80,24 @@ public class SimpleTicketService extends AbstractTicketService {
         Iterable<SeatHold> seatHolds = seatHoldRepository.findAllExpired(venueConfiguration.getHoldLimit())
                 .collect(Collectors.toSet());
         seatHolds.forEach(s -> {
-            logger.info("Deleting seat hold {}", s);
+            logger.debug("Deleting seat hold {}", s);
             seatHoldRepository.delete(s);
         });
         return seatHolds;
     }
 
+    /**
+     * Frees the seats of each seat hold only if they are all still held for it, so seats that were
+     * reserved, or freed and held by another seat hold, meanwhile are never made available again.
+     * The seat holds were read from the seat hold repository so their seats are left as they are.
+     */
     @Override
     protected void freeUpSeats(Iterable<SeatHold> seatHolds) {
-        Iterable<Seat> availableSeats = StreamUtils.create(seatHolds)
-                .flatMap(s -> s.getHeldSeats().stream())
-                .peek(s -> s.setStatus(Status.AVAILABLE))
-                .collect(Collectors.toSet());
-        seatRepository.save(availableSeats);
+        seatHolds.forEach(s -> {
+            if (!seatRepository.transition(s.getHeldSeats(), s.getId(), Status.HELD, Status.AVAILABLE)) {
+                logger.warn("Seats of expired seat hold {} were no longer held and were not freed", s.getId());
+            }
+        });
     }
 
     @Override
@@ -78,62 +109,250 @@ public class SimpleTicketService extends AbstractTicketService {
                 .orElseGet(this::findAllAvailable).get();
     }
 
+    /**
+     * Holds the seats with a conditional transition from available to held, so a concurrent hold
+     * that took any of the seats found is detected instead of overwritten.  The seats are then
+     * searched again, up to {@link #MAX_HOLD_ATTEMPTS} times.  The seats are held for the id the
+     * seat hold is saved with, so only this seat hold can reserve or free them.
+     *
+     * @throws HoldContentionException if the seats found were taken every time
+     */
     @Override
     protected SeatHold doFindAndHoldSeats(int numSeats, Optional<Integer> minLevel, Optional<Integer> maxLevel, String customerEmail) {
+        Set<Seat> bestSeats;
+        int seatHoldId = 0;
+        for (int attempt = 1; ; attempt++) {
+            bestSeats = findSeats(numSeats, minLevel, maxLevel, customerEmail);
+            if (seatHoldId == 0) {
+                seatHoldId = seatHoldRepository.nextId();
+            }
+            if (seatRepository.transition(bestSeats, seatHoldId, Status.AVAILABLE, Status.HELD)) {
+                break;
+            }
+            if (attempt == MAX_HOLD_ATTEMPTS) {
+                throw new HoldContentionException("The seats found were taken by other holds " + attempt + " times.",
+                        numSeats, customerEmail, attempt);
+            }
+            logger.debug("Seats found for {} were taken by another hold, searching again", customerEmail);
+        }
+
+        bestSeats.forEach(b -> b.setStatus(Status.HELD));
+        SeatHold seatHold = seatHoldRepository.save(new SeatHold(seatHoldId, customerEmail, bestSeats));
+
+        logger.debug("Saved seat hold {} with seats {}", seatHold.getId(), bestSeats);
+        return seatHold;
+    }
+
+    /**
+     * @return the seats to hold, which were available when they were found
+     * @throws NoAvailableSeatsException if fewer seats than requested are available
+     */
+    private Set<Seat> findSeats(int numSeats, Optional<Integer> minLevel, Optional<Integer> maxLevel, String customerEmail) {
         int minLevelToUse = minLevel.orElseGet(() -> TicketServiceUtils.getMinVenueLevel(venueConfiguration));
         int maxLevelToUse = maxLevel.orElse(minLevelToUse - 1);
-        Stream<Seat> bestSeatsStream;
+        Set<Seat> bestSeats = Collections.emptySet();
 
-        //Exclusive search of a particular level
-        if (maxLevelToUse < minLevelToUse) {
-            logger.debug("Max level not requested by {}. Will only search level {} ", customerEmail, minLevelToUse);
-            bestSeatsStream = seatRepository
-                    .findBest(minLevelToUse)
-                    .limit(numSeats);
-        } else {
-            bestSeatsStream = seatRepository
-                    .findBest(minLevelToUse, maxLevelToUse)
-                    .limit(numSeats);
+        if (allocationMode == AllocationMode.CONTIGUOUS) {
+            bestSeats = findBestContiguous(numSeats, minLevelToUse, maxLevelToUse)
+                    .collect(Collectors.toSet());
+            if (bestSeats.isEmpty()) {
+                logger.debug("No {} adjacent seats found for {}. Falling back to the best available seats", numSeats, customerEmail);
+            }
         }
 
-        Set<Seat> bestSeats = bestSeatsStream.collect(Collectors.toSet());
+        if (bestSeats.isEmpty()) {
+            bestSeats = findBest(numSeats, minLevelToUse, maxLevelToUse, customerEmail)
+                    .collect(Collectors.toSet());
+        }
 
         if (bestSeats.size() < numSeats) {
             throw new NoAvailableSeatsException("Only " + bestSeats.size() + " seats were found and " + numSeats + " were requested.",
                     numSeats, customerEmail, minLevel, maxLevel, bestSeats.size());
         }
+        return bestSeats;
+    }
 
-        SeatHold seatHold = new SeatHold(customerEmail, bestSeats);
-        seatHold = seatHoldRepository.save(seatHold);
-        bestSeats.forEach(b -> b.setStatus(Status.HELD));
-        seatRepository.save(bestSeats);
+    /**
+     * Serves the batch in one pass over the best seats.  A cursor over the best available seats of
+     * each requested level is opened once and shared by all the requests, each request takes the
+     * best seats across the cursors of its levels and holds them with a conditional transition.
+     * Levels are merged by seat score, the order of {@link SeatComparator}.  If another hold took
+     * any of the seats the cursors are opened again and the request is served on its own.
+     *
+     * Contiguous allocation depends on the seats taken by the previous requests, so in that mode
+     * the requests are served one at a time.
+     */
+    @Override
+    protected List<HoldResult> doFindAndHoldSeats(List<HoldRequest> holdRequests) {
+        if (allocationMode == AllocationMode.CONTIGUOUS) {
+            return super.doFindAndHoldSeats(holdRequests);
+        }
 
-        logger.info("Saved seat hold {} with seats {}", seatHold.getId(), bestSeats);
-        return seatHold;
+        NavigableSet<Integer> venueLevels = venueConfiguration.getLevels().stream()
+                .map(Level::getId)
+                .collect(Collectors.toCollection(TreeSet::new));
+        Map<Integer, BestSeatCursor> cursors = Maps.newHashMap();
+        //No level can give more seats than the whole batch asks for
+        int batchSeats = (int) Math.min(Integer.MAX_VALUE, holdRequests.stream().mapToLong(HoldRequest::getNumSeats).sum());
+        List<HoldResult> results = Lists.newArrayListWithCapacity(holdRequests.size());
+        int[] heldSeats = new int[1];
+
+        holdRequests.forEach(r -> {
+            int minLevelToUse = r.getMinLevel().orElseGet(() -> TicketServiceUtils.getMinVenueLevel(venueConfiguration));
+            Collection<Integer> levels = r.getMaxLevel()
+                    .map(max -> (Collection<Integer>) venueLevels.subSet(minLevelToUse, true, max, true))
+                    .orElse(Collections.singleton(minLevelToUse));
+            List<BestSeatCursor> levelCursors = levels.stream()
+                    .map(l -> cursors.computeIfAbsent(l, k -> new BestSeatCursor(seatRepository.findTop(k, batchSeats).iterator())))
+                    .collect(Collectors.toList());
+
+            List<Seat> bestSeats = Lists.newArrayListWithCapacity(r.getNumSeats());
+            List<BestSeatCursor> takenFrom = Lists.newArrayListWithCapacity(r.getNumSeats());
+            while (bestSeats.size() < r.getNumSeats()) {
+                BestSeatCursor best = null;
+                for (BestSeatCursor c : levelCursors) {
+                    if (c.hasNext() && (best == null || SEAT_COMPARATOR.compare(c.peek(), best.peek()) < 0)) {
+                        best = c;
+                    }
+                }
+                if (best == null) {
+                    break;
+                }
+                takenFrom.add(best);
+                bestSeats.add(best.next());
+            }
+
+            if (bestSeats.size() < r.getNumSeats()) {
+                //Hand the seats back, the last taken first, so later requests still see them in order
+                for (int i = bestSeats.size() - 1; i >= 0; i--) {
+                    takenFrom.get(i).pushBack(bestSeats.get(i));
+                }
+                results.add(HoldResult.failure(r, new NoAvailableSeatsException("Only " + bestSeats.size() + " seats were found and "
+                        + r.getNumSeats() + " were requested.", r.getNumSeats(), r.getCustomerEmail(), r.getMinLevel(),
+                        r.getMaxLevel(), bestSeats.size())));
+                return;
+            }
+
+            int seatHoldId = seatHoldRepository.nextId();
+            if (!seatRepository.transition(bestSeats, seatHoldId, Status.AVAILABLE, Status.HELD)) {
+                logger.debug("Seats found for {} were taken by another hold, serving the request on its own", r.getCustomerEmail());
+                cursors.clear();
+                results.add(findAndHoldSeats(r));
+                return;
+            }
+            bestSeats.forEach(b -> b.setStatus(Status.HELD));
+            SeatHold seatHold = seatHoldRepository.save(new SeatHold(seatHoldId, r.getCustomerEmail(), Sets.newHashSet(bestSeats)));
+            heldSeats[0] += bestSeats.size();
+            results.add(HoldResult.success(r, seatHold));
+        });
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("Saved {} seat holds with {} seats in one batch of {} requests", results.stream().filter(HoldResult::isSuccess).count(),
+                    heldSeats[0], holdRequests.size());
+        }
+        return results;
     }
 
+    private HoldResult findAndHoldSeats(HoldRequest holdRequest) {
+        try {
+            return HoldResult.success(holdRequest, doFindAndHoldSeats(holdRequest.getNumSeats(), holdRequest.getMinLevel(),
+                    holdRequest.getMaxLevel(), holdRequest.getCustomerEmail()));
+        } catch (NoAvailableSeatsException | HoldContentionException e) {
+            return HoldResult.failure(holdRequest, e);
+        }
+    }
+
+    /**
+     * Reserves the seats only if they are still held for the seat hold.  If the seat hold expired
+     * meanwhile and its seats were freed it is not saved back, even if another seat hold holds the
+     * same seats now.
+     */
     @Override
     protected String doReserveSeats(int seatHoldId, String customerEmail) {
         SeatHold seatHold = seatHoldRepository.find(seatHoldId)
                 .orElseThrow(() -> new SeatHoldException("No seat hold found with id " + seatHoldId, seatHoldId, customerEmail));
 
-        seatHold.getHeldSeats().forEach(b -> b.setStatus(Status.RESERVED));
-        seatRepository.save(seatHold.getHeldSeats());
+        //The seats are only still held for the seat hold if it did not expire meanwhile
+        if (!seatRepository.transition(seatHold.getHeldSeats(), seatHoldId, Status.HELD, Status.RESERVED)) {
+            throw new SeatHoldException("The seats of seat hold " + seatHoldId + " are no longer held", seatHoldId, customerEmail);
+        }
+        //The seat hold found is left as it was, so the reserved seats are new copies
+        Set<Seat> reservedSeats = seatHold.getHeldSeats().stream()
+                .map(b -> new Seat(b.getLevel(), b.getRow(), b.getNumber(), b.getScore(), Status.RESERVED))
+                .collect(Collectors.toSet());
         String confirmationCode = confirmationCodeGenerator.generate();
 
-        SeatHold confirmedSeatHold = new SeatHold(seatHold.getId(), customerEmail, seatHold.getHeldSeats(),
+        SeatHold confirmedSeatHold = new SeatHold(seatHold.getId(), customerEmail, reservedSeats,
                 confirmationCode, seatHold.getHoldTime());
         seatHoldRepository.save(confirmedSeatHold);
-        logger.info("Reservation complete for seat hold {} with confirmation code {}.", seatHoldId, confirmationCode);
+        logger.debug("Reservation complete for seat hold {} with confirmation code {}.", seatHoldId, confirmationCode);
         return confirmationCode;
     }
 
+    public AllocationMode getAllocationMode() {
+        return allocationMode;
+    }
+
+    public void setAllocationMode(AllocationMode allocationMode) {
+        this.allocationMode = Preconditions.checkNotNull(allocationMode, "allocationMode cannot be null");
+    }
+
+    private Stream<Seat> findBest(int numSeats, int minLevelToUse, int maxLevelToUse, String customerEmail) {
+        //Exclusive search of a particular level
+        if (maxLevelToUse < minLevelToUse) {
+            logger.debug("Max level not requested by {}. Will only search level {} ", customerEmail, minLevelToUse);
+            return seatRepository
+                    .findTop(minLevelToUse, numSeats);
+        }
+        return seatRepository
+                .findTop(minLevelToUse, maxLevelToUse, numSeats);
+    }
+
+    private Stream<Seat> findBestContiguous(int numSeats, int minLevelToUse, int maxLevelToUse) {
+        if (maxLevelToUse < minLevelToUse) {
+            return seatRepository.findBestContiguous(minLevelToUse, numSeats);
+        }
+        return seatRepository.findBestContiguous(minLevelToUse, maxLevelToUse, numSeats);
+    }
+
+    /**
+     * Iterates the best seats of a level and allows seats to be handed back.
+     */
+    private static class BestSeatCursor {
+        private Deque<Seat> handedBack = new ArrayDeque<>();
+        private Iterator<Seat> bestSeats;
+
+        BestSeatCursor(Iterator<Seat> bestSeats) {
+            this.bestSeats = bestSeats;
+        }
+
+        boolean hasNext() {
+            if (handedBack.isEmpty() && bestSeats.hasNext()) {
+                handedBack.push(bestSeats.next());
+            }
+            return !handedBack.isEmpty();
+        }
+
+        Seat peek() {
+            return handedBack.peek();
+        }
+
+        Seat next() {
+            hasNext();
+            return handedBack.pop();
+        }
+
+        void pushBack(Seat seat) {
+            handedBack.push(seat);
+        }
+    }
+
     protected Supplier<Integer> findAllAvailable() {
-        return () -> (int) seatRepository.findAll(Status.AVAILABLE).count();
+        return () -> seatRepository.countAll(Status.AVAILABLE);
     }
 
     protected Supplier<Integer> findAllAvailable(int venueLevel) {
-        return () -> (int) seatRepository.findAll(venueLevel, Status.AVAILABLE).count();
+        return () -> seatRepository.countAll(venueLevel, Status.AVAILABLE);
     }
 
 }
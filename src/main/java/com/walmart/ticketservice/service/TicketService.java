@@ -1,8 +1,11 @@
 package com.walmart.ticketservice.service;
 
+import java.util.List;
 import java.util.Optional;
 
 import com.walmart.ticketservice.exception.TicketServiceException;
+import com.walmart.ticketservice.model.HoldRequest;
+import com.walmart.ticketservice.model.HoldResult;
 import com.walmart.ticketservice.model.SeatHold;
 
 public interface TicketService {
@@ -26,10 +29,26 @@ public interface TicketService {
      * @return a SeatHold object identifying the specific seats and related information
      * @throws IllegalArgumentException
      * @throws NoAvailableSeatsException if no seats are available
+     * @throws HoldContentionException  if the seats found kept being taken by concurrent holds
      */
     SeatHold findAndHoldSeats(int numSeats, Optional<Integer> minLevel,
                               Optional<Integer> maxLevel, String customerEmail) throws TicketServiceException;
 
+    /**
+     * Find and hold the best available seats for many customers at once.  The requests are
+     * served in order, so an earlier request gets better seats than a later one asking for the
+     * same levels.
+     *
+     * A request that is invalid or cannot be served does not fail the batch; its result carries
+     * the exception that {@link #findAndHoldSeats(int, Optional, Optional, String)} would have
+     * thrown instead.
+     *
+     * @param holdRequests the requests in the order they should be served
+     * @return one result per request, in the same order
+     * @throws NullPointerException if holdRequests is null
+     */
+    List<HoldResult> findAndHoldSeats(List<HoldRequest> holdRequests);
+
     /**
      * Commit seats held for a specific customer
      *
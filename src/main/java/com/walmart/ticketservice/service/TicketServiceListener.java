@@ -0,0 +1,31 @@
+package com.walmart.ticketservice.service;
+
+import com.walmart.ticketservice.exception.NoAvailableSeatsException;
+import com.walmart.ticketservice.model.SeatHold;
+
+/**
+ * Is told about the seat holds created, rejected, reserved and expired by an
+ * {@link AbstractTicketService}.
+ *
+ * Listeners are called on the thread that served the request, or expired the seat holds, right
+ * after the change was made.  They should return quickly and must not throw.
+ */
+public interface TicketServiceListener {
+
+    default void onHold(SeatHold seatHold) {
+    }
+
+    /**
+     * Called when a hold request could not be served because there were not enough available
+     * seats.  Holds that gave up because concurrent holds kept taking their seats are not
+     * reported.
+     */
+    default void onHoldRejected(NoAvailableSeatsException e) {
+    }
+
+    default void onReserve(int seatHoldId, String confirmationCode) {
+    }
+
+    default void onExpire(SeatHold seatHold) {
+    }
+}
@@ -0,0 +1,385 @@
+package com.walmart.ticketservice.service;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import com.walmart.ticketservice.model.HoldRequest;
+import com.walmart.ticketservice.model.HoldResult;
+import com.walmart.ticketservice.model.SeatHold;
+
+/**
+ * Runs the ticket operations of many venues with a limit on the number of operations that run at
+ * once against each venue.
+ *
+ * Every venue has a non-blocking semaphore in front of its ticket service.  An operation that gets
+ * a permit runs on the executor; one that does not waits in the venue's queue, without holding a
+ * thread, until a running operation of the same venue finishes and hands its permit on.  A waiting
+ * customer therefore costs a queued task and not a thread, and a venue with a limit of 1 can be
+ * served by a {@link SimpleTicketService}, which is not safe for concurrent use.  Operations beyond
+ * the venue's queue limit are rejected with a {@link RejectedExecutionException}.
+ *
+ * By default the operations run on a virtual thread each when the JDK has virtual threads, and on
+ * a fixed pool with a thread per processor otherwise.  The time operations wait in the queue is
+ * reported separately from the time they take to run, see {@link Stats}.
+ */
+public class VenueRequestExecutor implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(VenueRequestExecutor.class);
+
+    private Executor executor;
+    private ExecutorService ownedExecutor;
+    private boolean virtualThreads;
+    private Map<String, Venue> venues = new ConcurrentHashMap<>();
+
+    /**
+     * Runs the operations on virtual threads when the JDK has them, or on a fixed pool with a
+     * thread per processor otherwise.  The executor is shut down when this is closed.
+     */
+    public VenueRequestExecutor() {
+        Optional<ExecutorService> virtualThreadExecutor = newVirtualThreadPerTaskExecutor();
+        this.virtualThreads = virtualThreadExecutor.isPresent();
+        this.ownedExecutor = virtualThreadExecutor.orElseGet(() -> Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors(), new ThreadFactoryBuilder()
+                        .setNameFormat("venue-request-%d")
+                        .setDaemon(true)
+                        .build()));
+        this.executor = ownedExecutor;
+        logger.info("Running venue requests on {}", virtualThreads ? "virtual threads" : "a fixed thread pool");
+    }
+
+    /**
+     * Runs the operations on the provided executor, which is not shut down when this is closed.
+     */
+    public VenueRequestExecutor(Executor executor) {
+        this.executor = Preconditions.checkNotNull(executor, "executor cannot be null");
+    }
+
+    /**
+     * Adds a venue.
+     *
+     * @param maxConcurrent the number of operations that may run at once against the ticket
+     *                      service.  Must be 1 unless the ticket service is safe for concurrent
+     *                      use
+     * @param maxQueued     the number of operations that may wait for a permit
+     * @throws IllegalArgumentException if a venue with the same id was already added
+     */
+    public void addVenue(String venueId, TicketService ticketService, int maxConcurrent, int maxQueued) {
+        Preconditions.checkNotNull(venueId, "venueId cannot be null");
+        Preconditions.checkNotNull(ticketService, "ticketService cannot be null");
+        Preconditions.checkArgument(maxConcurrent > 0, "maxConcurrent must be greater than 0");
+        Preconditions.checkArgument(maxQueued >= 0, "maxQueued cannot be negative");
+        Preconditions.checkArgument(venues.putIfAbsent(venueId, new Venue(ticketService, maxConcurrent, maxQueued)) == null,
+                "venue " + venueId + " already exists");
+    }
+
+    /**
+     * Removes a venue.  Operations that are already queued still run.
+     *
+     * @return true if the venue existed
+     */
+    public boolean removeVenue(String venueId) {
+        return venues.remove(venueId) != null;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the venue does not exist
+     */
+    public AsyncTicketService forVenue(String venueId) {
+        return venue(venueId);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the venue does not exist
+     */
+    public Stats getStats(String venueId) {
+        return venue(venueId).stats();
+    }
+
+    /**
+     * @return true if the operations run on virtual threads
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Shuts down the owned executor once the operations that already run have finished, without
+     * waiting for them.  Operations still waiting for a permit are rejected when they would start.
+     */
+    @Override
+    public void close() {
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Waits for the owned executor to stop after {@link #close()}.  A provided executor is never
+     * stopped, so there is nothing to wait for.
+     *
+     * @return true if the owned executor stopped or there is none, false if the timeout elapsed
+     * first
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return ownedExecutor == null || ownedExecutor.awaitTermination(timeout, unit);
+    }
+
+    private Venue venue(String venueId) {
+        Venue venue = venues.get(venueId);
+        Preconditions.checkArgument(venue != null, "venue " + venueId + " does not exist");
+        return venue;
+    }
+
+    /**
+     * The code targets Java 8, so the virtual thread executor of newer JDKs is looked up at
+     * runtime.
+     */
+    static Optional<ExecutorService> newVirtualThreadPerTaskExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return Optional.of((ExecutorService) factory.invoke(null));
+        } catch (ReflectiveOperationException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * A snapshot of the operations of a venue.  Wait time is the time from submitting an operation
+     * until it starts, service time the time it takes to run.
+     */
+    public static class Stats {
+
+        private long completed;
+        private long rejected;
+        private int queued;
+        private int running;
+        private long totalWaitNanos;
+        private long maxWaitNanos;
+        private long totalServiceNanos;
+        private long maxServiceNanos;
+
+        private Stats(long completed, long rejected, int queued, int running, long totalWaitNanos, long maxWaitNanos,
+                      long totalServiceNanos, long maxServiceNanos) {
+            this.completed = completed;
+            this.rejected = rejected;
+            this.queued = queued;
+            this.running = running;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+            this.totalServiceNanos = totalServiceNanos;
+            this.maxServiceNanos = maxServiceNanos;
+        }
+
+        public long getCompleted() {
+            return completed;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public int getQueued() {
+            return queued;
+        }
+
+        public int getRunning() {
+            return running;
+        }
+
+        public long getMeanWaitNanos() {
+            return completed == 0 ? 0 : totalWaitNanos / completed;
+        }
+
+        public long getMaxWaitNanos() {
+            return maxWaitNanos;
+        }
+
+        public long getMeanServiceNanos() {
+            return completed == 0 ? 0 : totalServiceNanos / completed;
+        }
+
+        public long getMaxServiceNanos() {
+            return maxServiceNanos;
+        }
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(this)
+                    .add("completed", completed)
+                    .add("rejected", rejected)
+                    .add("queued", queued)
+                    .add("running", running)
+                    .add("meanWaitNanos", getMeanWaitNanos())
+                    .add("maxWaitNanos", maxWaitNanos)
+                    .add("meanServiceNanos", getMeanServiceNanos())
+                    .add("maxServiceNanos", maxServiceNanos)
+                    .toString();
+        }
+    }
+
+    private class Venue implements AsyncTicketService {
+
+        private TicketService ticketService;
+        private int maxConcurrent;
+        private int maxQueued;
+        private Queue<Operation<?>> waiting = new ConcurrentLinkedQueue<>();
+        //Operations that are waiting or running, and those that hold a permit
+        private AtomicInteger pending = new AtomicInteger();
+        private AtomicInteger running = new AtomicInteger();
+        private LongAdder completed = new LongAdder();
+        private LongAdder rejected = new LongAdder();
+        private LongAdder totalWaitNanos = new LongAdder();
+        private LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+        private LongAdder totalServiceNanos = new LongAdder();
+        private LongAccumulator maxServiceNanos = new LongAccumulator(Math::max, 0);
+
+        private Venue(TicketService ticketService, int maxConcurrent, int maxQueued) {
+            this.ticketService = ticketService;
+            this.maxConcurrent = maxConcurrent;
+            this.maxQueued = maxQueued;
+        }
+
+        @Override
+        public CompletionStage<Integer> numSeatsAvailable(Optional<Integer> venueLevel) {
+            return submit(() -> ticketService.numSeatsAvailable(venueLevel));
+        }
+
+        @Override
+        public CompletionStage<SeatHold> findAndHoldSeats(int numSeats, Optional<Integer> minLevel,
+                                                          Optional<Integer> maxLevel, String customerEmail) {
+            return submit(() -> ticketService.findAndHoldSeats(numSeats, minLevel, maxLevel, customerEmail));
+        }
+
+        @Override
+        public CompletionStage<List<HoldResult>> findAndHoldSeats(List<HoldRequest> holdRequests) {
+            return submit(() -> ticketService.findAndHoldSeats(holdRequests));
+        }
+
+        @Override
+        public CompletionStage<String> reserveSeats(int seatHoldId, String customerEmail) {
+            return submit(() -> ticketService.reserveSeats(seatHoldId, customerEmail));
+        }
+
+        private Stats stats() {
+            int running = this.running.get();
+            return new Stats(completed.sum(), rejected.sum(), Math.max(0, pending.get() - running), running, totalWaitNanos.sum(),
+                    maxWaitNanos.get(), totalServiceNanos.sum(), maxServiceNanos.get());
+        }
+
+        private <T> CompletableFuture<T> submit(Supplier<T> request) {
+            Operation<T> operation = new Operation<>(request);
+            if (pending.incrementAndGet() > maxConcurrent + maxQueued) {
+                pending.decrementAndGet();
+                rejected.increment();
+                operation.result.completeExceptionally(new RejectedExecutionException("more than " + maxQueued + " requests are waiting"));
+                return operation.result;
+            }
+            waiting.add(operation);
+            dispatch();
+            return operation.result;
+        }
+
+        /**
+         * Starts waiting operations while there are permits left.  Called whenever an operation is
+         * queued or finishes, so a waiting operation is never left behind with a free permit.
+         */
+        private void dispatch() {
+            while (!waiting.isEmpty()) {
+                int permits = running.get();
+                if (permits >= maxConcurrent) {
+                    return;
+                }
+                if (!running.compareAndSet(permits, permits + 1)) {
+                    continue;
+                }
+                Operation<?> operation = waiting.poll();
+                if (operation == null) {
+                    running.decrementAndGet();
+                    continue;
+                }
+                try {
+                    executor.execute(operation::run);
+                } catch (RejectedExecutionException e) {
+                    //The executor is shut down; the loop goes on to fail the other waiting operations
+                    pending.decrementAndGet();
+                    running.decrementAndGet();
+                    operation.result.completeExceptionally(e);
+                }
+            }
+        }
+
+        private void finish() {
+            pending.decrementAndGet();
+            running.decrementAndGet();
+            dispatch();
+        }
+
+        private void record(long waitNanos, long serviceNanos) {
+            completed.increment();
+            totalWaitNanos.add(waitNanos);
+            maxWaitNanos.accumulate(waitNanos);
+            totalServiceNanos.add(serviceNanos);
+            maxServiceNanos.accumulate(serviceNanos);
+        }
+
+        /**
+         * An operation and the future it completes.
+         */
+        private class Operation<T> {
+
+            private Supplier<T> request;
+            private CompletableFuture<T> result = new CompletableFuture<>();
+            private long submitted = System.nanoTime();
+
+            private Operation(Supplier<T> request) {
+                this.request = request;
+            }
+
+            /**
+             * Runs the operation and hands its permit on before completing the future, so the
+             * stats are up to date when the caller sees the result.
+             */
+            private void run() {
+                long started = System.nanoTime();
+                T value = null;
+                Throwable failure = null;
+                try {
+                    value = request.get();
+                } catch (Throwable t) {
+                    failure = t;
+                }
+                record(started - submitted, System.nanoTime() - started);
+                finish();
+                if (failure == null) {
+                    result.complete(value);
+                } else {
+                    result.completeExceptionally(failure);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.walmart.ticketservice.trace;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.walmart.ticketservice.exception.NoAvailableSeatsException;
+import com.walmart.ticketservice.model.Seat;
+import com.walmart.ticketservice.model.SeatHold;
+import com.walmart.ticketservice.service.AbstractTicketService;
+import com.walmart.ticketservice.service.TicketServiceListener;
+import com.walmart.ticketservice.trace.HoldTraceEvent.Type;
+
+/**
+ * A binary trace of the last seat hold lifecycle events of an {@link AbstractTicketService}, kept
+ * in a fixed size ring.
+ *
+ * Add the trace as a listener to the ticket service.  Every created, rejected, reserved and
+ * expired seat hold is then written into the ring as a few longs with a nanosecond timestamp,
+ * without formatting any strings, so the trace can stay on during an on-sale.  Once the
+ * ring is full the oldest events are overwritten.
+ *
+ * The trace can be dumped at any time, while events are still being recorded, to a compact binary
+ * file that {@link HoldTraceTool} prints.
+ */
+public class HoldTrace implements TicketServiceListener {
+
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    static final int MAGIC = 0x544b5452;
+    static final int VERSION = 1;
+
+    //Per event: sequence stamp, timestamp, type and seat hold id, levels, seats and available
+    private static final int FIELDS = 5;
+    //The stamp of a slot being written.  Otherwise it is 0 until the slot is first written, then the sequence + 1
+    private static final long WRITING = -1;
+
+    private AtomicLongArray ring;
+    private int mask;
+    private AtomicLong sequence = new AtomicLong();
+    private long startEpochNanos;
+    private long startNanoTime;
+
+    public HoldTrace() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity the number of events kept, rounded up to a power of two.  Every event takes
+     *                 40 bytes.
+     */
+    public HoldTrace(int capacity) {
+        Preconditions.checkArgument(capacity > 0 && capacity <= 1 << 24, "capacity must be between 1 and 2^24");
+        int size = Math.max(1, Integer.highestOneBit(capacity - 1) << 1);
+        this.ring = new AtomicLongArray(size * FIELDS);
+        this.mask = size - 1;
+        this.startEpochNanos = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+        this.startNanoTime = System.nanoTime();
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * @return the number of events recorded since the trace was created, including the ones that
+     * were overwritten
+     */
+    public long getRecorded() {
+        return sequence.get();
+    }
+
+    @Override
+    public void onHold(SeatHold seatHold) {
+        record(Type.CREATED, seatHold);
+    }
+
+    @Override
+    public void onHoldRejected(NoAvailableSeatsException e) {
+        record(Type.REJECTED, 0, e.getMinLevel().orElse(-1), e.getMaxLevel().orElse(-1), e.getNumSeats(), e.getAvailable());
+    }
+
+    @Override
+    public void onReserve(int seatHoldId, String confirmationCode) {
+        record(Type.RESERVED, seatHoldId, -1, -1, 0, -1);
+    }
+
+    @Override
+    public void onExpire(SeatHold seatHold) {
+        record(Type.EXPIRED, seatHold);
+    }
+
+    private void record(Type type, SeatHold seatHold) {
+        int minLevel = Integer.MAX_VALUE;
+        int maxLevel = -1;
+        for (Seat seat : seatHold.getHeldSeats()) {
+            minLevel = Math.min(minLevel, seat.getLevel());
+            maxLevel = Math.max(maxLevel, seat.getLevel());
+        }
+        record(type, seatHold.getId(), maxLevel < 0 ? -1 : minLevel, maxLevel, seatHold.getHeldSeats().size(), -1);
+    }
+
+    /**
+     * Writes an event into the next slot of the ring.  The writer claims the slot by setting its
+     * stamp from the one it holds to writing with a compare and set, so a concurrent
+     * {@link #events()} skips it instead of reading a torn event and two writers a lap apart never
+     * write the slot at once.  The event is dropped if the slot is being written by another writer
+     * or already holds a later event.
+     */
+    private void record(Type type, int seatHoldId, int minLevel, int maxLevel, int numSeats, int available) {
+        long timestamp = startEpochNanos + (System.nanoTime() - startNanoTime);
+        long s = sequence.getAndIncrement();
+        int base = (int) (s & mask) * FIELDS;
+        long stamp;
+        do {
+            stamp = ring.get(base);
+            if (stamp == WRITING || stamp > s) {
+                return;
+            }
+        } while (!ring.compareAndSet(base, stamp, WRITING));
+        ring.lazySet(base + 1, timestamp);
+        ring.lazySet(base + 2, pack(type.getCode(), seatHoldId));
+        ring.lazySet(base + 3, pack(minLevel, maxLevel));
+        ring.lazySet(base + 4, pack(numSeats, available));
+        ring.set(base, s + 1);
+    }
+
+    /**
+     * @return the events still in the ring, oldest first.  Events being overwritten while they are
+     * read are left out.
+     */
+    public List<HoldTraceEvent> events() {
+        long end = sequence.get();
+        long start = Math.max(0, end - capacity());
+        List<HoldTraceEvent> events = Lists.newArrayListWithCapacity((int) (end - start));
+        for (long s = start; s < end; s++) {
+            int base = (int) (s & mask) * FIELDS;
+            if (ring.get(base) != s + 1) {
+                continue;
+            }
+            long timestamp = ring.get(base + 1);
+            long typeAndId = ring.get(base + 2);
+            long levels = ring.get(base + 3);
+            long seats = ring.get(base + 4);
+            if (ring.get(base) != s + 1) {
+                continue;
+            }
+            events.add(new HoldTraceEvent(s, timestamp, Type.fromCode(high(typeAndId)), low(typeAndId), high(levels),
+                    low(levels), high(seats), low(seats)));
+        }
+        return events;
+    }
+
+    /**
+     * Writes the events still in the ring in the binary trace format.
+     */
+    public void dump(OutputStream out) throws IOException {
+        List<HoldTraceEvent> events = events();
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(events.size());
+        for (HoldTraceEvent event : events) {
+            data.writeLong(event.getSequence());
+            data.writeLong(event.getEpochNanos());
+            data.writeInt(event.getType().getCode());
+            data.writeInt(event.getSeatHoldId());
+            data.writeInt(event.getMinLevel());
+            data.writeInt(event.getMaxLevel());
+            data.writeInt(event.getNumSeats());
+            data.writeInt(event.getAvailable());
+        }
+        data.flush();
+    }
+
+    public void dump(Path path) throws IOException {
+        try (OutputStream out = Files.newOutputStream(path)) {
+            dump(out);
+        }
+    }
+
+    /**
+     * Reads a trace written by {@link #dump(OutputStream)}.
+     *
+     * @throws IOException if the stream does not hold a trace
+     */
+    public static List<HoldTraceEvent> read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != MAGIC) {
+            throw new IOException("not a hold trace");
+        }
+        int version = data.readInt();
+        if (version != VERSION) {
+            throw new IOException("unsupported hold trace version " + version);
+        }
+        int count = data.readInt();
+        List<HoldTraceEvent> events = Lists.newArrayListWithCapacity(count);
+        for (int i = 0; i < count; i++) {
+            events.add(new HoldTraceEvent(data.readLong(), data.readLong(), Type.fromCode(data.readInt()), data.readInt(),
+                    data.readInt(), data.readInt(), data.readInt(), data.readInt()));
+        }
+        return events;
+    }
+
+    public static List<HoldTraceEvent> read(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            return read(in);
+        }
+    }
+
+    private static long pack(int high, int low) {
+        return ((long) high << 32) | (low & 0xffffffffL);
+    }
+
+    private static int high(long packed) {
+        return (int) (packed >>> 32);
+    }
+
+    private static int low(long packed) {
+        return (int) packed;
+    }
+}
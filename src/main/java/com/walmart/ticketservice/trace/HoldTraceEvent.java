@@ -0,0 +1,131 @@
+package com.walmart.ticketservice.trace;
+
+import com.google.common.base.MoreObjects;
+
+import java.time.Instant;
+
+/**
+ * One seat hold lifecycle event read back from a {@link HoldTrace}.
+ *
+ * Levels are -1 when they are not known: a reserved event only carries its seat hold id, and a
+ * rejected request may not have asked for a level.
+ */
+public class HoldTraceEvent {
+
+    public enum Type {
+        CREATED(1),
+        REJECTED(2),
+        RESERVED(3),
+        EXPIRED(4);
+
+        private int code;
+
+        Type(int code) {
+            this.code = code;
+        }
+
+        /**
+         * @return the code stored in a trace, which does not change when types are added
+         */
+        public int getCode() {
+            return code;
+        }
+
+        public static Type fromCode(int code) {
+            for (Type type : values()) {
+                if (type.code == code) {
+                    return type;
+                }
+            }
+            throw new IllegalArgumentException("unknown event type " + code);
+        }
+    }
+
+    private long sequence;
+    private long epochNanos;
+    private Type type;
+    private int seatHoldId;
+    private int minLevel;
+    private int maxLevel;
+    private int numSeats;
+    private int available;
+
+    public HoldTraceEvent(long sequence, long epochNanos, Type type, int seatHoldId, int minLevel, int maxLevel,
+                          int numSeats, int available) {
+        this.sequence = sequence;
+        this.epochNanos = epochNanos;
+        this.type = type;
+        this.seatHoldId = seatHoldId;
+        this.minLevel = minLevel;
+        this.maxLevel = maxLevel;
+        this.numSeats = numSeats;
+        this.available = available;
+    }
+
+    /**
+     * @return the position of the event in its trace, starting at 0
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return the time of the event in nanoseconds since the epoch.  Differences between events of
+     * the same trace are exact, the absolute time is only as accurate as the wall clock.
+     */
+    public long getEpochNanos() {
+        return epochNanos;
+    }
+
+    public Instant getTimestamp() {
+        return Instant.ofEpochSecond(Math.floorDiv(epochNanos, 1_000_000_000L), Math.floorMod(epochNanos, 1_000_000_000L));
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return the id of the seat hold, or 0 for a rejected request
+     */
+    public int getSeatHoldId() {
+        return seatHoldId;
+    }
+
+    public int getMinLevel() {
+        return minLevel;
+    }
+
+    public int getMaxLevel() {
+        return maxLevel;
+    }
+
+    /**
+     * @return the number of seats held, or requested by a rejected request.  0 for a reserved
+     * event.
+     */
+    public int getNumSeats() {
+        return numSeats;
+    }
+
+    /**
+     * @return the number of seats that were found for a rejected request, otherwise -1
+     */
+    public int getAvailable() {
+        return available;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("sequence", sequence)
+                .add("timestamp", getTimestamp())
+                .add("type", type)
+                .add("seatHoldId", seatHoldId)
+                .add("minLevel", minLevel)
+                .add("maxLevel", maxLevel)
+                .add("numSeats", numSeats)
+                .add("available", available)
+                .toString();
+    }
+}
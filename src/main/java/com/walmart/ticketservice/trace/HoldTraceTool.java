@@ -0,0 +1,134 @@
+package com.walmart.ticketservice.trace;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.walmart.ticketservice.trace.HoldTraceEvent.Type;
+
+/**
+ * Prints a trace dumped by {@link HoldTrace}, one event per line, followed by the number of events
+ * of each type.
+ *
+ * <pre>
+ *     java com.walmart.ticketservice.trace.HoldTraceTool [--type CREATED|REJECTED|RESERVED|EXPIRED] [--hold id] trace-file
+ * </pre>
+ *
+ * Reserved and expired seat holds are printed with how long they were held, and reserved ones with
+ * their levels and seats, when the seat hold was created within the same trace.
+ */
+public class HoldTraceTool {
+
+    private static final String USAGE = "usage: HoldTraceTool [--type CREATED|REJECTED|RESERVED|EXPIRED] [--hold id] trace-file";
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /**
+     * @return the exit status
+     */
+    static int run(String[] args, PrintStream out, PrintStream err) {
+        Type type = null;
+        Integer seatHoldId = null;
+        String file = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if ("--type".equals(args[i]) && i + 1 < args.length) {
+                    type = Type.valueOf(args[++i].toUpperCase(Locale.ROOT));
+                } else if ("--hold".equals(args[i]) && i + 1 < args.length) {
+                    seatHoldId = Integer.parseInt(args[++i]);
+                } else if (file == null && !args[i].startsWith("--")) {
+                    file = args[i];
+                } else {
+                    throw new IllegalArgumentException("unexpected argument " + args[i]);
+                }
+            }
+            if (file == null) {
+                throw new IllegalArgumentException("no trace file");
+            }
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.println(USAGE);
+            return 2;
+        }
+
+        List<HoldTraceEvent> events;
+        try {
+            events = HoldTrace.read(Paths.get(file));
+        } catch (IOException e) {
+            err.println("cannot read " + file + ": " + e.getMessage());
+            return 1;
+        }
+
+        List<HoldTraceEvent> selected = Lists.newArrayList();
+        for (HoldTraceEvent event : events) {
+            if ((type == null || event.getType() == type) && (seatHoldId == null || event.getSeatHoldId() == seatHoldId)) {
+                selected.add(event);
+            }
+        }
+        format(events, selected).forEach(out::println);
+        return 0;
+    }
+
+    /**
+     * @param events   all events of the trace, to look up the creation of seat holds
+     * @param selected the events to print
+     * @return one line per selected event followed by a line with the count of each type
+     */
+    static List<String> format(List<HoldTraceEvent> events, List<HoldTraceEvent> selected) {
+        Map<Integer, HoldTraceEvent> created = Maps.newHashMap();
+        events.stream()
+                .filter(e -> e.getType() == Type.CREATED)
+                .forEach(e -> created.put(e.getSeatHoldId(), e));
+
+        List<String> lines = Lists.newArrayListWithCapacity(selected.size() + 1);
+        Map<Type, Integer> counts = new EnumMap<>(Type.class);
+        for (HoldTraceEvent event : selected) {
+            counts.merge(event.getType(), 1, Integer::sum);
+            StringBuilder line = new StringBuilder()
+                    .append(event.getTimestamp()).append(' ')
+                    .append('#').append(event.getSequence()).append(' ')
+                    .append(event.getType());
+            if (event.getType() == Type.REJECTED) {
+                line.append(" requested=").append(event.getNumSeats())
+                        .append(" available=").append(event.getAvailable())
+                        .append(" levels=").append(levels(event));
+            } else {
+                HoldTraceEvent creation = created.get(event.getSeatHoldId());
+                HoldTraceEvent described = event.getType() == Type.RESERVED && creation != null ? creation : event;
+                line.append(" hold=").append(event.getSeatHoldId());
+                if (event.getType() != Type.RESERVED || creation != null) {
+                    line.append(" levels=").append(levels(described))
+                            .append(" seats=").append(described.getNumSeats());
+                }
+                if (event.getType() != Type.CREATED && creation != null) {
+                    line.append(" heldFor=").append(millis(event.getEpochNanos() - creation.getEpochNanos())).append("ms");
+                }
+            }
+            lines.add(line.toString());
+        }
+
+        StringBuilder summary = new StringBuilder().append(selected.size()).append(" events");
+        counts.forEach((t, n) -> summary.append(", ").append(n).append(' ').append(t));
+        lines.add(summary.toString());
+        return lines;
+    }
+
+    private static String levels(HoldTraceEvent event) {
+        String min = event.getMinLevel() < 0 ? "*" : String.valueOf(event.getMinLevel());
+        String max = event.getMaxLevel() < 0 ? "*" : String.valueOf(event.getMaxLevel());
+        return min.equals(max) ? min : min + "-" + max;
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+}
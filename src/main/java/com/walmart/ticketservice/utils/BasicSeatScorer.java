@@ -3,8 +3,7 @@ package com.walmart.ticketservice.utils;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Preconditions;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import java.util.Arrays;
 
 import com.walmart.ticketservice.model.Level;
 import com.walmart.ticketservice.model.Seat;
@@ -15,12 +14,18 @@ import com.walmart.ticketservice.model.VenueConfiguration;
  *
  * The seat in level 1, row 1, seat 1 would be the 'best' seat, while the seat in level max, row
  * max, seats per row would be the 'worst' seat
+ *
+ * The levels are read once, when the scorer is created, into a table ordered by level id, so
+ * scoring a seat does not go through the venue configuration.
  */
-public class BasicSeatScorer implements SeatScorer {
-
-    private static final Logger logger = LoggerFactory.getLogger(BasicSeatScorer.class);
+public class BasicSeatScorer implements BulkSeatScorer {
 
     private VenueConfiguration venueConfiguration;
+    //Level table, ordered by level id
+    private final int[] levelIds;
+    private final int[] levelOffsets;
+    private final int[] seatsPerRow;
+    private final int[] totalSeats;
 
     /**
      * @param venueConfiguration a valid {@link VenueConfiguration} that includes at least 1 level
@@ -28,6 +33,21 @@ public class BasicSeatScorer implements SeatScorer {
      */
     public BasicSeatScorer(VenueConfiguration venueConfiguration) {
         this.venueConfiguration = venueConfiguration;
+
+        Level[] levels = venueConfiguration.getLevels().toArray(new Level[0]);
+        Arrays.sort(levels, (l1, l2) -> Integer.compare(l1.getId(), l2.getId()));
+        levelIds = new int[levels.length];
+        levelOffsets = new int[levels.length];
+        seatsPerRow = new int[levels.length];
+        totalSeats = new int[levels.length];
+        int offset = 0;
+        for (int i = 0; i < levels.length; i++) {
+            levelIds[i] = levels[i].getId();
+            levelOffsets[i] = offset;
+            seatsPerRow[i] = levels[i].getSeatsPerRow();
+            totalSeats[i] = levels[i].getTotalSeats();
+            offset += totalSeats[i];
+        }
     }
 
     @Override
@@ -35,37 +55,33 @@ public class BasicSeatScorer implements SeatScorer {
         Preconditions.checkArgument(seat != null, "seat cannot be null");
         /**
          * Determine the score using the following steps
-         * 1.  O = the level offset if level != 1
+         * 1.  O = the level offset, the number of seats in all lower levels
          * 2.  M = For a given row, get the largest score possible for that row.
          * 3.  Score = M - (Level.seatsPerRow - seatNumber) + O
          */
-        Level level = getLevel(seat.getLevel());
-        int row = seat.getRow();
-        int levelOffset = 0;
-        int maxScore;
-
-        if (seat.getLevel() != 0)
-            levelOffset = getLevelOffset(seat.getLevel());
-
-        maxScore = row * level.getSeatsPerRow();
-
-        int score = maxScore - (level.getSeatsPerRow() - seat.getNumber()) + levelOffset;
-        logger.debug("Calculated score of {} using levelOffset {}, maxScore {} and row {} for seat {}",
-                score, levelOffset, maxScore, row, seat);
-        return score;
+        int i = levelIndex(seat.getLevel());
+        int maxScore = seat.getRow() * seatsPerRow[i];
+        return maxScore - (seatsPerRow[i] - seat.getNumber()) + levelOffsets[i];
     }
 
-    private Integer getLevelOffset(int level) {
-        return venueConfiguration.getLevels().stream()
-                .filter(l -> l.getId() < level)
-                .mapToInt(Level::getTotalSeats)
-                .sum();
+    /**
+     * The scores of a level are consecutive, so this fills them with a count.
+     */
+    @Override
+    public void scoreAll(int level, int[] scores, int from) {
+        int i = levelIndex(level);
+        int score = levelOffsets[i];
+        for (int o = from; o < from + totalSeats[i]; o++) {
+            scores[o] = ++score;
+        }
     }
 
-    private Level getLevel(int level) {
-        return venueConfiguration.getLevels().stream()
-                .filter(l -> l.getId() == level)
-                .findFirst().get();
+    private int levelIndex(int level) {
+        int i = Arrays.binarySearch(levelIds, level);
+        if (i < 0) {
+            throw new IllegalArgumentException("venueLevel " + level + " is not part of venue configuration.");
+        }
+        return i;
     }
 
     @Override
@@ -0,0 +1,21 @@
+package com.walmart.ticketservice.utils;
+
+/**
+ * A {@link SeatScorer} that can also score every seat of a level in one pass, without creating a
+ * {@link com.walmart.ticketservice.model.Seat} per seat.
+ *
+ * Repositories score the levels of a venue in parallel through this interface, so implementations
+ * must be safe to call from several threads at once.
+ */
+public interface BulkSeatScorer extends SeatScorer {
+
+    /**
+     * Computes the score of every seat in a level, row by row and seat by seat within a row, the
+     * same way {@link #computeScore} would.
+     *
+     * @param level  the id of the level
+     * @param scores the array to fill, which must have room for all the seats of the level
+     * @param from   the index of the score of the first seat of the level
+     */
+    void scoreAll(int level, int[] scores, int from);
+}
@@ -0,0 +1,83 @@
+package com.walmart.ticketservice.utils;
+
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free queue for many producer threads and a single consumer thread.
+ *
+ * Producers claim a slot by advancing the tail with a compare and set and then publish their
+ * element into it.  The consumer takes elements in claim order and frees each slot by advancing
+ * the head.  Only the consumer may call {@link #poll()}.
+ */
+public final class MpscRingBuffer<E> {
+
+    private final AtomicReferenceArray<E> slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * @param capacity the number of elements the buffer can hold, rounded up to a power of two
+     */
+    public MpscRingBuffer(int capacity) {
+        Preconditions.checkArgument(capacity > 0 && capacity <= 1 << 30, "capacity must be between 1 and 2^30");
+        int size = Math.max(1, Integer.highestOneBit(capacity - 1) << 1);
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Adds an element unless the buffer is full.  Safe to call from any thread.
+     *
+     * @return false if the buffer is full
+     */
+    public boolean offer(E element) {
+        Preconditions.checkNotNull(element, "element cannot be null");
+        while (true) {
+            long t = tail.get();
+            if (t - head.get() >= slots.length()) {
+                return false;
+            }
+            if (tail.compareAndSet(t, t + 1)) {
+                slots.lazySet((int) t & mask, element);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Takes the oldest element.  Must only be called from the consumer thread.
+     *
+     * @return the oldest element, or null if the buffer is empty or the oldest element is claimed
+     * but not yet published
+     */
+    public E poll() {
+        long h = head.get();
+        int slot = (int) h & mask;
+        E element = slots.get(slot);
+        if (element == null) {
+            return null;
+        }
+        slots.lazySet(slot, null);
+        head.lazySet(h + 1);
+        return element;
+    }
+
+    public boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+
+    /**
+     * @return an estimate of the number of elements in the buffer
+     */
+    public int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    public int capacity() {
+        return slots.length();
+    }
+}
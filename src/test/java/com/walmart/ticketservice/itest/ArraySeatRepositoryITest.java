@@ -0,0 +1,21 @@
+package com.walmart.ticketservice.itest;
+
+import org.testng.annotations.BeforeMethod;
+
+import com.walmart.ticketservice.repository.ArraySeatRepository;
+import com.walmart.ticketservice.repository.InMemorySeatHoldRepository;
+import com.walmart.ticketservice.service.SimpleTicketService;
+
+/**
+ * Runs the {@link SimpleTicketServiceITest} scenarios against an {@link ArraySeatRepository}.
+ */
+public class ArraySeatRepositoryITest extends SimpleTicketServiceITest {
+
+    @BeforeMethod
+    @Override
+    public void setUp() {
+        seatRepository = new ArraySeatRepository(venueConfiguration);
+        seatHoldRepository = new InMemorySeatHoldRepository();
+        ticketService = new SimpleTicketService(venueConfiguration, seatRepository, seatHoldRepository);
+    }
+}
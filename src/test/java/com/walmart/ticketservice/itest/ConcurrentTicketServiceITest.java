@@ -0,0 +1,232 @@
+package com.walmart.ticketservice.itest;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.walmart.ticketservice.TestUtils;
+import com.walmart.ticketservice.exception.HoldContentionException;
+import com.walmart.ticketservice.exception.NoAvailableSeatsException;
+import com.walmart.ticketservice.model.HoldRequest;
+import com.walmart.ticketservice.model.Level;
+import com.walmart.ticketservice.model.Seat;
+import com.walmart.ticketservice.model.SeatHold;
+import com.walmart.ticketservice.model.Status;
+import com.walmart.ticketservice.model.VenueConfiguration;
+import com.walmart.ticketservice.repository.ArraySeatRepository;
+import com.walmart.ticketservice.repository.InMemorySeatHoldRepository;
+import com.walmart.ticketservice.repository.InMemorySeatRepository;
+import com.walmart.ticketservice.repository.SeatRepository;
+import com.walmart.ticketservice.service.ConcurrentTicketService;
+import com.walmart.ticketservice.service.SimpleTicketService;
+import com.walmart.ticketservice.service.TicketService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Stress test of the {@link ConcurrentTicketService}.  Many threads compete for the seats of the
+ * venue and afterwards every seat must belong to exactly one seat hold.
+ *
+ * The venue configuration is 4 levels of 20 rows with 50 seats per row for a total of 4000 seats.
+ */
+public class ConcurrentTicketServiceITest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConcurrentTicketServiceITest.class);
+
+    private static final int LEVELS = 4;
+    private static final int TOTAL_SEATS = LEVELS * 20 * 50;
+    private static final int THREADS = 8;
+
+    private SeatRepository seatRepository;
+    private TicketService ticketService;
+
+    private void setUp(int holdLimit) {
+        Set<Level> levels = Sets.newHashSet();
+        for (int i = 1; i <= LEVELS; i++) {
+            levels.add(TestUtils.createLevel(i, 20, 50));
+        }
+        VenueConfiguration venueConfiguration = new VenueConfiguration(holdLimit, levels);
+        seatRepository = new InMemorySeatRepository(venueConfiguration);
+        ticketService = new ConcurrentTicketService(venueConfiguration, seatRepository, new InMemorySeatHoldRepository());
+    }
+
+    @Test
+    public void testNoSeatIsHeldTwice() throws Exception {
+        setUp(600);
+        Queue<SeatHold> seatHolds = new ConcurrentLinkedQueue<>();
+        runConcurrently(THREADS, () -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (ticketService.numSeatsAvailable(Optional.empty()) > 0) {
+                SeatHold seatHold;
+                try {
+                    int minLevel = random.nextInt(1, LEVELS);
+                    seatHold = ticketService.findAndHoldSeats(random.nextInt(1, 7), Optional.of(minLevel),
+                            random.nextBoolean() ? Optional.of(minLevel + 1) : Optional.empty(), TestUtils.EMAIL);
+                } catch (NoAvailableSeatsException e) {
+                    try {
+                        seatHold = ticketService.findAndHoldSeats(1, Optional.of(1), Optional.of(LEVELS), TestUtils.EMAIL);
+                    } catch (NoAvailableSeatsException sold) {
+                        continue;
+                    }
+                }
+                seatHolds.add(seatHold);
+                if (random.nextInt(4) == 0) {
+                    ticketService.reserveSeats(seatHold.getId(), TestUtils.EMAIL);
+                }
+            }
+        });
+
+        assertAllSeatsHeldOnce(seatHolds);
+        assertThat(seatRepository.countAll(Status.AVAILABLE)).isEqualTo(0);
+        assertThat(seatRepository.countAll(Status.HELD) + seatRepository.countAll(Status.RESERVED)).isEqualTo(TOTAL_SEATS);
+    }
+
+    @Test
+    public void testExpiredSeatsAreFreedOnce() throws Exception {
+        setUp(1);
+        ticketService.findAndHoldSeats(TOTAL_SEATS, Optional.of(1), Optional.of(LEVELS), TestUtils.EMAIL);
+        Thread.sleep(1500);
+
+        //Every thread triggers the clean up of the same expired seat hold while holding seats
+        Queue<SeatHold> seatHolds = new ConcurrentLinkedQueue<>();
+        runConcurrently(THREADS, () -> {
+            for (int i = 0; i < 50; i++) {
+                seatHolds.add(ticketService.findAndHoldSeats(4, Optional.of(1), Optional.of(LEVELS), TestUtils.EMAIL));
+            }
+        });
+
+        assertAllSeatsHeldOnce(seatHolds);
+        //A seat freed twice would show up as available even though it belongs to a new seat hold
+        seatHolds.forEach(h -> h.getHeldSeats().forEach(s ->
+                assertThat(seatRepository.findAll(s.getLevel(), Status.HELD).anyMatch(s::equals)).isTrue()));
+    }
+
+    @Test
+    public void testNoSeatIsHeldTwiceInBatches() throws Exception {
+        setUp(600);
+        Queue<SeatHold> seatHolds = new ConcurrentLinkedQueue<>();
+        runConcurrently(THREADS, () -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (ticketService.numSeatsAvailable(Optional.empty()) > 0) {
+                List<HoldRequest> holdRequests = Lists.newArrayList();
+                for (int i = 0; i < 10; i++) {
+                    int minLevel = random.nextInt(1, LEVELS);
+                    holdRequests.add(new HoldRequest(random.nextInt(1, 7), Optional.of(minLevel),
+                            random.nextBoolean() ? Optional.of(minLevel + 1) : Optional.empty(), TestUtils.EMAIL));
+                }
+                holdRequests.add(new HoldRequest(1, Optional.of(1), Optional.of(LEVELS), TestUtils.EMAIL));
+                ticketService.findAndHoldSeats(holdRequests).forEach(r -> r.getSeatHold().ifPresent(seatHolds::add));
+            }
+        });
+
+        assertAllSeatsHeldOnce(seatHolds);
+        assertThat(seatRepository.countAll(Status.HELD)).isEqualTo(TOTAL_SEATS);
+    }
+
+    @DataProvider(name = "seatRepositories")
+    public Object[][] seatRepositories() {
+        return new Object[][]{{true}, {false}};
+    }
+
+    /**
+     * Without level locks, holds only rely on the conditional transition of the seat repository
+     * to never take each other's seats.
+     */
+    @Test(dataProvider = "seatRepositories")
+    public void testNoSeatIsHeldTwiceWithoutLevelLocks(boolean arrayRepository) throws Exception {
+        Set<Level> levels = Sets.newHashSet();
+        for (int i = 1; i <= LEVELS; i++) {
+            levels.add(TestUtils.createLevel(i, 20, 50));
+        }
+        VenueConfiguration venueConfiguration = new VenueConfiguration(600, levels);
+        seatRepository = arrayRepository ? new ArraySeatRepository(venueConfiguration) : new InMemorySeatRepository(venueConfiguration);
+        ticketService = new SimpleTicketService(venueConfiguration, seatRepository, new InMemorySeatHoldRepository());
+
+        Queue<SeatHold> seatHolds = new ConcurrentLinkedQueue<>();
+        runConcurrently(THREADS, () -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (ticketService.numSeatsAvailable(Optional.empty()) > 0) {
+                try {
+                    seatHolds.add(ticketService.findAndHoldSeats(random.nextInt(1, 7), Optional.of(1), Optional.of(LEVELS), TestUtils.EMAIL));
+                } catch (NoAvailableSeatsException | HoldContentionException e) {
+                    //too few seats left or the seats kept being taken, try again with what is left
+                }
+            }
+        });
+
+        assertAllSeatsHeldOnce(seatHolds);
+        assertThat(seatRepository.countAll(Status.HELD)).isEqualTo(TOTAL_SEATS);
+        assertThat(seatHolds.stream().mapToInt(h -> h.getHeldSeats().size()).sum()).isEqualTo(TOTAL_SEATS);
+    }
+
+    @Test
+    public void testThroughputByThreadCount() throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads : Sets.newTreeSet(Lists.newArrayList(1, Math.min(LEVELS, cores)))) {
+            setUp(600);
+            long start = System.nanoTime();
+            //Each thread works on its own level so the level locks never contend
+            runConcurrently(threads, () -> {
+                int level = (int) (Thread.currentThread().getId() % LEVELS) + 1;
+                try {
+                    while (true) {
+                        ticketService.findAndHoldSeats(1, Optional.of(level), Optional.empty(), TestUtils.EMAIL);
+                    }
+                } catch (NoAvailableSeatsException e) {
+                    //level is sold out
+                }
+            });
+            long elapsed = System.nanoTime() - start;
+            logger.info("{} thread(s) on {} core(s) held {} seats at {} holds/s", threads, cores,
+                    TOTAL_SEATS - seatRepository.countAll(Status.AVAILABLE),
+                    (TOTAL_SEATS - seatRepository.countAll(Status.AVAILABLE)) * TimeUnit.SECONDS.toNanos(1) / elapsed);
+        }
+    }
+
+    private void assertAllSeatsHeldOnce(Queue<SeatHold> seatHolds) {
+        Set<Seat> heldSeats = Sets.newHashSet();
+        int heldCount = 0;
+        for (SeatHold seatHold : seatHolds) {
+            heldSeats.addAll(seatHold.getHeldSeats());
+            heldCount += seatHold.getHeldSeats().size();
+        }
+        assertThat(heldSeats).hasSize(heldCount);
+    }
+
+    private void runConcurrently(int threads, Runnable task) throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = Lists.newArrayList();
+        try {
+            for (int i = 0; i < threads; i++) {
+                futures.add(executorService.submit(() -> {
+                    start.await();
+                    task.run();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.walmart.ticketservice.itest;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+
+import java.util.concurrent.TimeUnit;
+
+import com.walmart.ticketservice.repository.InMemorySeatHoldRepository;
+import com.walmart.ticketservice.repository.InMemorySeatRepository;
+import com.walmart.ticketservice.service.EventLoopTicketService;
+import com.walmart.ticketservice.service.SimpleTicketService;
+
+/**
+ * Runs the {@link SimpleTicketServiceITest} scenarios through an {@link EventLoopTicketService},
+ * so every request is served on its owner thread.
+ */
+public class EventLoopTicketServiceITest extends SimpleTicketServiceITest {
+
+    private SimpleTicketService ownedTicketService;
+
+    @BeforeMethod
+    @Override
+    public void setUp() {
+        seatRepository = new InMemorySeatRepository(venueConfiguration);
+        seatHoldRepository = new InMemorySeatHoldRepository();
+        ownedTicketService = new SimpleTicketService(venueConfiguration, seatRepository, seatHoldRepository);
+        ticketService = new EventLoopTicketService(ownedTicketService, 64, 100, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    protected SimpleTicketService simpleTicketService() {
+        return ownedTicketService;
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        ((EventLoopTicketService) ticketService).close();
+    }
+}
@@ -0,0 +1,67 @@
+package com.walmart.ticketservice.itest;
+
+import com.google.common.collect.Sets;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import com.walmart.ticketservice.TestUtils;
+import com.walmart.ticketservice.model.SeatHold;
+import com.walmart.ticketservice.repository.InMemorySeatRepository;
+import com.walmart.ticketservice.repository.MappedSeatHoldRepository;
+import com.walmart.ticketservice.service.SimpleTicketService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the {@link SimpleTicketServiceITest} scenarios against a {@link MappedSeatHoldRepository}
+ * and checks that the seat holds survive a restart.
+ */
+public class MappedSeatHoldRepositoryITest extends SimpleTicketServiceITest {
+
+    private Path directory;
+
+    @BeforeMethod
+    @Override
+    public void setUp() {
+        try {
+            directory = Files.createTempDirectory("seatholds");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        seatRepository = new InMemorySeatRepository(venueConfiguration);
+        seatHoldRepository = new MappedSeatHoldRepository(directory);
+        ticketService = new SimpleTicketService(venueConfiguration, seatRepository, seatHoldRepository);
+    }
+
+    @AfterMethod
+    public void tearDown() throws IOException {
+        ((MappedSeatHoldRepository) seatHoldRepository).close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testSeatHoldsSurviveRestart() throws IOException {
+        SeatHold held = ticketService.findAndHoldSeats(2, Optional.of(1), Optional.empty(), TestUtils.EMAIL);
+        SeatHold reserved = ticketService.findAndHoldSeats(3, Optional.of(2), Optional.empty(), TestUtils.EMAIL);
+        String confirmationCode = ticketService.reserveSeats(reserved.getId(), TestUtils.EMAIL);
+
+        ((MappedSeatHoldRepository) seatHoldRepository).close();
+        seatHoldRepository = new MappedSeatHoldRepository(directory);
+
+        assertThat(seatHoldRepository.find(held.getId()).get().getHeldSeats()).isEqualTo(held.getHeldSeats());
+        assertThat(seatHoldRepository.find(reserved.getId()).get().getConfirmationCode().get()).isEqualTo(confirmationCode);
+        assertThat(Sets.newHashSet(seatHoldRepository.findAll(TestUtils.EMAIL).iterator())).containsOnly(held, reserved);
+    }
+}
@@ -0,0 +1,40 @@
+package com.walmart.ticketservice.itest;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+
+import com.walmart.ticketservice.repository.InMemorySeatHoldRepository;
+import com.walmart.ticketservice.repository.InMemorySeatRepository;
+import com.walmart.ticketservice.service.ShardedTicketService;
+import com.walmart.ticketservice.service.SimpleTicketService;
+
+/**
+ * Runs the {@link SimpleTicketServiceITest} scenarios through a {@link ShardedTicketService}, so
+ * every request is served on the event's shard instead of the test thread.
+ */
+public class ShardedTicketServiceITest extends SimpleTicketServiceITest {
+
+    private ShardedTicketService shardedTicketService;
+    private SimpleTicketService eventTicketService;
+
+    @BeforeMethod
+    @Override
+    public void setUp() {
+        seatRepository = new InMemorySeatRepository(venueConfiguration);
+        seatHoldRepository = new InMemorySeatHoldRepository();
+        eventTicketService = new SimpleTicketService(venueConfiguration, seatRepository, seatHoldRepository);
+        shardedTicketService = new ShardedTicketService(2, c -> eventTicketService);
+        shardedTicketService.addEvent("event", venueConfiguration);
+        ticketService = shardedTicketService.forEvent("event");
+    }
+
+    @Override
+    protected SimpleTicketService simpleTicketService() {
+        return eventTicketService;
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        shardedTicketService.close();
+    }
+}
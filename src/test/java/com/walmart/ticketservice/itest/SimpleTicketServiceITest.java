@@ -1,5 +1,6 @@
 package com.walmart.ticketservice.itest;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Range;
 import com.google.common.collect.Sets;
 
@@ -8,10 +9,17 @@ import org.slf4j.LoggerFactory;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.util.IntSummaryStatistics;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
 import com.walmart.ticketservice.TestUtils;
+import com.walmart.ticketservice.exception.NoAvailableSeatsException;
+import com.walmart.ticketservice.model.AllocationMode;
+import com.walmart.ticketservice.model.HoldRequest;
+import com.walmart.ticketservice.model.HoldResult;
+import com.walmart.ticketservice.model.Seat;
 import com.walmart.ticketservice.model.SeatHold;
 import com.walmart.ticketservice.model.Status;
 import com.walmart.ticketservice.model.VenueConfiguration;
@@ -165,4 +173,69 @@ public class SimpleTicketServiceITest {
         assertThat(reservation.getConfirmationCode().get()).isEqualTo(confirmationCode);
         assertThat(ticketService.numSeatsAvailable(Optional.of(2))).isEqualTo(78);
     }
+
+    @Test
+    public void testReservationDoesNotExpire() throws InterruptedException {
+        SeatHold seatHold = ticketService.findAndHoldSeats(2, Optional.of(2), Optional.empty(), TestUtils.EMAIL);
+        ticketService.reserveSeats(seatHold.getId(), TestUtils.EMAIL);
+
+        //Sleep past the hold limit
+        Thread.sleep(2000);
+
+        assertThat(ticketService.numSeatsAvailable(Optional.of(2))).isEqualTo(78);
+        assertThat(seatHoldRepository.find(seatHold.getId()).isPresent()).isTrue();
+    }
+
+    @Test
+    public void testFindAndHoldContiguous() {
+        simpleTicketService().setAllocationMode(AllocationMode.CONTIGUOUS);
+        SeatHold seatHold1 = ticketService.findAndHoldSeats(4, Optional.of(1), Optional.empty(), TestUtils.EMAIL);
+        assertThat(isContiguous(seatHold1.getHeldSeats())).isTrue();
+
+        SeatHold seatHold2 = ticketService.findAndHoldSeats(8, Optional.of(1), Optional.empty(), TestUtils.EMAIL);
+        assertThat(isContiguous(seatHold2.getHeldSeats())).isTrue();
+        assertThat(Sets.intersection(seatHold1.getHeldSeats(), seatHold2.getHeldSeats())).isEmpty();
+
+        //No row has 8 adjacent seats left so the best available seats are held instead
+        SeatHold seatHold3 = ticketService.findAndHoldSeats(8, Optional.of(1), Optional.empty(), TestUtils.EMAIL);
+        assertThat(seatHold3.getHeldSeats()).hasSize(8);
+        assertThat(isContiguous(seatHold3.getHeldSeats())).isFalse();
+        assertThat(ticketService.numSeatsAvailable(Optional.of(1))).isEqualTo(0);
+    }
+
+    @Test
+    public void testFindAndHoldBatch() {
+        List<HoldResult> results = ticketService.findAndHoldSeats(Lists.newArrayList(
+                new HoldRequest(2, TestUtils.EMAIL),
+                new HoldRequest(4, Optional.of(2), Optional.empty(), TestUtils.EMAIL),
+                new HoldRequest(200, Optional.of(1), Optional.of(3), TestUtils.EMAIL),
+                new HoldRequest(3, Optional.of(1), Optional.of(3), "bademail"),
+                new HoldRequest(3, Optional.of(1), Optional.of(3), TestUtils.EMAIL)));
+
+        assertThat(results).hasSize(5);
+        assertThat(results.get(0).getSeatHold().get().getHeldSeats()).allMatch(s -> s.getLevel() == 1).hasSize(2);
+        assertThat(results.get(1).getSeatHold().get().getHeldSeats()).allMatch(s -> s.getLevel() == 2).hasSize(4);
+        assertThat(results.get(2).getFailure().get()).isInstanceOf(NoAvailableSeatsException.class);
+        assertThat(results.get(3).getFailure().get()).isInstanceOf(IllegalArgumentException.class);
+        //Level 1 has the best seats left for the last request
+        assertThat(results.get(4).getSeatHold().get().getHeldSeats()).allMatch(s -> s.getLevel() == 1).hasSize(3);
+
+        assertThat(ticketService.numSeatsAvailable(Optional.empty())).isEqualTo(111);
+        assertThat(ticketService.numSeatsAvailable(Optional.of(1))).isEqualTo(15);
+        results.stream().filter(HoldResult::isSuccess).forEach(r ->
+                assertThat(seatHoldRepository.find(r.getSeatHold().get().getId()).isPresent()).isTrue());
+    }
+
+    /**
+     * @return the simple ticket service serving the requests, to change its settings
+     */
+    protected SimpleTicketService simpleTicketService() {
+        return (SimpleTicketService) ticketService;
+    }
+
+    private static boolean isContiguous(Set<Seat> seats) {
+        IntSummaryStatistics numbers = seats.stream().mapToInt(Seat::getNumber).summaryStatistics();
+        return seats.stream().map(s -> s.getLevel() + "-" + s.getRow()).distinct().count() == 1
+                && numbers.getMax() - numbers.getMin() == seats.size() - 1;
+    }
 }
@@ -0,0 +1,70 @@
+package com.walmart.ticketservice.itest;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import com.walmart.ticketservice.TestUtils;
+import com.walmart.ticketservice.model.Seat;
+import com.walmart.ticketservice.model.SeatHold;
+import com.walmart.ticketservice.model.Status;
+import com.walmart.ticketservice.model.VenueConfiguration;
+import com.walmart.ticketservice.repository.InMemorySeatHoldRepository;
+import com.walmart.ticketservice.repository.InMemorySeatRepository;
+import com.walmart.ticketservice.repository.SeatRepository;
+import com.walmart.ticketservice.service.SimpleTicketService;
+import com.walmart.ticketservice.service.VenueRequestExecutor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 100,000 customers ask for a seat of a 100,000 seat venue at the same time.  They all wait in
+ * the venue's queue in front of a {@link SimpleTicketService} without a thread each, and every seat
+ * ends up in exactly one seat hold.
+ */
+public class VenueRequestExecutorITest {
+
+    private static final Logger logger = LoggerFactory.getLogger(VenueRequestExecutorITest.class);
+
+    private static final int CUSTOMERS = 100_000;
+
+    @Test
+    public void testManyWaitingCustomers() throws Exception {
+        VenueConfiguration venueConfiguration = new VenueConfiguration(600, Sets.newHashSet(TestUtils.createLevel(1, 400, 250)));
+        SeatRepository seatRepository = new InMemorySeatRepository(venueConfiguration);
+
+        try (VenueRequestExecutor venueRequestExecutor = new VenueRequestExecutor()) {
+            venueRequestExecutor.addVenue("venue", new SimpleTicketService(venueConfiguration, seatRepository,
+                    new InMemorySeatHoldRepository()), 1, CUSTOMERS);
+            int threadsBefore = Thread.activeCount();
+
+            List<CompletableFuture<SeatHold>> seatHolds = Lists.newArrayListWithCapacity(CUSTOMERS);
+            for (int i = 0; i < CUSTOMERS; i++) {
+                seatHolds.add(venueRequestExecutor.forVenue("venue")
+                        .findAndHoldSeats(1, Optional.empty(), Optional.empty(), TestUtils.EMAIL)
+                        .toCompletableFuture());
+            }
+            int threadsWhileWaiting = Thread.activeCount();
+
+            Set<Seat> held = Sets.newHashSetWithExpectedSize(CUSTOMERS);
+            for (CompletableFuture<SeatHold> seatHold : seatHolds) {
+                held.addAll(seatHold.get().getHeldSeats());
+            }
+            VenueRequestExecutor.Stats stats = venueRequestExecutor.getStats("venue");
+            logger.info("Served {} customers with {} threads: {}", CUSTOMERS, threadsWhileWaiting, stats);
+
+            assertThat(held).hasSize(CUSTOMERS);
+            assertThat(seatRepository.countAll(Status.AVAILABLE)).isEqualTo(0);
+            assertThat(stats.getCompleted()).isEqualTo(CUSTOMERS);
+            assertThat(threadsWhileWaiting - threadsBefore).isLessThanOrEqualTo(Runtime.getRuntime().availableProcessors());
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.walmart.ticketservice.itest;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.walmart.ticketservice.TestUtils;
+import com.walmart.ticketservice.model.HoldRequest;
+import com.walmart.ticketservice.model.Level;
+import com.walmart.ticketservice.model.Status;
+import com.walmart.ticketservice.model.VenueConfiguration;
+import com.walmart.ticketservice.repository.ArraySeatRepository;
+import com.walmart.ticketservice.repository.InMemorySeatHoldRepository;
+import com.walmart.ticketservice.repository.SeatHoldRepository;
+import com.walmart.ticketservice.repository.SeatRepository;
+import com.walmart.ticketservice.repository.VenueSnapshot;
+import com.walmart.ticketservice.service.SimpleTicketService;
+import com.walmart.ticketservice.service.TicketService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Saves and restores a venue of 4 levels of 100 rows with 250 seats per row, 100,000 seats in
+ * total, with a third of its seats held.
+ */
+public class VenueSnapshotITest {
+
+    private static final Logger logger = LoggerFactory.getLogger(VenueSnapshotITest.class);
+
+    @Test
+    public void testWarmRestart() throws Exception {
+        Set<Level> levels = Sets.newHashSet();
+        for (int i = 1; i <= 4; i++) {
+            levels.add(TestUtils.createLevel(i, 100, 250));
+        }
+        VenueConfiguration venueConfiguration = new VenueConfiguration(3600, levels);
+        SeatRepository seatRepository = new ArraySeatRepository(venueConfiguration);
+        SeatHoldRepository seatHoldRepository = new InMemorySeatHoldRepository();
+        TicketService ticketService = new SimpleTicketService(venueConfiguration, seatRepository, seatHoldRepository);
+        List<HoldRequest> holdRequests = Lists.newArrayList();
+        for (int i = 0; i < 8_000; i++) {
+            holdRequests.add(new HoldRequest(4, Optional.of(1), Optional.of(4), TestUtils.EMAIL));
+        }
+        ticketService.findAndHoldSeats(holdRequests);
+
+        Path file = Files.createTempFile("venue", ".snapshot");
+        try {
+            long start = System.nanoTime();
+            VenueSnapshot.of(venueConfiguration, seatRepository, seatHoldRepository).write(file);
+            long written = System.nanoTime();
+            VenueSnapshot snapshot = VenueSnapshot.read(file, venueConfiguration);
+            SeatRepository restoredSeats = snapshot.toSeatRepository();
+            SeatHoldRepository restoredHolds = snapshot.toSeatHoldRepository();
+            long restored = System.nanoTime();
+            logger.info("Wrote a {} byte snapshot of 100000 seats in {} ms and restored it in {} ms", Files.size(file),
+                    TimeUnit.NANOSECONDS.toMillis(written - start), TimeUnit.NANOSECONDS.toMillis(restored - written));
+
+            assertThat(restoredSeats.countAll(Status.HELD)).isEqualTo(32_000);
+            assertThat(restoredSeats.countAll(Status.AVAILABLE)).isEqualTo(seatRepository.countAll(Status.AVAILABLE));
+            assertThat(restoredSeats.findBest(1, 4).limit(10).toArray()).isEqualTo(seatRepository.findBest(1, 4).limit(10).toArray());
+            assertThat(restoredHolds.findAll().count()).isEqualTo(8_000);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
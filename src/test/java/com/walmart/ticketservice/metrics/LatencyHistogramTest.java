@@ -0,0 +1,81 @@
+package com.walmart.ticketservice.metrics;
+
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testEmpty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertThat(histogram.getCount()).isEqualTo(0);
+        assertThat(histogram.getMean()).isEqualTo(0);
+        assertThat(histogram.getValueAtPercentile(99)).isEqualTo(0);
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10_000; i++) {
+            histogram.record(i, TimeUnit.MICROSECONDS);
+        }
+
+        assertThat(histogram.getCount()).isEqualTo(10_000);
+        assertThat(histogram.getMax()).isEqualTo(10_000_000);
+        assertThat(histogram.getMean()).isCloseTo(5_000_500, within(0.1));
+        assertThat((double) histogram.getValueAtPercentile(50)).isCloseTo(5_000_000, within(5_000_000 * 0.04));
+        assertThat((double) histogram.getValueAtPercentile(99)).isCloseTo(9_900_000, within(9_900_000 * 0.04));
+        assertThat(histogram.getValueAtPercentile(100)).isEqualTo(10_000_000);
+        assertThat(histogram.getValueAtPercentile(0)).isBetween(1000L, 1000L + 1000 / 32);
+    }
+
+    @Test
+    public void testBuckets() {
+        //Small values are exact and every bucket is within 1/32 of its values
+        for (long value = 0; value < 100_000; value++) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertThat(LatencyHistogram.highestValueOf(bucket)).isGreaterThanOrEqualTo(value);
+            assertThat(bucket == 0 || LatencyHistogram.highestValueOf(bucket - 1) < value).isTrue();
+        }
+        assertThat(LatencyHistogram.highestValueOf(31)).isEqualTo(31);
+        assertThat(LatencyHistogram.highestValueOf(LatencyHistogram.bucketOf(Long.MAX_VALUE))).isEqualTo(Long.MAX_VALUE);
+        assertThatThrownBy(() -> new LatencyHistogram().getValueAtPercentile(101)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testNegativeValuesAreRecordedAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        assertThat(histogram.getCount()).isEqualTo(1);
+        assertThat(histogram.getSum()).isEqualTo(0);
+    }
+
+    @Test
+    public void testRecordDoesNotAllocate() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            throw new SkipException("thread allocation is not measured by this JVM");
+        }
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        long thread = Thread.currentThread().getId();
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        long before = allocations.getThreadAllocatedBytes(thread);
+        for (long i = 0; i < 1_000_000; i++) {
+            histogram.record(i * 31);
+        }
+        long allocated = allocations.getThreadAllocatedBytes(thread) - before;
+
+        assertThat(histogram.getCount()).isEqualTo(1_000_000);
+        //Only the measurement itself may allocate
+        assertThat(allocated).isLessThan(1024);
+    }
+}
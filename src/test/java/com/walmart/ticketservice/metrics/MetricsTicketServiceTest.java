@@ -0,0 +1,104 @@
+package com.walmart.ticketservice.metrics;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import com.walmart.ticketservice.TestUtils;
+import com.walmart.ticketservice.exception.NoAvailableSeatsException;
+import com.walmart.ticketservice.metrics.TicketMetrics.Operation;
+import com.walmart.ticketservice.model.HoldRequest;
+import com.walmart.ticketservice.model.HoldResult;
+import com.walmart.ticketservice.model.SeatHold;
+import com.walmart.ticketservice.repository.InMemorySeatHoldRepository;
+import com.walmart.ticketservice.repository.InMemorySeatRepository;
+import com.walmart.ticketservice.repository.SeatHoldRepository;
+import com.walmart.ticketservice.repository.SeatRepository;
+import com.walmart.ticketservice.service.SimpleTicketService;
+import com.walmart.ticketservice.service.TicketService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static com.walmart.ticketservice.TestUtils.EMAIL;
+import static com.walmart.ticketservice.TestUtils.VENUE_CONFIGURATION;
+
+public class MetricsTicketServiceTest {
+
+    private SeatRepository seatRepository;
+    private SeatHoldRepository seatHoldRepository;
+    private TicketMetrics metrics;
+    private TicketService ticketService;
+
+    @BeforeMethod
+    public void setUp() {
+        seatRepository = new InMemorySeatRepository(VENUE_CONFIGURATION);
+        seatHoldRepository = new InMemorySeatHoldRepository();
+        metrics = new TicketMetrics();
+        metrics.gaugeAvailableSeats(VENUE_CONFIGURATION, seatRepository);
+        metrics.gaugeLiveHolds(seatHoldRepository);
+        ticketService = new MetricsTicketService(new SimpleTicketService(VENUE_CONFIGURATION, seatRepository, seatHoldRepository), metrics);
+    }
+
+    @Test
+    public void testCountsAndLatencies() {
+        SeatHold seatHold = ticketService.findAndHoldSeats(4, Optional.of(1), Optional.empty(), EMAIL);
+        List<HoldResult> results = ticketService.findAndHoldSeats(Lists.newArrayList(
+                new HoldRequest(2, EMAIL), new HoldRequest(200, EMAIL)));
+        assertThatThrownBy(() -> ticketService.findAndHoldSeats(200, Optional.empty(), Optional.empty(), EMAIL))
+                .isInstanceOf(NoAvailableSeatsException.class);
+        ticketService.reserveSeats(seatHold.getId(), EMAIL);
+        ticketService.numSeatsAvailable(Optional.empty());
+
+        assertThat(results.get(0).isSuccess()).isTrue();
+        assertThat(metrics.getHoldsCreated()).isEqualTo(2);
+        assertThat(metrics.getSeatsHeld()).isEqualTo(6);
+        assertThat(metrics.getHoldsRejected()).isEqualTo(2);
+        assertThat(metrics.getHoldsReserved()).isEqualTo(1);
+        assertThat(metrics.getHoldsExpired()).isEqualTo(0);
+        assertThat(metrics.getLatency(Operation.FIND_AND_HOLD_SEATS).getCount()).isEqualTo(2);
+        assertThat(metrics.getLatency(Operation.FIND_AND_HOLD_SEATS_BATCH).getCount()).isEqualTo(1);
+        assertThat(metrics.getLatency(Operation.RESERVE_SEATS).getCount()).isEqualTo(1);
+        assertThat(metrics.getLatency(Operation.NUM_SEATS_AVAILABLE).getCount()).isEqualTo(1);
+        assertThat(metrics.getLatency(Operation.RESERVE_SEATS).getMax()).isGreaterThan(0);
+    }
+
+    @Test
+    public void testCountsExpiredSeatHolds() {
+        seatHoldRepository.save(new SeatHold(EMAIL, Sets.newHashSet(), LocalDateTime.now().minusSeconds(TestUtils.HOLD_LIMIT + 1)));
+        ticketService.numSeatsAvailable(Optional.empty());
+        assertThat(metrics.getHoldsExpired()).isEqualTo(1);
+    }
+
+    @Test
+    public void testExport() {
+        ticketService.findAndHoldSeats(4, Optional.of(1), Optional.empty(), EMAIL);
+        String exported = metrics.export();
+
+        assertThat(exported)
+                .contains("# TYPE ticketservice_holds_created_total counter\nticketservice_holds_created_total 1\n")
+                .contains("ticketservice_holds_rejected_total 0\n")
+                .contains("ticketservice_request_latency_seconds_count{operation=\"find_and_hold_seats\"} 1\n")
+                .contains("ticketservice_request_latency_seconds{operation=\"reserve_seats\",quantile=\"0.99\"} 0.0\n")
+                .contains("# TYPE ticketservice_available_seats gauge\n"
+                        + "ticketservice_available_seats{level=\"1\"} 16\n"
+                        + "ticketservice_available_seats{level=\"2\"} 80\n"
+                        + "ticketservice_available_seats{level=\"3\"} 20\n")
+                .contains("# TYPE ticketservice_live_holds gauge\nticketservice_live_holds 1\n");
+        //Every sample line is a name, optional labels and a number
+        for (String line : exported.split("\n")) {
+            assertThat(line).matches("# (HELP|TYPE) .*|[a-z_]+(\\{[^}]*\\})? [0-9.E-]+");
+        }
+    }
+
+    @Test
+    public void testBadNames() {
+        assertThatThrownBy(() -> new TicketMetrics("1abc")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> metrics.gauge("bad name", "", () -> 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
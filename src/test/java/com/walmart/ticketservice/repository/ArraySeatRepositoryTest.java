@@ -0,0 +1,391 @@
+package com.walmart.ticketservice.repository;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.walmart.ticketservice.SeatCounterAnswer;
+import com.walmart.ticketservice.TestUtils;
+import com.walmart.ticketservice.exception.SeatRepositoryException;
+import com.walmart.ticketservice.model.Level;
+import com.walmart.ticketservice.model.Seat;
+import com.walmart.ticketservice.model.Status;
+import com.walmart.ticketservice.model.VenueConfiguration;
+import com.walmart.ticketservice.utils.BasicSeatScorer;
+import com.walmart.ticketservice.utils.SeatScorer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test of a venue with configuration
+ *
+ * Level 1 has 2 rows with 4 seats per row. xxxx xxxx
+ *
+ * Level 2 has 2 rows with 6 seats per row. xxxxxx xxxxxx
+ *
+ * Level 4 has 1 row with 2 seats per row. xx
+ */
+public class ArraySeatRepositoryTest {
+
+    private SeatRepository seatRepository;
+
+    private Level level1 = TestUtils.createLevel(1, 2, 4);
+
+    private Level level2 = TestUtils.createLevel(2, 2, 6);
+
+    private Level level4 = TestUtils.createLevel(4, 1, 2);
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        VenueConfiguration venueConfiguration = new VenueConfiguration(TestUtils.HOLD_LIMIT, Sets.newHashSet(level1, level2, level4));
+        SeatScorer seatScorer = mock(SeatScorer.class);
+        when(seatScorer.computeScore(any(Seat.class))).thenAnswer(new SeatCounterAnswer());
+
+        seatRepository = new ArraySeatRepository(venueConfiguration, seatScorer);
+    }
+
+    @Test
+    public void testFindAll() {
+        List<Seat> seats = seatRepository.findAll().collect(Collectors.toList());
+        assertThat(seats).hasSize(22);
+        assertThat(Sets.newHashSet(seats)).hasSize(22);
+        assertThat(seats).contains(new Seat(1, 2, 4), new Seat(2, 1, 6), new Seat(4, 1, 2));
+    }
+
+    @Test
+    public void testFindInLevel() {
+        assertThat(seatRepository.findAll(2).count()).isEqualTo(12);
+        assertThat(seatRepository.findAll(2).allMatch(s -> s.getLevel() == 2)).isTrue();
+    }
+
+    @Test
+    public void testFindInLevelOutsideConfig() {
+        assertThat(seatRepository.findAll(3).count()).isEqualTo(0);
+        assertThat(seatRepository.findBest(100).count()).isEqualTo(0);
+    }
+
+    @Test
+    public void testFindInStatus() {
+        assertThat(seatRepository.findAll(Status.AVAILABLE).count()).isEqualTo(22);
+        assertThat(seatRepository.findAll(Status.RESERVED).count()).isEqualTo(0);
+    }
+
+    @DataProvider(name = "badLevelsDatasource")
+    public Object[][] badLevelsDatasource() {
+        return new Object[][]{
+                {1, 1},
+                {2, 1}
+        };
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, dataProvider = "badLevelsDatasource")
+    public void testBadRequestLevels(int minLevel, int maxLevel) {
+        seatRepository.findAll(minLevel, maxLevel);
+    }
+
+    @Test
+    public void testFindAllInRange() {
+        assertThat(seatRepository.findAll(1, 2).count()).isEqualTo(20);
+        assertThat(seatRepository.findAll(2, 4).count()).isEqualTo(14);
+        assertThat(seatRepository.findAll(3, 5, Status.AVAILABLE).count()).isEqualTo(2);
+    }
+
+    @Test
+    public void testFindBest() {
+        List<Seat> best = seatRepository.findBest(2).collect(Collectors.toList());
+        assertThat(best).hasSize(12);
+        assertThat(best.get(0)).isEqualTo(new Seat(2, 1, 1));
+        assertThat(best).isSortedAccordingTo((s1, s2) -> Integer.compare(s1.getScore(), s2.getScore()));
+    }
+
+    @Test
+    public void testFindBestInRange() {
+        List<Seat> best = seatRepository.findBest(1, 4).collect(Collectors.toList());
+        assertThat(best).hasSize(22);
+        assertThat(best.get(0)).isEqualTo(new Seat(1, 1, 1));
+        assertThat(best).isSortedAccordingTo((s1, s2) -> Integer.compare(s1.getScore(), s2.getScore()));
+    }
+
+    @Test
+    public void testFindTopSelectsTheSameSeatsAsFindBest() {
+        //Seats scored from the center are not in ordinal order, so the selection is exercised
+        VenueConfiguration venueConfiguration = new VenueConfiguration(TestUtils.HOLD_LIMIT, Sets.newHashSet(level1, level2, level4));
+        SeatRepository scored = new ArraySeatRepository(venueConfiguration);
+        scored.findBest(2).skip(3).limit(4).forEach(s -> {
+            s.setStatus(Status.HELD);
+            scored.save(s);
+        });
+
+        for (int limit = 0; limit <= 25; limit++) {
+            assertThat(scored.findTop(2, limit).collect(Collectors.toList()))
+                    .isEqualTo(scored.findBest(2).limit(limit).collect(Collectors.toList()));
+            assertThat(scored.findTop(1, 4, limit).collect(Collectors.toList()))
+                    .isEqualTo(scored.findBest(1, 4).limit(limit).collect(Collectors.toList()));
+        }
+        //Levels are merged in score order, ties in level, row and number order
+        Comparator<Seat> byScore = Comparator.comparingInt(Seat::getScore)
+                .thenComparingInt(Seat::getLevel)
+                .thenComparingInt(Seat::getRow)
+                .thenComparingInt(Seat::getNumber);
+        assertThat(scored.findBest(1, 4).collect(Collectors.toList()))
+                .isEqualTo(scored.findAll(1, 4, Status.AVAILABLE).sorted(byScore).collect(Collectors.toList()));
+        assertThat(scored.findTop(2, 5).count()).isEqualTo(5);
+        assertThat(scored.findTop(2, 12).count()).isEqualTo(8);
+        assertThat(scored.findTop(3, 5).count()).isEqualTo(0);
+    }
+
+    @Test
+    public void testFindBestSeesSeatsFreedBeforeEarlierSearches() {
+        List<Seat> held = seatRepository.findBest(1).limit(3).collect(Collectors.toList());
+        held.forEach(h -> h.setStatus(Status.HELD));
+        seatRepository.save(held);
+        //Moves the start of the search past the held seats
+        assertThat(seatRepository.findBest(1).findFirst().get()).isEqualTo(new Seat(1, 1, 4));
+
+        Seat freed = held.get(1);
+        freed.setStatus(Status.AVAILABLE);
+        seatRepository.save(freed);
+
+        assertThat(seatRepository.findBest(1).findFirst().get()).isEqualTo(freed);
+        assertThat(seatRepository.findBest(1, 4).limit(2).collect(Collectors.toList()))
+                .containsExactly(freed, new Seat(1, 1, 4));
+    }
+
+    @Test
+    public void testFindBestAfterScoreChange() {
+        Seat last = seatRepository.findBest(2).reduce((a, b) -> b).get();
+        seatRepository.save(new Seat(last.getLevel(), last.getRow(), last.getNumber(), -1, Status.AVAILABLE));
+
+        assertThat(seatRepository.findBest(2).findFirst().get()).isEqualTo(last);
+        assertThat(seatRepository.findBest(1, 4).findFirst().get()).isEqualTo(last);
+        assertThat(seatRepository.findBest(2).count()).isEqualTo(12);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testFindTopNegativeLimit() {
+        seatRepository.findTop(1, -1);
+    }
+
+    @Test
+    public void testFindBestSkipsHeldSeats() {
+        Seat seat = seatRepository.findBest(1).findFirst().get();
+        seat.setStatus(Status.HELD);
+        seatRepository.save(seat);
+
+        assertThat(seatRepository.findBest(1).count()).isEqualTo(7);
+        assertThat(seatRepository.findBest(1).findFirst().get()).isEqualTo(new Seat(1, 1, 2));
+    }
+
+    @Test
+    public void testFindBestContiguous() {
+        Seat seat = TestUtils.createSeat(2, 1, 3);
+        seat.setStatus(Status.HELD);
+        seatRepository.save(seat);
+
+        assertThat(seatRepository.findBestContiguous(2, 2).collect(Collectors.toList()))
+                .containsExactly(new Seat(2, 1, 1), new Seat(2, 1, 2));
+        assertThat(seatRepository.findBestContiguous(2, 3).collect(Collectors.toList()))
+                .containsExactly(new Seat(2, 1, 4), new Seat(2, 1, 5), new Seat(2, 1, 6));
+        assertThat(seatRepository.findBestContiguous(2, 7).count()).isEqualTo(0);
+        assertThat(seatRepository.findBestContiguous(3, 1).count()).isEqualTo(0);
+    }
+
+    @Test
+    public void testFindBestContiguousInRange() {
+        assertThat(seatRepository.findBestContiguous(1, 4, 3).findFirst().get()).isEqualTo(new Seat(1, 1, 1));
+
+        List<Seat> heldSeats = Lists.newArrayList(TestUtils.createSeat(1, 1, 2), TestUtils.createSeat(1, 2, 2));
+        heldSeats.forEach(s -> s.setStatus(Status.HELD));
+        seatRepository.save(heldSeats);
+
+        assertThat(seatRepository.findBestContiguous(1, 4, 3).collect(Collectors.toList()))
+                .containsExactly(new Seat(2, 1, 1), new Seat(2, 1, 2), new Seat(2, 1, 3));
+        assertThat(seatRepository.findBestContiguous(1, 4, 2).findFirst().get()).isEqualTo(new Seat(1, 1, 3));
+    }
+
+    @Test
+    public void testSave() {
+        Seat seat = TestUtils.createSeat(2, 2, 3);
+        seat.setScore(1);
+        seat.setStatus(Status.RESERVED);
+
+        seatRepository.save(seat);
+
+        Seat savedSeat = seatRepository.findAll(Status.RESERVED).findFirst().get();
+        assertThat(savedSeat).isEqualTo(seat);
+        assertThat(savedSeat.getScore()).isEqualTo(1);
+        assertThat(savedSeat.getStatus()).isEqualTo(Status.RESERVED);
+    }
+
+    @Test
+    public void testCountAllAfterSave() {
+        Seat seat = TestUtils.createSeat(2, 1, 1);
+        seat.setStatus(Status.HELD);
+        seatRepository.save(seat);
+        seatRepository.save(seat);
+
+        assertThat(seatRepository.countAll(Status.AVAILABLE)).isEqualTo(21);
+        assertThat(seatRepository.countAll(Status.HELD)).isEqualTo(1);
+        assertThat(seatRepository.countAll(2, Status.AVAILABLE)).isEqualTo(11);
+        assertThat(seatRepository.countAll(4, Status.AVAILABLE)).isEqualTo(2);
+        assertThat(seatRepository.countAll(3, Status.AVAILABLE)).isEqualTo(0);
+    }
+
+    @Test
+    public void testFindInStatusAcrossBitmapWords() {
+        VenueConfiguration venueConfiguration = new VenueConfiguration(TestUtils.HOLD_LIMIT,
+                Sets.newHashSet(TestUtils.createLevel(1, 3, 50), TestUtils.createLevel(2, 1, 70)));
+        SeatRepository repository = new ArraySeatRepository(venueConfiguration);
+        List<Seat> changed = Lists.newArrayList();
+        for (int number : new int[]{1, 14, 15, 50}) {
+            changed.add(new Seat(1, 2, number, 0, Status.HELD));
+            changed.add(new Seat(1, 3, number, 0, Status.RESERVED));
+        }
+        changed.add(new Seat(2, 1, 64, 0, Status.HELD));
+        changed.add(new Seat(2, 1, 65, 0, Status.HELD));
+        changed.add(new Seat(2, 1, 70, 0, Status.RESERVED));
+        changed.forEach(s -> s.setScore(repository.findAll(s.getLevel()).filter(s::equals).findFirst().get().getScore()));
+
+        //Saved in a single call across both levels
+        repository.save(changed);
+
+        for (Status status : Status.values()) {
+            assertThat(repository.findAll(status).collect(Collectors.toList()))
+                    .isEqualTo(repository.findAll().filter(s -> s.getStatus() == status).collect(Collectors.toList()));
+            assertThat(repository.findAll(1, 2, status).count()).isEqualTo(repository.countAll(status));
+        }
+        assertThat(repository.findAll(2, Status.HELD)).extracting(Seat::getNumber).containsExactly(64, 65);
+        assertThat(repository.findAll(Status.RESERVED)).hasSize(5);
+        assertThat(repository.countAll(1, Status.AVAILABLE)).isEqualTo(142);
+        assertThat(repository.findBest(2).map(Seat::getNumber).collect(Collectors.toList()))
+                .hasSize(67)
+                .doesNotContain(64, 65, 70);
+    }
+
+    @DataProvider(name = "badSeatsDatasource")
+    public Object[][] badSeatsDatasource() {
+        return new Object[][]{
+                {TestUtils.createSeat(100, 1, 1)},
+                {TestUtils.createSeat(1, 3, 1)},
+                {TestUtils.createSeat(1, 1, 5)},
+                {TestUtils.createSeat(1, 0, 1)}
+        };
+    }
+
+    @Test(expectedExceptions = SeatRepositoryException.class, dataProvider = "badSeatsDatasource")
+    public void testSaveBadSeat(Seat seat) {
+        seatRepository.save(seat);
+    }
+
+    @Test
+    public void testTransition() {
+        int score = seatRepository.findAll(2).filter(s -> s.equals(new Seat(2, 2, 6))).findFirst().get().getScore();
+        List<Seat> seats = Lists.newArrayList(TestUtils.createSeat(1, 1, 1), TestUtils.createSeat(2, 2, 6));
+
+        assertThat(seatRepository.transition(seats, 1, Status.AVAILABLE, Status.HELD)).isTrue();
+        assertThat(seatRepository.countAll(Status.HELD)).isEqualTo(2);
+        assertThat(seatRepository.countAll(2, Status.HELD)).isEqualTo(1);
+        assertThat(seatRepository.findBest(1)).doesNotContain(new Seat(1, 1, 1));
+        //Only the status changes
+        assertThat(seatRepository.findAll(2, Status.HELD).findFirst().get().getScore()).isEqualTo(score);
+
+        assertThat(seatRepository.transition(seats, 1, Status.HELD, Status.RESERVED)).isTrue();
+        assertThat(seatRepository.countAll(Status.RESERVED)).isEqualTo(2);
+        assertThat(seatRepository.countAll(Status.HELD)).isEqualTo(0);
+    }
+
+    @Test
+    public void testTransitionIsAllOrNothing() {
+        seatRepository.transition(Lists.newArrayList(TestUtils.createSeat(1, 1, 2)), 1, Status.AVAILABLE, Status.HELD);
+
+        assertThat(seatRepository.transition(Lists.newArrayList(TestUtils.createSeat(1, 1, 1), TestUtils.createSeat(2, 1, 1),
+                TestUtils.createSeat(1, 1, 2)), 1, Status.AVAILABLE, Status.HELD)).isFalse();
+
+        assertThat(seatRepository.findAll(Status.HELD)).containsExactly(new Seat(1, 1, 2));
+        assertThat(seatRepository.findBest(1).findFirst().get()).isEqualTo(new Seat(1, 1, 1));
+        assertThat(seatRepository.countAll(Status.AVAILABLE)).isEqualTo((int) seatRepository.findAll().count() - 1);
+    }
+
+    @Test
+    public void testThrowingActionLeavesTheSeats() {
+        OrderedSeatRepository repository = (OrderedSeatRepository) seatRepository;
+        List<Seat> seats = Lists.newArrayList(TestUtils.createSeat(1, 1, 1), TestUtils.createSeat(2, 1, 1));
+        Seat saved = TestUtils.createSeat(1, 1, 2);
+        saved.setStatus(Status.RESERVED);
+
+        assertThatThrownBy(() -> repository.transition(seats, 1, Status.AVAILABLE, Status.HELD, () -> {
+            throw new IllegalStateException();
+        })).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> repository.save(Lists.newArrayList(saved), () -> {
+            throw new IllegalStateException();
+        })).isInstanceOf(IllegalStateException.class);
+        assertThat(seatRepository.countAll(Status.AVAILABLE)).isEqualTo((int) seatRepository.findAll().count());
+
+        //The seats are free to change again
+        assertThat(seatRepository.transition(seats, 1, Status.AVAILABLE, Status.HELD)).isTrue();
+        seatRepository.save(saved);
+        assertThat(seatRepository.countAll(Status.RESERVED)).isEqualTo(1);
+    }
+
+    @Test
+    public void testTransitionChecksTheSeatHold() {
+        List<Seat> seats = Lists.newArrayList(TestUtils.createSeat(1, 1, 1), TestUtils.createSeat(2, 1, 1));
+        seatRepository.transition(seats, 1, Status.AVAILABLE, Status.HELD);
+
+        //Another seat hold can neither reserve nor free the seats
+        assertThat(seatRepository.transition(seats, 2, Status.HELD, Status.RESERVED)).isFalse();
+        assertThat(seatRepository.transition(seats, 2, Status.HELD, Status.AVAILABLE)).isFalse();
+        assertThat(seatRepository.countAll(Status.HELD)).isEqualTo(2);
+
+        //Once freed and held by another seat hold the first one cannot take them back
+        assertThat(seatRepository.transition(seats, 1, Status.HELD, Status.AVAILABLE)).isTrue();
+        assertThat(seatRepository.transition(seats, 2, Status.AVAILABLE, Status.HELD)).isTrue();
+        assertThat(seatRepository.transition(seats, 1, Status.HELD, Status.RESERVED)).isFalse();
+        assertThat(seatRepository.transition(seats, 1, Status.HELD, Status.AVAILABLE)).isFalse();
+        assertThat(seatRepository.transition(seats, 2, Status.HELD, Status.RESERVED)).isTrue();
+        assertThat(seatRepository.countAll(Status.RESERVED)).isEqualTo(2);
+
+        //Saved seats do not belong to any seat hold
+        Seat saved = TestUtils.createSeat(1, 1, 1);
+        saved.setStatus(Status.HELD);
+        seatRepository.save(saved);
+        assertThat(seatRepository.transition(seats.subList(0, 1), 2, Status.HELD, Status.AVAILABLE)).isFalse();
+        assertThat(seatRepository.transition(seats.subList(0, 1), 0, Status.HELD, Status.AVAILABLE)).isTrue();
+    }
+
+    @Test(expectedExceptions = SeatRepositoryException.class)
+    public void testTransitionBadSeat() {
+        seatRepository.transition(Lists.newArrayList(TestUtils.createSeat(1, 1, 1), TestUtils.createSeat(100, 1, 1)), 1,
+                Status.AVAILABLE, Status.HELD);
+    }
+
+    @Test
+    public void testInitInParallelWithBulkScorer() {
+        VenueConfiguration venueConfiguration = new VenueConfiguration(TestUtils.HOLD_LIMIT, Sets.newHashSet(level1, level2, level4));
+        BasicSeatScorer bulkSeatScorer = new BasicSeatScorer(venueConfiguration);
+        SeatRepository parallel = new ArraySeatRepository(venueConfiguration, bulkSeatScorer);
+        SeatRepository sequential = new ArraySeatRepository(venueConfiguration, (SeatScorer) bulkSeatScorer::computeScore);
+
+        assertThat(scored(parallel.findBest(1, 4))).isEqualTo(scored(sequential.findBest(1, 4)));
+        assertThat(parallel.countAll(Status.AVAILABLE)).isEqualTo(sequential.countAll(Status.AVAILABLE));
+        assertThat(parallel.countAll(2, Status.AVAILABLE)).isEqualTo(12);
+        assertThat(scored(parallel.findBestContiguous(2, 6))).isEqualTo(scored(sequential.findBestContiguous(2, 6)));
+    }
+
+    private List<String> scored(Stream<Seat> seats) {
+        return seats.map(s -> s.getLevel() + "-" + s.getRow() + "-" + s.getNumber() + ":" + s.getScore())
+                .collect(Collectors.toList());
+    }
+}
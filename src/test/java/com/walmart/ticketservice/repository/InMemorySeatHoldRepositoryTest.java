@@ -10,9 +10,12 @@ import java.util.Set;
 import java.util.stream.Collectors;
 
 import com.walmart.ticketservice.TestUtils;
+import com.walmart.ticketservice.model.Seat;
 import com.walmart.ticketservice.model.SeatHold;
+import com.walmart.ticketservice.model.Status;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 public class InMemorySeatHoldRepositoryTest {
 
@@ -31,6 +34,36 @@ public class InMemorySeatHoldRepositoryTest {
         assertThat(seatHoldRepository.find(1).isPresent()).isTrue();
     }
 
+    @Test
+    public void testSaveCopiesTheSeats() {
+        Seat seat = TestUtils.createSeat(1, 1, 1);
+        seat.setStatus(Status.HELD);
+        SeatHold saved = seatHoldRepository.save(new SeatHold(TestUtils.EMAIL, Sets.newHashSet(seat)));
+        seat.setStatus(Status.AVAILABLE);
+
+        Seat stored = seatHoldRepository.find(saved.getId()).get().getHeldSeats().iterator().next();
+        assertThat(stored).isEqualTo(seat).isNotSameAs(seat);
+        assertThat(stored.getStatus()).isEqualTo(Status.HELD);
+        assertThatThrownBy(() -> saved.getHeldSeats().add(TestUtils.createSeat(1, 1, 2)))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    public void testFoundSeatHoldIsACopy() {
+        Seat seat = TestUtils.createSeat(1, 1, 1);
+        seat.setStatus(Status.HELD);
+        SeatHold saved = seatHoldRepository.save(new SeatHold(TestUtils.EMAIL, Sets.newHashSet(seat)));
+        saved.getHeldSeats().iterator().next().setStatus(Status.AVAILABLE);
+        SeatHold found = seatHoldRepository.find(saved.getId()).get();
+        found.getHeldSeats().iterator().next().setStatus(Status.RESERVED);
+        seatHoldRepository.findAll(TestUtils.EMAIL).forEach(s -> s.getHeldSeats().forEach(b -> b.setScore(-1)));
+
+        SeatHold stored = seatHoldRepository.find(saved.getId()).get();
+        assertThat(stored).isNotSameAs(saved).isNotSameAs(found);
+        assertThat(stored.getHeldSeats().iterator().next().getStatus()).isEqualTo(Status.HELD);
+        assertThat(stored.getHeldSeats().iterator().next().getScore()).isEqualTo(seat.getScore());
+    }
+
     @Test
     public void testUpdate() {
         SeatHold seatHold = new SeatHold(1, TestUtils.EMAIL, Sets.newHashSet(TestUtils.createSeat(1, 1, 1)));
@@ -42,6 +75,44 @@ public class InMemorySeatHoldRepositoryTest {
         assertThat(saved.getConfirmationCode().get()).isEqualTo("test");
     }
 
+    @Test
+    public void testSaveAssignsId() {
+        SeatHold saved1 = seatHoldRepository.save(new SeatHold(TestUtils.EMAIL, Sets.newHashSet(TestUtils.createSeat(1, 1, 1))));
+        SeatHold saved2 = seatHoldRepository.save(new SeatHold(TestUtils.EMAIL, Sets.newHashSet(TestUtils.createSeat(1, 1, 2))));
+
+        assertThat(saved1.getId()).isEqualTo(1);
+        assertThat(saved2.getId()).isEqualTo(2);
+        assertThat(seatHoldRepository.find(2).get().getHeldSeats()).isEqualTo(saved2.getHeldSeats());
+    }
+
+    @Test
+    public void testSaveAssignsIdAfterExplicitId() {
+        seatHoldRepository.save(new SeatHold(10, TestUtils.EMAIL, Sets.newHashSet(TestUtils.createSeat(1, 1, 1))));
+        SeatHold saved = seatHoldRepository.save(new SeatHold(TestUtils.EMAIL, Sets.newHashSet(TestUtils.createSeat(1, 1, 2))));
+
+        assertThat(saved.getId()).isEqualTo(11);
+    }
+
+    @Test
+    public void testFindAllByCustomer() {
+        seatHoldRepository.save(new SeatHold(1, TestUtils.EMAIL, Sets.newHashSet(TestUtils.createSeat(1, 1, 1))));
+        seatHoldRepository.save(new SeatHold(2, "other@test.com", Sets.newHashSet(TestUtils.createSeat(1, 1, 2))));
+        seatHoldRepository.save(new SeatHold(3, TestUtils.EMAIL, Sets.newHashSet(TestUtils.createSeat(1, 1, 3))));
+
+        assertThat(seatHoldRepository.findAll(TestUtils.EMAIL).map(SeatHold::getId).collect(Collectors.toSet()))
+                .containsOnly(1, 3);
+        assertThat(seatHoldRepository.findAll("nobody@test.com").count()).isEqualTo(0);
+    }
+
+    @Test
+    public void testFindAllByCustomerAfterDelete() {
+        SeatHold seatHold = new SeatHold(1, TestUtils.EMAIL, Sets.newHashSet(TestUtils.createSeat(1, 1, 1)));
+        seatHoldRepository.save(seatHold);
+        seatHoldRepository.delete(seatHold);
+
+        assertThat(seatHoldRepository.findAll(TestUtils.EMAIL).count()).isEqualTo(0);
+    }
+
     @Test
     public void testFindNotFound() {
         assertThat(seatHoldRepository.find(1).isPresent()).isFalse();
@@ -60,6 +131,48 @@ public class InMemorySeatHoldRepositoryTest {
         assertThat(expiredSeatHolds.stream().findFirst().get()).isEqualTo(seatHold2);
     }
 
+    @Test
+    public void testFindAllExpiredOrderedByHoldTime() {
+        SeatHold seatHold1 = new SeatHold(1, TestUtils.EMAIL, Sets.newHashSet(TestUtils.createSeat(1, 1, 1)),
+                LocalDateTime.now().minusSeconds(10));
+        SeatHold seatHold2 = new SeatHold(2, TestUtils.EMAIL, Sets.newHashSet(TestUtils.createSeat(2, 1, 1)),
+                LocalDateTime.now().minusSeconds(20));
+        seatHoldRepository.save(seatHold1);
+        seatHoldRepository.save(seatHold2);
+
+        assertThat(seatHoldRepository.findAllExpired(5).collect(Collectors.toList())).containsExactly(seatHold2, seatHold1);
+        assertThat(seatHoldRepository.findAllExpired(15).collect(Collectors.toList())).containsExactly(seatHold2);
+    }
+
+    @Test
+    public void testConfirmedNeverExpires() {
+        SeatHold seatHold = new SeatHold(1, TestUtils.EMAIL, Sets.newHashSet(TestUtils.createSeat(1, 1, 1)),
+                LocalDateTime.now().minusSeconds(10));
+        seatHoldRepository.save(seatHold);
+        seatHoldRepository.save(new SeatHold(1, TestUtils.EMAIL, seatHold.getHeldSeats(), "test", seatHold.getHoldTime()));
+
+        assertThat(seatHoldRepository.findAllExpired(5).count()).isEqualTo(0);
+    }
+
+    @Test
+    public void testUpdatedHoldTime() {
+        SeatHold seatHold = new SeatHold(1, TestUtils.EMAIL, Sets.newHashSet(TestUtils.createSeat(1, 1, 1)),
+                LocalDateTime.now().minusSeconds(10));
+        seatHoldRepository.save(seatHold);
+        seatHoldRepository.save(new SeatHold(1, TestUtils.EMAIL, seatHold.getHeldSeats()));
+
+        assertThat(seatHoldRepository.findAllExpired(5).count()).isEqualTo(0);
+    }
+
+    @Test
+    public void testDeletedNeverExpires() {
+        SeatHold seatHold = new SeatHold(1, TestUtils.EMAIL, Sets.newHashSet(TestUtils.createSeat(1, 1, 1)),
+                LocalDateTime.now().minusSeconds(10));
+        seatHoldRepository.save(seatHold);
+        seatHoldRepository.delete(seatHold);
+
+        assertThat(seatHoldRepository.findAllExpired(5).count()).isEqualTo(0);
+    }
 
     @Test
     public void testDelete() {
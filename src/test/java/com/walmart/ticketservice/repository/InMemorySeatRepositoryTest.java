@@ -1,7 +1,15 @@
 package com.walmart.ticketservice.repository;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
@@ -13,9 +21,11 @@ import com.walmart.ticketservice.model.Level;
 import com.walmart.ticketservice.model.Seat;
 import com.walmart.ticketservice.model.Status;
 import com.walmart.ticketservice.model.VenueConfiguration;
+import com.walmart.ticketservice.utils.BasicSeatScorer;
 import com.walmart.ticketservice.utils.SeatScorer;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -111,6 +121,121 @@ public class InMemorySeatRepositoryTest {
         assertThat(actualSeat).isEqualTo(expectedSeat);
     }
 
+    @Test
+    public void testFindBestIsOrdered() {
+        List<Seat> best = seatRepository.findBest(2).collect(Collectors.toList());
+        assertThat(best).hasSize(12);
+        assertThat(best).isSortedAccordingTo((s1, s2) -> Integer.compare(s1.getScore(), s2.getScore()));
+    }
+
+    @Test
+    public void testFindBestInRangeIsOrdered() {
+        List<Seat> best = seatRepository.findBest(1, 2).collect(Collectors.toList());
+        assertThat(best).hasSize(20);
+        assertThat(best).isSortedAccordingTo((s1, s2) -> Integer.compare(s1.getScore(), s2.getScore()));
+    }
+
+    @Test
+    public void testFindTop() {
+        seatRepository.findBest(1).limit(1).forEach(s -> {
+            s.setStatus(Status.HELD);
+            seatRepository.save(s);
+        });
+
+        assertThat(seatRepository.findTop(1, 3).collect(Collectors.toList()))
+                .isEqualTo(seatRepository.findBest(1).limit(3).collect(Collectors.toList()));
+        assertThat(seatRepository.findTop(1, 2, 30).collect(Collectors.toList()))
+                .isEqualTo(seatRepository.findBest(1, 2).collect(Collectors.toList()));
+        assertThat(seatRepository.findTop(1, 0).count()).isEqualTo(0);
+    }
+
+    @Test
+    public void testFindBestSkipsHeldSeats() {
+        Seat heldSeat = seatRepository.findBest(1).findFirst().get();
+        heldSeat.setStatus(Status.HELD);
+        seatRepository.save(heldSeat);
+
+        assertThat(seatRepository.findBest(1).count()).isEqualTo(7);
+        assertThat(seatRepository.findBest(1).findFirst().get()).isEqualTo(new Seat(1, 1, 2));
+        assertThat(seatRepository.findBest(1, 2).findFirst().get()).isEqualTo(new Seat(1, 1, 2));
+    }
+
+    @Test
+    public void testFindBestAfterFree() {
+        Seat seat = seatRepository.findBest(1).findFirst().get();
+        seat.setStatus(Status.HELD);
+        seatRepository.save(seat);
+        seat.setStatus(Status.AVAILABLE);
+        seatRepository.save(seat);
+
+        assertThat(seatRepository.findBest(1).count()).isEqualTo(8);
+        assertThat(seatRepository.findBest(1).findFirst().get()).isEqualTo(new Seat(1, 1, 1));
+    }
+
+    @Test
+    public void testFindBestOutsideConfig() {
+        assertThat(seatRepository.findBest(100).count()).isEqualTo(0);
+    }
+
+    @Test
+    public void testFindBestContiguous() {
+        List<Seat> block = seatRepository.findBestContiguous(1, 3).collect(Collectors.toList());
+        assertThat(block).containsExactly(new Seat(1, 1, 1), new Seat(1, 1, 2), new Seat(1, 1, 3));
+        assertThat(block).allMatch(s -> s.getStatus() == Status.AVAILABLE);
+    }
+
+    @Test
+    public void testFindBestContiguousSkipsHeldSeats() {
+        Seat seat = TestUtils.createSeat(1, 1, 2);
+        seat.setStatus(Status.HELD);
+        seatRepository.save(seat);
+
+        assertThat(seatRepository.findBestContiguous(1, 2).collect(Collectors.toList()))
+                .containsExactly(new Seat(1, 1, 3), new Seat(1, 1, 4));
+        assertThat(seatRepository.findBestContiguous(1, 3).collect(Collectors.toList()))
+                .containsExactly(new Seat(1, 2, 1), new Seat(1, 2, 2), new Seat(1, 2, 3));
+
+        seat.setStatus(Status.AVAILABLE);
+        seatRepository.save(seat);
+        assertThat(seatRepository.findBestContiguous(1, 4).findFirst().get()).isEqualTo(new Seat(1, 1, 1));
+    }
+
+    @Test
+    public void testFindBestContiguousInRange() {
+        //Only level 2 has rows long enough
+        assertThat(seatRepository.findBestContiguous(1, 2, 5).collect(Collectors.toList()))
+                .containsExactly(new Seat(2, 1, 1), new Seat(2, 1, 2), new Seat(2, 1, 3), new Seat(2, 1, 4), new Seat(2, 1, 5));
+        assertThat(seatRepository.findBestContiguous(1, 2, 7).count()).isEqualTo(0);
+    }
+
+    @Test
+    public void testFindBestContiguousOutsideConfig() {
+        assertThat(seatRepository.findBestContiguous(100, 2).count()).isEqualTo(0);
+    }
+
+    @Test
+    public void testCountAll() {
+        assertThat(seatRepository.countAll(Status.AVAILABLE)).isEqualTo(20);
+        assertThat(seatRepository.countAll(Status.HELD)).isEqualTo(0);
+        assertThat(seatRepository.countAll(2, Status.AVAILABLE)).isEqualTo(12);
+        assertThat(seatRepository.countAll(100, Status.AVAILABLE)).isEqualTo(0);
+    }
+
+    @Test
+    public void testCountAllAfterSave() {
+        Seat seat = TestUtils.createSeat(2, 1, 1);
+        seat.setStatus(Status.HELD);
+        seatRepository.save(seat);
+        //Saving the same status twice must not count the seat twice
+        seatRepository.save(seat);
+
+        assertThat(seatRepository.countAll(Status.AVAILABLE)).isEqualTo(19);
+        assertThat(seatRepository.countAll(Status.HELD)).isEqualTo(1);
+        assertThat(seatRepository.countAll(2, Status.AVAILABLE)).isEqualTo(11);
+        assertThat(seatRepository.countAll(2, Status.HELD)).isEqualTo(1);
+        assertThat(seatRepository.countAll(1, Status.HELD)).isEqualTo(0);
+    }
+
     @Test
     public void testSave() {
         Seat seat = TestUtils.createSeat(1, 1, 1);
@@ -133,4 +258,159 @@ public class InMemorySeatRepositoryTest {
         seatRepository.save(seat);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testTransition() {
+        int score = seatRepository.findAll(2).filter(s -> s.equals(new Seat(2, 2, 6))).findFirst().get().getScore();
+        List<Seat> seats = Lists.newArrayList(TestUtils.createSeat(1, 1, 1), TestUtils.createSeat(2, 2, 6));
+
+        assertThat(seatRepository.transition(seats, 1, Status.AVAILABLE, Status.HELD)).isTrue();
+        assertThat(seatRepository.countAll(Status.HELD)).isEqualTo(2);
+        assertThat(seatRepository.countAll(2, Status.HELD)).isEqualTo(1);
+        assertThat(seatRepository.findBest(1)).doesNotContain(new Seat(1, 1, 1));
+        //Only the status changes
+        assertThat(seatRepository.findAll(2, Status.HELD).findFirst().get().getScore()).isEqualTo(score);
+
+        assertThat(seatRepository.transition(seats, 1, Status.HELD, Status.RESERVED)).isTrue();
+        assertThat(seatRepository.countAll(Status.RESERVED)).isEqualTo(2);
+        assertThat(seatRepository.countAll(Status.HELD)).isEqualTo(0);
+    }
+
+    @Test
+    public void testTransitionIsAllOrNothing() {
+        seatRepository.transition(Lists.newArrayList(TestUtils.createSeat(1, 1, 2)), 1, Status.AVAILABLE, Status.HELD);
+
+        assertThat(seatRepository.transition(Lists.newArrayList(TestUtils.createSeat(1, 1, 1), TestUtils.createSeat(2, 1, 1),
+                TestUtils.createSeat(1, 1, 2)), 1, Status.AVAILABLE, Status.HELD)).isFalse();
+
+        assertThat(seatRepository.findAll(Status.HELD)).containsExactly(new Seat(1, 1, 2));
+        assertThat(seatRepository.findBest(1).findFirst().get()).isEqualTo(new Seat(1, 1, 1));
+        assertThat(seatRepository.countAll(Status.AVAILABLE)).isEqualTo((int) seatRepository.findAll().count() - 1);
+    }
+
+    @Test
+    public void testFailedTransitionNeverMovesSeats() throws Exception {
+        seatRepository.transition(Lists.newArrayList(TestUtils.createSeat(1, 1, 2)), 1, Status.AVAILABLE, Status.HELD);
+        List<Seat> blocked = Lists.newArrayList(TestUtils.createSeat(1, 1, 1), TestUtils.createSeat(1, 1, 2));
+        List<Seat> seat = Lists.newArrayList(TestUtils.createSeat(1, 1, 1));
+
+        //A transition that fails on its second seat must not take the first one even for a moment
+        SeatRepository repository = seatRepository;
+        CompletableFuture<Boolean> failing = CompletableFuture.supplyAsync(() -> {
+            boolean moved = false;
+            for (int i = 0; i < 20_000; i++) {
+                moved |= repository.transition(blocked, 1, Status.AVAILABLE, Status.HELD);
+            }
+            return moved;
+        });
+        for (int i = 0; i < 20_000; i++) {
+            assertThat(seatRepository.transition(seat, 1, Status.AVAILABLE, Status.RESERVED)).isTrue();
+            assertThat(seatRepository.transition(seat, 1, Status.RESERVED, Status.AVAILABLE)).isTrue();
+        }
+
+        assertThat(failing.get()).isFalse();
+        assertThat(seatRepository.findAll(Status.HELD)).containsExactly(new Seat(1, 1, 2));
+    }
+
+    @Test
+    public void testThrowingActionLeavesTheSeats() {
+        OrderedSeatRepository repository = (OrderedSeatRepository) seatRepository;
+        List<Seat> seats = Lists.newArrayList(TestUtils.createSeat(1, 1, 1), TestUtils.createSeat(2, 1, 1));
+        Seat saved = TestUtils.createSeat(1, 1, 2);
+        saved.setStatus(Status.RESERVED);
+
+        assertThatThrownBy(() -> repository.transition(seats, 1, Status.AVAILABLE, Status.HELD, () -> {
+            throw new IllegalStateException();
+        })).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> repository.save(Lists.newArrayList(saved), () -> {
+            throw new IllegalStateException();
+        })).isInstanceOf(IllegalStateException.class);
+        assertThat(seatRepository.countAll(Status.AVAILABLE)).isEqualTo((int) seatRepository.findAll().count());
+
+        //The seats are free to change again
+        assertThat(seatRepository.transition(seats, 1, Status.AVAILABLE, Status.HELD)).isTrue();
+        seatRepository.save(saved);
+        assertThat(seatRepository.countAll(Status.RESERVED)).isEqualTo(1);
+    }
+
+    @Test
+    public void testTransitionChecksTheSeatHold() {
+        List<Seat> seats = Lists.newArrayList(TestUtils.createSeat(1, 1, 1), TestUtils.createSeat(2, 1, 1));
+        seatRepository.transition(seats, 1, Status.AVAILABLE, Status.HELD);
+
+        //Another seat hold can neither reserve nor free the seats
+        assertThat(seatRepository.transition(seats, 2, Status.HELD, Status.RESERVED)).isFalse();
+        assertThat(seatRepository.transition(seats, 2, Status.HELD, Status.AVAILABLE)).isFalse();
+        assertThat(seatRepository.countAll(Status.HELD)).isEqualTo(2);
+
+        //Once freed and held by another seat hold the first one cannot take them back
+        assertThat(seatRepository.transition(seats, 1, Status.HELD, Status.AVAILABLE)).isTrue();
+        assertThat(seatRepository.transition(seats, 2, Status.AVAILABLE, Status.HELD)).isTrue();
+        assertThat(seatRepository.transition(seats, 1, Status.HELD, Status.RESERVED)).isFalse();
+        assertThat(seatRepository.transition(seats, 1, Status.HELD, Status.AVAILABLE)).isFalse();
+        assertThat(seatRepository.transition(seats, 2, Status.HELD, Status.RESERVED)).isTrue();
+        assertThat(seatRepository.countAll(Status.RESERVED)).isEqualTo(2);
+
+        //Saved seats do not belong to any seat hold
+        Seat saved = TestUtils.createSeat(1, 1, 1);
+        saved.setStatus(Status.HELD);
+        seatRepository.save(saved);
+        assertThat(seatRepository.transition(seats.subList(0, 1), 2, Status.HELD, Status.AVAILABLE)).isFalse();
+        assertThat(seatRepository.transition(seats.subList(0, 1), 0, Status.HELD, Status.AVAILABLE)).isTrue();
+    }
+
+    @Test
+    public void testConcurrentTransitionsNeverShareASeat() {
+        //Overlapping pairs of seats are held and freed by many seat holds at once
+        List<Seat> seats = Stream.of(1, 2, 3, 4).map(number -> TestUtils.createSeat(1, 1, number))
+                .collect(Collectors.toList());
+        AtomicIntegerArray holders = new AtomicIntegerArray(seats.size());
+        AtomicInteger overlaps = new AtomicInteger();
+        AtomicInteger lostSeats = new AtomicInteger();
+        AtomicInteger seatHoldIds = new AtomicInteger();
+
+        CompletableFuture.allOf(Stream.generate(() -> CompletableFuture.runAsync(() -> {
+            for (int i = 0; i < 500; i++) {
+                int first = i % (seats.size() - 1);
+                List<Seat> pair = seats.subList(first, first + 2);
+                int seatHoldId = seatHoldIds.incrementAndGet();
+                if (seatRepository.transition(pair, seatHoldId, Status.AVAILABLE, Status.HELD)) {
+                    if (holders.incrementAndGet(first) > 1 | holders.incrementAndGet(first + 1) > 1) {
+                        overlaps.incrementAndGet();
+                    }
+                    holders.decrementAndGet(first);
+                    holders.decrementAndGet(first + 1);
+                    if (!seatRepository.transition(pair, seatHoldId, Status.HELD, Status.AVAILABLE)) {
+                        lostSeats.incrementAndGet();
+                    }
+                }
+            }
+        })).limit(8).toArray(CompletableFuture[]::new)).join();
+
+        assertThat(overlaps.get()).isZero();
+        assertThat(lostSeats.get()).isZero();
+        assertThat(seatRepository.countAll(Status.HELD)).isZero();
+    }
+
+    @Test(expectedExceptions = SeatRepositoryException.class)
+    public void testTransitionBadSeat() {
+        seatRepository.transition(Lists.newArrayList(TestUtils.createSeat(1, 1, 1), TestUtils.createSeat(100, 1, 1)), 1,
+                Status.AVAILABLE, Status.HELD);
+    }
+
+    @Test
+    public void testInitInParallelWithBulkScorer() {
+        BasicSeatScorer bulkSeatScorer = new BasicSeatScorer(venueConfiguration);
+        SeatRepository parallel = new InMemorySeatRepository(venueConfiguration, bulkSeatScorer);
+        SeatRepository sequential = new InMemorySeatRepository(venueConfiguration, (SeatScorer) bulkSeatScorer::computeScore);
+
+        assertThat(scored(parallel.findBest(1, 2))).isEqualTo(scored(sequential.findBest(1, 2)));
+        assertThat(parallel.countAll(Status.AVAILABLE)).isEqualTo(sequential.countAll(Status.AVAILABLE));
+        assertThat(parallel.countAll(2, Status.AVAILABLE)).isEqualTo(12);
+        assertThat(scored(parallel.findBestContiguous(2, 6))).isEqualTo(scored(sequential.findBestContiguous(2, 6)));
+    }
+
+    private List<String> scored(Stream<Seat> seats) {
+        return seats.map(s -> s.getLevel() + "-" + s.getRow() + "-" + s.getNumber() + ":" + s.getScore())
+                .collect(Collectors.toList());
+    }
+}
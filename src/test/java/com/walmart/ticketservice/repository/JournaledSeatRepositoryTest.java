@@ -0,0 +1,267 @@
+package com.walmart.ticketservice.repository;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.walmart.ticketservice.TestUtils;
+import com.walmart.ticketservice.exception.SeatRepositoryException;
+import com.walmart.ticketservice.model.Level;
+import com.walmart.ticketservice.model.Seat;
+import com.walmart.ticketservice.model.Status;
+import com.walmart.ticketservice.model.VenueConfiguration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test of a venue with configuration
+ *
+ * Level 1 has 2 rows with 4 seats per row. xxxx xxxx
+ *
+ * Level 2 has 2 rows with 6 seats per row. xxxxxx xxxxxx
+ */
+public class JournaledSeatRepositoryTest {
+
+    private Level level1 = TestUtils.createLevel(1, 2, 4);
+
+    private Level level2 = TestUtils.createLevel(2, 2, 6);
+
+    private VenueConfiguration venueConfiguration;
+    private Path directory;
+    private Path logFile;
+    private JournaledSeatRepository seatRepository;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        venueConfiguration = new VenueConfiguration(TestUtils.HOLD_LIMIT, Sets.newHashSet(level1, level2));
+        directory = Files.createTempDirectory("seats");
+        logFile = directory.resolve("seats.log");
+        seatRepository = new JournaledSeatRepository(venueConfiguration, logFile);
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        seatRepository.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testReplay() throws Exception {
+        List<Seat> seats = Lists.newArrayList(seat(1, 1, 1, Status.HELD), seat(2, 2, 6, Status.HELD));
+        seatRepository.save(seats);
+        seatRepository.save(seat(1, 1, 1, Status.RESERVED));
+        seatRepository.save(seat(2, 2, 6, Status.AVAILABLE));
+
+        reopen();
+
+        assertThat(seatRepository.countAll(Status.RESERVED)).isEqualTo(1);
+        assertThat(seatRepository.countAll(Status.HELD)).isEqualTo(0);
+        assertThat(seatRepository.countAll(Status.AVAILABLE)).isEqualTo(19);
+        assertThat(seatRepository.findAll(Status.RESERVED).findFirst().get()).isEqualTo(new Seat(1, 1, 1));
+    }
+
+    @Test
+    public void testReplayKeepsScores() throws Exception {
+        Seat seat = seat(2, 1, 3, Status.HELD);
+        seat.setScore(-5);
+        seatRepository.save(seat);
+
+        reopen();
+
+        assertThat(seatRepository.findAll(Status.HELD).findFirst().get().getScore()).isEqualTo(-5);
+    }
+
+    @Test
+    public void testReplayIntoArraySeatRepository() throws Exception {
+        seatRepository.save(seat(2, 1, 1, Status.HELD));
+        seatRepository.close();
+
+        seatRepository = new JournaledSeatRepository(new ArraySeatRepository(venueConfiguration), logFile, 1);
+
+        assertThat(seatRepository.countAll(2, Status.HELD)).isEqualTo(1);
+        assertThat(seatRepository.findBest(2).findFirst().get()).isNotEqualTo(new Seat(2, 1, 1));
+    }
+
+    @Test
+    public void testRejectedSaveIsNotLogged() throws Exception {
+        seatRepository.save(seat(1, 1, 1, Status.HELD));
+        long size = Files.size(logFile);
+
+        assertThatThrownBy(() -> seatRepository.save(Lists.newArrayList(seat(1, 1, 2, Status.HELD), seat(100, 1, 1, Status.HELD))))
+                .isInstanceOf(SeatRepositoryException.class);
+        assertThat(Files.size(logFile)).isEqualTo(size);
+
+        reopen();
+
+        assertThat(seatRepository.countAll(Status.HELD)).isEqualTo(1);
+    }
+
+    @Test
+    public void testTransitionIsReplayed() throws Exception {
+        Seat seat = seat(2, 1, 3, Status.AVAILABLE);
+        int score = seatRepository.findAll(2).filter(seat::equals).findFirst().get().getScore();
+        seat.setScore(score + 100);
+
+        assertThat(seatRepository.transition(Lists.newArrayList(seat, seat(1, 2, 4, Status.AVAILABLE)), 1, Status.AVAILABLE, Status.HELD)).isTrue();
+        seatRepository.transition(Lists.newArrayList(seat), 1, Status.HELD, Status.RESERVED);
+
+        reopen();
+
+        assertThat(seatRepository.countAll(Status.HELD)).isEqualTo(1);
+        assertThat(seatRepository.findAll(Status.RESERVED)).containsExactly(new Seat(2, 1, 3));
+        //The score of the seat passed in is not applied, by the transition or its replay
+        assertThat(seatRepository.findAll(Status.RESERVED).findFirst().get().getScore()).isEqualTo(score);
+    }
+
+    @Test
+    public void testTransitionKeepsTheSeatHoldOnReplay() throws Exception {
+        List<Seat> seats = Lists.newArrayList(seat(1, 1, 1, Status.AVAILABLE), seat(2, 1, 1, Status.AVAILABLE));
+        seatRepository.transition(seats, 7, Status.AVAILABLE, Status.HELD);
+
+        reopen();
+
+        assertThat(seatRepository.transition(seats, 8, Status.HELD, Status.RESERVED)).isFalse();
+        assertThat(seatRepository.transition(seats, 7, Status.HELD, Status.RESERVED)).isTrue();
+    }
+
+    @Test
+    public void testFailedTransitionIsNotLogged() throws Exception {
+        seatRepository.save(seat(1, 1, 1, Status.HELD));
+        long size = Files.size(logFile);
+
+        assertThat(seatRepository.transition(Lists.newArrayList(seat(1, 1, 2, Status.AVAILABLE), seat(1, 1, 1, Status.AVAILABLE)), 1,
+                Status.AVAILABLE, Status.HELD)).isFalse();
+        assertThatThrownBy(() -> seatRepository.transition(Lists.newArrayList(seat(100, 1, 1, Status.AVAILABLE)), 1, Status.AVAILABLE, Status.HELD))
+                .isInstanceOf(SeatRepositoryException.class);
+        assertThat(Files.size(logFile)).isEqualTo(size);
+
+        reopen();
+
+        assertThat(seatRepository.countAll(Status.HELD)).isEqualTo(1);
+    }
+
+    @Test
+    public void testConcurrentTransitionsAreLoggedInOrder() throws Exception {
+        //Overlapping pairs of seats are held and freed by many seat holds at once, each keeping its last hold
+        List<Seat> seats = Stream.of(1, 2, 3, 4).map(number -> seat(1, 1, number, Status.AVAILABLE))
+                .collect(Collectors.toList());
+        AtomicInteger seatHoldIds = new AtomicInteger();
+        CompletableFuture.allOf(Stream.generate(() -> CompletableFuture.runAsync(() -> {
+            for (int i = 0; i < 200; i++) {
+                int first = i % (seats.size() - 1);
+                List<Seat> pair = seats.subList(first, first + 2);
+                int seatHoldId = seatHoldIds.incrementAndGet();
+                if (seatRepository.transition(pair, seatHoldId, Status.AVAILABLE, Status.HELD) && i < 199) {
+                    seatRepository.transition(pair, seatHoldId, Status.HELD, Status.AVAILABLE);
+                }
+            }
+        })).limit(8).toArray(CompletableFuture[]::new)).join();
+        List<Seat> held = seatRepository.findAll(Status.HELD).collect(Collectors.toList());
+
+        reopen();
+
+        assertThat(seatRepository.findAll(Status.HELD).collect(Collectors.toList())).containsOnlyElementsOf(held)
+                .hasSameSizeAs(held);
+    }
+
+    @Test
+    public void testCheckpointCompactsTheLog() throws Exception {
+        seatRepository.close();
+        seatRepository = new JournaledSeatRepository(new InMemorySeatRepository(venueConfiguration), logFile, 4, 5);
+        Seat saved = seat(2, 2, 2, Status.AVAILABLE);
+        saved.setScore(-5);
+        seatRepository.save(saved);
+        seatRepository.save(seat(2, 2, 3, Status.RESERVED));
+        List<Seat> held = Lists.newArrayList(seat(1, 1, 1, Status.AVAILABLE), seat(2, 2, 2, Status.AVAILABLE));
+        List<Seat> freed = Lists.newArrayList(seat(1, 2, 1, Status.AVAILABLE));
+        for (int i = 0; i < 20; i++) {
+            seatRepository.transition(freed, 3, Status.AVAILABLE, Status.HELD);
+            seatRepository.transition(freed, 3, Status.HELD, Status.AVAILABLE);
+        }
+        seatRepository.transition(held, 7, Status.AVAILABLE, Status.HELD);
+        seatRepository.transition(Lists.newArrayList(seat(1, 1, 4, Status.AVAILABLE)), 8, Status.AVAILABLE, Status.HELD);
+        seatRepository.transition(Lists.newArrayList(seat(1, 1, 4, Status.AVAILABLE)), 8, Status.HELD, Status.RESERVED);
+
+        //Closing waits for the checkpoint being written, which deletes the segments it covers
+        seatRepository.close();
+        assertThat(Files.exists(seatRepository.checkpointFile())).isTrue();
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.filter(f -> !f.equals(logFile) && !f.equals(seatRepository.checkpointFile())).count()).isEqualTo(0);
+        }
+        assertThat(Files.size(seatRepository.checkpointFile())).isLessThan(1000);
+
+        seatRepository = new JournaledSeatRepository(venueConfiguration, logFile);
+
+        assertThat(seatRepository.findAll(Status.RESERVED)).containsOnly(new Seat(2, 2, 3), new Seat(1, 1, 4));
+        assertThat(seatRepository.findAll(Status.HELD)).containsOnly(new Seat(1, 1, 1), new Seat(2, 2, 2));
+        assertThat(seatRepository.findAll(2).filter(saved::equals).findFirst().get().getScore()).isEqualTo(-5);
+        assertThat(seatRepository.transition(held, 8, Status.HELD, Status.RESERVED)).isFalse();
+        assertThat(seatRepository.transition(held, 7, Status.HELD, Status.RESERVED)).isTrue();
+        assertThat(seatRepository.transition(Lists.newArrayList(seat(1, 1, 4, Status.RESERVED)), 8, Status.RESERVED, Status.AVAILABLE))
+                .isTrue();
+    }
+
+    @Test
+    public void testChangesAfterACheckpointAreReplayed() throws Exception {
+        seatRepository.close();
+        seatRepository = new JournaledSeatRepository(new InMemorySeatRepository(venueConfiguration), logFile, 4, 3);
+        for (int i = 1; i <= 4; i++) {
+            seatRepository.transition(Lists.newArrayList(seat(1, 1, i, Status.AVAILABLE)), i, Status.AVAILABLE, Status.HELD);
+        }
+        seatRepository.transition(Lists.newArrayList(seat(1, 1, 1, Status.AVAILABLE)), 1, Status.HELD, Status.AVAILABLE);
+        seatRepository.sync();
+
+        reopen();
+
+        assertThat(seatRepository.findAll(Status.HELD)).containsOnly(new Seat(1, 1, 2), new Seat(1, 1, 3), new Seat(1, 1, 4));
+    }
+
+    @Test
+    public void testIncompleteRecordIsDiscarded() throws Exception {
+        seatRepository.save(seat(1, 1, 1, Status.HELD));
+        long size = Files.size(logFile);
+        seatRepository.save(Lists.newArrayList(seat(1, 1, 2, Status.HELD), seat(1, 1, 3, Status.HELD)));
+        seatRepository.close();
+
+        //Cut the second record short as if the process died while writing it
+        try (RandomAccessFile file = new RandomAccessFile(logFile.toFile(), "rw")) {
+            file.setLength(Files.size(logFile) - 3);
+        }
+        seatRepository = new JournaledSeatRepository(venueConfiguration, logFile);
+
+        assertThat(seatRepository.countAll(Status.HELD)).isEqualTo(1);
+        assertThat(Files.size(logFile)).isEqualTo(size);
+
+        seatRepository.save(seat(1, 2, 1, Status.HELD));
+        reopen();
+        assertThat(seatRepository.countAll(Status.HELD)).isEqualTo(2);
+    }
+
+    private void reopen() throws IOException {
+        seatRepository.close();
+        seatRepository = new JournaledSeatRepository(venueConfiguration, logFile);
+    }
+
+    private static Seat seat(int level, int row, int number, Status status) {
+        Seat seat = TestUtils.createSeat(level, row, number);
+        seat.setStatus(status);
+        return seat;
+    }
+}
@@ -0,0 +1,179 @@
+package com.walmart.ticketservice.repository;
+
+import com.google.common.collect.Sets;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.walmart.ticketservice.TestUtils;
+import com.walmart.ticketservice.model.Seat;
+import com.walmart.ticketservice.model.SeatHold;
+import com.walmart.ticketservice.model.Status;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MappedSeatHoldRepositoryTest {
+
+    private Path directory;
+    private MappedSeatHoldRepository seatHoldRepository;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("seatholds");
+        seatHoldRepository = new MappedSeatHoldRepository(directory, 4, 1000);
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        seatHoldRepository.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testRecoverHoldsReservationsAndDeletes() throws Exception {
+        Seat seat = new Seat(1, 2, 3, 42, Status.HELD);
+        SeatHold held = seatHoldRepository.save(new SeatHold(TestUtils.EMAIL, Sets.newHashSet(seat)));
+        SeatHold reserved = seatHoldRepository.save(new SeatHold(TestUtils.EMAIL, Sets.newHashSet(TestUtils.createSeat(1, 1, 1))));
+        seatHoldRepository.save(new SeatHold(reserved.getId(), TestUtils.EMAIL, reserved.getHeldSeats(), "code", reserved.getHoldTime()));
+        SeatHold deleted = seatHoldRepository.save(new SeatHold("other@test.com", Sets.newHashSet(TestUtils.createSeat(1, 1, 2))));
+        seatHoldRepository.delete(deleted);
+
+        reopen();
+
+        SeatHold recovered = seatHoldRepository.find(held.getId()).get();
+        assertThat(recovered.getCustomerEmail()).isEqualTo(TestUtils.EMAIL);
+        assertThat(recovered.getHoldTime()).isEqualTo(held.getHoldTime());
+        assertThat(recovered.getConfirmationCode().isPresent()).isFalse();
+        Seat recoveredSeat = recovered.getHeldSeats().iterator().next();
+        assertThat(recoveredSeat).isEqualTo(seat);
+        assertThat(recoveredSeat.getScore()).isEqualTo(42);
+        assertThat(recoveredSeat.getStatus()).isEqualTo(Status.HELD);
+
+        assertThat(seatHoldRepository.find(reserved.getId()).get().getConfirmationCode().get()).isEqualTo("code");
+        assertThat(seatHoldRepository.find(deleted.getId()).isPresent()).isFalse();
+        assertThat(seatHoldRepository.findAll("other@test.com").count()).isEqualTo(0);
+        assertThat(seatHoldRepository.findAll().count()).isEqualTo(2);
+    }
+
+    @Test
+    public void testRecoveredIdsAreNotReused() throws Exception {
+        seatHoldRepository.save(new SeatHold(TestUtils.EMAIL, Sets.newHashSet(TestUtils.createSeat(1, 1, 1))));
+        SeatHold last = seatHoldRepository.save(new SeatHold(TestUtils.EMAIL, Sets.newHashSet(TestUtils.createSeat(1, 1, 2))));
+
+        reopen();
+
+        SeatHold next = seatHoldRepository.save(new SeatHold(TestUtils.EMAIL, Sets.newHashSet(TestUtils.createSeat(1, 1, 3))));
+        assertThat(next.getId()).isEqualTo(last.getId() + 1);
+    }
+
+    @Test
+    public void testRecoveredHoldsExpire() throws Exception {
+        SeatHold expired = seatHoldRepository.save(new SeatHold(TestUtils.EMAIL, Sets.newHashSet(TestUtils.createSeat(1, 1, 1)),
+                LocalDateTime.now().minusSeconds(10)));
+        seatHoldRepository.save(new SeatHold(TestUtils.EMAIL, Sets.newHashSet(TestUtils.createSeat(1, 1, 2))));
+
+        reopen();
+
+        assertThat(seatHoldRepository.findAllExpired(5).collect(Collectors.toList())).containsExactly(expired);
+    }
+
+    @Test
+    public void testRecoverFromSnapshotAndLog() throws Exception {
+        SeatHold beforeSnapshot = seatHoldRepository.save(new SeatHold(TestUtils.EMAIL, Sets.newHashSet(TestUtils.createSeat(1, 1, 1))));
+        SeatHold deletedAfterSnapshot = seatHoldRepository.save(new SeatHold(TestUtils.EMAIL, Sets.newHashSet(TestUtils.createSeat(1, 1, 2))));
+        seatHoldRepository.snapshot();
+        SeatHold afterSnapshot = seatHoldRepository.save(new SeatHold(TestUtils.EMAIL, Sets.newHashSet(TestUtils.createSeat(1, 1, 3))));
+        seatHoldRepository.delete(deletedAfterSnapshot);
+
+        reopen();
+
+        assertThat(seatHoldRepository.findAll().collect(Collectors.toList()))
+                .containsOnly(beforeSnapshot, afterSnapshot);
+    }
+
+    @Test
+    public void testSnapshotsArePeriodic() throws Exception {
+        seatHoldRepository.close();
+        seatHoldRepository = new MappedSeatHoldRepository(directory, 4, 10);
+        for (int i = 1; i <= 25; i++) {
+            seatHoldRepository.save(new SeatHold(TestUtils.EMAIL, Sets.newHashSet(TestUtils.createSeat(1, 1, i))));
+        }
+        //Closing waits for the snapshot being written, which deletes the segments it covers
+        seatHoldRepository.close();
+        assertThat(Files.exists(directory.resolve(MappedSeatHoldRepository.SNAPSHOT_FILE))).isTrue();
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.filter(f -> f.toString().endsWith(".log")).count()).isEqualTo(1);
+        }
+
+        seatHoldRepository = new MappedSeatHoldRepository(directory, 4, 1000);
+
+        assertThat(seatHoldRepository.findAll().count()).isEqualTo(25);
+    }
+
+    @Test
+    public void testChangesAfterASnapshotStartsAreKept() throws Exception {
+        seatHoldRepository.close();
+        seatHoldRepository = new MappedSeatHoldRepository(directory, 4, 1);
+        SeatHold deleted = seatHoldRepository.save(new SeatHold(TestUtils.EMAIL, Sets.newHashSet(TestUtils.createSeat(1, 1, 1))));
+        SeatHold kept = seatHoldRepository.save(new SeatHold(TestUtils.EMAIL, Sets.newHashSet(TestUtils.createSeat(1, 1, 2))));
+        seatHoldRepository.delete(deleted);
+        SeatHold reserved = seatHoldRepository.save(new SeatHold(kept.getId(), TestUtils.EMAIL, kept.getHeldSeats(), "code", kept.getHoldTime()));
+
+        reopen();
+
+        assertThat(seatHoldRepository.findAll().collect(Collectors.toList())).containsExactly(reserved);
+        assertThat(seatHoldRepository.find(kept.getId()).get().getConfirmationCode()).contains("code");
+    }
+
+    @Test
+    public void testLogGrows() throws Exception {
+        int holds = 20_000;
+        for (int i = 1; i <= holds; i++) {
+            seatHoldRepository.save(new SeatHold(TestUtils.EMAIL, Sets.newHashSet(TestUtils.createSeat(1, 1, i))));
+        }
+
+        reopen();
+
+        assertThat(seatHoldRepository.findAll().count()).isEqualTo(holds);
+        assertThat(seatHoldRepository.find(holds).get().getHeldSeats()).containsExactly(TestUtils.createSeat(1, 1, holds));
+    }
+
+    @Test
+    public void testTornRecordIsIgnored() throws Exception {
+        SeatHold seatHold = seatHoldRepository.save(new SeatHold(TestUtils.EMAIL, Sets.newHashSet(TestUtils.createSeat(1, 1, 1))));
+        seatHoldRepository.save(new SeatHold(TestUtils.EMAIL, Sets.newHashSet(TestUtils.createSeat(1, 1, 2))));
+        seatHoldRepository.close();
+
+        //Corrupt the payload of the second record as if the process died while writing it
+        long secondRecord = 9 + SeatHoldCodec.encode(seatHold).length;
+        try (RandomAccessFile file = new RandomAccessFile(seatHoldRepository.segmentFile(0).toFile(), "rw")) {
+            file.seek(secondRecord + 20);
+            file.write(0xff);
+        }
+        seatHoldRepository = new MappedSeatHoldRepository(directory, 4, 1000);
+
+        assertThat(seatHoldRepository.findAll().collect(Collectors.toList())).containsExactly(seatHold);
+
+        //New records replace the torn one
+        SeatHold next = seatHoldRepository.save(new SeatHold(TestUtils.EMAIL, Sets.newHashSet(TestUtils.createSeat(1, 1, 3))));
+        reopen();
+        assertThat(seatHoldRepository.findAll().collect(Collectors.toList())).containsOnly(seatHold, next);
+    }
+
+    private void reopen() throws IOException {
+        seatHoldRepository.close();
+        seatHoldRepository = new MappedSeatHoldRepository(directory, 4, 1000);
+    }
+}
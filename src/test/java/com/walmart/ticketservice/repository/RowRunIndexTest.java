@@ -0,0 +1,82 @@
+package com.walmart.ticketservice.repository;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test of a level with 3 rows of 6 seats where row 2 has the best seats, then row 3 and then row 1.
+ */
+public class RowRunIndexTest {
+
+    private RowRunIndex rowRunIndex;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        rowRunIndex = new RowRunIndex(new int[]{5, 1, 3}, 6);
+    }
+
+    @Test
+    public void testFindBestInBestRow() {
+        assertThat(rowRunIndex.findBest(3)).isEqualTo(block(2, 1));
+        assertThat(rowRunIndex.findBest(6)).isEqualTo(block(2, 1));
+    }
+
+    @Test
+    public void testFindBestAfterSeatIsTaken() {
+        rowRunIndex.set(2, 3, false);
+
+        assertThat(rowRunIndex.findBest(2)).isEqualTo(block(2, 1));
+        assertThat(rowRunIndex.findBest(3)).isEqualTo(block(2, 4));
+        assertThat(rowRunIndex.findBest(4)).isEqualTo(block(3, 1));
+    }
+
+    @Test
+    public void testFindBestAfterSeatIsFreed() {
+        rowRunIndex.set(2, 3, false);
+        rowRunIndex.set(2, 3, true);
+
+        assertThat(rowRunIndex.findBest(6)).isEqualTo(block(2, 1));
+    }
+
+    @Test
+    public void testFindBestAcrossSegments() {
+        RowRunIndex index = new RowRunIndex(new int[]{1}, 8);
+        index.set(1, 1, false);
+        index.set(1, 2, false);
+        index.set(1, 3, false);
+        index.set(1, 8, false);
+
+        assertThat(index.findBest(4)).isEqualTo(block(1, 4));
+        assertThat(index.findBest(5)).isEqualTo(-1L);
+    }
+
+    @Test
+    public void testFindBestWithRowsThatAreNotAPowerOfTwo() {
+        RowRunIndex index = new RowRunIndex(new int[]{1, 2, 3}, 5);
+
+        assertThat(index.findBest(5)).isEqualTo(block(1, 1));
+        assertThat(index.findBest(6)).isEqualTo(-1L);
+    }
+
+    @Test
+    public void testFindBestWhenNoRowFits() {
+        for (int row = 1; row <= 3; row++) {
+            rowRunIndex.set(row, 4, false);
+        }
+
+        assertThat(rowRunIndex.findBest(3)).isEqualTo(block(2, 1));
+        assertThat(rowRunIndex.findBest(4)).isEqualTo(-1L);
+        assertThat(rowRunIndex.findBest(7)).isEqualTo(-1L);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testFindBestWithNoSeats() {
+        rowRunIndex.findBest(0);
+    }
+
+    private static long block(int row, int number) {
+        return (long) row << 32 | number;
+    }
+}
@@ -0,0 +1,205 @@
+package com.walmart.ticketservice.repository;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.walmart.ticketservice.SeatCounterAnswer;
+import com.walmart.ticketservice.TestUtils;
+import com.walmart.ticketservice.model.Level;
+import com.walmart.ticketservice.model.Seat;
+import com.walmart.ticketservice.model.SeatHold;
+import com.walmart.ticketservice.model.Status;
+import com.walmart.ticketservice.model.VenueConfiguration;
+import com.walmart.ticketservice.utils.SeatScorer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test of a venue with configuration
+ *
+ * Level 1 has 2 rows with 4 seats per row. xxxx xxxx
+ *
+ * Level 2 has 2 rows with 6 seats per row. xxxxxx xxxxxx
+ */
+public class VenueSnapshotTest {
+
+    private Level level1 = TestUtils.createLevel(1, 2, 4);
+
+    private Level level2 = TestUtils.createLevel(2, 2, 6);
+
+    private VenueConfiguration venueConfiguration;
+    private SeatScorer seatScorer;
+    private SeatHoldRepository seatHoldRepository;
+    private Path file;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        venueConfiguration = new VenueConfiguration(TestUtils.HOLD_LIMIT, Sets.newHashSet(level1, level2));
+        seatScorer = mock(SeatScorer.class);
+        when(seatScorer.computeScore(any(Seat.class))).thenAnswer(new SeatCounterAnswer());
+        seatHoldRepository = new InMemorySeatHoldRepository();
+        file = Files.createTempFile("venue", ".snapshot");
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testRestoreFromArraySeatRepository() {
+        assertRestores(new ArraySeatRepository(venueConfiguration, seatScorer));
+    }
+
+    @Test
+    public void testRestoreFromInMemorySeatRepository() {
+        assertRestores(new InMemorySeatRepository(venueConfiguration, seatScorer));
+    }
+
+    @Test
+    public void testRestoreReconcilesSeatsAndSeatHolds() {
+        SeatRepository seatRepository = new ArraySeatRepository(venueConfiguration, seatScorer);
+        Seat kept = seat(1, 1, 1, Status.HELD);
+        Seat unowned = seat(1, 1, 2, Status.HELD);
+        Seat partlyFreed = seat(2, 1, 1, Status.HELD);
+        Seat reserved = seat(1, 2, 1, Status.RESERVED);
+        seatRepository.save(Lists.newArrayList(kept, unowned, partlyFreed, reserved));
+        SeatHold live = seatHoldRepository.save(new SeatHold(TestUtils.EMAIL, Sets.newHashSet(kept)));
+        //One of its seats was freed as it expired while the snapshot was taken
+        SeatHold expiring = seatHoldRepository.save(new SeatHold(TestUtils.EMAIL,
+                Sets.newHashSet(partlyFreed, seat(2, 1, 2, Status.HELD))));
+        SeatHold confirmed = seatHoldRepository.save(new SeatHold(0, TestUtils.EMAIL, Sets.newHashSet(reserved), "code",
+                LocalDateTime.now()));
+
+        VenueSnapshot.of(venueConfiguration, seatRepository, seatHoldRepository).write(file);
+        VenueSnapshot snapshot = VenueSnapshot.read(file, venueConfiguration);
+        SeatRepository restored = snapshot.toSeatRepository();
+
+        assertThat(snapshot.getSeatHolds().stream().map(SeatHold::getId).collect(Collectors.toList()))
+                .containsOnly(live.getId(), confirmed.getId())
+                .doesNotContain(expiring.getId());
+        assertThat(restored.findAll(Status.HELD).collect(Collectors.toList())).containsOnly(kept);
+        assertThat(restored.findAll(Status.RESERVED).collect(Collectors.toList())).containsOnly(reserved);
+        assertThat(restored.transition(Lists.newArrayList(kept), live.getId(), Status.HELD, Status.RESERVED)).isTrue();
+    }
+
+    @Test
+    public void testRestoreIntoDifferentVenue() {
+        VenueSnapshot.of(venueConfiguration, new ArraySeatRepository(venueConfiguration, seatScorer), seatHoldRepository).write(file);
+        VenueConfiguration other = new VenueConfiguration(TestUtils.HOLD_LIMIT, Sets.newHashSet(level1, TestUtils.createLevel(2, 3, 6)));
+
+        assertThatThrownBy(() -> VenueSnapshot.read(file, other))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testRestoreCorruptSnapshot() throws Exception {
+        VenueSnapshot.of(venueConfiguration, new ArraySeatRepository(venueConfiguration, seatScorer), seatHoldRepository).write(file);
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(raf.length() - 1);
+            raf.write(0x7f);
+        }
+
+        assertThatThrownBy(() -> VenueSnapshot.read(file, venueConfiguration))
+                .isInstanceOf(UncheckedIOException.class)
+                .hasRootCauseInstanceOf(IOException.class);
+    }
+
+    @DataProvider(name = "corruptHeaders")
+    public Object[][] corruptHeaders() {
+        //Header: magic, version, level count, 3 ints per level, seat count, hold count and checksum
+        return new Object[][]{
+                {8, Integer.MAX_VALUE},
+                {8, -1},
+                {36, -20},
+                {36, Integer.MAX_VALUE},
+                {40, 1000},
+                {40, -1}
+        };
+    }
+
+    @Test(dataProvider = "corruptHeaders")
+    public void testRestoreCorruptHeader(int offset, int value) throws Exception {
+        seatHoldRepository.save(new SeatHold(TestUtils.EMAIL, Sets.newHashSet(seat(1, 1, 1, Status.HELD))));
+        VenueSnapshot.of(venueConfiguration, new ArraySeatRepository(venueConfiguration, seatScorer), seatHoldRepository).write(file);
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(offset);
+            raf.writeInt(value);
+        }
+
+        Throwable thrown = catchThrowable(() -> VenueSnapshot.read(file, venueConfiguration));
+        assertThat(thrown).isInstanceOf(UncheckedIOException.class);
+        assertThat(thrown.getCause()).isInstanceOf(IOException.class).hasMessage("Corrupt venue snapshot");
+    }
+
+    @Test
+    public void testRestoreTruncatedSnapshot() throws Exception {
+        VenueSnapshot.of(venueConfiguration, new ArraySeatRepository(venueConfiguration, seatScorer), seatHoldRepository).write(file);
+        //Cut inside the body, the counts, the levels and the version, shortest last
+        for (int length : new int[]{60, 44, 30, 14}) {
+            try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+                raf.setLength(length);
+            }
+
+            assertThatThrownBy(() -> VenueSnapshot.read(file, venueConfiguration))
+                    .isInstanceOf(UncheckedIOException.class)
+                    .hasRootCauseInstanceOf(IOException.class);
+        }
+    }
+
+    private void assertRestores(SeatRepository seatRepository) {
+        List<Seat> held = Lists.newArrayList(seat(1, 1, 2, Status.HELD), seat(2, 2, 6, Status.HELD));
+        seatRepository.save(held);
+        seatRepository.save(seat(2, 1, 1, Status.RESERVED));
+        SeatHold seatHold = seatHoldRepository.save(new SeatHold(TestUtils.EMAIL, Sets.newHashSet(held)));
+
+        VenueSnapshot.of(venueConfiguration, seatRepository, seatHoldRepository).write(file);
+        VenueSnapshot snapshot = VenueSnapshot.read(file, venueConfiguration);
+        SeatRepository restored = snapshot.toSeatRepository();
+        SeatHoldRepository restoredHolds = snapshot.toSeatHoldRepository();
+
+        assertThat(snapshot.getSeatCount()).isEqualTo(20);
+        assertThat(restored.countAll(Status.HELD)).isEqualTo(2);
+        assertThat(restored.countAll(2, Status.RESERVED)).isEqualTo(1);
+        assertThat(restored.countAll(Status.AVAILABLE)).isEqualTo(17);
+        assertThat(restored.findAll(Status.HELD).collect(Collectors.toSet())).containsOnly(held.toArray(new Seat[0]));
+        assertThat(restored.findAll().collect(Collectors.toMap(s -> s, Seat::getScore)))
+                .isEqualTo(seatRepository.findAll().collect(Collectors.toMap(s -> s, Seat::getScore)));
+        assertThat(restored.findBest(1).collect(Collectors.toList()))
+                .isEqualTo(seatRepository.findBest(1).collect(Collectors.toList()));
+        assertThat(restored.findBestContiguous(1, 3).collect(Collectors.toList()))
+                .containsExactly(new Seat(1, 2, 1), new Seat(1, 2, 2), new Seat(1, 2, 3));
+
+        SeatHold restoredHold = restoredHolds.find(seatHold.getId()).get();
+        assertThat(restoredHold.getHeldSeats()).isEqualTo(seatHold.getHeldSeats());
+        assertThat(restoredHold.getHoldTime()).isEqualTo(seatHold.getHoldTime());
+        //The held seats belong to the restored seat hold
+        assertThat(restored.transition(held, seatHold.getId() + 1, Status.HELD, Status.RESERVED)).isFalse();
+        assertThat(restored.transition(held, seatHold.getId(), Status.HELD, Status.RESERVED)).isTrue();
+    }
+
+    private static Seat seat(int level, int row, int number, Status status) {
+        Seat seat = TestUtils.createSeat(level, row, number);
+        seat.setStatus(status);
+        return seat;
+    }
+}
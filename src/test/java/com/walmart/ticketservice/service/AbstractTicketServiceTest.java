@@ -1,16 +1,27 @@
 package com.walmart.ticketservice.service;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import java.util.List;
 import java.util.Optional;
 
+import com.walmart.ticketservice.model.HoldRequest;
+import com.walmart.ticketservice.model.HoldResult;
 import com.walmart.ticketservice.model.SeatHold;
 import com.walmart.ticketservice.model.VenueConfiguration;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static com.walmart.ticketservice.TestUtils.VENUE_CONFIGURATION;
 
 
@@ -47,6 +58,22 @@ public class AbstractTicketServiceTest {
         assertThat(testTicketService.calledDoNumberSeatsAvailable).isFalse();
     }
 
+    @Test
+    public void testNumSeatsAvailableWithBackgroundExpiry() {
+        testTicketService.setBackgroundExpiry(true);
+        testTicketService.numSeatsAvailable(Optional.empty());
+        assertThat(testTicketService.calledCleanUp).isFalse();
+        assertThat(testTicketService.calledFreeUp).isFalse();
+        assertThat(testTicketService.calledDoNumberSeatsAvailable).isTrue();
+    }
+
+    @Test
+    public void testExpireSeatHolds() {
+        testTicketService.setBackgroundExpiry(true);
+        testTicketService.expireSeatHolds();
+        alwaysAssert();
+    }
+
     @Test
     public void testFindAndHoldSeats() throws Exception {
         testTicketService.findAndHoldSeats(1, null, null, "test@test.com");
@@ -54,6 +81,59 @@ public class AbstractTicketServiceTest {
         assertThat(testTicketService.calledDoFindAndHoldSeats).isTrue();
     }
 
+    @Test
+    public void testFindAndHoldSeatsBatch() {
+        List<HoldResult> results = testTicketService.findAndHoldSeats(Lists.newArrayList(
+                new HoldRequest(1, "test@test.com"),
+                new HoldRequest(0, "test@test.com"),
+                new HoldRequest(2, Optional.of(1), null, "other@test.com")));
+
+        assertThat(results).hasSize(3);
+        assertThat(results.get(0).getSeatHold().get().getCustomerEmail()).isEqualTo("test@test.com");
+        assertThat(results.get(1).isSuccess()).isFalse();
+        assertThat(results.get(1).getFailure().get())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("numSeats must be greater than 0");
+        assertThat(results.get(2).getSeatHold().get().getCustomerEmail()).isEqualTo("other@test.com");
+        assertThat(results.get(2).getHoldRequest().getMaxLevel()).isEqualTo(Optional.empty());
+        //Expired seat holds are cleaned up once for the whole batch
+        assertThat(testTicketService.cleanUpCount).isEqualTo(1);
+        assertThat(testTicketService.findAndHoldCount).isEqualTo(2);
+    }
+
+    @Test
+    public void testListeners() {
+        TicketServiceListener listener = mock(TicketServiceListener.class);
+        testTicketService.addListener(listener);
+        testTicketService.addListener(listener);
+
+        SeatHold seatHold = testTicketService.findAndHoldSeats(1, null, null, "test@test.com");
+        testTicketService.findAndHoldSeats(Lists.newArrayList(new HoldRequest(1, "test@test.com"), new HoldRequest(0, "test@test.com")));
+        testTicketService.reserveSeats(seatHold.getId(), "test@test.com");
+
+        verify(listener).onHold(seatHold);
+        verify(listener, times(2)).onHold(any());
+        verify(listener).onReserve(seatHold.getId(), null);
+        verifyNoMoreInteractions(listener);
+
+        assertThat(testTicketService.removeListener(listener)).isTrue();
+        assertThat(testTicketService.removeListener(listener)).isFalse();
+        testTicketService.findAndHoldSeats(1, null, null, "test@test.com");
+        verifyNoMoreInteractions(listener);
+    }
+
+    @Test
+    public void testFindAndHoldSeatsBatchAllInvalid() {
+        List<HoldResult> results = testTicketService.findAndHoldSeats(Lists.newArrayList(
+                new HoldRequest(1, "bademail"), null));
+
+        assertThat(results).hasSize(2);
+        assertThat(results.stream().noneMatch(HoldResult::isSuccess)).isTrue();
+        assertThat(results.get(1).getFailure().get()).isInstanceOf(NullPointerException.class);
+        assertThat(testTicketService.calledCleanUp).isFalse();
+        assertThat(testTicketService.calledDoFindAndHoldSeats).isFalse();
+    }
+
     @DataProvider(name = "findAndHoldDatasource")
     public Object[][] findAndHoldDatasource() {
         return new Object[][]{
@@ -107,6 +187,8 @@ public class AbstractTicketServiceTest {
         private boolean calledDoNumberSeatsAvailable = false;
         private boolean calledDoFindAndHoldSeats = false;
         private boolean calledDoReserveSeats = false;
+        private int cleanUpCount = 0;
+        private int findAndHoldCount = 0;
 
         public TestTicketService(VenueConfiguration venueConfiguration) {
             super(venueConfiguration);
@@ -115,6 +197,7 @@ public class AbstractTicketServiceTest {
         @Override
         protected Iterable<SeatHold> cleanUpExpiredSeatHolds() {
             calledCleanUp = true;
+            cleanUpCount++;
             return null;
         }
 
@@ -132,7 +215,8 @@ public class AbstractTicketServiceTest {
         @Override
         protected SeatHold doFindAndHoldSeats(int numSeats, Optional<Integer> minLevel, Optional<Integer> maxLevel, String customerEmail) {
             calledDoFindAndHoldSeats = true;
-            return null;
+            findAndHoldCount++;
+            return new SeatHold(findAndHoldCount, customerEmail, Sets.newHashSet());
         }
 
         @Override
@@ -0,0 +1,174 @@
+package com.walmart.ticketservice.service;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.walmart.ticketservice.TestUtils;
+import com.walmart.ticketservice.exception.NoAvailableSeatsException;
+import com.walmart.ticketservice.model.Seat;
+import com.walmart.ticketservice.model.SeatHold;
+import com.walmart.ticketservice.model.Status;
+import com.walmart.ticketservice.model.VenueConfiguration;
+import com.walmart.ticketservice.repository.InMemorySeatHoldRepository;
+import com.walmart.ticketservice.repository.InMemorySeatRepository;
+import com.walmart.ticketservice.repository.SeatRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class EventLoopTicketServiceTest {
+
+    private VenueConfiguration venueConfiguration = new VenueConfiguration(1, Sets.newHashSet(TestUtils.createLevel(1, 10, 10)));
+    private SeatRepository seatRepository;
+    private SimpleTicketService simpleTicketService;
+    private EventLoopTicketService ticketService;
+
+    @BeforeMethod
+    public void setUp() {
+        seatRepository = new InMemorySeatRepository(venueConfiguration);
+        simpleTicketService = new SimpleTicketService(venueConfiguration, seatRepository, new InMemorySeatHoldRepository());
+        ticketService = new EventLoopTicketService(simpleTicketService, 16, 100, TimeUnit.MILLISECONDS);
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        ticketService.close();
+    }
+
+    @Test
+    public void testAsyncRequests() throws Exception {
+        SeatHold seatHold = ticketService.findAndHoldSeatsAsync(4, Optional.empty(), Optional.empty(), TestUtils.EMAIL).get();
+        String confirmationCode = ticketService.reserveSeatsAsync(seatHold.getId(), TestUtils.EMAIL).get();
+
+        assertThat(confirmationCode).isNotEmpty();
+        assertThat(ticketService.numSeatsAvailableAsync(Optional.empty()).get()).isEqualTo(96);
+        assertThat(seatRepository.countAll(Status.RESERVED)).isEqualTo(4);
+    }
+
+    @Test
+    public void testAsyncView() throws Exception {
+        AsyncTicketService asyncTicketService = ticketService.async();
+        SeatHold seatHold = asyncTicketService.findAndHoldSeats(4, Optional.empty(), Optional.empty(), TestUtils.EMAIL)
+                .toCompletableFuture().get();
+
+        assertThat(asyncTicketService.reserveSeats(seatHold.getId(), TestUtils.EMAIL).toCompletableFuture().get()).isNotEmpty();
+        assertThat(asyncTicketService.numSeatsAvailable(Optional.empty()).toCompletableFuture().get()).isEqualTo(96);
+    }
+
+    @Test
+    public void testFailuresCompleteTheFuture() {
+        CompletableFuture<SeatHold> tooMany = ticketService.findAndHoldSeatsAsync(101, Optional.empty(), Optional.empty(), TestUtils.EMAIL);
+        assertThatThrownBy(tooMany::get)
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(NoAvailableSeatsException.class);
+
+        //The blocking methods throw what the ticket service threw
+        assertThatThrownBy(() -> ticketService.findAndHoldSeats(0, Optional.empty(), Optional.empty(), TestUtils.EMAIL))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("numSeats must be greater than 0");
+    }
+
+    @Test
+    public void testFullRingRejectsAsyncRequests() throws Exception {
+        //Keep the owner thread busy so the requests pile up on the ring
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        SimpleTicketService blocking = new SimpleTicketService(venueConfiguration, seatRepository, new InMemorySeatHoldRepository()) {
+            @Override
+            protected String doReserveSeats(int seatHoldId, String customerEmail) {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "released";
+            }
+        };
+        try (EventLoopTicketService blockedTicketService = new EventLoopTicketService(blocking, 16, 1, TimeUnit.HOURS)) {
+            CompletableFuture<String> reservation = blockedTicketService.reserveSeatsAsync(1, TestUtils.EMAIL);
+            blocked.await();
+
+            List<CompletableFuture<Integer>> requests = Lists.newArrayList();
+            for (int i = 0; i < 17; i++) {
+                requests.add(blockedTicketService.numSeatsAvailableAsync(Optional.empty()));
+            }
+            assertThat(blockedTicketService.getPendingRequests()).isEqualTo(16);
+            release.countDown();
+
+            assertThat(reservation.get()).isEqualTo("released");
+            assertThatThrownBy(() -> requests.get(16).get()).hasCauseInstanceOf(RejectedExecutionException.class);
+            for (int i = 0; i < 16; i++) {
+                assertThat(requests.get(i).get()).isEqualTo(100);
+            }
+        }
+    }
+
+    @Test
+    public void testExpiresOnOwnerThread() throws Exception {
+        ticketService.findAndHoldSeats(5, Optional.empty(), Optional.empty(), TestUtils.EMAIL);
+        assertThat(seatRepository.countAll(Status.HELD)).isEqualTo(5);
+
+        Thread.sleep(1500);
+
+        //No request was made so only the owner thread could have freed the seats
+        assertThat(seatRepository.countAll(Status.HELD)).isEqualTo(0);
+    }
+
+    @Test
+    public void testNoSeatIsHeldTwice() throws Exception {
+        List<CompletableFuture<SeatHold>> seatHolds = Lists.newArrayList();
+        List<Thread> threads = Lists.newArrayList();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 25; i++) {
+                    CompletableFuture<SeatHold> seatHold = null;
+                    while (seatHold == null || seatHold.isCompletedExceptionally()) {
+                        seatHold = ticketService.findAndHoldSeatsAsync(1, Optional.empty(), Optional.empty(), TestUtils.EMAIL);
+                    }
+                    synchronized (seatHolds) {
+                        seatHolds.add(seatHold);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        List<Seat> held = Lists.newArrayList();
+        for (CompletableFuture<SeatHold> seatHold : seatHolds) {
+            held.addAll(seatHold.get().getHeldSeats());
+        }
+        assertThat(held).hasSize(100);
+        assertThat(Sets.newHashSet(held)).hasSize(100);
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        CompletableFuture<SeatHold> pending = ticketService.findAndHoldSeatsAsync(1, Optional.empty(), Optional.empty(), TestUtils.EMAIL);
+        ticketService.close();
+
+        //Requests on the ring are served before the owner thread stops
+        assertThat(ticketService.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(pending.isDone()).isTrue();
+        assertThat(pending.get().getHeldSeats()).hasSize(1);
+        assertThatThrownBy(() -> ticketService.numSeatsAvailable(Optional.empty()))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("the ticket service is closed");
+    }
+}
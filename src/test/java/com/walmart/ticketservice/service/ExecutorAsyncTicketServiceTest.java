@@ -0,0 +1,146 @@
+package com.walmart.ticketservice.service;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.walmart.ticketservice.TestUtils;
+import com.walmart.ticketservice.exception.NoAvailableSeatsException;
+import com.walmart.ticketservice.model.HoldRequest;
+import com.walmart.ticketservice.model.HoldResult;
+import com.walmart.ticketservice.model.SeatHold;
+import com.walmart.ticketservice.model.VenueConfiguration;
+import com.walmart.ticketservice.repository.InMemorySeatHoldRepository;
+import com.walmart.ticketservice.repository.InMemorySeatRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ExecutorAsyncTicketServiceTest {
+
+    private VenueConfiguration venueConfiguration = new VenueConfiguration(TestUtils.HOLD_LIMIT, Sets.newHashSet(TestUtils.createLevel(1, 10, 10)));
+    private ExecutorAsyncTicketService asyncTicketService;
+
+    @BeforeMethod
+    public void setUp() {
+        TicketService ticketService = new ConcurrentTicketService(venueConfiguration,
+                new InMemorySeatRepository(venueConfiguration), new InMemorySeatHoldRepository());
+        asyncTicketService = new ExecutorAsyncTicketService(ticketService, 4, 100);
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        asyncTicketService.close();
+    }
+
+    @Test
+    public void testRequests() throws Exception {
+        SeatHold seatHold = asyncTicketService.findAndHoldSeats(4, Optional.empty(), Optional.empty(), TestUtils.EMAIL)
+                .toCompletableFuture().get();
+        String confirmationCode = asyncTicketService.reserveSeats(seatHold.getId(), TestUtils.EMAIL)
+                .toCompletableFuture().get();
+        List<HoldResult> results = asyncTicketService.findAndHoldSeats(Lists.newArrayList(new HoldRequest(2, TestUtils.EMAIL)))
+                .toCompletableFuture().get();
+
+        assertThat(confirmationCode).isNotEmpty();
+        assertThat(results.get(0).isSuccess()).isTrue();
+        assertThat(asyncTicketService.numSeatsAvailable(Optional.empty()).toCompletableFuture().get()).isEqualTo(94);
+        assertThat(asyncTicketService.getPendingRequests()).isEqualTo(0);
+    }
+
+    @Test
+    public void testFailuresCompleteTheStage() {
+        assertThatThrownBy(() -> asyncTicketService.findAndHoldSeats(101, Optional.empty(), Optional.empty(), TestUtils.EMAIL)
+                .toCompletableFuture().get())
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(NoAvailableSeatsException.class);
+        assertThatThrownBy(() -> asyncTicketService.reserveSeats(0, TestUtils.EMAIL).toCompletableFuture().get())
+                .hasCauseInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testRejectsWhenTooManyArePending() throws Exception {
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        TicketService blocking = mock(TicketService.class);
+        when(blocking.numSeatsAvailable(any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return 1;
+        });
+
+        try (ExecutorAsyncTicketService busy = new ExecutorAsyncTicketService(blocking, 2, 3)) {
+            List<CompletableFuture<Integer>> requests = Lists.newArrayList();
+            for (int i = 0; i < 4; i++) {
+                requests.add(busy.numSeatsAvailable(Optional.empty()).toCompletableFuture());
+            }
+            started.await();
+
+            //Two requests are running and one is queued
+            assertThat(busy.getPendingRequests()).isEqualTo(3);
+            assertThatThrownBy(() -> requests.get(3).get())
+                    .hasCauseInstanceOf(RejectedExecutionException.class)
+                    .hasMessageContaining("more than 3 requests are pending");
+
+            release.countDown();
+            for (int i = 0; i < 3; i++) {
+                assertThat(requests.get(i).get()).isEqualTo(1);
+            }
+            assertThat(busy.numSeatsAvailable(Optional.empty()).toCompletableFuture().get()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void testProvidedExecutor() throws Exception {
+        List<Runnable> tasks = Lists.newArrayList();
+        TicketService ticketService = mock(TicketService.class);
+        when(ticketService.numSeatsAvailable(any())).thenReturn(7);
+        ExecutorAsyncTicketService inline = new ExecutorAsyncTicketService(ticketService, tasks::add, 1);
+
+        CompletableFuture<Integer> result = inline.numSeatsAvailable(Optional.empty()).toCompletableFuture();
+        assertThat(result.isDone()).isFalse();
+        assertThat(inline.numSeatsAvailable(Optional.empty()).toCompletableFuture().isCompletedExceptionally()).isTrue();
+
+        tasks.get(0).run();
+        assertThat(result.get()).isEqualTo(7);
+        assertThat(inline.getPendingRequests()).isEqualTo(0);
+        inline.close();
+        assertThat(inline.awaitTermination(0, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void testCloseServesTakenRequests() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        TicketService ticketService = mock(TicketService.class);
+        when(ticketService.numSeatsAvailable(any())).thenAnswer(i -> {
+            running.countDown();
+            release.await();
+            return 7;
+        });
+        ExecutorAsyncTicketService owned = new ExecutorAsyncTicketService(ticketService, 1, 1);
+        CompletableFuture<Integer> result = owned.numSeatsAvailable(Optional.empty()).toCompletableFuture();
+        running.await();
+
+        owned.close();
+
+        assertThat(owned.awaitTermination(10, TimeUnit.MILLISECONDS)).isFalse();
+        release.countDown();
+        assertThat(owned.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(result.get()).isEqualTo(7);
+    }
+}
@@ -0,0 +1,103 @@
+package com.walmart.ticketservice.service;
+
+import com.google.common.collect.Sets;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.walmart.ticketservice.TestUtils;
+import com.walmart.ticketservice.model.Status;
+import com.walmart.ticketservice.model.VenueConfiguration;
+import com.walmart.ticketservice.repository.InMemorySeatHoldRepository;
+import com.walmart.ticketservice.repository.InMemorySeatRepository;
+import com.walmart.ticketservice.repository.SeatRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class HoldExpiryReaperTest {
+
+    private VenueConfiguration venueConfiguration = new VenueConfiguration(1, Sets.newHashSet(TestUtils.createLevel(1, 2, 10)));
+    private SeatRepository seatRepository;
+    private ConcurrentTicketService ticketService;
+    private ScheduledExecutorService scheduler;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        seatRepository = new InMemorySeatRepository(venueConfiguration);
+        ticketService = new ConcurrentTicketService(venueConfiguration, seatRepository, new InMemorySeatHoldRepository());
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void testReapsInBackground() throws Exception {
+        try (HoldExpiryReaper reaper = new HoldExpiryReaper(ticketService, scheduler, 100, TimeUnit.MILLISECONDS).start()) {
+            ticketService.findAndHoldSeats(5, Optional.empty(), Optional.empty(), TestUtils.EMAIL);
+            assertThat(seatRepository.countAll(Status.HELD)).isEqualTo(5);
+
+            Thread.sleep(1500);
+
+            //No request was made so only the reaper could have freed the seats
+            assertThat(seatRepository.countAll(Status.HELD)).isEqualTo(0);
+            assertThat(seatRepository.countAll(Status.AVAILABLE)).isEqualTo(20);
+        }
+    }
+
+    @Test
+    public void testCloseRestoresRequestCleanUp() throws Exception {
+        HoldExpiryReaper reaper = new HoldExpiryReaper(ticketService, scheduler, 1, TimeUnit.HOURS).start();
+        ticketService.findAndHoldSeats(5, Optional.empty(), Optional.empty(), TestUtils.EMAIL);
+        Thread.sleep(1500);
+
+        assertThat(ticketService.numSeatsAvailable(Optional.empty())).isEqualTo(15);
+
+        reaper.close();
+        assertThat(reaper.isRunning()).isFalse();
+        assertThat(scheduler.isShutdown()).isFalse();
+        assertThat(ticketService.numSeatsAvailable(Optional.empty())).isEqualTo(20);
+    }
+
+    @Test
+    public void testStartTwice() {
+        try (HoldExpiryReaper reaper = new HoldExpiryReaper(ticketService, 1, TimeUnit.SECONDS).start()) {
+            assertThatThrownBy(reaper::start)
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessage("reaper is already started");
+        }
+    }
+
+    @Test
+    public void testStartAfterClose() {
+        HoldExpiryReaper reaper = new HoldExpiryReaper(ticketService, 1, TimeUnit.SECONDS);
+        reaper.close();
+
+        assertThatThrownBy(reaper::start)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("reaper is closed");
+    }
+
+    @Test
+    public void testRejectedStartKeepsRequestCleanUp() throws Exception {
+        scheduler.shutdown();
+        HoldExpiryReaper reaper = new HoldExpiryReaper(ticketService, scheduler, 100, TimeUnit.MILLISECONDS);
+
+        assertThatThrownBy(reaper::start).isInstanceOf(RejectedExecutionException.class);
+        assertThat(reaper.isRunning()).isFalse();
+
+        ticketService.findAndHoldSeats(5, Optional.empty(), Optional.empty(), TestUtils.EMAIL);
+        Thread.sleep(1500);
+        assertThat(ticketService.numSeatsAvailable(Optional.empty())).isEqualTo(20);
+    }
+}
@@ -0,0 +1,218 @@
+package com.walmart.ticketservice.service;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.walmart.ticketservice.TestUtils;
+import com.walmart.ticketservice.exception.NoAvailableSeatsException;
+import com.walmart.ticketservice.model.SeatHold;
+import com.walmart.ticketservice.model.VenueConfiguration;
+import com.walmart.ticketservice.repository.InMemorySeatHoldRepository;
+import com.walmart.ticketservice.repository.InMemorySeatRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class ShardedTicketServiceTest {
+
+    private VenueConfiguration small = new VenueConfiguration(TestUtils.HOLD_LIMIT, Sets.newHashSet(TestUtils.createLevel(1, 1, 4)));
+    private ShardedTicketService shardedTicketService;
+    private List<String> created;
+
+    @BeforeMethod
+    public void setUp() {
+        created = Lists.newCopyOnWriteArrayList();
+        shardedTicketService = new ShardedTicketService(4, c -> {
+            created.add(Thread.currentThread().getName());
+            return new SimpleTicketService(c, new InMemorySeatRepository(c), new InMemorySeatHoldRepository());
+        });
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        shardedTicketService.close();
+    }
+
+    @Test
+    public void testEventsAreIsolated() {
+        shardedTicketService.addEvent("concert", small);
+        shardedTicketService.addEvent("game", TestUtils.VENUE_CONFIGURATION);
+
+        TicketService concert = shardedTicketService.forEvent("concert");
+        TicketService game = shardedTicketService.forEvent("game");
+        concert.findAndHoldSeats(4, Optional.empty(), Optional.empty(), TestUtils.EMAIL);
+
+        assertThat(concert.numSeatsAvailable(Optional.empty())).isEqualTo(0);
+        assertThat(game.numSeatsAvailable(Optional.empty())).isEqualTo(120);
+    }
+
+    @Test
+    public void testTicketServiceIsCreatedOnFirstUse() {
+        shardedTicketService.addEvent("concert", small);
+        TicketService concert = shardedTicketService.forEvent("concert");
+        assertThat(created).isEmpty();
+
+        concert.numSeatsAvailable(Optional.empty());
+        concert.numSeatsAvailable(Optional.empty());
+
+        assertThat(created).hasSize(1);
+        assertThat(created.get(0)).startsWith("ticket-shard-");
+    }
+
+    @Test
+    public void testRequestsOfAnEventRunOnOneShard() {
+        for (int i = 0; i < 20; i++) {
+            shardedTicketService.addEvent("event" + i, small);
+        }
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 20; i++) {
+                shardedTicketService.forEvent("event" + i).numSeatsAvailable(Optional.empty());
+            }
+        }
+        //A ticket service is created once per shard an event is served on
+        assertThat(created).hasSize(20);
+        //Events are spread over the shards
+        assertThat(Sets.newHashSet(created).size()).isGreaterThan(1);
+    }
+
+    @Test
+    public void testExceptionsArePassedThrough() {
+        shardedTicketService.addEvent("concert", small);
+        TicketService concert = shardedTicketService.forEvent("concert");
+
+        assertThatThrownBy(() -> concert.findAndHoldSeats(5, Optional.empty(), Optional.empty(), TestUtils.EMAIL))
+                .isInstanceOf(NoAvailableSeatsException.class);
+        assertThatThrownBy(() -> concert.numSeatsAvailable(Optional.of(2)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("venueLevel 2 is not part of venue configuration.");
+    }
+
+    @Test
+    public void testUnknownEvent() {
+        assertThatThrownBy(() -> shardedTicketService.forEvent("concert"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("event concert does not exist");
+    }
+
+    @Test
+    public void testDuplicateEvent() {
+        shardedTicketService.addEvent("concert", small);
+        assertThatThrownBy(() -> shardedTicketService.addEvent("concert", small))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("event concert already exists");
+    }
+
+    @Test
+    public void testRemoveEvent() {
+        shardedTicketService.addEvent("concert", small);
+        TicketService concert = shardedTicketService.forEvent("concert");
+        SeatHold seatHold = concert.findAndHoldSeats(4, Optional.empty(), Optional.empty(), TestUtils.EMAIL);
+        assertThat(seatHold.getHeldSeats()).hasSize(4);
+
+        assertThat(shardedTicketService.removeEvent("concert")).isTrue();
+        assertThat(shardedTicketService.removeEvent("concert")).isFalse();
+        assertThatThrownBy(() -> concert.numSeatsAvailable(Optional.empty()))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        //A new event with the same id starts with a new venue
+        shardedTicketService.addEvent("concert", small);
+        assertThat(shardedTicketService.forEvent("concert").numSeatsAvailable(Optional.empty())).isEqualTo(4);
+    }
+
+    @Test
+    public void testQueuedRequestsOfARemovedEventFail() throws Exception {
+        CountDownLatch creating = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try (ShardedTicketService oneShard = new ShardedTicketService(1, c -> {
+            //Keep the only shard busy creating the first ticket service
+            creating.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new SimpleTicketService(c, new InMemorySeatRepository(c), new InMemorySeatHoldRepository());
+        })) {
+            oneShard.addEvent("concert", small);
+            oneShard.addEvent("game", small);
+            TicketService concert = oneShard.forEvent("concert");
+            TicketService game = oneShard.forEvent("game");
+
+            CompletableFuture<Integer> busy = CompletableFuture.supplyAsync(() -> game.numSeatsAvailable(Optional.empty()));
+            creating.await();
+            CompletableFuture<Integer> queued = new CompletableFuture<>();
+            Thread caller = new Thread(() -> {
+                try {
+                    queued.complete(concert.numSeatsAvailable(Optional.empty()));
+                } catch (RuntimeException e) {
+                    queued.completeExceptionally(e);
+                }
+            });
+            caller.start();
+            //The caller waits for its request once it is queued behind the busy shard
+            while (caller.getState() != Thread.State.WAITING) {
+                Thread.sleep(1);
+            }
+
+            assertThat(oneShard.removeEvent("concert")).isTrue();
+            release.countDown();
+
+            assertThat(busy.get()).isEqualTo(4);
+            Throwable thrown = catchThrowable(queued::get);
+            assertThat(thrown).isInstanceOf(ExecutionException.class);
+            assertThat(thrown.getCause())
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("event concert does not exist");
+        }
+    }
+
+    @Test
+    public void testCloseServesQueuedRequests() throws Exception {
+        CountDownLatch creating = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ShardedTicketService oneShard = new ShardedTicketService(1, c -> {
+            //Keep the only shard busy creating the ticket service
+            creating.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new SimpleTicketService(c, new InMemorySeatRepository(c), new InMemorySeatHoldRepository());
+        });
+        oneShard.addEvent("concert", small);
+        TicketService concert = oneShard.forEvent("concert");
+        CompletableFuture<Integer> queued = CompletableFuture.supplyAsync(() -> concert.numSeatsAvailable(Optional.empty()));
+        creating.await();
+
+        oneShard.close();
+
+        assertThat(oneShard.awaitTermination(10, TimeUnit.MILLISECONDS)).isFalse();
+        release.countDown();
+        assertThat(oneShard.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(queued.get()).isEqualTo(4);
+    }
+
+    @Test
+    public void testClosed() throws Exception {
+        shardedTicketService.addEvent("concert", small);
+        TicketService concert = shardedTicketService.forEvent("concert");
+        shardedTicketService.close();
+
+        assertThatThrownBy(() -> concert.numSeatsAvailable(Optional.empty()))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("the ticket service is closed");
+    }
+}
@@ -1,30 +1,51 @@
 package com.walmart.ticketservice.service;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
+import org.mockito.ArgumentCaptor;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import com.walmart.ticketservice.TestUtils;
+import com.walmart.ticketservice.exception.HoldContentionException;
 import com.walmart.ticketservice.exception.NoAvailableSeatsException;
 import com.walmart.ticketservice.exception.SeatHoldException;
+import com.walmart.ticketservice.model.AllocationMode;
+import com.walmart.ticketservice.model.HoldRequest;
+import com.walmart.ticketservice.model.HoldResult;
 import com.walmart.ticketservice.model.Seat;
 import com.walmart.ticketservice.model.SeatHold;
 import com.walmart.ticketservice.model.Status;
 import com.walmart.ticketservice.model.VenueConfiguration;
+import com.walmart.ticketservice.repository.InMemorySeatHoldRepository;
+import com.walmart.ticketservice.repository.InMemorySeatRepository;
 import com.walmart.ticketservice.repository.SeatHoldRepository;
 import com.walmart.ticketservice.repository.SeatRepository;
 import com.walmart.ticketservice.utils.ConfirmationCodeGenerator;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.AdditionalAnswers.returnsFirstArg;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.any;
-import static org.mockito.Mockito.anyCollection;
+import static org.mockito.Mockito.anyCollectionOf;
+import static org.mockito.Mockito.anyInt;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
@@ -64,6 +85,8 @@ public class SimpleTicketServiceTest {
         seatHold2 = new SeatHold(2, TestUtils.EMAIL, Sets.newHashSet(seat2));
 
         when(seatHoldRepository.findAllExpired(venueConfiguration.getHoldLimit())).thenReturn(Sets.newHashSet(seatHold1, seatHold2).stream());
+        when(seatHoldRepository.nextId()).thenReturn(3);
+        when(seatRepository.transition(anyCollectionOf(Seat.class), anyInt(), any(Status.class), any(Status.class))).thenReturn(true);
 
     }
 
@@ -78,34 +101,47 @@ public class SimpleTicketServiceTest {
     @Test
     public void testFreeUpSeats() throws Exception {
         Set<SeatHold> seatHolds = Sets.newHashSet(seatHold1, seatHold2);
+        seat1.setStatus(Status.HELD);
+        seat2.setStatus(Status.HELD);
         simpleTicketService.freeUpSeats(seatHolds);
-        verify(seatRepository).save(anyCollection());
-        assertThat(seat1.getStatus()).isEqualTo(Status.AVAILABLE);
-        assertThat(seat2.getStatus()).isEqualTo(Status.AVAILABLE);
+        verify(seatRepository).transition(seatHold1.getHeldSeats(), seatHold1.getId(), Status.HELD, Status.AVAILABLE);
+        verify(seatRepository).transition(seatHold2.getHeldSeats(), seatHold2.getId(), Status.HELD, Status.AVAILABLE);
+        verify(seatRepository, never()).save(anyCollectionOf(Seat.class));
+        //The seat holds were read from the repository so their seats are not changed
+        assertThat(seat1.getStatus()).isEqualTo(Status.HELD);
+        assertThat(seat2.getStatus()).isEqualTo(Status.HELD);
+    }
+
+    @Test
+    public void testFreeUpSeatsNoLongerHeld() throws Exception {
+        seat1.setStatus(Status.HELD);
+        when(seatRepository.transition(seatHold1.getHeldSeats(), seatHold1.getId(), Status.HELD, Status.AVAILABLE)).thenReturn(false);
+        simpleTicketService.freeUpSeats(Sets.newHashSet(seatHold1));
+        assertThat(seat1.getStatus()).isEqualTo(Status.HELD);
     }
 
     @Test
     public void testDoNumSeatsAvailable() throws Exception {
-        when(seatRepository.findAll(Status.AVAILABLE)).thenReturn(seats.stream());
-        simpleTicketService.doNumSeatsAvailable(Optional.empty());
-        verify(seatRepository).findAll(Status.AVAILABLE);
+        when(seatRepository.countAll(Status.AVAILABLE)).thenReturn(seats.size());
+        assertThat(simpleTicketService.doNumSeatsAvailable(Optional.empty())).isEqualTo(3);
+        verify(seatRepository).countAll(Status.AVAILABLE);
     }
 
     @Test
     public void testDoNumSeatsAvailableInLevel() throws Exception {
-        when(seatRepository.findAll(1, Status.AVAILABLE)).thenReturn(seats.stream());
-        simpleTicketService.doNumSeatsAvailable(Optional.of(1));
-        verify(seatRepository).findAll(1, Status.AVAILABLE);
+        when(seatRepository.countAll(1, Status.AVAILABLE)).thenReturn(seats.size());
+        assertThat(simpleTicketService.doNumSeatsAvailable(Optional.of(1))).isEqualTo(3);
+        verify(seatRepository).countAll(1, Status.AVAILABLE);
     }
 
     @Test
     public void testDoFindAndHoldSeatsNoLevel() {
-        when(seatRepository.findBest(1)).thenReturn(seats.stream());
+        when(seatRepository.findTop(1, 1)).thenReturn(seats.stream());
         when(seatHoldRepository.save(any(SeatHold.class))).thenReturn(new SeatHold(1, TestUtils.EMAIL, Sets.newHashSet(seat1)));
         SeatHold result = simpleTicketService.doFindAndHoldSeats(1, Optional.empty(), Optional.empty(), TestUtils.EMAIL);
 
         assertThat(result.getHeldSeats()).hasSize(1);
-        verify(seatRepository).findBest(1);
+        verify(seatRepository).findTop(1, 1);
         verify(seatHoldRepository).save(any(SeatHold.class));
 
         assertThat(result.getCustomerEmail()).isEqualTo(TestUtils.EMAIL);
@@ -115,12 +151,12 @@ public class SimpleTicketServiceTest {
 
     @Test
     public void testDoFindAndHoldSeatsWithMinLevel() {
-        when(seatRepository.findBest(1)).thenReturn(seats.stream());
+        when(seatRepository.findTop(1, 1)).thenReturn(seats.stream());
         when(seatHoldRepository.save(any(SeatHold.class))).thenReturn(new SeatHold(1, TestUtils.EMAIL, Sets.newHashSet(seat1)));
         SeatHold result = simpleTicketService.doFindAndHoldSeats(1, Optional.of(1), Optional.empty(), TestUtils.EMAIL);
 
         assertThat(result.getHeldSeats()).hasSize(1);
-        verify(seatRepository).findBest(1);
+        verify(seatRepository).findTop(1, 1);
         verify(seatHoldRepository).save(any(SeatHold.class));
 
         assertThat(result.getCustomerEmail()).isEqualTo(TestUtils.EMAIL);
@@ -130,12 +166,12 @@ public class SimpleTicketServiceTest {
 
     @Test
     public void testDoFindAndHoldSeatsWithBoth() {
-        when(seatRepository.findBest(1, 3)).thenReturn(seats.stream());
+        when(seatRepository.findTop(1, 3, 1)).thenReturn(seats.stream());
         when(seatHoldRepository.save(any(SeatHold.class))).thenReturn(new SeatHold(1, TestUtils.EMAIL, Sets.newHashSet(seat1)));
         SeatHold result = simpleTicketService.doFindAndHoldSeats(1, Optional.of(1), Optional.of(3), TestUtils.EMAIL);
 
         assertThat(result.getHeldSeats()).hasSize(1);
-        verify(seatRepository).findBest(1, 3);
+        verify(seatRepository).findTop(1, 3, 1);
         verify(seatHoldRepository).save(any(SeatHold.class));
 
         assertThat(result.getCustomerEmail()).isEqualTo(TestUtils.EMAIL);
@@ -143,10 +179,36 @@ public class SimpleTicketServiceTest {
         assertThat(savedSeat.getStatus()).isEqualTo(Status.HELD);
     }
 
+    @Test
+    public void testDoFindAndHoldSeatsContiguous() {
+        simpleTicketService.setAllocationMode(AllocationMode.CONTIGUOUS);
+        when(seatRepository.findBestContiguous(1, 3, 1)).thenReturn(Sets.newHashSet(seat1).stream());
+        when(seatHoldRepository.save(any(SeatHold.class))).thenReturn(new SeatHold(1, TestUtils.EMAIL, Sets.newHashSet(seat1)));
+        SeatHold result = simpleTicketService.doFindAndHoldSeats(1, Optional.of(1), Optional.of(3), TestUtils.EMAIL);
+
+        assertThat(result.getHeldSeats()).containsExactly(seat1);
+        verify(seatRepository).findBestContiguous(1, 3, 1);
+        verify(seatRepository, never()).findTop(1, 3, 1);
+        assertThat(seat1.getStatus()).isEqualTo(Status.HELD);
+    }
+
+    @Test
+    public void testDoFindAndHoldSeatsContiguousFallsBack() {
+        simpleTicketService.setAllocationMode(AllocationMode.CONTIGUOUS);
+        when(seatRepository.findBestContiguous(1, 1)).thenReturn(Stream.empty());
+        when(seatRepository.findTop(1, 1)).thenReturn(seats.stream());
+        when(seatHoldRepository.save(any(SeatHold.class))).thenReturn(new SeatHold(1, TestUtils.EMAIL, Sets.newHashSet(seat1)));
+        simpleTicketService.doFindAndHoldSeats(1, Optional.empty(), Optional.empty(), TestUtils.EMAIL);
+
+        verify(seatRepository).findBestContiguous(1, 1);
+        verify(seatRepository).findTop(1, 1);
+        verify(seatHoldRepository).save(any(SeatHold.class));
+    }
+
     @Test
     public void testDoFindAndHoldSeatsNoSeats() {
         Set<Seat> emptySet = Sets.newHashSet();
-        when(seatRepository.findBest(1)).thenReturn(emptySet.stream());
+        when(seatRepository.findTop(1, 1)).thenReturn(emptySet.stream());
 
         assertThatThrownBy(() -> simpleTicketService.doFindAndHoldSeats(1, Optional.empty(), Optional.empty(), TestUtils.EMAIL))
                 .isInstanceOf(NoAvailableSeatsException.class);
@@ -154,6 +216,82 @@ public class SimpleTicketServiceTest {
         verifyZeroInteractions(seatHoldRepository);
     }
 
+    @Test
+    public void testDoFindAndHoldSeatsRetriesWhenSeatsAreTaken() {
+        when(seatRepository.findTop(1, 1)).thenAnswer(i -> Stream.of(seat1)).thenAnswer(i -> Stream.of(seat2));
+        when(seatRepository.transition(Sets.newHashSet(seat1), 3, Status.AVAILABLE, Status.HELD)).thenReturn(false);
+        when(seatHoldRepository.save(any(SeatHold.class))).thenAnswer(returnsFirstArg());
+
+        SeatHold result = simpleTicketService.doFindAndHoldSeats(1, Optional.empty(), Optional.empty(), TestUtils.EMAIL);
+
+        assertThat(result.getHeldSeats()).containsOnly(seat2);
+        assertThat(result.getId()).isEqualTo(3);
+        assertThat(seat1.getStatus()).isEqualTo(Status.AVAILABLE);
+        verify(seatRepository, times(2)).findTop(1, 1);
+        verify(seatHoldRepository).save(any(SeatHold.class));
+        verify(seatRepository, never()).save(anyCollectionOf(Seat.class));
+    }
+
+    @Test
+    public void testDoFindAndHoldSeatsGivesUpWhenSeatsKeepBeingTaken() {
+        when(seatRepository.findTop(1, 1)).thenAnswer(i -> Stream.of(seat1));
+        when(seatRepository.transition(anyCollectionOf(Seat.class), anyInt(), any(Status.class), any(Status.class))).thenReturn(false);
+
+        assertThatThrownBy(() -> simpleTicketService.doFindAndHoldSeats(1, Optional.empty(), Optional.empty(), TestUtils.EMAIL))
+                .isInstanceOf(HoldContentionException.class)
+                .hasMessage("The seats found were taken by other holds " + SimpleTicketService.MAX_HOLD_ATTEMPTS + " times.");
+
+        verify(seatRepository, times(SimpleTicketService.MAX_HOLD_ATTEMPTS)).findTop(1, 1);
+        //One id is used for every attempt and no seat hold is saved
+        verify(seatRepository, times(SimpleTicketService.MAX_HOLD_ATTEMPTS)).transition(anyCollectionOf(Seat.class), eq(3),
+                eq(Status.AVAILABLE), eq(Status.HELD));
+        verify(seatHoldRepository).nextId();
+        verifyNoMoreInteractions(seatHoldRepository);
+    }
+
+    @Test
+    public void testContentionIsNotReportedAsRejection() {
+        TicketServiceListener listener = mock(TicketServiceListener.class);
+        simpleTicketService.addListener(listener);
+        when(seatHoldRepository.findAllExpired(venueConfiguration.getHoldLimit())).thenAnswer(i -> Stream.empty());
+        when(seatRepository.findTop(1, 1)).thenAnswer(i -> Stream.of(seat1));
+        when(seatRepository.transition(anyCollectionOf(Seat.class), anyInt(), eq(Status.AVAILABLE), eq(Status.HELD))).thenReturn(false);
+
+        assertThatThrownBy(() -> simpleTicketService.findAndHoldSeats(1, Optional.empty(), Optional.empty(), TestUtils.EMAIL))
+                .isInstanceOf(HoldContentionException.class);
+        List<HoldResult> results = simpleTicketService.findAndHoldSeats(Lists.newArrayList(new HoldRequest(1, TestUtils.EMAIL)));
+
+        assertThat(results.get(0).getFailure().get()).isInstanceOf(HoldContentionException.class);
+        verify(listener, never()).onHoldRejected(any(NoAvailableSeatsException.class));
+    }
+
+    @Test
+    public void testExpiredSeatHoldCannotTakeTheSeatsOfANewOne() {
+        VenueConfiguration venue = new VenueConfiguration(TestUtils.HOLD_LIMIT, Sets.newHashSet(TestUtils.createLevel(1, 1, 2)));
+        SeatHoldRepository holds = spy(new InMemorySeatHoldRepository());
+        SimpleTicketService service = new SimpleTicketService(venue, new InMemorySeatRepository(venue), holds, confirmationCodeGenerator);
+        when(confirmationCodeGenerator.generate()).thenReturn("confirmed");
+        SeatHold expired = service.doFindAndHoldSeats(2, Optional.empty(), Optional.empty(), "first@test.com");
+
+        //The seat hold expires, its seats are freed and another customer holds the same seats
+        holds.delete(expired);
+        service.freeUpSeats(Collections.singleton(expired));
+        SeatHold current = service.doFindAndHoldSeats(2, Optional.empty(), Optional.empty(), "second@test.com");
+        assertThat(current.getHeldSeats()).isEqualTo(expired.getHeldSeats());
+
+        //A reservation that read the expired seat hold before it was deleted
+        doReturn(Optional.of(expired)).when(holds).find(expired.getId());
+        assertThatThrownBy(() -> service.doReserveSeats(expired.getId(), "first@test.com"))
+                .isInstanceOf(SeatHoldException.class)
+                .hasMessage("The seats of seat hold " + expired.getId() + " are no longer held");
+        //The same seat hold expired a second time
+        service.freeUpSeats(Collections.singleton(expired));
+
+        assertThat(holds.findAll().map(SeatHold::getId).collect(Collectors.toList())).containsExactly(current.getId());
+        assertThat(service.doNumSeatsAvailable(Optional.empty())).isEqualTo(0);
+        assertThat(service.doReserveSeats(current.getId(), "second@test.com")).isEqualTo("confirmed");
+    }
+
     @Test
     public void testDoReserveSeatsNotFound() {
         when(seatHoldRepository.find(1)).thenReturn(Optional.empty());
@@ -171,7 +309,95 @@ public class SimpleTicketServiceTest {
         simpleTicketService.doReserveSeats(1, TestUtils.EMAIL);
 
         verify(seatHoldRepository).find(1);
-        verify(seatRepository).save(seatHold1.getHeldSeats());
-        verify(seatHoldRepository).save(any(SeatHold.class));
+        verify(seatRepository).transition(seatHold1.getHeldSeats(), seatHold1.getId(), Status.HELD, Status.RESERVED);
+        ArgumentCaptor<SeatHold> confirmed = ArgumentCaptor.forClass(SeatHold.class);
+        verify(seatHoldRepository).save(confirmed.capture());
+        assertThat(confirmed.getValue().getConfirmationCode()).contains("confirmed");
+        assertThat(confirmed.getValue().getHeldSeats()).containsOnly(seat1).allMatch(s -> s.getStatus() == Status.RESERVED);
+        assertThat(seat1.getStatus()).isNotEqualTo(Status.RESERVED);
+    }
+
+    @Test
+    public void testDoReserveSeatsNoLongerHeld() {
+        when(seatHoldRepository.find(1)).thenReturn(Optional.of(seatHold1));
+        when(seatRepository.transition(seatHold1.getHeldSeats(), seatHold1.getId(), Status.HELD, Status.RESERVED)).thenReturn(false);
+
+        assertThatThrownBy(() -> simpleTicketService.doReserveSeats(1, TestUtils.EMAIL))
+                .isInstanceOf(SeatHoldException.class)
+                .hasMessage("The seats of seat hold 1 are no longer held");
+
+        verify(seatHoldRepository, never()).save(any(SeatHold.class));
+        verifyZeroInteractions(confirmationCodeGenerator);
+    }
+
+    @Test
+    public void testDoFindAndHoldSeatsBatch() {
+        List<Seat> level1 = scoredSeats(1, 1, 2, 3, 4, 5);
+        when(seatRepository.findTop(1, 10)).thenReturn(level1.stream());
+        when(seatHoldRepository.save(any(SeatHold.class))).thenAnswer(returnsFirstArg());
+
+        List<HoldResult> results = simpleTicketService.doFindAndHoldSeats(Lists.newArrayList(
+                new HoldRequest(2, Optional.empty(), Optional.empty(), "first@test.com"),
+                new HoldRequest(5, Optional.empty(), Optional.empty(), "second@test.com"),
+                new HoldRequest(3, Optional.empty(), Optional.empty(), "third@test.com")));
+
+        assertThat(results.get(0).getSeatHold().get().getHeldSeats()).containsOnly(level1.get(0), level1.get(1));
+        assertThat(results.get(1).getFailure().get()).isInstanceOf(NoAvailableSeatsException.class);
+        //The seats looked at for the failed request are still handed to the next one
+        assertThat(results.get(2).getSeatHold().get().getHeldSeats()).containsOnly(level1.get(2), level1.get(3), level1.get(4));
+        assertThat(level1).allMatch(s -> s.getStatus() == Status.HELD);
+
+        verify(seatRepository).findTop(1, 10);
+        verify(seatRepository, times(2)).transition(anyCollectionOf(Seat.class), anyInt(), eq(Status.AVAILABLE), eq(Status.HELD));
+        verify(seatHoldRepository, times(2)).save(any(SeatHold.class));
+    }
+
+    @Test
+    public void testDoFindAndHoldSeatsBatchServesRequestOnItsOwnWhenSeatsAreTaken() {
+        List<Seat> level1 = scoredSeats(1, 1, 2, 3);
+        when(seatRepository.findTop(1, 3)).thenAnswer(i -> level1.stream())
+                .thenAnswer(i -> Stream.empty());
+        when(seatRepository.findTop(1, 2)).thenAnswer(i -> level1.stream().skip(1));
+        //Any hold including the best seat conflicts
+        when(seatRepository.transition(anyCollectionOf(Seat.class), anyInt(), eq(Status.AVAILABLE), eq(Status.HELD)))
+                .thenAnswer(i -> !((Collection<?>) i.getArguments()[0]).contains(level1.get(0)));
+        when(seatHoldRepository.save(any(SeatHold.class))).thenAnswer(returnsFirstArg());
+
+        List<HoldResult> results = simpleTicketService.doFindAndHoldSeats(Lists.newArrayList(
+                new HoldRequest(2, Optional.empty(), Optional.empty(), "first@test.com"),
+                new HoldRequest(1, Optional.empty(), Optional.empty(), "second@test.com")));
+
+        //Another hold took the best seat, so the first request is served again from the seats left
+        assertThat(results.get(0).getSeatHold().get().getHeldSeats()).containsOnly(level1.get(1), level1.get(2));
+        assertThat(results.get(1).getFailure().get()).isInstanceOf(NoAvailableSeatsException.class);
+        verify(seatRepository).findTop(1, 2);
+    }
+
+    @Test
+    public void testDoFindAndHoldSeatsBatchAcrossLevels() {
+        List<Seat> level2 = scoredSeats(2, 2, 4, 6);
+        List<Seat> level3 = scoredSeats(3, 1, 3, 5);
+        when(seatRepository.findTop(2, 4)).thenReturn(level2.stream());
+        when(seatRepository.findTop(3, 4)).thenReturn(level3.stream());
+        when(seatHoldRepository.save(any(SeatHold.class))).thenAnswer(returnsFirstArg());
+
+        List<HoldResult> results = simpleTicketService.doFindAndHoldSeats(Lists.newArrayList(
+                new HoldRequest(1, Optional.of(2), Optional.empty(), "first@test.com"),
+                new HoldRequest(3, Optional.of(2), Optional.of(3), "second@test.com")));
+
+        assertThat(results.get(0).getSeatHold().get().getHeldSeats()).containsOnly(level2.get(0));
+        assertThat(results.get(1).getSeatHold().get().getHeldSeats()).containsOnly(level3.get(0), level3.get(1), level2.get(1));
+        verify(seatRepository).findTop(2, 4);
+        verify(seatRepository).findTop(3, 4);
+    }
+
+    private static List<Seat> scoredSeats(int level, int... scores) {
+        List<Seat> seats = Lists.newArrayList();
+        for (int i = 0; i < scores.length; i++) {
+            Seat seat = TestUtils.createSeat(level, 1, i + 1);
+            seat.setScore(scores[i]);
+            seats.add(seat);
+        }
+        return seats;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,176 @@
+package com.walmart.ticketservice.service;
+
+import com.google.common.collect.Lists;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class VenueRequestExecutorTest {
+
+    private ExecutorService executor;
+    private VenueRequestExecutor venueRequestExecutor;
+
+    @BeforeMethod
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+        venueRequestExecutor = new VenueRequestExecutor(executor);
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        venueRequestExecutor.close();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testLimitsConcurrencyPerVenue() throws Exception {
+        AtomicInteger[] concurrency = {new AtomicInteger(), new AtomicInteger()};
+        AtomicInteger[] maxConcurrency = {new AtomicInteger(), new AtomicInteger()};
+        venueRequestExecutor.addVenue("single", countingTicketService(concurrency[0], maxConcurrency[0], 2), 1, 100);
+        venueRequestExecutor.addVenue("double", countingTicketService(concurrency[1], maxConcurrency[1], 2), 2, 100);
+
+        List<CompletableFuture<Integer>> results = Lists.newArrayList();
+        for (int i = 0; i < 20; i++) {
+            results.add(venueRequestExecutor.forVenue("single").numSeatsAvailable(Optional.empty()).toCompletableFuture());
+            results.add(venueRequestExecutor.forVenue("double").numSeatsAvailable(Optional.empty()).toCompletableFuture());
+        }
+        for (CompletableFuture<Integer> result : results) {
+            assertThat(result.get()).isEqualTo(1);
+        }
+
+        assertThat(maxConcurrency[0].get()).isEqualTo(1);
+        assertThat(maxConcurrency[1].get()).isEqualTo(2);
+        assertThat(venueRequestExecutor.getStats("single").getCompleted()).isEqualTo(20);
+        assertThat(venueRequestExecutor.getStats("single").getRunning()).isEqualTo(0);
+    }
+
+    @Test
+    public void testWaitTimeIsReportedApartFromServiceTime() throws Exception {
+        venueRequestExecutor.addVenue("venue", countingTicketService(new AtomicInteger(), new AtomicInteger(), 20), 1, 10);
+
+        List<CompletableFuture<Integer>> results = Lists.newArrayList();
+        for (int i = 0; i < 3; i++) {
+            results.add(venueRequestExecutor.forVenue("venue").numSeatsAvailable(Optional.empty()).toCompletableFuture());
+        }
+        for (CompletableFuture<Integer> result : results) {
+            result.get();
+        }
+
+        VenueRequestExecutor.Stats stats = venueRequestExecutor.getStats("venue");
+        assertThat(stats.getCompleted()).isEqualTo(3);
+        assertThat(stats.getMeanServiceNanos()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(20));
+        //The last operation waited for the two before it
+        assertThat(stats.getMaxWaitNanos()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(40));
+        assertThat(stats.getMeanWaitNanos()).isLessThan(stats.getMaxWaitNanos());
+    }
+
+    @Test
+    public void testRejectsWhenTheQueueIsFull() {
+        List<Runnable> tasks = Lists.newArrayList();
+        VenueRequestExecutor stalled = new VenueRequestExecutor(tasks::add);
+        TicketService ticketService = mock(TicketService.class);
+        when(ticketService.numSeatsAvailable(any())).thenReturn(5);
+        stalled.addVenue("venue", ticketService, 1, 2);
+
+        List<CompletableFuture<Integer>> results = Lists.newArrayList();
+        for (int i = 0; i < 4; i++) {
+            results.add(stalled.forVenue("venue").numSeatsAvailable(Optional.empty()).toCompletableFuture());
+        }
+
+        //One operation holds the permit, two wait for it and the last one does not fit
+        assertThat(tasks).hasSize(1);
+        assertThatThrownBy(() -> results.get(3).get()).hasCauseInstanceOf(RejectedExecutionException.class);
+        VenueRequestExecutor.Stats stats = stalled.getStats("venue");
+        assertThat(stats.getRunning()).isEqualTo(1);
+        assertThat(stats.getQueued()).isEqualTo(2);
+        assertThat(stats.getRejected()).isEqualTo(1);
+
+        //Finishing an operation hands the permit to the next one
+        tasks.get(0).run();
+        assertThat(results.get(0).join()).isEqualTo(5);
+        assertThat(tasks).hasSize(2);
+        assertThat(stalled.getStats("venue").getQueued()).isEqualTo(1);
+    }
+
+    @Test
+    public void testFailuresCompleteTheStage() {
+        TicketService ticketService = mock(TicketService.class);
+        when(ticketService.reserveSeats(1, "a@b.com")).thenThrow(new IllegalArgumentException("bad"));
+        venueRequestExecutor.addVenue("venue", ticketService, 1, 1);
+
+        assertThatThrownBy(() -> venueRequestExecutor.forVenue("venue").reserveSeats(1, "a@b.com").toCompletableFuture().get())
+                .hasCauseInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testVenues() {
+        TicketService ticketService = mock(TicketService.class);
+        venueRequestExecutor.addVenue("venue", ticketService, 1, 1);
+
+        assertThatThrownBy(() -> venueRequestExecutor.addVenue("venue", ticketService, 1, 1))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("venue venue already exists");
+        assertThat(venueRequestExecutor.removeVenue("venue")).isTrue();
+        assertThatThrownBy(() -> venueRequestExecutor.forVenue("venue"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("venue venue does not exist");
+    }
+
+    @Test
+    public void testDefaultExecutor() throws Exception {
+        boolean hasVirtualThreads;
+        try {
+            Thread.class.getMethod("ofVirtual");
+            hasVirtualThreads = true;
+        } catch (NoSuchMethodException e) {
+            hasVirtualThreads = false;
+        }
+        VenueRequestExecutor defaultExecutor = new VenueRequestExecutor();
+        try {
+            assertThat(defaultExecutor.isVirtualThreads()).isEqualTo(hasVirtualThreads);
+            TicketService ticketService = mock(TicketService.class);
+            when(ticketService.numSeatsAvailable(any())).thenReturn(3);
+            defaultExecutor.addVenue("venue", ticketService, 1, 1);
+            assertThat(defaultExecutor.forVenue("venue").numSeatsAvailable(Optional.empty()).toCompletableFuture().get()).isEqualTo(3);
+        } finally {
+            defaultExecutor.close();
+        }
+        //The owned executor is shut down by close
+        assertThat(defaultExecutor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void testProvidedExecutorIsNotShutDown() throws Exception {
+        venueRequestExecutor.close();
+
+        assertThat(venueRequestExecutor.awaitTermination(0, TimeUnit.SECONDS)).isTrue();
+        assertThat(executor.isShutdown()).isFalse();
+    }
+
+    private TicketService countingTicketService(AtomicInteger concurrency, AtomicInteger maxConcurrency, long sleepMillis) {
+        TicketService ticketService = mock(TicketService.class);
+        when(ticketService.numSeatsAvailable(any())).thenAnswer(invocation -> {
+            maxConcurrency.accumulateAndGet(concurrency.incrementAndGet(), Math::max);
+            Thread.sleep(sleepMillis);
+            concurrency.decrementAndGet();
+            return 1;
+        });
+        return ticketService;
+    }
+}
@@ -0,0 +1,160 @@
+package com.walmart.ticketservice.trace;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.walmart.ticketservice.exception.NoAvailableSeatsException;
+import com.walmart.ticketservice.model.HoldRequest;
+import com.walmart.ticketservice.model.Seat;
+import com.walmart.ticketservice.model.SeatHold;
+import com.walmart.ticketservice.repository.InMemorySeatHoldRepository;
+import com.walmart.ticketservice.repository.InMemorySeatRepository;
+import com.walmart.ticketservice.service.SimpleTicketService;
+import com.walmart.ticketservice.trace.HoldTraceEvent.Type;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+import static com.walmart.ticketservice.TestUtils.EMAIL;
+import static com.walmart.ticketservice.TestUtils.VENUE_CONFIGURATION;
+import static com.walmart.ticketservice.TestUtils.createSeat;
+
+public class HoldTraceTest {
+
+    private HoldTrace holdTrace;
+    private SimpleTicketService ticketService;
+
+    @BeforeMethod
+    public void setUp() {
+        holdTrace = new HoldTrace(16);
+        ticketService = new SimpleTicketService(VENUE_CONFIGURATION, new InMemorySeatRepository(VENUE_CONFIGURATION),
+                new InMemorySeatHoldRepository());
+        ticketService.addListener(holdTrace);
+    }
+
+    @Test
+    public void testRecordsLifecycle() {
+        SeatHold seatHold = ticketService.findAndHoldSeats(30, Optional.of(1), Optional.of(2), EMAIL);
+        ticketService.findAndHoldSeats(Lists.newArrayList(new HoldRequest(500, Optional.of(2), Optional.of(3), EMAIL)));
+        ticketService.reserveSeats(seatHold.getId(), EMAIL);
+        holdTrace.onExpire(new SeatHold(7, EMAIL, Sets.newHashSet(createSeat(3, 1, 1), createSeat(3, 1, 2))));
+
+        List<HoldTraceEvent> events = holdTrace.events();
+        assertThat(events).extracting(HoldTraceEvent::getType)
+                .containsExactly(Type.CREATED, Type.REJECTED, Type.RESERVED, Type.EXPIRED);
+        assertThat(events).extracting(HoldTraceEvent::getSequence).containsExactly(0L, 1L, 2L, 3L);
+
+        HoldTraceEvent created = events.get(0);
+        assertThat(created.getSeatHoldId()).isEqualTo(seatHold.getId());
+        assertThat(created.getMinLevel()).isEqualTo(1);
+        assertThat(created.getMaxLevel()).isEqualTo(2);
+        assertThat(created.getNumSeats()).isEqualTo(30);
+
+        HoldTraceEvent rejected = events.get(1);
+        assertThat(rejected.getSeatHoldId()).isEqualTo(0);
+        assertThat(rejected.getMinLevel()).isEqualTo(2);
+        assertThat(rejected.getMaxLevel()).isEqualTo(3);
+        assertThat(rejected.getNumSeats()).isEqualTo(500);
+        assertThat(rejected.getAvailable()).isEqualTo((int) (100 - seatHold.getHeldSeats().stream().filter(s -> s.getLevel() > 1).count()));
+
+        assertThat(events.get(2).getSeatHoldId()).isEqualTo(seatHold.getId());
+        assertThat(events.get(3).getMinLevel()).isEqualTo(3);
+        assertThat(events.get(3).getNumSeats()).isEqualTo(2);
+        assertThat(events.get(1).getEpochNanos()).isGreaterThanOrEqualTo(created.getEpochNanos());
+        assertThat(created.getTimestamp().toEpochMilli()).isCloseTo(System.currentTimeMillis(), within(60_000L));
+    }
+
+    @Test
+    public void testKeepsTheLastEvents() {
+        assertThat(holdTrace.capacity()).isEqualTo(16);
+        for (int i = 1; i <= 40; i++) {
+            holdTrace.onReserve(i, "code");
+        }
+
+        assertThat(holdTrace.getRecorded()).isEqualTo(40);
+        assertThat(holdTrace.events()).extracting(HoldTraceEvent::getSeatHoldId)
+                .containsExactly(25, 26, 27, 28, 29, 30, 31, 32, 33, 34, 35, 36, 37, 38, 39, 40);
+    }
+
+    @Test
+    public void testDumpAndRead() throws IOException {
+        ticketService.findAndHoldSeats(4, Optional.empty(), Optional.empty(), EMAIL);
+        holdTrace.onHoldRejected(new NoAvailableSeatsException("none", 3, EMAIL, Optional.empty(), Optional.empty(), 1));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        holdTrace.dump(out);
+        List<HoldTraceEvent> read = HoldTrace.read(new ByteArrayInputStream(out.toByteArray()));
+
+        assertThat(out.size()).isEqualTo(12 + 2 * 40);
+        assertThat(read).usingFieldByFieldElementComparator().containsExactlyElementsOf(holdTrace.events());
+        assertThat(read.get(1).getMinLevel()).isEqualTo(-1);
+        assertThatThrownBy(() -> HoldTrace.read(new ByteArrayInputStream(new byte[12])))
+                .isInstanceOf(IOException.class)
+                .hasMessage("not a hold trace");
+    }
+
+    @Test
+    public void testConcurrentRecording() throws Exception {
+        HoldTrace trace = new HoldTrace(1 << 12);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            executor.execute(() -> {
+                for (int i = 1; i <= 1000; i++) {
+                    trace.onReserve(i, "code");
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        List<HoldTraceEvent> events = trace.events();
+        assertThat(events).hasSize(4000);
+        assertThat(events).allMatch(e -> e.getType() == Type.RESERVED && e.getSeatHoldId() >= 1 && e.getSeatHoldId() <= 1000);
+    }
+
+    @Test
+    public void testEventsAreNeverTornWhenWritersLapTheRing() throws Exception {
+        //A single slot so concurrent writers keep landing on the same one
+        HoldTrace trace = new HoldTrace(1);
+        List<SeatHold> seatHolds = Lists.newArrayList();
+        for (int id = 1; id <= 60; id++) {
+            Set<Seat> seats = Sets.newHashSet();
+            for (int number = 1; number <= id % 5 + 1; number++) {
+                seats.add(createSeat(id % 3 + 1, 1, number));
+            }
+            seatHolds.add(new SeatHold(id, EMAIL, seats));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    trace.onHold(seatHolds.get(i % seatHolds.size()));
+                }
+            });
+        }
+        executor.shutdown();
+
+        List<HoldTraceEvent> torn = Lists.newArrayList();
+        while (!executor.isTerminated()) {
+            trace.events().stream()
+                    .filter(e -> e.getMinLevel() != e.getSeatHoldId() % 3 + 1 || e.getMaxLevel() != e.getMinLevel()
+                            || e.getNumSeats() != e.getSeatHoldId() % 5 + 1)
+                    .forEach(torn::add);
+        }
+        assertThat(torn).isEmpty();
+        assertThat(trace.getRecorded()).isEqualTo(80_000);
+    }
+}
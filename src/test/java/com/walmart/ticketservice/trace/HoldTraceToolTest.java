@@ -0,0 +1,69 @@
+package com.walmart.ticketservice.trace;
+
+import com.google.common.collect.Lists;
+
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import com.walmart.ticketservice.trace.HoldTraceEvent.Type;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HoldTraceToolTest {
+
+    private static final long START = 1_700_000_000_000_000_000L;
+
+    private List<HoldTraceEvent> events = Lists.newArrayList(
+            new HoldTraceEvent(0, START, Type.CREATED, 1, 1, 2, 4, -1),
+            new HoldTraceEvent(1, START + 1_500_000, Type.REJECTED, 0, 2, -1, 10, 3),
+            new HoldTraceEvent(2, START + 2_000_000, Type.RESERVED, 1, -1, -1, 0, -1),
+            new HoldTraceEvent(3, START + 3_000_000, Type.RESERVED, 9, -1, -1, 0, -1),
+            new HoldTraceEvent(4, START + 4_000_000, Type.EXPIRED, 5, 3, 3, 2, -1));
+
+    @Test
+    public void testFormat() {
+        assertThat(HoldTraceTool.format(events, events)).containsExactly(
+                "2023-11-14T22:13:20Z #0 CREATED hold=1 levels=1-2 seats=4",
+                "2023-11-14T22:13:20.001500Z #1 REJECTED requested=10 available=3 levels=2-*",
+                "2023-11-14T22:13:20.002Z #2 RESERVED hold=1 levels=1-2 seats=4 heldFor=2.000ms",
+                "2023-11-14T22:13:20.003Z #3 RESERVED hold=9",
+                "2023-11-14T22:13:20.004Z #4 EXPIRED hold=5 levels=3 seats=2",
+                "5 events, 1 CREATED, 1 REJECTED, 2 RESERVED, 1 EXPIRED");
+    }
+
+    @Test
+    public void testRun() throws Exception {
+        HoldTrace holdTrace = new HoldTrace(8);
+        holdTrace.onReserve(3, "code");
+        holdTrace.onReserve(4, "code");
+        Path file = Files.createTempFile("hold-trace", ".bin");
+        try {
+            holdTrace.dump(file);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+            int status = HoldTraceTool.run(new String[]{"--hold", "4", file.toString()}, new PrintStream(out, true), new PrintStream(err, true));
+
+            assertThat(status).isEqualTo(0);
+            assertThat(out.toString()).contains("RESERVED hold=4").doesNotContain("hold=3").contains("1 events, 1 RESERVED");
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testBadArguments() {
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        PrintStream errStream = new PrintStream(err, true);
+
+        assertThat(HoldTraceTool.run(new String[0], System.out, errStream)).isEqualTo(2);
+        assertThat(HoldTraceTool.run(new String[]{"--type", "SOLD", "trace.bin"}, System.out, errStream)).isEqualTo(2);
+        assertThat(HoldTraceTool.run(new String[]{"does-not-exist.bin"}, System.out, errStream)).isEqualTo(1);
+        assertThat(err.toString()).contains("usage: HoldTraceTool").contains("cannot read does-not-exist.bin");
+    }
+}
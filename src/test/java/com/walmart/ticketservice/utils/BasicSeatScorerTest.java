@@ -4,14 +4,16 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import com.walmart.ticketservice.model.Level;
 import com.walmart.ticketservice.model.Seat;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static com.walmart.ticketservice.TestUtils.VENUE_CONFIGURATION;
 
 public class BasicSeatScorerTest {
 
-    private SeatScorer seatScorer;
+    private BasicSeatScorer seatScorer;
 
     @BeforeMethod
     public void setUp() throws Exception {
@@ -36,4 +38,29 @@ public class BasicSeatScorerTest {
         int actualScore = seatScorer.computeScore(seat);
         assertThat(actualScore).isEqualTo(expectedScore);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testScoreAllMatchesComputeScore() {
+        for (Level level : VENUE_CONFIGURATION.getLevels()) {
+            int[] scores = new int[level.getTotalSeats() + 1];
+            seatScorer.scoreAll(level.getId(), scores, 1);
+
+            assertThat(scores[0]).isEqualTo(0);
+            for (int row = 1; row <= level.getRows(); row++) {
+                for (int number = 1; number <= level.getSeatsPerRow(); number++) {
+                    assertThat(scores[(row - 1) * level.getSeatsPerRow() + number])
+                            .isEqualTo(seatScorer.computeScore(new Seat(level.getId(), row, number)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testUnknownLevel() {
+        assertThatThrownBy(() -> seatScorer.computeScore(new Seat(100, 1, 1)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("venueLevel 100 is not part of venue configuration.");
+        assertThatThrownBy(() -> seatScorer.scoreAll(100, new int[1], 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,101 @@
+package com.walmart.ticketservice.utils;
+
+import com.google.common.collect.Lists;
+
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class MpscRingBufferTest {
+
+    @Test
+    public void testOfferAndPollInOrder() {
+        MpscRingBuffer<Integer> ring = new MpscRingBuffer<>(4);
+        assertThat(ring.isEmpty()).isTrue();
+        assertThat(ring.poll()).isNull();
+
+        ring.offer(1);
+        ring.offer(2);
+        assertThat(ring.size()).isEqualTo(2);
+        assertThat(ring.poll()).isEqualTo(1);
+        ring.offer(3);
+        assertThat(ring.poll()).isEqualTo(2);
+        assertThat(ring.poll()).isEqualTo(3);
+        assertThat(ring.poll()).isNull();
+        assertThat(ring.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void testFull() {
+        MpscRingBuffer<Integer> ring = new MpscRingBuffer<>(3);
+        assertThat(ring.capacity()).isEqualTo(4);
+        for (int i = 0; i < 4; i++) {
+            assertThat(ring.offer(i)).isTrue();
+        }
+        assertThat(ring.offer(4)).isFalse();
+
+        assertThat(ring.poll()).isEqualTo(0);
+        assertThat(ring.offer(4)).isTrue();
+        assertThat(ring.size()).isEqualTo(4);
+    }
+
+    @Test
+    public void testBadArguments() {
+        assertThatThrownBy(() -> new MpscRingBuffer<>(0)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(new MpscRingBuffer<>(1).capacity()).isEqualTo(1);
+        assertThatThrownBy(() -> new MpscRingBuffer<Integer>(2).offer(null)).isInstanceOf(NullPointerException.class);
+    }
+
+    @Test
+    public void testManyProducers() throws Exception {
+        int producers = 4;
+        int perProducer = 100_000;
+        MpscRingBuffer<long[]> ring = new MpscRingBuffer<>(64);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    long[] element = {producer, i};
+                    while (!ring.offer(element)) {
+                        Thread.yield();
+                    }
+                }
+            });
+        }
+        start.countDown();
+
+        //Every element arrives exactly once and in order for each producer
+        long[] next = new long[producers];
+        List<Integer> outOfOrder = Lists.newArrayList();
+        for (int received = 0; received < producers * perProducer; ) {
+            long[] element = ring.poll();
+            if (element == null) {
+                continue;
+            }
+            if (element[1] != next[(int) element[0]]++) {
+                outOfOrder.add((int) element[0]);
+            }
+            received++;
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(outOfOrder).isEmpty();
+        assertThat(next).containsOnly(perProducer);
+        assertThat(ring.isEmpty()).isTrue();
+    }
+}